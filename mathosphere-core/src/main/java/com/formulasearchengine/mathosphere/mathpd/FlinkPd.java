@@ -101,7 +101,7 @@ public class FlinkPd {
      */
     private static DataSet<ExtractedMathPDDocument> aggregateSnippetsToPartitions(FlatMapOperator<String, ExtractedMathPDDocument> extractedMathPdSnippets) {
         DataSet<ExtractedMathPDDocument> extractedMathPdDocuments = extractedMathPdSnippets
-                .groupBy("title")
+                .groupBy(new SelectTitle())
                 .reduceGroup((GroupReduceFunction<ExtractedMathPDDocument, ExtractedMathPDDocument>) (iterable, collector) -> {
                     final List<ExtractedMathPDDocument> sortedNamesAndSnippets = new ArrayList<>();
                     for (ExtractedMathPDDocument nameAndSnippet : iterable) {
@@ -461,10 +461,15 @@ public class FlinkPd {
     public WikiDocumentOutput outDocFromText(FlinkPdCommandConfig config, String input) throws Exception {
         final TextAnnotatorMapper textAnnotatorMapper = new TextAnnotatorMapper(config);
         textAnnotatorMapper.open(null);
-        final CreateCandidatesMapper candidatesMapper = new CreateCandidatesMapper(config);
-
-        final ParsedWikiDocument parsedWikiDocument = textAnnotatorMapper.parse(input);
-        return candidatesMapper.map(parsedWikiDocument);
+        try {
+            final CreateCandidatesMapper candidatesMapper = new CreateCandidatesMapper(config);
+
+            final ParsedWikiDocument parsedWikiDocument = textAnnotatorMapper.parse(input);
+            return candidatesMapper.map(parsedWikiDocument);
+        } finally {
+            // releases the texvcinfo client and the shared tagger pipeline
+            textAnnotatorMapper.close();
+        }
     }
 
     public String runFromText(FlinkPdCommandConfig config, String input) throws Exception {
@@ -3,6 +3,7 @@ package com.formulasearchengine.mathosphere.mathpd.pojos;
 import com.formulasearchengine.mathosphere.mathpd.Distances;
 import com.formulasearchengine.mathosphere.mlp.text.WikiTextUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.flink.api.common.typeinfo.TypeInfo;
 
 import java.io.Serializable;
 import java.util.HashMap;
@@ -13,6 +14,7 @@ import java.util.Map;
  * <p>
  * Created by felix on 07.12.16.
  */
+@TypeInfo(ExtractedMathPDDocumentSerializer.TypeInfoFactory.class)
 public class ExtractedMathPDDocument implements Comparable<ExtractedMathPDDocument>, Serializable {
     private static final String ID_SEPARATOR = "/";
     public String title;
@@ -57,6 +59,13 @@ public class ExtractedMathPDDocument implements Comparable<ExtractedMathPDDocume
         return plainText;
     }
 
+    /**
+     * @return the plain text if it was set or computed already, otherwise null
+     */
+    String getCachedPlainText() {
+        return plainText;
+    }
+
     public void setHistogramBvar(Map<String, Double> histogramBvar) {
         this.histogramBvar = histogramBvar;
     }
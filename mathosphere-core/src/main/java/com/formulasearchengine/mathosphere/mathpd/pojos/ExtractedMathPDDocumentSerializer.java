@@ -0,0 +1,96 @@
+package com.formulasearchengine.mathosphere.mathpd.pojos;
+
+import com.formulasearchengine.mathosphere.mlp.pojos.SerializerBase;
+import com.formulasearchengine.mathosphere.mlp.pojos.SerializerTypeInfo;
+
+import org.apache.flink.api.common.typeinfo.TypeInformation;
+import org.apache.flink.core.memory.DataInputView;
+import org.apache.flink.core.memory.DataOutputView;
+import org.apache.flink.types.StringValue;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Serializes an {@link ExtractedMathPDDocument} with its histograms, which Flink would otherwise serialize with Kryo
+ * as generic map fields of the POJO.
+ */
+public class ExtractedMathPDDocumentSerializer extends SerializerBase<ExtractedMathPDDocument> {
+
+    public static final ExtractedMathPDDocumentSerializer INSTANCE = new ExtractedMathPDDocumentSerializer();
+
+    /**
+     * Creates the type information of {@link ExtractedMathPDDocument}, which is annotated with this factory.
+     */
+    public static class TypeInfoFactory
+            extends org.apache.flink.api.common.typeinfo.TypeInfoFactory<ExtractedMathPDDocument> {
+        @Override
+        public TypeInformation<ExtractedMathPDDocument> createTypeInfo(Type t,
+                                                                       Map<String, TypeInformation<?>> genericParameters) {
+            return new SerializerTypeInfo<>(ExtractedMathPDDocument.class, INSTANCE);
+        }
+    }
+
+    @Override
+    public ExtractedMathPDDocument createInstance() {
+        return new ExtractedMathPDDocument();
+    }
+
+    @Override
+    public void serialize(ExtractedMathPDDocument doc, DataOutputView out) throws IOException {
+        StringValue.writeString(doc.title, out);
+        StringValue.writeString(doc.text, out);
+        StringValue.writeString(doc.name, out);
+        StringValue.writeString(doc.getPage(), out);
+        StringValue.writeString(doc.getCachedPlainText(), out);
+        writeHistogram(doc.getHistogramCn(), out);
+        writeHistogram(doc.getHistogramCsymbol(), out);
+        writeHistogram(doc.getHistogramCi(), out);
+        writeHistogram(doc.getHistogramBvar(), out);
+    }
+
+    @Override
+    public ExtractedMathPDDocument deserialize(DataInputView in) throws IOException {
+        final ExtractedMathPDDocument doc = new ExtractedMathPDDocument(StringValue.readString(in),
+                StringValue.readString(in));
+        doc.setName(StringValue.readString(in));
+        doc.setPage(StringValue.readString(in));
+        doc.setPlainText(StringValue.readString(in));
+        doc.setHistogramCn(readHistogram(in));
+        doc.setHistogramCsymbol(readHistogram(in));
+        doc.setHistogramCi(readHistogram(in));
+        doc.setHistogramBvar(readHistogram(in));
+        return doc;
+    }
+
+    @Override
+    public boolean canEqual(Object obj) {
+        return obj instanceof ExtractedMathPDDocumentSerializer;
+    }
+
+    private static void writeHistogram(Map<String, Double> histogram, DataOutputView out) throws IOException {
+        if (histogram == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(histogram.size());
+        for (Map.Entry<String, Double> entry : histogram.entrySet()) {
+            StringValue.writeString(entry.getKey(), out);
+            out.writeDouble(entry.getValue());
+        }
+    }
+
+    private static Map<String, Double> readHistogram(DataInputView in) throws IOException {
+        final int size = in.readInt();
+        if (size < 0) {
+            return null;
+        }
+        final Map<String, Double> histogram = new HashMap<>(size * 4 / 3 + 1);
+        for (int i = 0; i < size; i++) {
+            histogram.put(StringValue.readString(in), in.readDouble());
+        }
+        return histogram;
+    }
+}
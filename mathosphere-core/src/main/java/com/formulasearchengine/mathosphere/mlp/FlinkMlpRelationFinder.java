@@ -1,25 +1,16 @@
 package com.formulasearchengine.mathosphere.mlp;
 
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.stream.Collectors;
 
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVPrinter;
-import org.apache.commons.csv.CSVRecord;
-import org.apache.flink.api.common.functions.GroupReduceFunction;
-import org.apache.flink.api.common.functions.MapFunction;
+import org.apache.flink.api.common.JobExecutionResult;
 import org.apache.flink.api.java.DataSet;
 import org.apache.flink.api.java.ExecutionEnvironment;
 import org.apache.flink.api.java.io.TextInputFormat;
@@ -27,31 +18,49 @@ import org.apache.flink.api.java.operators.DataSource;
 import org.apache.flink.api.java.tuple.Tuple2;
 import org.apache.flink.core.fs.FileSystem.WriteMode;
 import org.apache.flink.core.fs.Path;
-import org.apache.flink.util.Collector;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.formulasearchengine.mathosphere.mlp.cli.EvalCommandConfig;
 import com.formulasearchengine.mathosphere.mlp.cli.FlinkMlpCommandConfig;
+import com.formulasearchengine.mathosphere.mlp.cli.SweepCommandConfig;
 import com.formulasearchengine.mathosphere.mlp.contracts.CreateCandidatesMapper;
+import com.formulasearchengine.mathosphere.mlp.contracts.ExtractionCsvOutputFormat;
+import com.formulasearchengine.mathosphere.mlp.contracts.IncrementalMlpMapper;
+import com.formulasearchengine.mathosphere.mlp.contracts.IncrementalPageJoin;
+import com.formulasearchengine.mathosphere.mlp.contracts.JsonOutputFormat;
 import com.formulasearchengine.mathosphere.mlp.contracts.JsonSerializerMapper;
-import com.formulasearchengine.mathosphere.mlp.contracts.PatternMatcherMapper;
+import com.formulasearchengine.mathosphere.mlp.contracts.PageFingerprintMapper;
+import com.formulasearchengine.mathosphere.mlp.contracts.ParsedDocumentStore;
+import com.formulasearchengine.mathosphere.mlp.contracts.QueryEvaluationMapper;
+import com.formulasearchengine.mathosphere.mlp.contracts.RelevanceTemplateOutputFormat;
+import com.formulasearchengine.mathosphere.mlp.contracts.SweepEvaluationMapper;
 import com.formulasearchengine.mathosphere.mlp.contracts.TextAnnotatorMapper;
-import com.formulasearchengine.mathosphere.mlp.contracts.TextExtractorMapper;
-import com.formulasearchengine.mathosphere.mlp.pojos.MathTag;
+import com.formulasearchengine.mathosphere.mlp.contracts.WikiDumpInputFormat;
+import com.formulasearchengine.mathosphere.mlp.contracts.WikiPageFilter;
+import com.formulasearchengine.mathosphere.mlp.pojos.EvaluationCounts;
+import com.formulasearchengine.mathosphere.mlp.pojos.IncrementalPage;
 import com.formulasearchengine.mathosphere.mlp.pojos.ParsedWikiDocument;
+import com.formulasearchengine.mathosphere.mlp.pojos.QueryEvaluation;
+import com.formulasearchengine.mathosphere.mlp.pojos.RawWikiDocument;
 import com.formulasearchengine.mathosphere.mlp.pojos.Relation;
 import com.formulasearchengine.mathosphere.mlp.pojos.WikiDocumentOutput;
-import com.formulasearchengine.mathosphere.mlp.text.WikiTextUtils;
-import com.formulasearchengine.mathosphere.utils.Util;
 import com.google.common.collect.HashMultiset;
-import com.google.common.collect.Multiset;
 
 public class FlinkMlpRelationFinder {
 
     private static final Logger LOGGER = LogManager.getLogger(FlinkMlpRelationFinder.class.getName());
 
+    /**
+     * The fingerprints and results of the pages of an incremental run, relative to its {@code --state} directory.
+     */
+    public static final String STATE_PAGES = "/pages";
+    /**
+     * The change log of an incremental run, relative to its {@code --state} directory.
+     */
+    public static final String STATE_CHANGES = "/changes";
+
     public static void main(String[] args) throws Exception {
         FlinkMlpCommandConfig config = FlinkMlpCommandConfig.from(args);
         run(config);
@@ -60,22 +69,65 @@ public class FlinkMlpRelationFinder {
     public static void run(FlinkMlpCommandConfig config) throws Exception {
         ExecutionEnvironment env = ExecutionEnvironment.getExecutionEnvironment();
 
-        DataSource<String> source = readWikiDump(config, env);
-        DataSet<ParsedWikiDocument> documents =
-                source.flatMap(new TextExtractorMapper())
-                        .map(new TextAnnotatorMapper(config));
+        if (config.getState() != null) {
+            addIncrementalPipeline(config, env);
+        } else {
+            DataSet<ParsedWikiDocument> documents = readParsedDocuments(config, env);
 
-        DataSet<WikiDocumentOutput> result = documents.map(new CreateCandidatesMapper(config));
+            DataSet<WikiDocumentOutput> result = documents.map(new CreateCandidatesMapper(config));
 
-        result.map(new JsonSerializerMapper<>())
-                .writeAsText(config.getOutputDir(), WriteMode.OVERWRITE);
+            result.output(new JsonOutputFormat<WikiDocumentOutput>(config.getOutputDir(), JsonOutputFormat.jacksonJr())
+                    .setGzip(config.isCompressOutput()));
+        }
         //int cores = Runtime.getRuntime().availableProcessors();
         //env.setParallelism(1); // rounds down
         final int parallelism = config.getParallelism();
         if (parallelism > 0) {
             env.setParallelism(parallelism);
         }
-        env.execute("Relation Finder");
+        final JobExecutionResult jobResult = env.execute("Relation Finder");
+        logDroppedPages(jobResult);
+    }
+
+    /**
+     * Processes only the new and modified pages of the dump and reuses the results of the unchanged pages stored in
+     * the {@code --previousState} of an earlier run. Writes the results of all pages to the output directory, the
+     * state of this run to {@code <state>/pages} and the added, modified and removed pages to
+     * {@code <state>/changes}. The parsed document store is not supported in this mode.
+     */
+    private static void addIncrementalPipeline(FlinkMlpCommandConfig config, ExecutionEnvironment env)
+            throws IOException {
+        if (config.getFromParsed() != null || config.getSaveParsed() != null) {
+            // the stored documents carry no fingerprints, and only the changed pages are parsed
+            throw new IllegalArgumentException("The incremental mode (--state) cannot be combined with "
+                    + "--fromParsed or --saveParsed");
+        }
+        DataSet<IncrementalPage> pages = readWikiDocuments(config, env).map(new PageFingerprintMapper(config));
+        if (config.getPreviousState() != null) {
+            DataSet<IncrementalPage> previous = env.readTextFile(config.getPreviousState() + STATE_PAGES)
+                    .map(IncrementalPage::fromStateLine).returns(IncrementalPage.class);
+            pages = pages.fullOuterJoin(previous)
+                    .where("title").equalTo("title")
+                    .with(new IncrementalPageJoin());
+        }
+        pages.filter(page -> !IncrementalPage.UNCHANGED.equals(page.getChange()))
+                .map(page -> page.getChange() + "\t" + page.getTitle()).returns(String.class)
+                .writeAsText(config.getState() + STATE_CHANGES, WriteMode.OVERWRITE)
+                .setParallelism(1);
+        DataSet<IncrementalPage> result = pages
+                .filter(page -> !IncrementalPage.REMOVED.equals(page.getChange()))
+                .map(new IncrementalMlpMapper(config));
+        result.map(IncrementalPage::getJson).returns(String.class)
+                .output(new JsonOutputFormat<String>(config.getOutputDir(), JsonOutputFormat.raw())
+                        .setGzip(config.isCompressOutput()));
+        result.map(IncrementalPage::toStateLine).returns(String.class)
+                .writeAsText(config.getState() + STATE_PAGES, WriteMode.OVERWRITE);
+    }
+
+    public static void logDroppedPages(JobExecutionResult jobResult) {
+        LOGGER.info("page filter dropped {} pages ({} bytes)",
+                jobResult.getAccumulatorResult(WikiDumpInputFormat.DROPPED_PAGES),
+                jobResult.getAccumulatorResult(WikiDumpInputFormat.DROPPED_BYTES));
     }
 
     public static DataSource<String> readWikiDump(FlinkMlpCommandConfig config, ExecutionEnvironment env) {
@@ -86,190 +138,140 @@ public class FlinkMlpRelationFinder {
         return env.readFile(inp, config.getDataset());
     }
 
+    /**
+     * Reads the pages selected by the page filter options of the config from the wiki dump with a
+     * streaming XML parser. In contrast to {@link #readWikiDump(FlinkMlpCommandConfig, ExecutionEnvironment)}
+     * no further text extraction is required.
+     */
+    public static DataSource<RawWikiDocument> readWikiDocuments(FlinkMlpCommandConfig config, ExecutionEnvironment env)
+            throws IOException {
+        WikiDumpInputFormat inp = new WikiDumpInputFormat(new Path(config.getDataset()), WikiPageFilter.from(config));
+        return env.readFile(inp, config.getDataset());
+    }
+
+    /**
+     * Reads the documents from the store given by {@code --fromParsed}, or parses and tags the pages of the
+     * wiki dump. The parsed documents are stored for later runs if {@code --saveParsed} is given.
+     */
+    public static DataSet<ParsedWikiDocument> readParsedDocuments(FlinkMlpCommandConfig config, ExecutionEnvironment env)
+            throws IOException {
+        if (config.getFromParsed() != null) {
+            return env.createInput(new ParsedDocumentStore.ShardInputFormat(config.getFromParsed()));
+        }
+        return saveParsedDocuments(config, readWikiDocuments(config, env).map(new TextAnnotatorMapper(config)));
+    }
+
+    /**
+     * Adds a sink storing the documents to the directory given by {@code --saveParsed}, if any.
+     *
+     * @return the documents.
+     */
+    public static DataSet<ParsedWikiDocument> saveParsedDocuments(FlinkMlpCommandConfig config,
+                                                                   DataSet<ParsedWikiDocument> documents) {
+        if (config.getSaveParsed() != null) {
+            documents.output(new ParsedDocumentStore.ShardOutputFormat(config.getSaveParsed()));
+        }
+        return documents;
+    }
+
     public static void evaluate(EvalCommandConfig config) throws Exception {
         ExecutionEnvironment env = ExecutionEnvironment.getExecutionEnvironment();
-        DataSource<String> source = readWikiDump(config, env);
+        DataSet<ParsedWikiDocument> documents = readParsedDocuments(config, env);
+        final Map<String, Object> gold = readGold(config);
+        final Map<String, Object> ndData = readNamespaceData(config);
+        final DataSet<QueryEvaluation> evaluations = documents.flatMap(new QueryEvaluationMapper(config, gold, ndData));
+        if (config.getOutputDir() != null) {
+            evaluations.output(new RelevanceTemplateOutputFormat(config.getOutputDir()));
+            evaluations.output(new ExtractionCsvOutputFormat(config.getOutputDir() + "/extraction.csv"))
+                    .setParallelism(1);
+        }
+        final int parallelism = config.getParallelism();
+        if (parallelism > 0) {
+            env.setParallelism(parallelism);
+        }
+        // the counts and false positives of the queries are small, so they are summed up with a combinable reduce
+        final List<QueryEvaluation> sums = evaluations
+                .reduce(QueryEvaluation::add)
+                .collect();
+        final QueryEvaluation sum = sums.isEmpty() ? new QueryEvaluation() : sums.get(0);
+        final EvaluationCounts overall = sum.getCounts();
+        LOGGER.info("Overall identifier evaluation");
+        LOGGER.info("fp:" + overall.getIdentifierFp());
+        LOGGER.info("fn:" + overall.getIdentifierFn());
+        LOGGER.info("tp:" + overall.getIdentifierTp());
+
+        LOGGER.info("Overall definition evaluation - by this method, better use evaluation in Evaluation package.");
+        LOGGER.info("fp=" + overall.getDefinitionFp() + "; fn=" + overall.getDefinitionFn()
+                + "; tp=" + overall.getDefinitionTp());
+        LOGGER.info(HashMultiset.create(sum.getFalsePositives()).toString());
+    }
+
+    /**
+     * Evaluates a grid of scoring parameters against the gold standard in one job. Every document is parsed and
+     * tagged only once and then evaluated with all settings of the grid.
+     */
+    public static void sweep(SweepCommandConfig config) throws Exception {
+        if (config.getRelevanceFolder() == null) {
+            throw new IllegalArgumentException("The parameter sweep requires relevance judgements (--ref)");
+        }
+        ExecutionEnvironment env = ExecutionEnvironment.getExecutionEnvironment();
+        DataSet<ParsedWikiDocument> documents = readParsedDocuments(config, env);
+        final List<EvalCommandConfig> settings = config.getSettings();
+        final int parallelism = config.getParallelism();
+        if (parallelism > 0) {
+            env.setParallelism(parallelism);
+        }
+        final List<Tuple2<Integer, EvaluationCounts>> results = documents
+                .flatMap(new SweepEvaluationMapper(settings, readGold(config), readNamespaceData(config)))
+                .groupBy(0)
+                .reduce((a, b) -> new Tuple2<>(a.f0, a.f1.add(b.f1)))
+                .collect();
+        results.sort(Comparator.comparingDouble((Tuple2<Integer, EvaluationCounts> r) -> r.f1.getDefinitionF1()).reversed());
+        final List<String> lines = new ArrayList<>();
+        for (Tuple2<Integer, EvaluationCounts> result : results) {
+            final EvaluationCounts counts = result.f1;
+            final String line = SweepCommandConfig.describe(settings.get(result.f0))
+                    + "; precision; " + counts.getDefinitionPrecision()
+                    + "; recall; " + counts.getDefinitionRecall()
+                    + "; F1; " + counts.getDefinitionF1()
+                    + "; tp; " + counts.getDefinitionTp()
+                    + "; fp; " + counts.getDefinitionFp()
+                    + "; fn; " + counts.getDefinitionFn();
+            LOGGER.info(line);
+            lines.add(line);
+        }
+        if (config.getOutputDir() != null) {
+            final File output = new File(config.getOutputDir(), "sweep.csv");
+            output.getParentFile().mkdirs();
+            Files.write(output.toPath(), lines, StandardCharsets.UTF_8);
+        }
+    }
 
-        DataSet<ParsedWikiDocument> documents =
-                source.flatMap(new TextExtractorMapper())
-                        .map(new TextAnnotatorMapper(config));
-        final File file = new File(config.getQueries());
-        ObjectMapper mapper = new ObjectMapper();
-        List userData = mapper.readValue(file, List.class);
+    /**
+     * @return the entries of the gold standard of the config by title.
+     */
+    public static Map<String, Object> readGold(EvalCommandConfig config) throws IOException {
+        List userData = new ObjectMapper().readValue(new File(config.getQueries()), List.class);
         Map<String, Object> gold = new HashMap<>();
         for (Object o : userData) {
             final Map entry = (Map) o;
             Map formula = (Map) entry.get("formula");
             gold.put((String) formula.get("title"), o);
         }
-        final File ndFile = new File(config.getNdFile());
-        List ndList = mapper.readValue(ndFile, List.class);
+        return gold;
+    }
+
+    /**
+     * @return the namespace discovery data of the config by title, with spaces replaced by underscores.
+     */
+    public static Map<String, Object> readNamespaceData(EvalCommandConfig config) throws IOException {
+        List ndList = new ObjectMapper().readValue(new File(config.getNdFile()), List.class);
         Map<String, Object> ndData = new HashMap<>();
         for (Object o : ndList) {
             final Map entry = (Map) o;
             ndData.put(((String) entry.get("document_title")).replaceAll(" ", "_"), o);
         }
-        GroupReduceFunction<ParsedWikiDocument, String> reduceFunction = new GroupReduceFunction<ParsedWikiDocument, String>() {
-            @Override
-            public void reduce(Iterable<ParsedWikiDocument> iterable, Collector<String> collector) throws Exception {
-                Multiset<String> tpOverall = HashMultiset.create();
-                Multiset<String> fnOverall = HashMultiset.create();
-                Multiset<String> fpOverall = HashMultiset.create();
-                Multiset<Relation> tpRelOverall = HashMultiset.create();
-                Integer fnRelOverallCnt = 0;
-                Multiset<Relation> fpRelOverall = HashMultiset.create();
-                for (ParsedWikiDocument parsedWikiDocument : iterable) {
-                    String title = parsedWikiDocument.getTitle().replaceAll(" ", "_");
-                    try {
-                        Map goldElement = (Map) gold.get(title);
-                        Map formula = (Map) goldElement.get("formula");
-                        final Integer formulaId = Integer.parseInt((String) formula.get("fid"));
-                        final String tex = (String) formula.get("math_inputtex");
-                        final String qId = (String) formula.get("qID");
-                        final MathTag seed = parsedWikiDocument.getFormulas().stream()
-                                .filter(f -> f.getMarkUpType().equals(WikiTextUtils.MathMarkUpType.LATEX)).collect(Collectors.toList())
-                                .get(formulaId);
-                        //WikiTextUtils.getLatexFormula(parsedWikiDocument, formulaId);
-                        if (!seed.getContent().equals(tex)) {
-                            LOGGER.error("PROBLEM WITH" + title);
-                            LOGGER.error(seed.getContent());
-                            LOGGER.error(tex);
-                            throw new Exception("Invalid numbering.");
-                        }
-                        final MapFunction<ParsedWikiDocument, WikiDocumentOutput> candidatesMapper = getCandidatesMapper(config);
-                        final WikiDocumentOutput wikiDocumentOutput = candidatesMapper.map(parsedWikiDocument);
-                        List<Relation> relations = wikiDocumentOutput.getRelations();
-                        final Set<String> real = seed.getIdentifiers(config).elementSet();
-                        //only keep identifiers that have a definition
-                        final Map definitions = (Map) goldElement.get("definitions");
-                        final Set expected = definitions.keySet();
-                        Set<String> tp = new HashSet<>(expected);
-                        Set<String> fn = new HashSet<>(expected);
-                        Set<String> fp = new HashSet<>(real);
-                        tp.retainAll(real);
-                        fn.removeAll(real);
-                        fp.removeAll(expected);
-                        tpOverall.addAll(tp);
-                        fnOverall.addAll(fn);
-                        fpOverall.addAll(fp);
-                        LOGGER.info("https://en.formulasearchengine.com/wiki/" + title + "#math." + formula.get("oldId") + "." + formulaId);
-                        if (config.getNamespace()) {
-                            getNamespaceData(title, relations);
-                        }
-                        //remove identifiers that are not in the gold standard -> these were errors of the identifier extraction.
-                        relations.removeIf(r -> !expected.contains(r.getIdentifier()));
-                        Collections.sort(relations, Relation::compareToName);
-                        removeDuplicates(definitions, relations);
-                        writeRelevanceTemplates(qId, relations);
-                        Util.writeExtractedDefinitionsAsCsv(config.getOutputDir() + "/extraction.csv", qId, wikiDocumentOutput.getTitle().replaceAll("\\s", "_"), relations);
-                        Map<Tuple2<String, String>, Integer> references = new HashMap<>();
-                        if (config.getRelevanceFolder() != null) {
-                            final FileReader relevance = new FileReader(config.getRelevanceFolder() + "/q" + qId + ".csv");
-                            Iterable<CSVRecord> records = CSVFormat.RFC4180.parse(relevance);
-                            for (CSVRecord record : records) {
-                                String identifier = record.get(0);
-                                if (identifier.length() > 0) {
-                                    String definition = record.get(1);
-                                    Integer relevanceRanking = Integer.valueOf(record.get(2));
-                                    references.put(new Tuple2<>(identifier, definition), relevanceRanking);
-                                }
-                            }
-                            int tpcnt = 0;
-                            for (Relation relation : relations) {
-                                Integer score = references.get(new Tuple2<>(relation.getIdentifier(), relation.getDefinition()));
-                                if (score != null && score >= config.getLevel()) {
-                                    tpRelOverall.add(relation);
-                                    LOGGER.info("tp: " + relation.getIdentifier() + ", " + relation.getDefinition());
-                                    tpcnt++;
-                                } else {
-                                    fpRelOverall.add(relation);
-                                    LOGGER.info("fp: " + relation.getIdentifier() + ", " + relation.getDefinition());
-                                }
-                            }
-                            fnRelOverallCnt += (expected.size() - tpcnt);
-                        }
-                    } catch (Exception e) {
-                        e.printStackTrace();
-                        LOGGER.info("Problem with " + title);
-                    }
-                }
-                LOGGER.info("Overall identifier evaluation");
-                LOGGER.info("fp:" + fpOverall.size());
-                LOGGER.info("fn:" + fnOverall.size());
-                LOGGER.info("tp:" + tpOverall.size());
-
-                LOGGER.info("Overall definition evaluation - by this method, better use evaluation in Evaluation package.");
-                LOGGER.info("fp=" + fpRelOverall.size() + "; fn=" + fnRelOverallCnt
-                        + "; tp=" + tpRelOverall.size());
-                LOGGER.info(fpRelOverall.toString());
-            }
-
-            public void removeDuplicates(Map definitions, List<Relation> relations) {
-                String lastDef = "";
-                String lastIdent = "";
-                final Iterator<Relation> iterator = relations.iterator();
-                while (iterator.hasNext()) {
-                    final Relation relation = iterator.next();
-                    final List<String> refList = getDefiniens(definitions, relation);
-                    final String definition = relation.getDefinition().replaceAll("(\\[\\[|\\]\\])", "").replaceAll("_", " ").trim().toLowerCase();
-                    if (refList.contains(definition)) {
-                        relation.setRelevance(2);
-                    }
-                    if (lastIdent.compareTo(relation.getIdentifier())
-                            + relation.getDefinition().compareToIgnoreCase(lastDef) == 0) {
-                        iterator.remove();
-                    }
-                    lastDef = relation.getDefinition();
-                    lastIdent = relation.getIdentifier();
-                }
-            }
-
-            public void writeRelevanceTemplates(String qId, List<Relation> relations) throws IOException {
-                if (config.getOutputDir() != null) {
-                    final File output = new File(config.getOutputDir() + "/q" + qId + ".csv");
-                    output.createNewFile();
-                    OutputStreamWriter w = new FileWriter(output);
-                    CSVPrinter printer = CSVFormat.DEFAULT.withRecordSeparator("\n").print(w);
-                    for (Relation relation : relations) {
-                        String sScore;
-                        if (relation.getRelevance() == null) {
-                            sScore = "";
-                        } else {
-                            sScore = String.valueOf(relation.getRelevance());
-                        }
-                        String[] out = new String[] {relation.getIdentifier(), relation.getDefinition(), sScore};
-                        printer.printRecord(out);
-                    }
-                    w.flush();
-                    w.close();
-                }
-            }
-
-            public void getNamespaceData(String title, List<Relation> relations) {
-                final Map nd = (Map) ndData.get(title);
-                if (nd != null) {
-                    List relNS = (List) nd.get("namespace_relations");
-                    if (relNS != null) {
-                        for (Object o : relNS) {
-                            Relation rel = new Relation(o);
-                            relations.add(rel);
-                        }
-                    }
-                }
-            }
-        };
-        env.setParallelism(1);
-        documents.reduceGroup(reduceFunction).print();
-    }
-
-    private static MapFunction<ParsedWikiDocument, WikiDocumentOutput> getCandidatesMapper(EvalCommandConfig config) {
-        final MapFunction<ParsedWikiDocument, WikiDocumentOutput> candidatesMapper;
-        if (config.isPatternMatcher()) {
-            candidatesMapper = new PatternMatcherMapper();
-        } else {
-            candidatesMapper = new CreateCandidatesMapper(config);
-        }
-        return candidatesMapper;
+        return ndData;
     }
 
     public static List<String> getDefiniens(Map definitions, Relation relation) {
@@ -298,9 +300,14 @@ public class FlinkMlpRelationFinder {
     public WikiDocumentOutput outDocFromText(FlinkMlpCommandConfig config, String input) throws Exception {
         final TextAnnotatorMapper textAnnotatorMapper = new TextAnnotatorMapper(config);
         textAnnotatorMapper.open(null);
-        final CreateCandidatesMapper candidatesMapper = new CreateCandidatesMapper(config);
+        try {
+            final CreateCandidatesMapper candidatesMapper = new CreateCandidatesMapper(config);
 
-        final ParsedWikiDocument parsedWikiDocument = textAnnotatorMapper.parse(input);
-        return candidatesMapper.map(parsedWikiDocument);
+            final ParsedWikiDocument parsedWikiDocument = textAnnotatorMapper.parse(input);
+            return candidatesMapper.map(parsedWikiDocument);
+        } finally {
+            // releases the texvcinfo client and the shared tagger pipeline
+            textAnnotatorMapper.close();
+        }
     }
 }
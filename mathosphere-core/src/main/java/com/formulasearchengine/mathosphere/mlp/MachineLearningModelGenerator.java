@@ -2,9 +2,12 @@ package com.formulasearchengine.mathosphere.mlp;
 
 import com.formulasearchengine.mathosphere.mlp.cli.MachineLearningDefinienExtractionConfig;
 import com.formulasearchengine.mathosphere.mlp.contracts.JsonSerializerMapper;
+import com.formulasearchengine.mathosphere.mlp.contracts.ParsedDocumentStore;
 import com.formulasearchengine.mathosphere.mlp.contracts.TextAnnotatorMapper;
 import com.formulasearchengine.mathosphere.mlp.contracts.TextExtractorMapper;
 import com.formulasearchengine.mathosphere.mlp.pojos.EvaluationResult;
+import com.formulasearchengine.mathosphere.mlp.ml.FeatureStore;
+import com.formulasearchengine.mathosphere.mlp.ml.FeatureVectorMapper;
 import com.formulasearchengine.mathosphere.mlp.ml.WekaLearner;
 import com.formulasearchengine.mathosphere.mlp.pojos.ParsedWikiDocument;
 import com.formulasearchengine.mathosphere.mlp.pojos.WikiDocumentOutput;
@@ -21,30 +24,42 @@ import java.util.*;
 
 public class MachineLearningModelGenerator {
 
+  public static final String FEATURE_STORE_DIRECTORY = "/features";
+
   public static void main(String[] args) throws Exception {
     MachineLearningDefinienExtractionConfig config = MachineLearningDefinienExtractionConfig.from(args);
     find(config);
   }
 
   public static void find(MachineLearningDefinienExtractionConfig config) throws Exception {
-    if (config.getInstancesFile() == null) {
+    if (config.getInstancesFile() == null && config.getFeatureStore() == null) {
       //parse wikipedia (subset) and process afterwards
       ExecutionEnvironment env = ExecutionEnvironment.getExecutionEnvironment();
       env.setParallelism(config.getParallelism());
-      DataSource<String> source = FlinkMlpRelationFinder.readWikiDump(config, env);
-      DataSet<ParsedWikiDocument> documents = source.flatMap(new TextExtractorMapper())
-        .map(new TextAnnotatorMapper(config));
+      final DataSet<ParsedWikiDocument> documents;
+      if (config.getFromParsed() != null) {
+        documents = env.createInput(new ParsedDocumentStore.ShardInputFormat(config.getFromParsed()));
+      } else {
+        DataSource<String> source = FlinkMlpRelationFinder.readWikiDump(config, env);
+        documents = FlinkMlpRelationFinder.saveParsedDocuments(config, source.flatMap(new TextExtractorMapper())
+          .map(new TextAnnotatorMapper(config)));
+      }
       ArrayList<GoldEntry> gold = (new Evaluator()).readGoldEntries(new File(config.getGoldFile()));
       DataSet<WikiDocumentOutput> instances = documents.map(new SimpleFeatureExtractorMapper(config, gold));
+      //extract the feature vectors in parallel and keep them for later runs
+      DataSet<byte[]> features = instances.map(new FeatureVectorMapper(config));
+      features.output(new FeatureStore.ShardOutputFormat(config.getOutputDir() + FEATURE_STORE_DIRECTORY));
       //process parsed wikipedia
-      DataSet<EvaluationResult> result = instances.reduceGroup(new WekaLearner(config));
+      DataSet<EvaluationResult> result = features.reduceGroup(new WekaLearner(config));
       //write to kick off flink execution
       result.map(new JsonSerializerMapper<>())
         .writeAsText(config.getOutputDir() + "\\tmp", WriteMode.OVERWRITE);
       env.execute();
-    } else {
+    } else if (config.getInstancesFile() != null) {
       //just process
       findFromInstances(config);
+    } else {
+      findFromFeatureStore(config);
     }
   }
 
@@ -52,4 +67,9 @@ public class MachineLearningModelGenerator {
     WekaLearner wekaLearner = new WekaLearner(config);
     return wekaLearner.processFromInstances();
   }
+
+  public static List<EvaluationResult> findFromFeatureStore(MachineLearningDefinienExtractionConfig config) throws Exception {
+    WekaLearner wekaLearner = new WekaLearner(config);
+    return wekaLearner.processFromFeatureStore();
+  }
 }
@@ -3,7 +3,9 @@ package com.formulasearchengine.mathosphere.mlp;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.formulasearchengine.mathosphere.mlp.cli.MachineLearningDefinienClassifierConfig;
 import com.formulasearchengine.mathosphere.mlp.cli.MachineLearningDefinienExtractionConfig;
+import com.formulasearchengine.mathosphere.mlp.contracts.JsonOutputFormat;
 import com.formulasearchengine.mathosphere.mlp.contracts.JsonSerializerMapper;
+import com.formulasearchengine.mathosphere.mlp.contracts.ParsedDocumentStore;
 import com.formulasearchengine.mathosphere.mlp.contracts.StupidRelationScorer;
 import com.formulasearchengine.mathosphere.mlp.contracts.TextAnnotatorMapper;
 import com.formulasearchengine.mathosphere.mlp.contracts.TextExtractorMapper;
@@ -33,9 +35,14 @@ public class MachineLearningRelationClassifier {
     //parse wikipedia (subset) and process afterwards
     ExecutionEnvironment env = ExecutionEnvironment.getExecutionEnvironment();
     env.setParallelism(config.getParallelism());
-    DataSource<String> source = readWikiDump(config, env);
-    DataSet<ParsedWikiDocument> documents = source.flatMap(new TextExtractorMapper())
-      .map(new TextAnnotatorMapper(config));
+    final DataSet<ParsedWikiDocument> documents;
+    if (config.getFromParsed() != null) {
+      documents = env.createInput(new ParsedDocumentStore.ShardInputFormat(config.getFromParsed()));
+    } else {
+      DataSource<String> source = readWikiDump(config, env);
+      documents = FlinkMlpRelationFinder.saveParsedDocuments(config, source.flatMap(new TextExtractorMapper())
+        .map(new TextAnnotatorMapper(config)));
+    }
     DataSet<WikiDocumentOutput> instances = documents.map(new SimpleFeatureExtractorMapper(config, null));
     //process parsed wikipedia
     DataSet<WikiDocumentOutput> result = instances.map(new WekaClassifier(config));
@@ -82,8 +89,8 @@ public class MachineLearningRelationClassifier {
     DataSet<StrippedWikiDocumentOutput> stripped_result = withNamespaces.map(stripSentenceMapper);
 
     //write and kick off flink execution
-    stripped_result.map(new JsonSerializerMapper<>())
-      .writeAsText(config.getOutputDir() + "/extractedDefiniens", FileSystem.WriteMode.OVERWRITE);
+    stripped_result.output(new JsonOutputFormat<StrippedWikiDocumentOutput>(config.getOutputDir() + "/extractedDefiniens",
+      JsonOutputFormat.jacksonJr()));
     env.execute();
   }
 
@@ -28,6 +28,9 @@ public class Main {
             case CliParams.EVAL:
                 FlinkMlpRelationFinder.evaluate(params.getEvalCommandConfig());
                 break;
+            case CliParams.SWEEP:
+                FlinkMlpRelationFinder.sweep(params.getSweepCommandConfig());
+                break;
             case CliParams.ML:
                 MachineLearningModelGenerator.find(params.getMachineLearningCommand());
                 break;
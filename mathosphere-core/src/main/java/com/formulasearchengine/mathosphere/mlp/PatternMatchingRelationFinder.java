@@ -1,7 +1,7 @@
 package com.formulasearchengine.mathosphere.mlp;
 
 import com.formulasearchengine.mathosphere.mlp.cli.FlinkMlpCommandConfig;
-import com.formulasearchengine.mathosphere.mlp.contracts.JsonSerializerMapper;
+import com.formulasearchengine.mathosphere.mlp.contracts.JsonOutputFormat;
 import com.formulasearchengine.mathosphere.mlp.contracts.PatternMatcherMapper;
 import com.formulasearchengine.mathosphere.mlp.contracts.TextAnnotatorMapper;
 import com.formulasearchengine.mathosphere.mlp.contracts.TextExtractorMapper;
@@ -11,7 +11,6 @@ import com.formulasearchengine.mathosphere.mlp.pojos.WikiDocumentOutput;
 import org.apache.flink.api.java.DataSet;
 import org.apache.flink.api.java.ExecutionEnvironment;
 import org.apache.flink.api.java.operators.DataSource;
-import org.apache.flink.core.fs.FileSystem.WriteMode;
 
 public class PatternMatchingRelationFinder {
 
@@ -25,8 +24,8 @@ public class PatternMatchingRelationFinder {
         .map(new TextAnnotatorMapper(config));
 
     DataSet<WikiDocumentOutput> relations = documents.map(new PatternMatcherMapper());
-    relations.map(new JsonSerializerMapper<>())
-        .writeAsText(config.getOutputDir(), WriteMode.OVERWRITE);
+    relations.output(new JsonOutputFormat<WikiDocumentOutput>(config.getOutputDir(), JsonOutputFormat.jacksonJr())
+        .setGzip(config.isCompressOutput()));
 
     env.execute("Pattern Matcher Relation Finder");
   }
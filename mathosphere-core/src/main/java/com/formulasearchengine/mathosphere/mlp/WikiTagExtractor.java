@@ -1,27 +1,25 @@
 package com.formulasearchengine.mathosphere.mlp;
 
 import com.formulasearchengine.mathosphere.mlp.cli.TagsCommandConfig;
-import com.formulasearchengine.mathosphere.mlp.contracts.JsonArrayOutputFormat;
+import com.formulasearchengine.mathosphere.mlp.contracts.JsonOutputFormat;
 import com.formulasearchengine.mathosphere.mlp.contracts.TagExtractionMapper;
-import com.formulasearchengine.mathosphere.mlp.contracts.TextExtractorMapper;
 import com.formulasearchengine.mathosphere.mlp.pojos.MathTag;
+import com.formulasearchengine.mathosphere.mlp.pojos.RawWikiDocument;
 import org.apache.flink.api.java.ExecutionEnvironment;
 import org.apache.flink.api.java.operators.DataSource;
-import org.apache.flink.core.fs.Path;
 
 public class WikiTagExtractor {
 
 
     public static void run(TagsCommandConfig config) throws Exception {
         ExecutionEnvironment env = ExecutionEnvironment.getExecutionEnvironment();
-        final DataSource<String> dump = FlinkMlpRelationFinder.readWikiDump(config, env);
+        final DataSource<RawWikiDocument> dump = FlinkMlpRelationFinder.readWikiDocuments(config, env);
         dump
-                .flatMap(new TextExtractorMapper())
                 .flatMap(new TagExtractionMapper(config))
                 .distinct(MathTag::getContentHash)
-                .map(MathTag::toJson)
-                .output(new JsonArrayOutputFormat(new Path(config.getOutputDir() + "/formulae.json")))
+                .output(new JsonOutputFormat<MathTag>(config.getOutputDir() + "/formulae.json", JsonOutputFormat.jackson())
+                        .setLayout(JsonOutputFormat.Layout.ARRAY))
                 .setParallelism(1);
-        env.execute();
+        FlinkMlpRelationFinder.logDroppedPages(env.execute());
     }
 }
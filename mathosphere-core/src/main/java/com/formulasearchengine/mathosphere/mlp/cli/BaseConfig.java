@@ -35,12 +35,39 @@ public class BaseConfig implements Serializable {
   @Parameter(names = {"--tex"})
   protected boolean useTeXIdentifiers = false;
 
-  @Parameter(names = {"--texvcinfo"})
+  @Parameter(names = {"--texvcinfo"}, description = "url of the texvcinfo service, 'local' extracts the identifiers in process")
   protected String texvcinfoUrl = "https://en.wikipedia.org/api/rest_v1/media/math/check/tex";
 
+  @Parameter(names = {"--texvcinfoConcurrency"}, description = "maximal number of concurrent texvcinfo requests per task slot")
+  protected int texvcinfoConcurrency = 8;
+
+  @Parameter(names = {"--texvcinfoTimeout"}, description = "timeout for the texvcinfo requests of a document in milliseconds")
+  protected int texvcinfoTimeout = 30000;
+
+  @Parameter(names = {"--texvcinfoCache"}, description = "file that persists the identifiers retrieved from texvcinfo")
+  protected String texvcinfoCacheFile = null;
+
+  @Parameter(names = {"--texvcinfoSeed"}, description = "formulae.json with identifiers to seed the texvcinfo cache")
+  protected String texvcinfoSeedFile = null;
+
+  @Parameter(names = {"--posThreads"}, description = "number of threads that tag the sentences of a large document, 1 to tag sequentially")
+  protected int posThreads = 1;
+
+  @Parameter(names = {"--topK"}, description = "number of definiens to keep per identifier, 0 to keep all above the threshold")
+  protected int topK = 0;
+
   @Parameter(names = {"--definitionMerging"}, description = "apply definition merging algorithm")
   protected Boolean definitionMerging = false;
 
+  @Parameter(names = {"--parseCacheSize"}, description = "number of parsed pages to keep per JVM for --tex, 0 to disable")
+  protected int parseCacheSize = 0;
+
+  @Parameter(names = {"--dependencyCache"}, description = "file that persists the dependency trees of the sentences")
+  protected String dependencyCacheFile = null;
+
+  @Parameter(names = {"--dependencyCacheSize"}, description = "number of dependency trees to keep per JVM, 0 to disable")
+  protected int dependencyCacheSize = 10000;
+
   public BaseConfig() {
     Properties prop = new Properties();
     String propFileName = "mathosphere.properties";
@@ -77,6 +104,11 @@ public class BaseConfig implements Serializable {
         return definitionMerging;
     }
 
+  public BaseConfig setDefinitionMerging(boolean definitionMerging) {
+    this.definitionMerging = definitionMerging;
+    return this;
+  }
+
   public String getModel() {
     return model;
   }
@@ -89,18 +121,38 @@ public class BaseConfig implements Serializable {
     return alpha;
   }
 
+  public BaseConfig setAlpha(double alpha) {
+    this.alpha = alpha;
+    return this;
+  }
+
   public double getBeta() {
     return beta;
   }
 
+  public BaseConfig setBeta(double beta) {
+    this.beta = beta;
+    return this;
+  }
+
   public double getGamma() {
     return gamma;
   }
 
+  public BaseConfig setGamma(double gamma) {
+    this.gamma = gamma;
+    return this;
+  }
+
   public double getThreshold() {
     return threshold;
   }
 
+  public BaseConfig setThreshold(double threshold) {
+    this.threshold = threshold;
+    return this;
+  }
+
   public String getLanguage() {
     return language;
   }
@@ -125,4 +177,70 @@ public class BaseConfig implements Serializable {
   public String getTexvcinfoUrl() {
     return texvcinfoUrl;
   }
+
+  public int getTexvcinfoConcurrency() {
+    return texvcinfoConcurrency;
+  }
+
+  public int getTexvcinfoTimeout() {
+    return texvcinfoTimeout;
+  }
+
+  public String getTexvcinfoCacheFile() {
+    return texvcinfoCacheFile;
+  }
+
+  public BaseConfig setTexvcinfoCacheFile(String texvcinfoCacheFile) {
+    this.texvcinfoCacheFile = texvcinfoCacheFile;
+    return this;
+  }
+
+  public String getTexvcinfoSeedFile() {
+    return texvcinfoSeedFile;
+  }
+
+  public int getTopK() {
+    return topK;
+  }
+
+  public BaseConfig setTopK(int topK) {
+    this.topK = topK;
+    return this;
+  }
+
+  public int getPosThreads() {
+    return posThreads;
+  }
+
+  public BaseConfig setPosThreads(int posThreads) {
+    this.posThreads = posThreads;
+    return this;
+  }
+
+  public int getParseCacheSize() {
+    return parseCacheSize;
+  }
+
+  public BaseConfig setParseCacheSize(int parseCacheSize) {
+    this.parseCacheSize = parseCacheSize;
+    return this;
+  }
+
+  public String getDependencyCacheFile() {
+    return dependencyCacheFile;
+  }
+
+  public BaseConfig setDependencyCacheFile(String dependencyCacheFile) {
+    this.dependencyCacheFile = dependencyCacheFile;
+    return this;
+  }
+
+  public int getDependencyCacheSize() {
+    return dependencyCacheSize;
+  }
+
+  public BaseConfig setDependencyCacheSize(int dependencyCacheSize) {
+    this.dependencyCacheSize = dependencyCacheSize;
+    return this;
+  }
 }
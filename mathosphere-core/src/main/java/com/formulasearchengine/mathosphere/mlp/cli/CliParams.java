@@ -14,6 +14,7 @@ public class CliParams implements Serializable {
     public static final String EXTRACT = "extract";
     public static final String MLP = "mlp";
     public static final String EVAL = "eval";
+    public static final String SWEEP = "sweep";
     public static final String ML = "ml";
     public static final String MLLIST = "mllist";
     public static final String CLASSIFY = "classify";
@@ -21,6 +22,7 @@ public class CliParams implements Serializable {
     public static final String HELP = "help";
     public static final String TAGS = "tags";
     private EvalCommandConfig evalCommand;
+    private SweepCommandConfig sweepCommand;
     private JCommander jc;
     private CountCommandConfig countCommand;
     private ListCommandConfig listCommand;
@@ -47,6 +49,7 @@ public class CliParams implements Serializable {
         params.mlCommand = new MachineLearningDefinienExtractionConfig();
         params.classifyCommand = new MachineLearningDefinienClassifierConfig();
         params.evalCommand = new EvalCommandConfig();
+        params.sweepCommand = new SweepCommandConfig();
         params.pdCommand = new FlinkPdCommandConfig();
         params.tagsCommandConfig = new TagsCommandConfig();
         params.mlListCommand = new MachineLearningDefinienListConfig();
@@ -56,6 +59,7 @@ public class CliParams implements Serializable {
         jc.addCommand(EXTRACT, params.extractCommand);
         jc.addCommand(MLP, params.mlpCommand);
         jc.addCommand(EVAL, params.evalCommand);
+        jc.addCommand(SWEEP, params.sweepCommand);
         jc.addCommand(ML, params.mlCommand);
         jc.addCommand(MLLIST, params.mlListCommand);
         jc.addCommand(CLASSIFY, params.classifyCommand);
@@ -86,6 +90,10 @@ public class CliParams implements Serializable {
         return evalCommand;
     }
 
+    public SweepCommandConfig getSweepCommandConfig() {
+        return sweepCommand;
+    }
+
     public MlpCommandConfig getExtractCommandConfig() {
         return extractCommand;
     }
@@ -5,6 +5,8 @@ import com.beust.jcommander.Parameter;
 import com.beust.jcommander.Parameters;
 
 import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
 
 @Parameters(commandDescription = "Runs the MLP algorithm (on Flink)")
 public class FlinkMlpCommandConfig extends BaseConfig implements Serializable {
@@ -18,6 +20,32 @@ public class FlinkMlpCommandConfig extends BaseConfig implements Serializable {
   @Parameter(names = {"--threads"}, description = "how many parallel threads should be used")
   protected int parallelism = 1;
 
+  @Parameter(names = {"--namespaces"}, description = "namespaces of the pages to process")
+  protected List<Integer> namespaces = Arrays.asList(0);
+
+  @Parameter(names = {"--titles"}, description = "file with the titles of the pages to process (one per line)")
+  protected String titleFile;
+
+  @Parameter(names = {"--onlyMath"}, description = "only process pages that contain math tags")
+  protected boolean onlyMath = false;
+
+  @Parameter(names = {"--saveParsed"}, description = "directory to store the parsed and tagged documents in, for later runs with --fromParsed")
+  protected String saveParsed;
+
+  @Parameter(names = {"--fromParsed"}, description = "directory of documents stored with --saveParsed, read instead of parsing the wikidump")
+  protected String fromParsed;
+
+  @Parameter(names = {"--state"}, description = "directory to store the fingerprints and results of the pages in, "
+    + "enables the incremental mode of the mlp command")
+  protected String state;
+
+  @Parameter(names = {"--previousState"}, description = "--state directory of an earlier incremental run, whose results "
+    + "are reused for unchanged pages")
+  protected String previousState;
+
+  @Parameter(names = {"--compressOutput"}, description = "compress the JSON output with gzip")
+  protected boolean compressOutput = false;
+
   public FlinkMlpCommandConfig() {
   }
 
@@ -65,4 +93,61 @@ public class FlinkMlpCommandConfig extends BaseConfig implements Serializable {
   public int getParallelism() {
     return parallelism;
   }
+
+  public List<Integer> getNamespaces() {
+    return namespaces;
+  }
+
+  public String getTitleFile() {
+    return titleFile;
+  }
+
+  public boolean isOnlyMath() {
+    return onlyMath;
+  }
+
+  public String getSaveParsed() {
+    return saveParsed;
+  }
+
+  public FlinkMlpCommandConfig setSaveParsed(String saveParsed) {
+    this.saveParsed = saveParsed;
+    return this;
+  }
+
+  public String getFromParsed() {
+    return fromParsed;
+  }
+
+  public FlinkMlpCommandConfig setFromParsed(String fromParsed) {
+    this.fromParsed = fromParsed;
+    return this;
+  }
+
+  public String getState() {
+    return state;
+  }
+
+  public FlinkMlpCommandConfig setState(String state) {
+    this.state = state;
+    return this;
+  }
+
+  public String getPreviousState() {
+    return previousState;
+  }
+
+  public FlinkMlpCommandConfig setPreviousState(String previousState) {
+    this.previousState = previousState;
+    return this;
+  }
+
+  public boolean isCompressOutput() {
+    return compressOutput;
+  }
+
+  public FlinkMlpCommandConfig setCompressOutput(boolean compressOutput) {
+    this.compressOutput = compressOutput;
+    return this;
+  }
 }
@@ -21,6 +21,9 @@ public class MachineLearningDefinienExtractionConfig extends FlinkMlpCommandConf
   @Parameter(names = {"--instances"}, description = "File location of the instances.arff file to use for the testing and training. " +
     "Full support only for files that have been written by --writeInstances of the same version of this executable.")
   protected String instancesFile;
+  @Parameter(names = {"--features"}, description = "Directory of the feature store to use for the testing and training. " +
+    "Every run that parses the input writes its feature store to the directory features in the output directory.")
+  protected String featureStore;
 
   public boolean isWriteInstances() {
     return writeInstances;
@@ -40,6 +43,8 @@ public class MachineLearningDefinienExtractionConfig extends FlinkMlpCommandConf
   protected boolean coarseSearch;
   @Parameter(names = {"--fineParameterSearch"}, description = "Searches for parameters in a fine grid of cost and gamma values.")
   protected boolean fineSearch;
+  @Parameter(names = {"--refineParameterSearch"}, description = "Number of rounds that refine the search around the best cost and gamma values of the grid, halving the step each round.")
+  protected int refineRounds = 0;
   @Parameter(names = {"--dependencyParserModel"}, description = "Location of the model for the dependency parser.")
   protected String dependencyParserModel = "edu/stanford/nlp/models/parser/nndep/english_UD.gz";
 
@@ -49,6 +54,14 @@ public class MachineLearningDefinienExtractionConfig extends FlinkMlpCommandConf
   @Parameter(names = {"--goldFile"}, description = "Location of the gold data file.")
   protected String goldFile;
 
+  public int getRefineRounds() {
+    return refineRounds;
+  }
+
+  public void setRefineRounds(int refineRounds) {
+    this.refineRounds = refineRounds;
+  }
+
   public String getDependencyParserModel() {
     return dependencyParserModel;
   }
@@ -136,4 +149,12 @@ public class MachineLearningDefinienExtractionConfig extends FlinkMlpCommandConf
   public void setInstancesFile(String instancesFile) {
     this.instancesFile = instancesFile;
   }
+
+  public String getFeatureStore() {
+    return featureStore;
+  }
+
+  public void setFeatureStore(String featureStore) {
+    this.featureStore = featureStore;
+  }
 }
@@ -0,0 +1,108 @@
+package com.formulasearchengine.mathosphere.mlp.cli;
+
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.Parameters;
+import org.apache.commons.lang3.SerializationUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+@Parameters(commandDescription = "Evaluates a grid of scoring parameters against an evaluation dataset, parsing every document only once")
+public class SweepCommandConfig extends EvalCommandConfig {
+
+  @Parameter(names = {"--alphas"}, description = "alpha values of the grid, defaults to --alpha")
+  private List<Double> alphas = new ArrayList<>();
+
+  @Parameter(names = {"--betas"}, description = "beta values of the grid, defaults to --beta")
+  private List<Double> betas = new ArrayList<>();
+
+  @Parameter(names = {"--gammas"}, description = "gamma values of the grid, defaults to --gamma")
+  private List<Double> gammas = new ArrayList<>();
+
+  @Parameter(names = {"--thresholds"}, description = "threshold values of the grid, defaults to --threshold")
+  private List<Double> thresholds = new ArrayList<>();
+
+  @Parameter(names = {"--sweepDefinitionMerging"}, description = "evaluate every point of the grid with and without definition merging")
+  private boolean sweepDefinitionMerging = false;
+
+  public List<Double> getAlphas() {
+    return alphas.isEmpty() ? Collections.singletonList(alpha) : alphas;
+  }
+
+  public SweepCommandConfig setAlphas(List<Double> alphas) {
+    this.alphas = alphas;
+    return this;
+  }
+
+  public List<Double> getBetas() {
+    return betas.isEmpty() ? Collections.singletonList(beta) : betas;
+  }
+
+  public SweepCommandConfig setBetas(List<Double> betas) {
+    this.betas = betas;
+    return this;
+  }
+
+  public List<Double> getGammas() {
+    return gammas.isEmpty() ? Collections.singletonList(gamma) : gammas;
+  }
+
+  public SweepCommandConfig setGammas(List<Double> gammas) {
+    this.gammas = gammas;
+    return this;
+  }
+
+  public List<Double> getThresholds() {
+    return thresholds.isEmpty() ? Collections.singletonList(threshold) : thresholds;
+  }
+
+  public SweepCommandConfig setThresholds(List<Double> thresholds) {
+    this.thresholds = thresholds;
+    return this;
+  }
+
+  public boolean isSweepDefinitionMerging() {
+    return sweepDefinitionMerging;
+  }
+
+  public SweepCommandConfig setSweepDefinitionMerging(boolean sweepDefinitionMerging) {
+    this.sweepDefinitionMerging = sweepDefinitionMerging;
+    return this;
+  }
+
+  /**
+   * @return one evaluation config for every point of the grid, which equal this config in all other options.
+   */
+  public List<EvalCommandConfig> getSettings() {
+    final List<Boolean> merging = sweepDefinitionMerging
+      ? Arrays.asList(false, true) : Collections.singletonList(definitionMerging);
+    final List<EvalCommandConfig> settings = new ArrayList<>();
+    for (double a : getAlphas()) {
+      for (double b : getBetas()) {
+        for (double g : getGammas()) {
+          for (double t : getThresholds()) {
+            for (boolean m : merging) {
+              final EvalCommandConfig setting = SerializationUtils.clone((EvalCommandConfig) this);
+              setting.setAlpha(a).setBeta(b).setGamma(g).setThreshold(t).setDefinitionMerging(m);
+              settings.add(setting);
+            }
+          }
+        }
+      }
+    }
+    return settings;
+  }
+
+  /**
+   * Describes the scoring parameters of a setting created by {@link #getSettings()}.
+   */
+  public static String describe(BaseConfig setting) {
+    return "alpha; " + setting.getAlpha()
+      + "; beta; " + setting.getBeta()
+      + "; gamma; " + setting.getGamma()
+      + "; threshold; " + setting.getThreshold()
+      + "; definitionMerging; " + setting.getDefinitionMerging();
+  }
+}
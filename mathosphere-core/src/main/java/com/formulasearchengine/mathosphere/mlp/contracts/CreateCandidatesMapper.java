@@ -1,16 +1,19 @@
 package com.formulasearchengine.mathosphere.mlp.contracts;
 
-import com.google.common.collect.HashMultiset;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Multiset;
 import com.google.common.collect.Multiset.Entry;
+import com.google.common.primitives.Ints;
 
 import com.formulasearchengine.mathosphere.mlp.cli.BaseConfig;
+import com.formulasearchengine.mathosphere.mlp.pojos.IdentifierOccurrence;
 import com.formulasearchengine.mathosphere.mlp.pojos.ParsedWikiDocument;
 import com.formulasearchengine.mathosphere.mlp.pojos.Relation;
 import com.formulasearchengine.mathosphere.mlp.pojos.Sentence;
 import com.formulasearchengine.mathosphere.mlp.pojos.WikiDocumentOutput;
 import com.formulasearchengine.mathosphere.mlp.pojos.Word;
+import com.formulasearchengine.mathosphere.mlp.text.PosTag;
 
 import org.apache.flink.api.common.functions.MapFunction;
 
@@ -22,6 +25,14 @@ import java.util.*;
  */
 public class CreateCandidatesMapper implements MapFunction<ParsedWikiDocument, WikiDocumentOutput> {
 
+  /**
+   * The POS tags of nouns, entities and links, the only definiens candidates.
+   */
+  private static final Set<String> CANDIDATE_TAGS = ImmutableSet.of("NN", "NNP", "NNS", "NNPP", "NNPS", "NNSP",
+    "NNSS", "NP", "NP+", "NN+", PosTag.LINK);
+  private static final double DISTANCE_STD = Math.sqrt(Math.pow(5d, 2d) / (2d * Math.log(2)));
+  private static final double SENTENCE_STD = Math.sqrt(Math.pow(3d, 2d) / (2d * Math.log(2)));
+
   private final BaseConfig config;
   private double alpha;
   private double beta;
@@ -39,16 +50,19 @@ public class CreateCandidatesMapper implements MapFunction<ParsedWikiDocument, W
   public WikiDocumentOutput map(ParsedWikiDocument doc) {
     Set<String> identifiers = doc.getIdentifiers().elementSet();
     List<Relation> relations = Lists.newArrayList();
+    CandidateWords words = new CandidateWords(doc.getSentences());
+    int[] frequencies = new int[words.size];
     for (String identifier : identifiers) {
-      List<Relation> candidates = generateCandidates(doc, identifier);
+      List<Relation> candidates = generateCandidates(doc, identifier, words, frequencies);
+      int retained = 0;
       if(config.getDefinitionMerging()){
         selfMerge(candidates);
-      } else {
+      } else if (config.getTopK() == 0) {
         Collections.sort(candidates);
         Collections.reverse(candidates);
       }
       for (Relation rel : candidates) {
-        if (rel.getScore() >= config.getThreshold()) {
+        if (rel.getScore() >= config.getThreshold() && (config.getTopK() == 0 || retained++ < config.getTopK())) {
           relations.add(rel);
         }
       }
@@ -81,59 +95,111 @@ public class CreateCandidatesMapper implements MapFunction<ParsedWikiDocument, W
     candidates.sort(Relation::compareTo);
   }
 
+  /**
+   * A relation and the position in which it was generated, which breaks ties of the score.
+   */
+  private static final class RankedRelation {
+    /**
+     * Orders by ascending score and descending generation order. This is the order of the candidates without
+     * {@link BaseConfig#getTopK()}, and its first element is the worst.
+     */
+    static final Comparator<RankedRelation> ORDER = Comparator.<RankedRelation>comparingDouble(r -> r.relation.getScore())
+      .thenComparing(Comparator.comparingInt((RankedRelation r) -> r.order).reversed());
+
+    final Relation relation;
+    final int order;
+
+    RankedRelation(Relation relation, int order) {
+      this.relation = relation;
+      this.order = order;
+    }
+  }
+
   /**
    * Find a list of possible definitions for an identifier. As described in section 2 step 4 of
    * https://www.google.co.jp/url?sa=t&rct=j&q=&esrc=s&source=web&cd=4&cad=rja&uact=8&ved=0ahUKEwjbo8bF5J3PAhWMcT4KHesdCRMQFgg0MAM&url=https%3A%2F%2Fwww.gipp.com%2Fwp-content%2Fpapercite-data%2Fpdf%2Fschubotz16.pdf&usg=AFQjCNG8WcokDbLBSdzddbijH-bJh4w5sA&sig2=ofIftBvBlsOdwikq2d1fag
    *
    * @param doc        Where to search for definitions
    * @param identifier What to define.
-   * @return {@link List<Relation>} with ranked definitions for the identifier.
+   * @return {@link List<Relation>} with ranked definitions for the identifier. Without definition merging only the
+   * definitions above the threshold are returned; with {@link BaseConfig#getTopK()} only the best k, in final order.
    */
-  private List<Relation> generateCandidates(ParsedWikiDocument doc, String identifier) {
-    List<Sentence> sentences = findSentencesWithIdentifier(doc.getSentences(), identifier);
-    if (sentences.isEmpty()) {
+  private List<Relation> generateCandidates(ParsedWikiDocument doc, String identifier, CandidateWords words,
+                                            int[] frequencies) {
+    List<IdentifierOccurrence> occurrences = doc.getIdentifierIndex().get(identifier);
+    if (occurrences == null) {
       return Collections.emptyList();
     }
 
-    List<Relation> result = Lists.newArrayList();
-    Multiset<String> frequencies = calcFrequencies(sentences);
-    if (frequencies.isEmpty()) {
+    // term frequencies of the candidates in the sentences with the identifier
+    int maxFrequency = 0;
+    for (IdentifierOccurrence occurrence : occurrences) {
+      for (int id : words.ids[occurrence.getSentenceIndex()]) {
+        maxFrequency = Math.max(maxFrequency, ++frequencies[id]);
+      }
+    }
+    if (maxFrequency == 0) {
       return Collections.emptyList();
     }
 
-    int maxFrequency = calculateMax(frequencies);
-
-    for (int sentenceIdx = 0; sentenceIdx < sentences.size(); sentenceIdx++) {
-      Sentence sentence = sentences.get(sentenceIdx);
-      List<Word> words = sentence.getWords();
-      List<Integer> positions = identifierPositions(words, identifier);
-
-      for (int wordIdx = 0; wordIdx < words.size(); wordIdx++) {
+    // merging needs the candidates below the threshold as well
+    double threshold = config.getDefinitionMerging() ? Double.NEGATIVE_INFINITY : config.getThreshold();
+    int topK = config.getDefinitionMerging() ? 0 : config.getTopK();
+    PriorityQueue<RankedRelation> best = topK > 0 ? new PriorityQueue<>(topK + 1, RankedRelation.ORDER) : null;
+    List<Relation> result = Lists.newArrayList();
+    int generated = 0;
+    for (int sentenceIdx = 0; sentenceIdx < occurrences.size(); sentenceIdx++) {
+      IdentifierOccurrence occurrence = occurrences.get(sentenceIdx);
+      int[] positions = occurrence.getPositions();
+      int[] candidatePositions = words.positions[occurrence.getSentenceIndex()];
+      int[] candidateIds = words.ids[occurrence.getSentenceIndex()];
+
+      for (int i = 0; i < candidatePositions.length; i++) {
         //Definiendum
-        Word word = words.get(wordIdx);
-        if (!isGood(word)) {
-          continue;
-        }
-
+        int wordIdx = candidatePositions[i];
         int identifierPosition = closestIdentifierPosition(positions, wordIdx);
         int distance = Math.abs(identifierPosition - wordIdx);
 
-        int freq = frequencies.count(word.toLowerCase());
-        double score = calculateScore(distance, freq, maxFrequency, sentenceIdx);
+        double score = calculateScore(distance, frequencies[candidateIds[i]], maxFrequency, sentenceIdx);
+        if (score < threshold) {
+          continue;
+        }
+        // later candidates lose ties
+        if (best != null && best.size() == topK && score <= best.peek().relation.getScore()) {
+          continue;
+        }
 
+        Sentence sentence = doc.getSentences().get(occurrence.getSentenceIndex());
         Relation relation = new Relation();
         relation.setIdentifier(identifier);
         relation.setIdentifierPosition(identifierPosition);
-        relation.setDefinition(word, doc);
+        relation.setDefinition(sentence.getWords().get(wordIdx), doc);
         relation.setWordPosition(wordIdx);
         relation.setScore(score);
         relation.setSentence(sentence);
-        // relation.setSentence(sentence);
 
-        result.add(relation);
+        if (best == null) {
+          result.add(relation);
+        } else {
+          best.add(new RankedRelation(relation, generated));
+          if (best.size() > topK) {
+            best.poll();
+          }
+        }
+        generated++;
       }
     }
 
+    for (IdentifierOccurrence occurrence : occurrences) {
+      for (int id : words.ids[occurrence.getSentenceIndex()]) {
+        frequencies[id] = 0;
+      }
+    }
+    if (best != null) {
+      while (!best.isEmpty()) {
+        result.add(best.poll().relation);
+      }
+    }
     return result;
   }
 
@@ -148,11 +214,8 @@ public class CreateCandidatesMapper implements MapFunction<ParsedWikiDocument, W
    * @return Score how likely the definiendum is the correct definition for the identifier.
    */
   private double calculateScore(int distance, int frequency, int maxFrequency, int sentenceIdx) {
-    double std1 = Math.sqrt(Math.pow(5d, 2d) / (2d * Math.log(2)));
-    double dist = gaussian(distance, std1);
-
-    double std2 = Math.sqrt(Math.pow(3d, 2d) / (2d * Math.log(2)));
-    double seq = gaussian(sentenceIdx, std2);
+    double dist = gaussian(distance, DISTANCE_STD);
+    double seq = gaussian(sentenceIdx, SENTENCE_STD);
 
     double relativeFrequency = (double) frequency / (double) maxFrequency;
     return (alpha * dist + beta * seq + gamma * relativeFrequency) / (alpha + beta + gamma);
@@ -179,23 +242,32 @@ public class CreateCandidatesMapper implements MapFunction<ParsedWikiDocument, W
   }
 
   public static int closestIdentifierPosition(List<Integer> positions, int wordIdx) {
-    if (positions.isEmpty()) {
+    return closestIdentifierPosition(Ints.toArray(positions), wordIdx);
+  }
+
+  /**
+   * @param positions the positions of the identifier in ascending order
+   * @return the position closest to wordIdx, the smaller one on ties, or -1 if there are no positions
+   */
+  public static int closestIdentifierPosition(int[] positions, int wordIdx) {
+    if (positions.length == 0) {
       return -1;
     }
-    Iterator<Integer> it = positions.iterator();
-    int bestPos = it.next();
-    int bestDist = Math.abs(wordIdx - bestPos);
-
-    while (it.hasNext()) {
-      int pos = it.next();
-      int dist = Math.abs(wordIdx - pos);
-      if (dist < bestDist) {
-        bestDist = dist;
-        bestPos = pos;
-      }
+    int idx = Arrays.binarySearch(positions, wordIdx);
+    if (idx >= 0) {
+      return wordIdx;
     }
-
-    return bestPos;
+    // the first position after wordIdx
+    idx = -idx - 1;
+    if (idx == 0) {
+      return positions[0];
+    }
+    if (idx == positions.length) {
+      return positions[idx - 1];
+    }
+    int before = positions[idx - 1];
+    int after = positions[idx];
+    return after - wordIdx < wordIdx - before ? after : before;
   }
 
   public static int calculateMax(Multiset<String> frequencies) {
@@ -204,21 +276,51 @@ public class CreateCandidatesMapper implements MapFunction<ParsedWikiDocument, W
     return max.getCount();
   }
 
-  private Multiset<String> calcFrequencies(List<Sentence> sentences) {
-    Multiset<String> counts = HashMultiset.create();
-
-    for (Sentence sentence : sentences) {
-      for (Word word : sentence.getWords()) {
-        if (isGood(word)) {
-          counts.add(word.getWord().toLowerCase());
+  /**
+   * The definiens candidates of a document. For each sentence, the positions of the words that pass
+   * {@link #isGood(Word)} and a document wide id of their lower case form, which is used to count the term frequency.
+   */
+  private static final class CandidateWords {
+    final int[][] positions;
+    final int[][] ids;
+    /**
+     * number of distinct ids
+     */
+    final int size;
+
+    CandidateWords(List<Sentence> sentences) {
+      positions = new int[sentences.size()][];
+      ids = new int[sentences.size()][];
+      Map<String, Integer> dictionary = new HashMap<>();
+      int[] sentencePositions = new int[16];
+      for (int sentenceIdx = 0; sentenceIdx < sentences.size(); sentenceIdx++) {
+        List<Word> words = sentences.get(sentenceIdx).getWords();
+        if (sentencePositions.length < words.size()) {
+          sentencePositions = new int[words.size()];
+        }
+        int count = 0;
+        for (int wordIdx = 0; wordIdx < words.size(); wordIdx++) {
+          if (isGood(words.get(wordIdx))) {
+            sentencePositions[count++] = wordIdx;
+          }
+        }
+        positions[sentenceIdx] = Arrays.copyOf(sentencePositions, count);
+        ids[sentenceIdx] = new int[count];
+        for (int i = 0; i < count; i++) {
+          String word = words.get(sentencePositions[i]).getWord().toLowerCase();
+          Integer id = dictionary.get(word);
+          if (id == null) {
+            id = dictionary.size();
+            dictionary.put(word, id);
+          }
+          ids[sentenceIdx][i] = id;
         }
       }
+      size = dictionary.size();
     }
-
-    return counts;
   }
 
-  private boolean isGood(Word in) {
+  private static boolean isGood(Word in) {
     String word = in.getWord();
     String posTag = in.getPosTag();
 
@@ -238,7 +340,7 @@ public class CreateCandidatesMapper implements MapFunction<ParsedWikiDocument, W
       return false;
     }
     // we're only interested in nouns, entities and links
-    return posTag.matches("NN[PS]{0,2}|NP\\+?|NN\\+|LNK");
+    return CANDIDATE_TAGS.contains(posTag);
 
   }
 
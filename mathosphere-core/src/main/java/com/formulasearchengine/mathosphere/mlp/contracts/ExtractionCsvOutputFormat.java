@@ -0,0 +1,49 @@
+package com.formulasearchengine.mathosphere.mlp.contracts;
+
+import com.formulasearchengine.mathosphere.mlp.pojos.QueryEvaluation;
+import com.formulasearchengine.mathosphere.utils.Util;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.apache.flink.api.common.io.FileOutputFormat;
+import org.apache.flink.core.fs.FileSystem;
+import org.apache.flink.core.fs.Path;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes the extracted definitions of all queries as csv, see
+ * {@link Util#writeExtractedDefinitionsAsCsv(String, String, String, java.util.List)} for the columns.
+ */
+public class ExtractionCsvOutputFormat extends FileOutputFormat<QueryEvaluation> {
+
+  private transient OutputStreamWriter writer;
+  private transient CSVPrinter printer;
+
+  public ExtractionCsvOutputFormat(String path) {
+    super(new Path(path));
+    setWriteMode(FileSystem.WriteMode.OVERWRITE);
+  }
+
+  @Override
+  public void open(int taskNumber, int numTasks) throws IOException {
+    super.open(taskNumber, numTasks);
+    writer = new OutputStreamWriter(this.stream, StandardCharsets.UTF_8);
+    printer = CSVFormat.DEFAULT.withRecordSeparator("\n").print(writer);
+  }
+
+  @Override
+  public void writeRecord(QueryEvaluation record) throws IOException {
+    Util.printExtractedDefinitions(printer, record.getqId(), record.getTitle(), record.getRelations());
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (writer != null) {
+      writer.flush();
+    }
+    super.close();
+  }
+}
@@ -0,0 +1,45 @@
+package com.formulasearchengine.mathosphere.mlp.contracts;
+
+import com.formulasearchengine.mathosphere.mlp.cli.BaseConfig;
+import com.formulasearchengine.mathosphere.mlp.pojos.IncrementalPage;
+import com.formulasearchengine.mathosphere.mlp.pojos.WikiDocumentOutput;
+
+import org.apache.flink.api.common.functions.RichMapFunction;
+import org.apache.flink.configuration.Configuration;
+
+/**
+ * Runs the mlp pipeline, {@link TextAnnotatorMapper} followed by {@link CreateCandidatesMapper}, on the new and
+ * modified pages of an incremental run and keeps the stored result of the unchanged pages.
+ */
+public class IncrementalMlpMapper extends RichMapFunction<IncrementalPage, IncrementalPage> {
+
+  private final TextAnnotatorMapper textAnnotator;
+  private final CreateCandidatesMapper candidatesMapper;
+  private final JsonSerializerMapper<WikiDocumentOutput> serializer = new JsonSerializerMapper<>();
+
+  public IncrementalMlpMapper(BaseConfig config) {
+    textAnnotator = new TextAnnotatorMapper(config);
+    candidatesMapper = new CreateCandidatesMapper(config);
+  }
+
+  @Override
+  public void open(Configuration parameters) throws Exception {
+    textAnnotator.setRuntimeContext(getRuntimeContext());
+    textAnnotator.open(parameters);
+  }
+
+  @Override
+  public void close() throws Exception {
+    textAnnotator.close();
+  }
+
+  @Override
+  public IncrementalPage map(IncrementalPage page) throws Exception {
+    if (page.getDocument() != null) {
+      page.setJson(serializer.map(candidatesMapper.map(textAnnotator.map(page.getDocument()))));
+      // the text is not needed any more
+      page.setDocument(null);
+    }
+    return page;
+  }
+}
@@ -0,0 +1,30 @@
+package com.formulasearchengine.mathosphere.mlp.contracts;
+
+import com.formulasearchengine.mathosphere.mlp.pojos.IncrementalPage;
+
+import org.apache.flink.api.common.functions.FlatJoinFunction;
+import org.apache.flink.util.Collector;
+
+/**
+ * Full outer join of the pages of the dump with the pages stored by an earlier incremental run, on the title.
+ * Reuses the stored result of a page if its fingerprint did not change and records the kind of change otherwise.
+ */
+public class IncrementalPageJoin implements FlatJoinFunction<IncrementalPage, IncrementalPage, IncrementalPage> {
+
+  @Override
+  public void join(IncrementalPage current, IncrementalPage previous, Collector<IncrementalPage> out) {
+    if (current == null) {
+      previous.setChange(IncrementalPage.REMOVED);
+      out.collect(previous);
+    } else if (previous == null) {
+      current.setChange(IncrementalPage.ADDED);
+      out.collect(current);
+    } else if (current.getFingerprint().equals(previous.getFingerprint())) {
+      previous.setChange(IncrementalPage.UNCHANGED);
+      out.collect(previous);
+    } else {
+      current.setChange(IncrementalPage.MODIFIED);
+      out.collect(current);
+    }
+  }
+}
@@ -0,0 +1,274 @@
+package com.formulasearchengine.mathosphere.mlp.contracts;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.jr.ob.JSON;
+import com.google.common.io.CountingOutputStream;
+
+import org.apache.flink.api.common.io.FileOutputFormat;
+import org.apache.flink.core.fs.FileSystem;
+import org.apache.flink.core.fs.Path;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes records as JSON directly to the output stream, instead of converting every record to a String with
+ * {@link JsonSerializerMapper} that {@link org.apache.flink.api.java.io.TextOutputFormat} encodes again.
+ * <p>
+ * The records are written either one per line, as {@code writeAsText} of the serialized records does, or as a JSON
+ * array with one record per line. With gzip compression the output is a sequence of gzip
+ * members, each holding complete records of about the block size, so large outputs can be decompressed in parts
+ * while standard tools still read the file as a whole.
+ *
+ * @param <T> the type of the records.
+ */
+public class JsonOutputFormat<T> extends FileOutputFormat<T> {
+
+  /**
+   * How the records are arranged in the output.
+   */
+  public enum Layout {
+    /**
+     * One record per line.
+     */
+    LINES,
+    /**
+     * A JSON array with one record per line.
+     */
+    ARRAY
+  }
+
+  /**
+   * Writes a record as JSON to a stream. Must not close the stream. A writer that writes nothing skips the record.
+   */
+  public interface ValueWriter<T> extends Serializable {
+    void write(T value, OutputStream out) throws IOException;
+  }
+
+  /**
+   * Uncompressed size of the gzip members.
+   */
+  public static final long DEFAULT_BLOCK_SIZE = 16 * 1024 * 1024;
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final byte[] NEWLINE = "\n".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] ARRAY_START = "[\n".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] ARRAY_SEPARATOR = ",\n".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] ARRAY_END = "]\n".getBytes(StandardCharsets.UTF_8);
+  private static final Logger LOGGER = LogManager.getLogger(JsonOutputFormat.class.getName());
+  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+  private final ValueWriter<? super T> writer;
+  private Layout layout = Layout.LINES;
+  private boolean gzip = false;
+  private long blockSize = DEFAULT_BLOCK_SIZE;
+
+  private transient RecordStream records;
+  private transient GZIPOutputStream gzipStream;
+  private transient long blockStart;
+  private transient boolean empty;
+
+  public JsonOutputFormat(String path, ValueWriter<? super T> writer) {
+    super(new Path(path));
+    this.writer = writer;
+    setWriteMode(FileSystem.WriteMode.OVERWRITE);
+  }
+
+  /**
+   * Serializes the records with jackson-jr, like {@link JsonSerializerMapper}.
+   */
+  public static <T> ValueWriter<T> jacksonJr() {
+    return (value, out) -> JSON.std.write(value, out);
+  }
+
+  /**
+   * Serializes the records with a Jackson {@link ObjectMapper}, which respects the Jackson annotations of the
+   * records, e.g. of {@link com.formulasearchengine.mathosphere.mlp.pojos.MathTag}. Records that cannot be
+   * serialized are logged and skipped.
+   */
+  public static <T> ValueWriter<T> jackson() {
+    return new JacksonWriter<>();
+  }
+
+  /**
+   * Writes records that are already serialized to JSON as they are.
+   */
+  public static ValueWriter<String> raw() {
+    return (value, out) -> out.write(value.getBytes(StandardCharsets.UTF_8));
+  }
+
+  public JsonOutputFormat<T> setLayout(Layout layout) {
+    this.layout = layout;
+    return this;
+  }
+
+  /**
+   * @param gzip true to compress the output with gzip, in members of the block size.
+   */
+  public JsonOutputFormat<T> setGzip(boolean gzip) {
+    this.gzip = gzip;
+    return this;
+  }
+
+  public JsonOutputFormat<T> setBlockSize(long blockSize) {
+    this.blockSize = blockSize;
+    return this;
+  }
+
+  @Override
+  public void open(int taskNumber, int numTasks) throws IOException {
+    super.open(taskNumber, numTasks);
+    records = new RecordStream();
+    startBlock();
+    empty = true;
+    if (layout == Layout.ARRAY) {
+      records.write(ARRAY_START);
+    }
+  }
+
+  @Override
+  public void writeRecord(T record) throws IOException {
+    final long start = records.count;
+    records.pending = layout == Layout.ARRAY && !empty ? ARRAY_SEPARATOR : null;
+    try {
+      writer.write(record, records);
+    } finally {
+      records.pending = null;
+    }
+    if (records.count == start) {
+      // skipped by the writer
+      return;
+    }
+    if (layout == Layout.LINES) {
+      records.write(NEWLINE);
+    }
+    empty = false;
+    if (gzip && records.count - blockStart >= blockSize) {
+      finishBlock();
+      startBlock();
+    }
+  }
+
+  private void startBlock() throws IOException {
+    final OutputStream target;
+    if (gzip) {
+      gzipStream = new GZIPOutputStream(this.stream, BUFFER_SIZE);
+      target = gzipStream;
+    } else {
+      target = this.stream;
+    }
+    records.target = new BufferedOutputStream(target, BUFFER_SIZE);
+    blockStart = records.count;
+  }
+
+  private void finishBlock() throws IOException {
+    records.target.flush();
+    if (gzipStream != null) {
+      gzipStream.finish();
+      gzipStream = null;
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (records != null) {
+      if (layout == Layout.ARRAY) {
+        if (!empty) {
+          records.write(NEWLINE);
+        }
+        records.write(ARRAY_END);
+      }
+      finishBlock();
+      records = null;
+    }
+    super.close();
+  }
+
+  /**
+   * Writes the records with a reused {@link ObjectWriter}. A record that fails is skipped if its generator has not
+   * passed any bytes to the output yet, which is the case for records smaller than the buffer of the generator.
+   */
+  private static final class JacksonWriter<T> implements ValueWriter<T> {
+    private transient ObjectWriter writer;
+    private transient OutputStream out;
+    private transient CountingOutputStream counting;
+
+    @Override
+    public void write(T value, OutputStream out) throws IOException {
+      if (writer == null) {
+        writer = OBJECT_MAPPER.writer();
+      }
+      if (out != this.out) {
+        this.out = out;
+        counting = new CountingOutputStream(out);
+      }
+      final long start = counting.getCount();
+      final JsonGenerator generator = OBJECT_MAPPER.getFactory().createGenerator(counting);
+      generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+      try {
+        writer.writeValue(generator, value);
+      } catch (JsonProcessingException e) {
+        if (counting.getCount() != start) {
+          throw new IOException("Can't serialize to JSON object, the output is incomplete: " + value, e);
+        }
+        // the generator is dropped without flushing the partial record
+        LOGGER.error("Can't serialize to JSON object: " + value, e);
+        return;
+      }
+      generator.close();
+    }
+  }
+
+  /**
+   * The stream the records are written to. Counts the uncompressed bytes and ignores flush and close, so that
+   * writers that close their generator after every record neither close the output nor flush it record by record.
+   * The pending separator is written before the first byte of the next record, so skipped records leave no trace.
+   */
+  private static final class RecordStream extends OutputStream {
+    private OutputStream target;
+    private long count;
+    private byte[] pending;
+
+    private void writePending() throws IOException {
+      if (pending != null) {
+        final byte[] separator = pending;
+        pending = null;
+        write(separator, 0, separator.length);
+      }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      writePending();
+      target.write(b);
+      count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      if (len == 0) {
+        return;
+      }
+      writePending();
+      target.write(b, off, len);
+      count += len;
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+}
@@ -0,0 +1,49 @@
+package com.formulasearchengine.mathosphere.mlp.contracts;
+
+import com.formulasearchengine.mathosphere.mlp.cli.BaseConfig;
+import com.formulasearchengine.mathosphere.mlp.pojos.IncrementalPage;
+import com.formulasearchengine.mathosphere.mlp.pojos.RawWikiDocument;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import org.apache.flink.api.common.functions.MapFunction;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Keys a page of the dump for an incremental run by its title and a fingerprint of its text and of the settings
+ * that influence the extracted relations. A page whose fingerprint equals the one stored by an earlier run would
+ * yield the same result and is not processed again.
+ */
+public class PageFingerprintMapper implements MapFunction<RawWikiDocument, IncrementalPage> {
+
+  private static final HashFunction HASHER = Hashing.md5();
+
+  private final String settings;
+
+  public PageFingerprintMapper(BaseConfig config) {
+    this.settings = settings(config);
+  }
+
+  /**
+   * @return the settings that influence the relations extracted from a page.
+   */
+  static String settings(BaseConfig config) {
+    return config.getModel() + ";" + config.getLanguage()
+      + ";" + config.getAlpha() + ";" + config.getBeta() + ";" + config.getGamma() + ";" + config.getThreshold()
+      + ";" + config.getTopK() + ";" + config.getDefinitionMerging()
+      + ";" + config.getUseTeXIdentifiers() + ";" + config.getWikiDataFile()
+      // the local extractor and the texvcinfo services may differ in the identifiers they find
+      + ";" + (config.getUseTeXIdentifiers() ? config.getTexvcinfoUrl() : "");
+  }
+
+  @Override
+  public IncrementalPage map(RawWikiDocument doc) {
+    final String fingerprint = HASHER.newHasher()
+      .putString(settings, StandardCharsets.UTF_8)
+      .putInt(doc.namespace)
+      .putString(doc.text, StandardCharsets.UTF_8)
+      .hash().toString();
+    return new IncrementalPage(doc.title, fingerprint, doc, null);
+  }
+}
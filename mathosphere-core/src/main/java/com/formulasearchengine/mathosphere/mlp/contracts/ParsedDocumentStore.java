@@ -0,0 +1,321 @@
+package com.formulasearchengine.mathosphere.mlp.contracts;
+
+import com.formulasearchengine.mathosphere.mlp.pojos.ParsedWikiDocument;
+import com.formulasearchengine.mathosphere.mlp.pojos.ParsedWikiDocumentSerializer;
+
+import org.apache.flink.api.common.io.FileInputFormat;
+import org.apache.flink.api.common.io.FileOutputFormat;
+import org.apache.flink.core.fs.FileInputSplit;
+import org.apache.flink.core.fs.FileSystem;
+import org.apache.flink.core.fs.Path;
+import org.apache.flink.core.memory.DataInputViewStreamWrapper;
+import org.apache.flink.core.memory.DataOutputViewStreamWrapper;
+import org.apache.flink.types.StringValue;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Binary store for {@link ParsedWikiDocument}s, so that the commands can start from the parsed and tagged documents
+ * instead of the wiki dump.
+ * <p>
+ * The store is a directory with one shard per task that wrote it. A shard is a header followed by deflate compressed
+ * blocks of documents serialized with {@link ParsedWikiDocumentSerializer}, the index of the blocks with the titles
+ * of their documents and a trailer pointing to the index. Shards are split at block boundaries with the help of the
+ * index, so a store can be read with any parallelism.
+ */
+public class ParsedDocumentStore {
+
+  private static final int MAGIC = 0x4d4c5044;
+  private static final int VERSION = 1;
+  private static final int HEADER_LENGTH = 8;
+  private static final int TRAILER_LENGTH = 12;
+  /**
+   * Default uncompressed size after which a block is written.
+   */
+  public static final int BLOCK_SIZE = 1024 * 1024;
+
+  private ParsedDocumentStore() {
+  }
+
+  /**
+   * A block of a shard, as listed in its index.
+   */
+  static final class Block {
+    final long offset;
+    final List<String> titles;
+
+    Block(long offset, List<String> titles) {
+      this.offset = offset;
+      this.titles = titles;
+    }
+  }
+
+  /**
+   * @param path the directory of the store, or a single shard.
+   * @return the titles of all documents in the store, in the order of the shards.
+   * @throws IOException if a shard cannot be read or was not written by {@link ShardOutputFormat}.
+   */
+  public static List<String> titles(String path) throws IOException {
+    final List<String> titles = new ArrayList<>();
+    for (File shard : shards(path)) {
+      try (RandomAccessFile file = new RandomAccessFile(shard, "r")) {
+        for (Block block : readIndex(file)) {
+          titles.addAll(block.titles);
+        }
+      }
+    }
+    return titles;
+  }
+
+  /**
+   * Reads a single document of the store, decompressing only the block that contains it.
+   *
+   * @param path  the directory of the store, or a single shard.
+   * @param title the title of the document.
+   * @return the document, null if the store has no document with this title.
+   * @throws IOException if a shard cannot be read or was not written by {@link ShardOutputFormat}.
+   */
+  public static ParsedWikiDocument find(String path, String title) throws IOException {
+    for (File shard : shards(path)) {
+      try (RandomAccessFile file = new RandomAccessFile(shard, "r")) {
+        for (Block block : readIndex(file)) {
+          final int position = block.titles.indexOf(title);
+          if (position >= 0) {
+            file.seek(block.offset);
+            return readBlock(new DataInputStream(Channels.newInputStream(file.getChannel()))).get(position);
+          }
+        }
+      }
+    }
+    return null;
+  }
+
+  private static File[] shards(String path) throws IOException {
+    final File file = new File(path);
+    final File[] shards = file.isDirectory()
+      ? file.listFiles(f -> f.isFile() && !f.getName().startsWith(".") && !f.getName().startsWith("_"))
+      : new File[]{file};
+    if (shards == null) {
+      throw new IOException("Cannot list the shards of " + path);
+    }
+    Arrays.sort(shards);
+    return shards;
+  }
+
+  private static List<Block> readIndex(RandomAccessFile file) throws IOException {
+    final long length = file.length();
+    if (length < HEADER_LENGTH + TRAILER_LENGTH) {
+      throw new IOException("Not a parsed document shard");
+    }
+    file.seek(0);
+    checkHeader(file.readInt(), file.readInt());
+    file.seek(length - TRAILER_LENGTH);
+    final long indexOffset = file.readLong();
+    if (file.readInt() != MAGIC) {
+      throw new IOException("Parsed document shard without index, was it written completely?");
+    }
+    file.seek(indexOffset);
+    return readIndex(new DataInputStream(new BufferedInputStream(Channels.newInputStream(file.getChannel()))));
+  }
+
+  private static void checkHeader(int magic, int version) throws IOException {
+    if (magic != MAGIC || version != VERSION) {
+      throw new IOException("Not a parsed document shard of version " + VERSION);
+    }
+  }
+
+  private static List<Block> readIndex(DataInputStream in) throws IOException {
+    final int blockCount = in.readInt();
+    final List<Block> blocks = new ArrayList<>(blockCount);
+    final DataInputViewStreamWrapper view = new DataInputViewStreamWrapper(in);
+    for (int i = 0; i < blockCount; i++) {
+      final long offset = in.readLong();
+      final int documents = in.readInt();
+      final List<String> titles = new ArrayList<>(documents);
+      for (int j = 0; j < documents; j++) {
+        titles.add(StringValue.readString(view));
+      }
+      blocks.add(new Block(offset, titles));
+    }
+    return blocks;
+  }
+
+  private static List<ParsedWikiDocument> readBlock(DataInputStream in) throws IOException {
+    final int documents = in.readInt();
+    final byte[] compressed = new byte[in.readInt()];
+    in.readFully(compressed);
+    final DataInputViewStreamWrapper view =
+      new DataInputViewStreamWrapper(new InflaterInputStream(new ByteArrayInputStream(compressed)));
+    final List<ParsedWikiDocument> result = new ArrayList<>(documents);
+    for (int i = 0; i < documents; i++) {
+      result.add(ParsedWikiDocumentSerializer.INSTANCE.deserialize(view));
+    }
+    return result;
+  }
+
+  /**
+   * Writes the documents as shards of a store, one per parallel task.
+   */
+  public static class ShardOutputFormat extends FileOutputFormat<ParsedWikiDocument> {
+
+    private transient DataOutputStream out;
+    private transient ByteArrayOutputStream buffer;
+    private transient DataOutputViewStreamWrapper view;
+    private transient List<String> titles;
+    private transient List<Block> blocks;
+    /**
+     * The number of bytes written to the shard, {@link DataOutputStream#size()} overflows for shards above 2 GB.
+     */
+    private transient long position;
+    private final int blockSize;
+
+    public ShardOutputFormat(String path) {
+      this(path, BLOCK_SIZE);
+    }
+
+    /**
+     * @param blockSize uncompressed size after which a block is written, larger blocks compress better while
+     *                  smaller ones can be split finer and are faster to look up.
+     */
+    public ShardOutputFormat(String path, int blockSize) {
+      super(new Path(path));
+      this.blockSize = blockSize;
+      setWriteMode(FileSystem.WriteMode.OVERWRITE);
+      setOutputDirectoryMode(OutputDirectoryMode.ALWAYS);
+    }
+
+    @Override
+    public void open(int taskNumber, int numTasks) throws IOException {
+      super.open(taskNumber, numTasks);
+      out = new DataOutputStream(this.stream);
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      position = HEADER_LENGTH;
+      buffer = new ByteArrayOutputStream();
+      view = new DataOutputViewStreamWrapper(buffer);
+      titles = new ArrayList<>();
+      blocks = new ArrayList<>();
+    }
+
+    @Override
+    public void writeRecord(ParsedWikiDocument doc) throws IOException {
+      ParsedWikiDocumentSerializer.INSTANCE.serialize(doc, view);
+      titles.add(doc.getTitle());
+      if (buffer.size() >= blockSize) {
+        writeBlock();
+      }
+    }
+
+    private void writeBlock() throws IOException {
+      if (titles.isEmpty()) {
+        return;
+      }
+      final ByteArrayOutputStream compressed = new ByteArrayOutputStream(buffer.size() / 4);
+      try (DeflaterOutputStream deflater = new DeflaterOutputStream(compressed)) {
+        buffer.writeTo(deflater);
+      }
+      blocks.add(new Block(position, titles));
+      out.writeInt(titles.size());
+      out.writeInt(compressed.size());
+      compressed.writeTo(out);
+      position += 8 + compressed.size();
+      buffer.reset();
+      titles = new ArrayList<>();
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (out != null) {
+        writeBlock();
+        final long indexOffset = position;
+        out.writeInt(blocks.size());
+        final DataOutputViewStreamWrapper indexView = new DataOutputViewStreamWrapper(out);
+        for (Block block : blocks) {
+          out.writeLong(block.offset);
+          out.writeInt(block.titles.size());
+          for (String title : block.titles) {
+            StringValue.writeString(title, indexView);
+          }
+        }
+        out.writeLong(indexOffset);
+        out.writeInt(MAGIC);
+        out.flush();
+        out = null;
+      }
+      super.close();
+    }
+  }
+
+  /**
+   * Reads the documents of a store. A split reads the blocks that start within it.
+   */
+  public static class ShardInputFormat extends FileInputFormat<ParsedWikiDocument> {
+
+    private transient Iterator<Block> blocks;
+    private transient Iterator<ParsedWikiDocument> documents;
+
+    public ShardInputFormat(String path) {
+      super(new Path(path));
+    }
+
+    @Override
+    public void open(FileInputSplit split) throws IOException {
+      super.open(split);
+      final long length = split.getPath().getFileSystem().getFileStatus(split.getPath()).getLen();
+      if (length < HEADER_LENGTH + TRAILER_LENGTH) {
+        throw new IOException(split.getPath() + " is not a parsed document shard");
+      }
+      final DataInputStream trailer = new DataInputStream(this.stream);
+      this.stream.seek(0);
+      checkHeader(trailer.readInt(), trailer.readInt());
+      this.stream.seek(length - TRAILER_LENGTH);
+      final long indexOffset = trailer.readLong();
+      if (trailer.readInt() != MAGIC) {
+        throw new IOException(split.getPath() + " is a parsed document shard without index, was it written completely?");
+      }
+      this.stream.seek(indexOffset);
+      final long end = this.splitLength < 0 ? Long.MAX_VALUE : this.splitStart + this.splitLength;
+      final List<Block> selected = new ArrayList<>();
+      for (Block block : readIndex(new DataInputStream(new BufferedInputStream(this.stream)))) {
+        if (block.offset >= this.splitStart && block.offset < end) {
+          selected.add(block);
+        }
+      }
+      blocks = selected.iterator();
+      documents = null;
+    }
+
+    @Override
+    public boolean reachedEnd() throws IOException {
+      while (documents == null || !documents.hasNext()) {
+        if (!blocks.hasNext()) {
+          return true;
+        }
+        this.stream.seek(blocks.next().offset);
+        final InputStream in = new BufferedInputStream(this.stream);
+        documents = readBlock(new DataInputStream(in)).iterator();
+      }
+      return false;
+    }
+
+    @Override
+    public ParsedWikiDocument nextRecord(ParsedWikiDocument reuse) throws IOException {
+      return reachedEnd() ? null : documents.next();
+    }
+  }
+}
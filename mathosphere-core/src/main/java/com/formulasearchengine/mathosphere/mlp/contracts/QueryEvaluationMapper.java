@@ -0,0 +1,201 @@
+package com.formulasearchengine.mathosphere.mlp.contracts;
+
+import com.formulasearchengine.mathosphere.mlp.FlinkMlpRelationFinder;
+import com.formulasearchengine.mathosphere.mlp.cli.EvalCommandConfig;
+import com.formulasearchengine.mathosphere.mlp.pojos.EvaluationCounts;
+import com.formulasearchengine.mathosphere.mlp.pojos.MathTag;
+import com.formulasearchengine.mathosphere.mlp.pojos.ParsedWikiDocument;
+import com.formulasearchengine.mathosphere.mlp.pojos.QueryEvaluation;
+import com.formulasearchengine.mathosphere.mlp.pojos.Relation;
+import com.formulasearchengine.mathosphere.mlp.pojos.WikiDocumentOutput;
+import com.formulasearchengine.mathosphere.mlp.text.WikiTextUtils;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVRecord;
+import org.apache.flink.api.common.functions.FlatMapFunction;
+import org.apache.flink.api.common.functions.MapFunction;
+import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.util.Collector;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Evaluates the relations extracted from one document of the gold standard. Documents are independent of each other,
+ * so the gold standard can be evaluated in parallel and the counts of the queries summed up afterwards.
+ */
+public class QueryEvaluationMapper implements FlatMapFunction<ParsedWikiDocument, QueryEvaluation> {
+
+  private static final Logger LOGGER = LogManager.getLogger(QueryEvaluationMapper.class.getName());
+
+  private final EvalCommandConfig config;
+  private final Map<String, Object> gold;
+  private final Map<String, Object> ndData;
+  private final MapFunction<ParsedWikiDocument, WikiDocumentOutput> candidatesMapper;
+
+  /**
+   * @param config the evaluation config.
+   * @param gold   the entries of the gold standard by title, with spaces replaced by underscores.
+   * @param ndData the namespace discovery data by title, with spaces replaced by underscores.
+   */
+  public QueryEvaluationMapper(EvalCommandConfig config, Map<String, Object> gold, Map<String, Object> ndData) {
+    this.config = config;
+    this.gold = gold;
+    this.ndData = ndData;
+    if (config.isPatternMatcher()) {
+      candidatesMapper = new PatternMatcherMapper();
+    } else {
+      candidatesMapper = new CreateCandidatesMapper(config);
+    }
+  }
+
+  @Override
+  public void flatMap(ParsedWikiDocument parsedWikiDocument, Collector<QueryEvaluation> out) {
+    try {
+      final QueryEvaluation evaluation = evaluate(parsedWikiDocument);
+      if (evaluation != null) {
+        out.collect(evaluation);
+      }
+    } catch (Exception e) {
+      LOGGER.warn("Problem with " + parsedWikiDocument.getTitle(), e);
+    }
+  }
+
+  /**
+   * @param parsedWikiDocument a document of the evaluation dataset.
+   * @return the evaluation of the query of the document, null if the gold standard has no entry for the document.
+   * @throws Exception if the document does not match its gold standard entry.
+   */
+  public QueryEvaluation evaluate(ParsedWikiDocument parsedWikiDocument) throws Exception {
+    String title = parsedWikiDocument.getTitle().replaceAll(" ", "_");
+    if (!gold.containsKey(title)) {
+      LOGGER.info("No gold standard entry for " + title);
+      return null;
+    }
+    Map goldElement = (Map) gold.get(title);
+    Map formula = (Map) goldElement.get("formula");
+    final Integer formulaId = Integer.parseInt((String) formula.get("fid"));
+    final String tex = (String) formula.get("math_inputtex");
+    final String qId = (String) formula.get("qID");
+    final MathTag seed = parsedWikiDocument.getFormulas().stream()
+      .filter(f -> f.getMarkUpType().equals(WikiTextUtils.MathMarkUpType.LATEX)).collect(Collectors.toList())
+      .get(formulaId);
+    if (!seed.getContent().equals(tex)) {
+      LOGGER.error("PROBLEM WITH" + title);
+      LOGGER.error(seed.getContent());
+      LOGGER.error(tex);
+      throw new Exception("Invalid numbering.");
+    }
+    final WikiDocumentOutput wikiDocumentOutput = candidatesMapper.map(parsedWikiDocument);
+    List<Relation> relations = wikiDocumentOutput.getRelations();
+    final Set<String> real = seed.getIdentifiers(config).elementSet();
+    //only keep identifiers that have a definition
+    final Map definitions = (Map) goldElement.get("definitions");
+    final Set expected = definitions.keySet();
+    Set<String> tp = new HashSet<>(expected);
+    Set<String> fn = new HashSet<>(expected);
+    Set<String> fp = new HashSet<>(real);
+    tp.retainAll(real);
+    fn.removeAll(real);
+    fp.removeAll(expected);
+    LOGGER.debug("https://en.formulasearchengine.com/wiki/" + title + "#math." + formula.get("oldId") + "." + formulaId);
+    if (config.getNamespace()) {
+      getNamespaceData(title, relations);
+    }
+    //remove identifiers that are not in the gold standard -> these were errors of the identifier extraction.
+    relations.removeIf(r -> !expected.contains(r.getIdentifier()));
+    Collections.sort(relations, Relation::compareToName);
+    removeDuplicates(definitions, relations);
+    int tpRel = 0;
+    int fnRel = 0;
+    final List<Relation> falsePositives = new ArrayList<>();
+    final Map<Tuple2<String, String>, Integer> references =
+      config.getRelevanceFolder() == null ? null : readRelevance(qId);
+    if (references != null) {
+      for (Relation relation : relations) {
+        Integer score = references.get(new Tuple2<>(relation.getIdentifier(), relation.getDefinition()));
+        if (score != null && score >= config.getLevel()) {
+          LOGGER.debug("tp: " + relation.getIdentifier() + ", " + relation.getDefinition());
+          tpRel++;
+        } else {
+          LOGGER.debug("fp: " + relation.getIdentifier() + ", " + relation.getDefinition());
+          falsePositives.add(relation);
+        }
+      }
+      fnRel = expected.size() - tpRel;
+    }
+    final QueryEvaluation evaluation = new QueryEvaluation(qId, wikiDocumentOutput.getTitle().replaceAll("\\s", "_"),
+      relations, new EvaluationCounts(tp.size(), fp.size(), fn.size(), tpRel, falsePositives.size(), fnRel));
+    evaluation.setFalsePositives(falsePositives);
+    return evaluation;
+  }
+
+  /**
+   * @return the relevance judgements of the query, null if they cannot be read. The query is still evaluated then,
+   * but its relations are not counted.
+   */
+  private Map<Tuple2<String, String>, Integer> readRelevance(String qId) {
+    final String file = config.getRelevanceFolder() + "/q" + qId + ".csv";
+    Map<Tuple2<String, String>, Integer> references = new HashMap<>();
+    try (Reader relevance = new FileReader(file)) {
+      Iterable<CSVRecord> records = CSVFormat.RFC4180.parse(relevance);
+      for (CSVRecord record : records) {
+        String identifier = record.get(0);
+        if (identifier.length() > 0) {
+          String definition = record.get(1);
+          Integer relevanceRanking = Integer.valueOf(record.get(2));
+          references.put(new Tuple2<>(identifier, definition), relevanceRanking);
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      LOGGER.warn("Cannot read the relevance judgements " + file + " of query " + qId, e);
+      return null;
+    }
+    return references;
+  }
+
+  private static void removeDuplicates(Map definitions, List<Relation> relations) {
+    String lastDef = "";
+    String lastIdent = "";
+    final Iterator<Relation> iterator = relations.iterator();
+    while (iterator.hasNext()) {
+      final Relation relation = iterator.next();
+      final List<String> refList = FlinkMlpRelationFinder.getDefiniens(definitions, relation);
+      final String definition = relation.getDefinition().replaceAll("(\\[\\[|\\]\\])", "").replaceAll("_", " ").trim().toLowerCase();
+      if (refList.contains(definition)) {
+        relation.setRelevance(2);
+      }
+      if (lastIdent.compareTo(relation.getIdentifier())
+        + relation.getDefinition().compareToIgnoreCase(lastDef) == 0) {
+        iterator.remove();
+      }
+      lastDef = relation.getDefinition();
+      lastIdent = relation.getIdentifier();
+    }
+  }
+
+  private void getNamespaceData(String title, List<Relation> relations) {
+    final Map nd = (Map) ndData.get(title);
+    if (nd != null) {
+      List relNS = (List) nd.get("namespace_relations");
+      if (relNS != null) {
+        for (Object o : relNS) {
+          Relation rel = new Relation(o);
+          relations.add(rel);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,62 @@
+package com.formulasearchengine.mathosphere.mlp.contracts;
+
+import com.formulasearchengine.mathosphere.mlp.pojos.QueryEvaluation;
+import com.formulasearchengine.mathosphere.mlp.pojos.Relation;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.apache.flink.api.common.io.OutputFormat;
+import org.apache.flink.configuration.Configuration;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Writes the relations of every query as relevance template {@code q<qId>.csv} into a directory, with the columns
+ * identifier, definition and relevance. The files of different queries are independent, so any number of tasks
+ * may write into the same directory.
+ */
+public class RelevanceTemplateOutputFormat implements OutputFormat<QueryEvaluation> {
+
+  private final String directory;
+
+  public RelevanceTemplateOutputFormat(String directory) {
+    this.directory = directory;
+  }
+
+  @Override
+  public void configure(Configuration parameters) {
+  }
+
+  @Override
+  public void open(int taskNumber, int numTasks) throws IOException {
+    Files.createDirectories(new File(directory).toPath());
+  }
+
+  @Override
+  public void writeRecord(QueryEvaluation record) throws IOException {
+    final File output = new File(directory, "q" + record.getqId() + ".csv");
+    try (Writer w = new OutputStreamWriter(Files.newOutputStream(output.toPath()), StandardCharsets.UTF_8)) {
+      CSVPrinter printer = CSVFormat.DEFAULT.withRecordSeparator("\n").print(w);
+      for (Relation relation : record.getRelations()) {
+        String sScore;
+        if (relation.getRelevance() == null) {
+          sScore = "";
+        } else {
+          sScore = String.valueOf(relation.getRelevance());
+        }
+        String[] out = new String[] {relation.getIdentifier(), relation.getDefinition(), sScore};
+        printer.printRecord(out);
+      }
+      printer.flush();
+    }
+  }
+
+  @Override
+  public void close() {
+  }
+}
@@ -0,0 +1,172 @@
+package com.formulasearchengine.mathosphere.mlp.contracts;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Restricts a byte stream to the records that belong to one input split. A record is recognized by a start marker
+ * (e.g. {@code <page>}). All bytes before the first start marker are skipped. The stream ends right before the first
+ * start marker that begins at or after {@code limit} (this record belongs to the next split) or right before the
+ * optional terminator (e.g. {@code </mediawiki>}).
+ */
+public class SplitBoundaryInputStream extends InputStream {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final InputStream in;
+  private final long limit;
+  private final byte[] startMarker;
+  private final byte[] terminator;
+  private final int lookahead;
+
+  private final byte[] buffer = new byte[BUFFER_SIZE];
+  private int pos = 0;
+  private int count = 0;
+  /**
+   * absolute offset of buffer[0]
+   */
+  private long bufferOffset;
+  private boolean eof = false;
+  private boolean started = false;
+  private boolean finished = false;
+
+  /**
+   * @param in          the underlying stream
+   * @param offset      absolute offset of the first byte of {@code in}
+   * @param limit       records starting at or after this absolute offset belong to the next split
+   * @param startMarker byte sequence that starts a record
+   * @param terminator  byte sequence that ends all records, may be null
+   */
+  public SplitBoundaryInputStream(InputStream in, long offset, long limit, byte[] startMarker, byte[] terminator) {
+    this.in = in;
+    this.bufferOffset = offset;
+    this.limit = limit;
+    this.startMarker = startMarker;
+    this.terminator = terminator;
+    this.lookahead = Math.max(startMarker.length, terminator == null ? 0 : terminator.length);
+  }
+
+  public SplitBoundaryInputStream(InputStream in, long offset, long limit, String startMarker, String terminator) {
+    this(in, offset, limit, startMarker.getBytes(StandardCharsets.UTF_8),
+      terminator == null ? null : terminator.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Override
+  public int read() throws IOException {
+    byte[] b = new byte[1];
+    int n;
+    do {
+      n = read(b, 0, 1);
+    } while (n == 0);
+    return n < 0 ? -1 : b[0] & 0xff;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (finished) {
+      return -1;
+    }
+    if (len == 0) {
+      return 0;
+    }
+    if (!started) {
+      started = true;
+      if (!skipToFirstRecord()) {
+        finished = true;
+        return -1;
+      }
+    }
+    if (count - pos < lookahead && !eof) {
+      fill();
+    }
+    int scanLimit = eof ? count : count - lookahead + 1;
+    int end = Math.min(pos + len, scanLimit);
+    for (int i = pos; i < end; i++) {
+      if (isStop(i)) {
+        finished = true;
+        end = i;
+        break;
+      }
+    }
+    int n = end - pos;
+    if (n == 0) {
+      return finished || eof ? -1 : 0;
+    }
+    System.arraycopy(buffer, pos, b, off, n);
+    pos += n;
+    return n;
+  }
+
+  private boolean isStop(int i) {
+    if (terminator != null && matches(terminator, i)) {
+      return true;
+    }
+    return bufferOffset + i >= limit && matches(startMarker, i);
+  }
+
+  /**
+   * Positions the stream at the first start marker.
+   *
+   * @return false if no record starts within this split
+   */
+  private boolean skipToFirstRecord() throws IOException {
+    while (true) {
+      fill();
+      int scanLimit = eof ? count : count - lookahead + 1;
+      for (int i = pos; i < scanLimit; i++) {
+        if (terminator != null && matches(terminator, i)) {
+          return false;
+        }
+        if (matches(startMarker, i)) {
+          pos = i;
+          return bufferOffset + i < limit;
+        }
+      }
+      pos = Math.max(pos, scanLimit);
+      if (eof || bufferOffset + pos >= limit) {
+        return false;
+      }
+    }
+  }
+
+  private boolean matches(byte[] marker, int i) {
+    if (buffer[i] != marker[0] || i + marker.length > count) {
+      return false;
+    }
+    for (int j = 0; j < marker.length; j++) {
+      if (buffer[i + j] != marker[j]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Compacts the buffer and reads until at least {@link #lookahead} bytes are available or the stream is exhausted.
+   */
+  private void fill() throws IOException {
+    if (pos > 0) {
+      System.arraycopy(buffer, pos, buffer, 0, count - pos);
+      bufferOffset += pos;
+      count -= pos;
+      pos = 0;
+    }
+    while (!eof && count < buffer.length) {
+      int read = in.read(buffer, count, buffer.length - count);
+      if (read < 0) {
+        eof = true;
+      } else {
+        count += read;
+        if (count >= lookahead) {
+          break;
+        }
+      }
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    in.close();
+  }
+}
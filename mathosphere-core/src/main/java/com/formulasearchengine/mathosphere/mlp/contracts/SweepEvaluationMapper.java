@@ -0,0 +1,60 @@
+package com.formulasearchengine.mathosphere.mlp.contracts;
+
+import com.formulasearchengine.mathosphere.mlp.cli.EvalCommandConfig;
+import com.formulasearchengine.mathosphere.mlp.pojos.EvaluationCounts;
+import com.formulasearchengine.mathosphere.mlp.pojos.ParsedWikiDocument;
+import com.formulasearchengine.mathosphere.mlp.pojos.QueryEvaluation;
+
+import org.apache.flink.api.common.functions.FlatMapFunction;
+import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.util.Collector;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Evaluates one parsed document of the gold standard with every setting of a parameter sweep, so the expensive
+ * parsing and tagging of the document is done only once for the whole grid.
+ * Emits the counts of the document for every setting, keyed by the index of the setting.
+ */
+public class SweepEvaluationMapper implements FlatMapFunction<ParsedWikiDocument, Tuple2<Integer, EvaluationCounts>> {
+
+  private static final Logger LOGGER = LogManager.getLogger(SweepEvaluationMapper.class.getName());
+
+  private final List<QueryEvaluationMapper> evaluators = new ArrayList<>();
+
+  /**
+   * @param settings the settings of the sweep, see {@link QueryEvaluationMapper} for the other parameters.
+   */
+  public SweepEvaluationMapper(List<? extends EvalCommandConfig> settings, Map<String, Object> gold,
+                               Map<String, Object> ndData) {
+    for (EvalCommandConfig setting : settings) {
+      evaluators.add(new QueryEvaluationMapper(setting, gold, ndData));
+    }
+  }
+
+  @Override
+  public void flatMap(ParsedWikiDocument parsedWikiDocument, Collector<Tuple2<Integer, EvaluationCounts>> out) {
+    final List<EvaluationCounts> counts = new ArrayList<>(evaluators.size());
+    try {
+      for (QueryEvaluationMapper evaluator : evaluators) {
+        final QueryEvaluation evaluation = evaluator.evaluate(parsedWikiDocument);
+        if (evaluation == null) {
+          // not part of the gold standard, which does not depend on the setting
+          return;
+        }
+        counts.add(evaluation.getCounts());
+      }
+    } catch (Exception e) {
+      // skip the document for all settings, so that all of them are evaluated on the same documents
+      LOGGER.warn("Problem with " + parsedWikiDocument.getTitle(), e);
+      return;
+    }
+    for (int i = 0; i < counts.size(); i++) {
+      out.collect(new Tuple2<>(i, counts.get(i)));
+    }
+  }
+}
@@ -4,27 +4,93 @@ import com.formulasearchengine.mathosphere.mlp.cli.TagsCommandConfig;
 import com.formulasearchengine.mathosphere.mlp.pojos.MathTag;
 import com.formulasearchengine.mathosphere.mlp.pojos.RawWikiDocument;
 import com.formulasearchengine.mathosphere.mlp.text.MathConverter;
-import org.apache.flink.api.common.functions.FlatMapFunction;
+import com.formulasearchengine.mathosphere.mlp.text.TexInfo;
+import com.formulasearchengine.mathosphere.mlp.text.TexInfoCache;
+import com.formulasearchengine.mathosphere.mlp.text.TexInfoClient;
+import com.formulasearchengine.mathosphere.mlp.text.WikiTextUtils.MathMarkUpType;
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.Multiset;
+import org.apache.flink.api.common.functions.RichFlatMapFunction;
+import org.apache.flink.configuration.Configuration;
 import org.apache.flink.util.Collector;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Created by Moritz on 04.08.2017.
+ * <p>
+ * With {@code --tex} the identifiers of the TeX tags are resolved as well, so that the formulae.json can seed the
+ * {@link TexInfoCache} of later runs.
  */
-public class TagExtractionMapper implements FlatMapFunction<RawWikiDocument, MathTag> {
+public class TagExtractionMapper extends RichFlatMapFunction<RawWikiDocument, MathTag> {
+
+    private static final Logger LOGGER = LogManager.getLogger(TagExtractionMapper.class.getName());
 
     private final TagsCommandConfig config;
 
+    private transient MathConverter converter;
+    private transient TexInfoClient texInfoClient;
+
     public TagExtractionMapper(TagsCommandConfig c) {
         config = c;
     }
 
     @Override
-    public void flatMap(RawWikiDocument rawWikiDocument, Collector<MathTag> collector) throws Exception {
-        final MathConverter converter = new MathConverter(rawWikiDocument.text, rawWikiDocument.title, config);
+    public void open(Configuration parameters) {
+        converter = new MathConverter(config);
         converter.setSkipHiddenMath(true);
+        if (config.getUseTeXIdentifiers()) {
+            texInfoClient = new TexInfoClient(config);
+        }
+        if (config.getTexvcinfoCacheFile() != null) {
+            try {
+                TexInfo.setCache(TexInfoCache.open(config.getTexvcinfoCacheFile(), config.getTexvcinfoSeedFile()));
+            } catch (IOException e) {
+                LOGGER.warn("could not open texvcinfo cache {}", config.getTexvcinfoCacheFile(), e);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (texInfoClient != null) {
+            texInfoClient.close();
+        }
+    }
+
+    @Override
+    public void flatMap(RawWikiDocument rawWikiDocument, Collector<MathTag> collector) throws Exception {
+        converter.parse(rawWikiDocument.text, rawWikiDocument.title);
         converter.processTags();
+        if (texInfoClient != null) {
+            resolveIdentifiers(converter.getMathTags());
+        }
         for (MathTag tag : converter.getMathTags()) {
             collector.collect(tag);
         }
     }
+
+    /**
+     * Sets the identifiers of the TeX tags as returned by texvcinfo, i.e. unfiltered, which is what
+     * {@link TexInfoCache} stores.
+     */
+    private void resolveIdentifiers(List<MathTag> tags) {
+        final List<String> texs = new ArrayList<>();
+        for (MathTag tag : tags) {
+            if (tag.getMarkUpType() != MathMarkUpType.MATHML) {
+                texs.add(tag.getTagContent());
+            }
+        }
+        final Map<String, Multiset<String>> identifiers = texInfoClient.getIdentifiers(texs);
+        for (MathTag tag : tags) {
+            if (tag.getMarkUpType() != MathMarkUpType.MATHML) {
+                tag.setIdentifiers(HashMultiset.create(identifiers.get(tag.getTagContent())));
+            }
+        }
+    }
 }
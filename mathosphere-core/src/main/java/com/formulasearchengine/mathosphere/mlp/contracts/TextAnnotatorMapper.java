@@ -11,6 +11,9 @@ import com.formulasearchengine.mathosphere.mlp.pojos.Sentence;
 import com.formulasearchengine.mathosphere.mlp.pojos.WikidataLink;
 import com.formulasearchengine.mathosphere.mlp.text.MathConverter;
 import com.formulasearchengine.mathosphere.mlp.text.PosTagger;
+import com.formulasearchengine.mathosphere.mlp.text.TexInfo;
+import com.formulasearchengine.mathosphere.mlp.text.TexInfoClient;
+import com.formulasearchengine.mathosphere.mlp.text.TexInfoCache;
 import com.formulasearchengine.mathosphere.mlp.text.WikiTextUtils;
 
 import org.apache.flink.api.common.functions.RichMapFunction;
@@ -18,6 +21,7 @@ import org.apache.flink.configuration.Configuration;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -29,6 +33,8 @@ public class TextAnnotatorMapper extends RichMapFunction<RawWikiDocument, Parsed
 
 
   private transient PosTagger posTagger;
+  private transient MathConverter mathConverter;
+  private transient TexInfoClient texInfoClient;
 
   public TextAnnotatorMapper(BaseConfig config) {
     this.config = config;
@@ -37,6 +43,27 @@ public class TextAnnotatorMapper extends RichMapFunction<RawWikiDocument, Parsed
   @Override
   public void open(Configuration cfg) {
     posTagger = PosTagger.create(config);
+    if (config.getUseTeXIdentifiers()) {
+      mathConverter = new MathConverter(config);
+      texInfoClient = new TexInfoClient(config);
+    }
+    if (config.getTexvcinfoCacheFile() != null) {
+      try {
+        TexInfo.setCache(TexInfoCache.open(config.getTexvcinfoCacheFile(), config.getTexvcinfoSeedFile()));
+      } catch (IOException e) {
+        LOGGER.warn("could not open texvcinfo cache {}", config.getTexvcinfoCacheFile(), e);
+      }
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (posTagger != null) {
+      posTagger.close();
+    }
+    if (texInfoClient != null) {
+      texInfoClient.close();
+    }
   }
 
   @Override
@@ -56,7 +83,7 @@ public class TextAnnotatorMapper extends RichMapFunction<RawWikiDocument, Parsed
     try {
       String cleanText;
       if (config.getUseTeXIdentifiers()) {
-        MathConverter c = new MathConverter(wikitext, title, config);
+        MathConverter c = mathConverter.parse(wikitext, title);
         cleanText = c.getStrippedOutput();
         mathTags = c.getMathTags();
         links = c.getLinks();
@@ -66,6 +93,9 @@ public class TextAnnotatorMapper extends RichMapFunction<RawWikiDocument, Parsed
         cleanText = WikiTextUtils.extractPlainText(newText);
       }
       //formulas = toFormulas(mathTags, config.getUseTeXIdentifiers(),config.getTexvcinfoUrl());
+      if (texInfoClient != null) {
+        texInfoClient.resolve(mathTags);
+      }
       sentences = posTagger.process(cleanText, mathTags);
     } catch (Exception e) {
       LOGGER.warn("Problem with text processing", title, e);
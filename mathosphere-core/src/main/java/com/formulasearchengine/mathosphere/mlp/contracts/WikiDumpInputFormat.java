@@ -0,0 +1,276 @@
+package com.formulasearchengine.mathosphere.mlp.contracts;
+
+import com.formulasearchengine.mathosphere.mlp.pojos.RawWikiDocument;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+import org.apache.flink.api.common.accumulators.LongCounter;
+import org.apache.flink.api.common.io.FileInputFormat;
+import org.apache.flink.core.fs.FSDataInputStream;
+import org.apache.flink.core.fs.FileInputSplit;
+import org.apache.flink.core.fs.Path;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads MediaWiki XML dumps with a StAX pull parser and emits one {@link RawWikiDocument} per accepted page. In
+ * contrast to splitting the dump at {@code </page>} and matching regular expressions on the page string (see
+ * {@link TextExtractorMapper}), XML entities are decoded by the parser in a single pass.
+ * <p>
+ * Pages are cut from the byte stream and checked by a {@link WikiPageFilter} before they are parsed, so rejected
+ * pages are never decoded into Java Strings. The number of dropped pages and bytes is logged per split and reported
+ * via the accumulators {@link #DROPPED_PAGES} and {@link #DROPPED_BYTES}.
+ * <p>
+ * Plain XML dumps are split at arbitrary byte offsets. Each split processes the pages whose {@code <page>} tag starts
+ * within the split. Files ending with {@code .bz2} are expected to be multistream dumps (as provided by
+ * dumps.wikimedia.org). They are split at the bzip2 stream headers, so each split decompresses only its own streams.
+ */
+public class WikiDumpInputFormat extends FileInputFormat<RawWikiDocument> {
+
+  public static final String DROPPED_PAGES = "wiki-dump-dropped-pages";
+  public static final String DROPPED_BYTES = "wiki-dump-dropped-bytes";
+
+  private static final Logger LOGGER = LogManager.getLogger(WikiDumpInputFormat.class.getName());
+
+  private static final String PAGE_START = "<page>";
+  private static final byte[] PAGE_END = "</page>".getBytes(StandardCharsets.UTF_8);
+  private static final String DUMP_END = "</mediawiki>";
+  /**
+   * Block size 9 stream header followed by the block magic (the BCD digits of pi). Wikimedia compresses all
+   * multistream dumps with block size 9.
+   */
+  private static final String BZIP2_STREAM_START = "BZh91AY&SY";
+  private static final int INITIAL_BUFFER_SIZE = 1024 * 1024;
+
+  private final WikiPageFilter filter;
+
+  private transient XMLInputFactory factory;
+  private transient InputStream pages;
+  private transient byte[] buffer;
+  private transient int pageStart;
+  private transient int pageEnd;
+  private transient int count;
+  private transient boolean eof;
+  private transient boolean end;
+  private transient long droppedPages;
+  private transient long droppedBytes;
+  private transient LongCounter droppedPagesCounter;
+  private transient LongCounter droppedBytesCounter;
+
+  public WikiDumpInputFormat(Path filePath) {
+    this(filePath, WikiPageFilter.mainNamespace());
+  }
+
+  public WikiDumpInputFormat(Path filePath, WikiPageFilter filter) {
+    super(filePath);
+    this.filter = filter;
+  }
+
+  @Override
+  public void openInputFormat() throws IOException {
+    super.openInputFormat();
+    droppedPagesCounter = getRuntimeContext().getLongCounter(DROPPED_PAGES);
+    droppedBytesCounter = getRuntimeContext().getLongCounter(DROPPED_BYTES);
+  }
+
+  @Override
+  public void open(FileInputSplit split) throws IOException {
+    super.open(split);
+    final long limit = splitLength == READ_WHOLE_SPLIT_FLAG ? Long.MAX_VALUE : splitStart + splitLength;
+    if (isBzip2(split)) {
+      PushbackInputStream streams = new PushbackInputStream(
+        new SplitBoundaryInputStream(stream, splitStart, limit, BZIP2_STREAM_START, null));
+      int first = streams.read();
+      if (first < 0) {
+        // no bzip2 stream starts within this split
+        pages = new ByteArrayInputStream(new byte[0]);
+      } else {
+        streams.unread(first);
+        pages = new SplitBoundaryInputStream(new BZip2CompressorInputStream(streams, true), 0, Long.MAX_VALUE,
+          PAGE_START, DUMP_END);
+      }
+    } else {
+      pages = new SplitBoundaryInputStream(stream, splitStart, limit, PAGE_START, DUMP_END);
+    }
+    if (factory == null) {
+      factory = XMLInputFactory.newInstance();
+      factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+      factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    }
+    if (buffer == null) {
+      buffer = new byte[INITIAL_BUFFER_SIZE];
+    }
+    pageStart = 0;
+    pageEnd = 0;
+    count = 0;
+    eof = false;
+    end = false;
+    droppedPages = 0;
+    droppedBytes = 0;
+  }
+
+  @Override
+  protected FSDataInputStream decorateInputStream(FSDataInputStream inputStream, FileInputSplit fileSplit)
+    throws Throwable {
+    if (isBzip2(fileSplit)) {
+      // bzip2 streams are decompressed per split in open
+      return inputStream;
+    }
+    return super.decorateInputStream(inputStream, fileSplit);
+  }
+
+  private static boolean isBzip2(FileInputSplit split) {
+    return split.getPath().getName().endsWith(".bz2");
+  }
+
+  @Override
+  public boolean reachedEnd() throws IOException {
+    return end;
+  }
+
+  @Override
+  public RawWikiDocument nextRecord(RawWikiDocument reuse) throws IOException {
+    while (nextPage()) {
+      if (!filter.accept(buffer, pageStart, pageEnd)) {
+        droppedPages++;
+        droppedBytes += pageEnd - pageStart;
+        continue;
+      }
+      try {
+        RawWikiDocument doc = parsePage(reuse);
+        if (doc != null) {
+          return doc;
+        }
+      } catch (XMLStreamException e) {
+        throw new IOException("Malformed page in split " + currentSplit, e);
+      }
+    }
+    end = true;
+    return null;
+  }
+
+  /**
+   * Reads the bytes of the next page into the buffer and sets {@link #pageStart} and {@link #pageEnd}.
+   *
+   * @return false if there are no more pages in this split
+   */
+  private boolean nextPage() throws IOException {
+    int from = pageEnd;
+    int scan = from;
+    while (true) {
+      int idx = WikiPageFilter.indexOf(buffer, scan, count, PAGE_END);
+      if (idx >= 0) {
+        pageStart = from;
+        pageEnd = idx + PAGE_END.length;
+        return true;
+      }
+      if (eof) {
+        return false;
+      }
+      // keep the unfinished page and continue scanning where the terminator could start
+      int keep = count - from;
+      if (from > 0) {
+        System.arraycopy(buffer, from, buffer, 0, keep);
+      } else if (keep == buffer.length) {
+        byte[] larger = new byte[buffer.length * 2];
+        System.arraycopy(buffer, 0, larger, 0, keep);
+        buffer = larger;
+      }
+      scan = Math.max(0, keep - PAGE_END.length + 1);
+      from = 0;
+      pageEnd = 0;
+      count = keep;
+      int read = pages.read(buffer, count, buffer.length - count);
+      if (read < 0) {
+        eof = true;
+      } else {
+        count += read;
+      }
+    }
+  }
+
+  /**
+   * Parses the page in the buffer.
+   *
+   * @return the document or null if the page has no title or text
+   */
+  private RawWikiDocument parsePage(RawWikiDocument reuse) throws XMLStreamException {
+    XMLStreamReader reader = factory.createXMLStreamReader(
+      new ByteArrayInputStream(buffer, pageStart, pageEnd - pageStart), "UTF-8");
+    try {
+      String title = null;
+      String text = null;
+      int ns = 0;
+      int depth = 0;
+      while (reader.hasNext()) {
+        int event = reader.next();
+        if (event == XMLStreamConstants.END_ELEMENT) {
+          if (--depth == 0) {
+            break;
+          }
+        } else if (event == XMLStreamConstants.START_ELEMENT) {
+          switch (reader.getLocalName()) {
+            case "title":
+              title = reader.getElementText();
+              break;
+            case "ns":
+              ns = Integer.parseInt(reader.getElementText().trim());
+              break;
+            case "text":
+              if (text == null) {
+                text = reader.getElementText();
+              } else {
+                depth++;
+              }
+              break;
+            default:
+              depth++;
+          }
+        }
+      }
+      if (title == null || text == null) {
+        return null;
+      }
+      LOGGER.info("processing document '{}'...", title);
+      if (reuse == null) {
+        reuse = new RawWikiDocument();
+      }
+      reuse.title = title;
+      reuse.namespace = ns;
+      reuse.text = text;
+      return reuse;
+    } finally {
+      reader.close();
+    }
+  }
+
+  public long getDroppedPages() {
+    return droppedPages;
+  }
+
+  public long getDroppedBytes() {
+    return droppedBytes;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (pages != null) {
+      LOGGER.info("dropped {} pages ({} bytes) in split {}", droppedPages, droppedBytes, currentSplit);
+      if (droppedPagesCounter != null) {
+        droppedPagesCounter.add(droppedPages);
+        droppedBytesCounter.add(droppedBytes);
+      }
+      pages = null;
+    }
+    super.close();
+  }
+}
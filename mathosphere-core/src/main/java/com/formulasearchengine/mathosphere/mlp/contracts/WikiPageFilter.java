@@ -0,0 +1,154 @@
+package com.formulasearchengine.mathosphere.mlp.contracts;
+
+import com.formulasearchengine.mathosphere.mlp.cli.FlinkMlpCommandConfig;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Decides on the raw UTF-8 bytes of a {@code <page>} element of a MediaWiki dump whether the page should be processed.
+ * Pages can be filtered by namespace, by a title allow-list and by the presence of math tags. No part of a page is
+ * decoded to a Java String before it is accepted.
+ */
+public class WikiPageFilter implements Serializable {
+
+  private static final byte[] NS_START = bytes("<ns>");
+  private static final byte[] TITLE_START = bytes("<title>");
+  private static final byte[] TITLE_END = bytes("</title>");
+  private static final byte[] TEXT_START = bytes("<text");
+  /**
+   * Math tags are XML escaped within the text element of the dump.
+   */
+  private static final byte[] MATH_START = bytes("&lt;math");
+
+  private final Set<Integer> namespaces;
+  private final Set<String> titles;
+  private final boolean requireMath;
+
+  private transient Set<ByteBuffer> titleBytes;
+
+  /**
+   * @param namespaces  the accepted namespaces, null or empty to accept all
+   * @param titles      the accepted page titles, null to accept all
+   * @param requireMath only accept pages that contain a math tag
+   */
+  public WikiPageFilter(Set<Integer> namespaces, Set<String> titles, boolean requireMath) {
+    this.namespaces = namespaces;
+    this.titles = titles;
+    this.requireMath = requireMath;
+  }
+
+  /**
+   * Accepts main namespace pages only, as the regex based {@link TextExtractorMapper} does.
+   */
+  public static WikiPageFilter mainNamespace() {
+    Set<Integer> ns = new HashSet<>();
+    ns.add(0);
+    return new WikiPageFilter(ns, null, false);
+  }
+
+  public static WikiPageFilter from(FlinkMlpCommandConfig config) throws IOException {
+    Set<String> titles = null;
+    if (config.getTitleFile() != null) {
+      titles = new HashSet<>();
+      for (String line : Files.readAllLines(Paths.get(config.getTitleFile()), StandardCharsets.UTF_8)) {
+        if (line.trim().length() > 0) {
+          titles.add(line.trim().replace('_', ' '));
+        }
+      }
+    }
+    return new WikiPageFilter(new HashSet<>(config.getNamespaces()), titles, config.isOnlyMath());
+  }
+
+  /**
+   * @param page   buffer containing the page
+   * @param offset start of the page in the buffer
+   * @param end    end (exclusive) of the page in the buffer
+   * @return true if the page should be processed
+   */
+  public boolean accept(byte[] page, int offset, int end) {
+    if (namespaces != null && !namespaces.isEmpty()) {
+      int ns = indexOf(page, offset, end, NS_START);
+      if (ns < 0 || !namespaces.contains(parseInt(page, ns + NS_START.length, end))) {
+        return false;
+      }
+    }
+    if (titles != null) {
+      int start = indexOf(page, offset, end, TITLE_START);
+      if (start < 0) {
+        return false;
+      }
+      start += TITLE_START.length;
+      int stop = indexOf(page, start, end, TITLE_END);
+      if (stop < 0 || !getTitleBytes().contains(ByteBuffer.wrap(page, start, stop - start))) {
+        return false;
+      }
+    }
+    if (requireMath) {
+      int text = indexOf(page, offset, end, TEXT_START);
+      return text >= 0 && indexOf(page, text, end, MATH_START) >= 0;
+    }
+    return true;
+  }
+
+  private Set<ByteBuffer> getTitleBytes() {
+    if (titleBytes == null) {
+      titleBytes = new HashSet<>();
+      for (String title : titles) {
+        titleBytes.add(ByteBuffer.wrap(bytes(escape(title))));
+      }
+    }
+    return titleBytes;
+  }
+
+  /**
+   * Escapes the title the way MediaWiki writes it to the dump.
+   */
+  private static String escape(String title) {
+    return title.replace("&", "&amp;")
+      .replace("<", "&lt;")
+      .replace(">", "&gt;")
+      .replace("\"", "&quot;");
+  }
+
+  private static int parseInt(byte[] buffer, int offset, int end) {
+    int result = 0;
+    boolean negative = false;
+    int i = offset;
+    if (i < end && buffer[i] == '-') {
+      negative = true;
+      i++;
+    }
+    for (; i < end && buffer[i] >= '0' && buffer[i] <= '9'; i++) {
+      result = result * 10 + (buffer[i] - '0');
+    }
+    return negative ? -result : result;
+  }
+
+  static int indexOf(byte[] buffer, int offset, int end, byte[] needle) {
+    int last = end - needle.length;
+    outer:
+    for (int i = offset; i <= last; i++) {
+      if (buffer[i] != needle[0]) {
+        continue;
+      }
+      for (int j = 1; j < needle.length; j++) {
+        if (buffer[i + j] != needle[j]) {
+          continue outer;
+        }
+      }
+      return i;
+    }
+    return -1;
+  }
+
+  private static byte[] bytes(String s) {
+    return s.getBytes(StandardCharsets.UTF_8);
+  }
+}
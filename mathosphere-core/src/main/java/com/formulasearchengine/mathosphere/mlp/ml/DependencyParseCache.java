@@ -0,0 +1,277 @@
+package com.formulasearchengine.mathosphere.mlp.ml;
+
+import com.formulasearchengine.mathosphere.mlp.pojos.Sentence;
+import com.formulasearchengine.mathosphere.mlp.pojos.Word;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import edu.stanford.nlp.ling.TaggedWord;
+import edu.stanford.nlp.parser.nndep.DependencyParser;
+import edu.stanford.nlp.trees.GrammaticalStructure;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Cache for the dependency trees of sentences. Entries are keyed by the md5 hash of the words and POS tags of a
+ * sentence, which is all the parser sees, so equal sentences of different documents or passes share one parse.
+ * <p>
+ * At most {@code maximumSize} trees are kept in memory. If the cache is opened with a file, the file is read
+ * completely when the cache is opened and every new parse is appended to it, so the next run only parses sentences
+ * it has not seen before. A sentence that is parsed again after its tree was evicted is appended again, such
+ * duplicates are removed when the file is loaded. A cache of size 0 neither reads nor writes the file. All task
+ * slots of a JVM share one instance per file, which is closed when the last of them {@link #close() closes} it. The
+ * file should be on a local disk, as several processes must not append to the same file.
+ * <p>
+ * The cached trees are shared, callers must not modify them.
+ */
+public class DependencyParseCache {
+
+  private static final Logger LOGGER = LogManager.getLogger(DependencyParseCache.class.getName());
+  private static final HashFunction HASHER = Hashing.md5();
+  private static final Map<String, DependencyParseCache> INSTANCES = new HashMap<>();
+
+  private final Cache<String, GrammaticalStructure> cache;
+  private final File file;
+  private DataOutputStream out;
+  /**
+   * the number of task slots that opened the shared instance and did not close it yet
+   */
+  private int references = 0;
+
+  /**
+   * Creates a cache that is kept in memory only.
+   *
+   * @param maximumSize the maximal number of dependency trees to keep, 0 to disable caching.
+   */
+  public DependencyParseCache(int maximumSize) {
+    this(maximumSize, null);
+  }
+
+  private DependencyParseCache(int maximumSize, File file) {
+    this.cache = CacheBuilder.newBuilder().maximumSize(Math.max(0, maximumSize)).recordStats().build();
+    this.file = file;
+  }
+
+  /**
+   * Opens the cache shared by all task slots of this JVM. The size of the cache is fixed when it is opened the first
+   * time.
+   *
+   * @param fileName    the file that stores the cache, it is created if it does not exist. null for the cache that is
+   *                    kept in memory only.
+   * @param maximumSize the maximal number of dependency trees to keep in memory.
+   */
+  public static synchronized DependencyParseCache open(String fileName, int maximumSize) throws IOException {
+    final String key = fileName == null ? "" : new File(fileName).getAbsolutePath();
+    DependencyParseCache cache = INSTANCES.get(key);
+    if (cache == null) {
+      cache = fileName == null ? new DependencyParseCache(maximumSize) : load(new File(key), maximumSize);
+      INSTANCES.put(key, cache);
+    }
+    cache.references++;
+    return cache;
+  }
+
+  /**
+   * Reads the cache from the file, regardless whether it has been opened in this JVM before.
+   */
+  static DependencyParseCache load(File file, int maximumSize) throws IOException {
+    final DependencyParseCache cache = new DependencyParseCache(maximumSize, file);
+    if (maximumSize <= 0) {
+      LOGGER.info("caching of dependency trees is disabled, ignoring {}", file);
+      return cache;
+    }
+    if (file.exists()) {
+      int loaded = 0;
+      int entries = 0;
+      // only held while loading, to find the sentences that were appended more than once
+      final Set<String> keys = new HashSet<>();
+      try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+        Map.Entry<String, byte[]> entry;
+        while ((entry = readEntry(in)) != null) {
+          entries++;
+          keys.add(entry.getKey());
+          try (ObjectInputStream objects = new ObjectInputStream(new ByteArrayInputStream(entry.getValue()))) {
+            cache.cache.put(entry.getKey(), (GrammaticalStructure) objects.readObject());
+            loaded++;
+          } catch (ClassNotFoundException | IOException e) {
+            LOGGER.warn("skipping malformed dependency tree {} in {}", entry.getKey(), file);
+          }
+        }
+      }
+      LOGGER.info("loaded {} dependency trees from {}", loaded, file);
+      if (entries > keys.size()) {
+        compact(file);
+        LOGGER.info("removed {} duplicate dependency trees from {}", entries - keys.size(), file);
+      }
+    } else if (file.getParentFile() != null) {
+      file.getParentFile().mkdirs();
+    }
+    cache.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+    return cache;
+  }
+
+  /**
+   * @return the next entry of the file, null at the end of the file or if the last entry was not written
+   * completely, because the run was killed while writing.
+   */
+  private static Map.Entry<String, byte[]> readEntry(DataInputStream in) throws IOException {
+    try {
+      final String key = in.readUTF();
+      final byte[] bytes = new byte[in.readInt()];
+      in.readFully(bytes);
+      return new AbstractMap.SimpleImmutableEntry<>(key, bytes);
+    } catch (EOFException e) {
+      return null;
+    }
+  }
+
+  private static void writeEntry(DataOutputStream out, String key, byte[] bytes) throws IOException {
+    out.writeUTF(key);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  /**
+   * Rewrites the file with the first entry of every sentence, the trees of the later entries are equal.
+   */
+  private static void compact(File file) throws IOException {
+    final File compacted = new File(file.getPath() + ".compacted");
+    final Set<String> written = new HashSet<>();
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+         DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(compacted)))) {
+      Map.Entry<String, byte[]> entry;
+      while ((entry = readEntry(in)) != null) {
+        if (written.add(entry.getKey())) {
+          writeEntry(out, entry.getKey(), entry.getValue());
+        }
+      }
+    }
+    Files.move(compacted.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  public static String hash(Sentence sentence) {
+    final Hasher hasher = HASHER.newHasher();
+    for (Word word : sentence.getWords()) {
+      hasher.putString(word.getWord(), StandardCharsets.UTF_8).putChar('\t');
+      hasher.putString(word.getPosTag(), StandardCharsets.UTF_8).putChar('\n');
+    }
+    return hasher.hash().toString();
+  }
+
+  /**
+   * Returns the dependency tree of the sentence, which is only parsed if it is not cached. Concurrent requests for
+   * the same sentence wait for a single parse.
+   *
+   * @param parser   the parser for sentences that are not cached.
+   * @param sentence the sentence to parse.
+   * @return the shared dependency tree, which must not be modified.
+   */
+  public GrammaticalStructure parse(DependencyParser parser, Sentence sentence) {
+    final String key = hash(sentence);
+    final boolean[] parsed = {false};
+    final GrammaticalStructure tree;
+    try {
+      tree = cache.get(key, () -> {
+        parsed[0] = true;
+        List<TaggedWord> taggedSentence = new ArrayList<>();
+        for (Word word : sentence.getWords()) {
+          taggedSentence.add(new TaggedWord(word.getWord(), word.getPosTag()));
+        }
+        return parser.predict(taggedSentence);
+      });
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Cannot parse " + sentence, e.getCause());
+    }
+    if (parsed[0] && out != null) {
+      try {
+        append(key, tree);
+      } catch (IOException e) {
+        LOGGER.warn("could not persist the dependency tree of {} to {}", sentence, file, e);
+      }
+    }
+    return tree;
+  }
+
+  private synchronized void append(String key, GrammaticalStructure tree) throws IOException {
+    if (out == null) {
+      // closed
+      return;
+    }
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream objects = new ObjectOutputStream(bytes)) {
+      objects.writeObject(tree);
+    }
+    writeEntry(out, key, bytes.toByteArray());
+    out.flush();
+  }
+
+  /**
+   * Releases the cache. An instance of {@link #open(String, int)} is closed when all task slots that opened it have
+   * released it, a later {@link #open(String, int)} reads the file again. Trees parsed after the file was closed are
+   * not persisted.
+   */
+  public void close() throws IOException {
+    synchronized (DependencyParseCache.class) {
+      if (references > 0 && --references > 0) {
+        return;
+      }
+      INSTANCES.values().remove(this);
+    }
+    synchronized (this) {
+      if (out != null) {
+        out.close();
+        out = null;
+      }
+    }
+  }
+
+  public long size() {
+    return cache.size();
+  }
+
+  public CacheStats getStats() {
+    return cache.stats();
+  }
+
+  /**
+   * @return the share of requests that did not need a parse, 1 if there were no requests.
+   */
+  public double getHitRate() {
+    return cache.stats().hitRate();
+  }
+
+  @Override
+  public String toString() {
+    final CacheStats stats = cache.stats();
+    return "DependencyParseCache [size=" + cache.size() + ", requests=" + stats.requestCount()
+      + ", hitRate=" + stats.hitRate() + ", parseTime=" + stats.totalLoadTime() / 1000000 + "ms]";
+  }
+}
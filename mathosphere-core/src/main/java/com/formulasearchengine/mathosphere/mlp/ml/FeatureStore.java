@@ -0,0 +1,162 @@
+package com.formulasearchengine.mathosphere.mlp.ml;
+
+import org.apache.flink.api.common.io.FileOutputFormat;
+import org.apache.flink.core.fs.FileSystem;
+import org.apache.flink.core.fs.Path;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.Instances;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Binary store for the feature vectors of the relations, as created by {@link WekaUtils#createInstances(String)}.
+ * <p>
+ * The feature vectors of a document are encoded as one block: the number of rows followed by the rows, each with
+ * the value of every attribute, string attributes as text and all others as double. The store is a directory with
+ * one shard per task that wrote it. Each shard starts with a header and is followed by the blocks of the documents
+ * the task processed, so shards can be written in parallel and read as a stream.
+ */
+public class FeatureStore {
+
+  private static final int MAGIC = 0x4d4c5046;
+  private static final int VERSION = 1;
+
+  private FeatureStore() {
+  }
+
+  /**
+   * Encodes the rows of the instances as one block.
+   */
+  public static byte[] encode(Instances instances) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeInt(instances.numInstances());
+    for (Instance instance : instances) {
+      for (int i = 0; i < instances.numAttributes(); i++) {
+        if (instances.attribute(i).isString()) {
+          writeString(instance.stringValue(i), out);
+        } else {
+          out.writeDouble(instance.value(i));
+        }
+      }
+    }
+    out.flush();
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Adds the rows of a block to the instances, which must have the attributes the block was encoded with.
+   */
+  public static void decode(byte[] block, Instances instances) throws IOException {
+    readBlock(new DataInputStream(new ByteArrayInputStream(block)), instances);
+  }
+
+  private static void readBlock(DataInput in, Instances instances) throws IOException {
+    final int rows = in.readInt();
+    for (int row = 0; row < rows; row++) {
+      double[] values = new double[instances.numAttributes()];
+      for (int i = 0; i < values.length; i++) {
+        Attribute attribute = instances.attribute(i);
+        if (attribute.isString()) {
+          values[i] = attribute.addStringValue(readString(in));
+        } else {
+          values[i] = in.readDouble();
+        }
+      }
+      instances.add(new DenseInstance(1.0, values));
+    }
+  }
+
+  /**
+   * Reads all shards of the store into new instances.
+   *
+   * @param path the directory of the store, or a single shard.
+   * @return all relations of the store, see {@link WekaUtils#createInstances(String)} for the attributes.
+   * @throws IOException if a shard cannot be read or was not written by {@link ShardOutputFormat}.
+   */
+  public static Instances read(String path) throws IOException {
+    Instances instances = new WekaUtils().createInstances("AllRelations");
+    File file = new File(path);
+    File[] shards = file.isDirectory() ? file.listFiles(File::isFile) : new File[]{file};
+    if (shards == null) {
+      throw new IOException("Cannot list the shards of " + path);
+    }
+    Arrays.sort(shards);
+    for (File shard : shards) {
+      try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(shard)))) {
+        readShard(in, instances, shard.getPath());
+      }
+    }
+    return instances;
+  }
+
+  private static void readShard(DataInputStream in, Instances instances, String name) throws IOException {
+    if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+      throw new IOException(name + " is not a feature store shard of version " + VERSION);
+    }
+    if (in.readInt() != instances.numAttributes()) {
+      throw new IOException(name + " was written with different attributes");
+    }
+    while (true) {
+      //a shard ends after a complete block, a truncated block fails with an EOFException
+      in.mark(1);
+      if (in.read() < 0) {
+        return;
+      }
+      in.reset();
+      readBlock(in, instances);
+    }
+  }
+
+  private static void writeString(String value, DataOutput out) throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(DataInput in) throws IOException {
+    byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Writes the blocks created by {@link #encode(Instances)} as shards of a store, one per parallel task.
+   */
+  public static class ShardOutputFormat extends FileOutputFormat<byte[]> {
+
+    public ShardOutputFormat(String path) {
+      super(new Path(path));
+      setWriteMode(FileSystem.WriteMode.OVERWRITE);
+      setOutputDirectoryMode(OutputDirectoryMode.ALWAYS);
+    }
+
+    @Override
+    public void open(int taskNumber, int numTasks) throws IOException {
+      super.open(taskNumber, numTasks);
+      DataOutputStream out = new DataOutputStream(this.stream);
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(new WekaUtils().createInstances("AllRelations").numAttributes());
+      out.flush();
+    }
+
+    @Override
+    public void writeRecord(byte[] block) throws IOException {
+      this.stream.write(block);
+    }
+  }
+}
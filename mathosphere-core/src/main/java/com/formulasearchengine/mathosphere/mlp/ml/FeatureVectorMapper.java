@@ -0,0 +1,48 @@
+package com.formulasearchengine.mathosphere.mlp.ml;
+
+import com.formulasearchengine.mathosphere.mlp.cli.MachineLearningDefinienExtractionConfig;
+import com.formulasearchengine.mathosphere.mlp.pojos.WikiDocumentOutput;
+import edu.stanford.nlp.parser.nndep.DependencyParser;
+import org.apache.flink.api.common.functions.RichMapFunction;
+import org.apache.flink.configuration.Configuration;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import weka.core.Instances;
+
+/**
+ * Extracts the feature vectors of the relations of a document, encoded as a block of the {@link FeatureStore}.
+ * The dependency parsing happens here, so the feature extraction runs with the parallelism of the job.
+ */
+public class FeatureVectorMapper extends RichMapFunction<WikiDocumentOutput, byte[]> {
+
+  private static final Logger LOG = LogManager.getLogger(FeatureVectorMapper.class.getName());
+
+  private final MachineLearningDefinienExtractionConfig config;
+  private DependencyParser parser;
+  private WekaUtils wekaUtils;
+
+  public FeatureVectorMapper(MachineLearningDefinienExtractionConfig config) {
+    this.config = config;
+  }
+
+  @Override
+  public void open(Configuration parameters) throws Exception {
+    parser = DependencyParser.loadFromModelFile(config.dependencyParserModel());
+    wekaUtils = new WekaUtils(DependencyParseCache.open(config.getDependencyCacheFile(), config.getDependencyCacheSize()));
+  }
+
+  @Override
+  public byte[] map(WikiDocumentOutput doc) throws Exception {
+    Instances instances = wekaUtils.createInstances(doc.getTitle());
+    wekaUtils.addRelationsToInstances(parser, doc.getRelations(), doc.getTitle(), doc.getqId(), instances, doc.getMaxSentenceLength());
+    return FeatureStore.encode(instances);
+  }
+
+  @Override
+  public void close() throws Exception {
+    if (wekaUtils != null) {
+      LOG.info(wekaUtils.getParseCache());
+      wekaUtils.getParseCache().close();
+    }
+  }
+}
@@ -0,0 +1,96 @@
+package com.formulasearchengine.mathosphere.mlp.ml;
+
+import com.formulasearchengine.mathosphere.mlp.cli.MachineLearningDefinienClassifierConfig;
+import com.formulasearchengine.mathosphere.mlp.pojos.Relation;
+import com.formulasearchengine.mathosphere.mlp.pojos.WikiDocumentOutput;
+import com.formulasearchengine.mlp.evaluation.pojo.IdentifierDefinition;
+import edu.stanford.nlp.parser.nndep.DependencyParser;
+import weka.classifiers.meta.FilteredClassifier;
+import weka.core.Instances;
+import weka.core.Utils;
+import weka.filters.Filter;
+import weka.filters.unsupervised.attribute.StringToWordVector;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.formulasearchengine.mathosphere.mlp.ml.WekaUtils.MATCH;
+
+/**
+ * Classifies the relations of a document with a trained svm model.
+ * All relations of a document pass the string filter at once and the svm is evaluated once per relation.
+ * <p>
+ * The filters of the model keep state while they process instances, so an instance of this class must not be used
+ * by several threads at the same time. Loading the models and the dependency parser is expensive, a long-lived
+ * service should therefore keep one instance per worker thread.
+ */
+public class RelationClassifier {
+
+  private final FilteredClassifier svm;
+  private final StringToWordVector stringToWordVector;
+  private final DependencyParser parser;
+  private final DependencyParseCache parseCache;
+
+  /**
+   * @param svm                the model, as written by {@link WekaLearner} with the filter removing the string attributes.
+   * @param stringToWordVector the string filter the model was trained with.
+   * @param parser             for dependency graph features.
+   * @param parseCache         cache for the dependency trees of the sentences.
+   */
+  public RelationClassifier(FilteredClassifier svm, StringToWordVector stringToWordVector, DependencyParser parser,
+                            DependencyParseCache parseCache) {
+    this.svm = svm;
+    this.stringToWordVector = stringToWordVector;
+    this.parser = parser;
+    this.parseCache = parseCache;
+  }
+
+  public static RelationClassifier load(MachineLearningDefinienClassifierConfig config) throws Exception {
+    return new RelationClassifier(
+      (FilteredClassifier) weka.core.SerializationHelper.read(config.getSvmModel()),
+      (StringToWordVector) weka.core.SerializationHelper.read(config.getStringToWordVectorFilter()),
+      DependencyParser.loadFromModelFile(config.dependencyParserModel()),
+      DependencyParseCache.open(config.getDependencyCacheFile(), config.getDependencyCacheSize()));
+  }
+
+  public DependencyParseCache getParseCache() {
+    return parseCache;
+  }
+
+  /**
+   * Classifies the relations of the document and scores the positive ones with the probability of a match.
+   *
+   * @param doc the document with the relations to classify.
+   * @return the positive relations, only the highest scoring one for each identifier and definiens.
+   * @throws Exception weka may throw.
+   */
+  public List<Relation> classify(WikiDocumentOutput doc) throws Exception {
+    WekaUtils wekaUtils = new WekaUtils(parseCache);
+    Instances instances = wekaUtils.createInstances("AllRelations");
+    List<Relation> relations = doc.getRelations();
+    for (Relation relation : relations) {
+      wekaUtils.addRelationToInstances(parser, doc.getTitle(), doc.getqId(), instances, doc.getMaxSentenceLength(), relation);
+    }
+    //the dictionary of the filter is fixed since training, so filtering all at once equals filtering one by one
+    Instances stringReplaced = Filter.useFilter(instances, stringToWordVector);
+    int match = instances.classAttribute().indexOfValue(MATCH);
+    Map<IdentifierDefinition, Relation> positiveClassifications = new HashMap<>();
+    for (int i = 0; i < relations.size(); i++) {
+      double[] distribution = svm.distributionForInstance(stringReplaced.get(i));
+      //the class with the highest probability, as classifyInstance would predict it
+      if (Utils.maxIndex(distribution) == match) {
+        Relation relation = relations.get(i);
+        relation.setScore(distribution[match]);
+        IdentifierDefinition extraction = new IdentifierDefinition(relation.getIdentifier(), relation.getDefinition());
+        //put in hashmap to deal with duplicates and preserve highest score.
+        Relation previous = positiveClassifications.get(extraction);
+        if (previous == null || previous.getScore() < relation.getScore()) {
+          positiveClassifications.put(extraction, relation);
+        }
+      }
+    }
+    return new ArrayList<>(positiveClassifications.values());
+  }
+}
@@ -2,17 +2,14 @@ package com.formulasearchengine.mathosphere.mlp.ml;
 
 import com.formulasearchengine.mathosphere.mlp.cli.MachineLearningDefinienExtractionConfig;
 import com.formulasearchengine.mathosphere.mlp.pojos.EvaluationResult;
-import com.formulasearchengine.mathosphere.mlp.pojos.WikiDocumentOutput;
 import com.formulasearchengine.mlp.evaluation.Evaluator;
 import com.formulasearchengine.mlp.evaluation.pojo.GoldEntry;
-import edu.stanford.nlp.parser.nndep.DependencyParser;
 import org.apache.commons.io.FileUtils;
 import org.apache.flink.api.common.functions.GroupReduceFunction;
 import org.apache.flink.api.common.functions.util.ListCollector;
 import org.apache.flink.util.Collector;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import weka.classifiers.Classifier;
 import weka.classifiers.evaluation.Evaluation;
 import weka.classifiers.functions.LibSVM;
 import weka.classifiers.meta.FilteredClassifier;
@@ -32,6 +29,7 @@ import java.io.*;
 import java.util.*;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Stream;
 
 import static com.formulasearchengine.mathosphere.mlp.ml.WekaUtils.*;
@@ -41,7 +39,7 @@ import static weka.core.Range.indicesToRangeList;
 /**
  * Created by Leo on 23.12.2016.
  */
-public class WekaLearner implements GroupReduceFunction<WikiDocumentOutput, EvaluationResult> {
+public class WekaLearner implements GroupReduceFunction<byte[], EvaluationResult> {
 
   private static final Logger LOG = LogManager.getLogger( WekaLearner.class.getName() );
 
@@ -150,15 +148,33 @@ public class WekaLearner implements GroupReduceFunction<WikiDocumentOutput, Eval
 
   public final MachineLearningDefinienExtractionConfig config;
 
+  /**
+   * Learns from the feature vectors of all documents.
+   *
+   * @param values the blocks of feature vectors created by {@link FeatureVectorMapper}.
+   * @param out    the results of the cross evaluation.
+   */
   @Override
-  public void reduce(Iterable<WikiDocumentOutput> values, Collector<EvaluationResult> out) throws Exception {
-    Instances instances;
-    DependencyParser parser = DependencyParser.loadFromModelFile(config.dependencyParserModel());
-    WekaUtils wekaUtils = new WekaUtils();
-    instances = wekaUtils.createInstances("AllRelations");
-    for (WikiDocumentOutput value : values) {
-      wekaUtils.addRelationsToInstances(parser, value.getRelations(), value.getTitle(), value.getqId(), instances, value.getMaxSentenceLength());
+  public void reduce(Iterable<byte[]> values, Collector<EvaluationResult> out) throws Exception {
+    Instances instances = new WekaUtils().createInstances("AllRelations");
+    for (byte[] block : values) {
+      FeatureStore.decode(block, instances);
     }
+    learn(out, instances);
+  }
+
+  /**
+   * Learns from the feature vectors of a {@link FeatureStore} written by an earlier run.
+   */
+  public List<EvaluationResult> processFromFeatureStore() throws Exception {
+    Instances instances = FeatureStore.read(config.getFeatureStore());
+    LOG.info("Read " + instances.numInstances() + " feature vectors from " + config.getFeatureStore());
+    ArrayList<EvaluationResult> evaluationResults = new ArrayList<>();
+    learn(new ListCollector<>(evaluationResults), instances);
+    return evaluationResults;
+  }
+
+  private void learn(Collector<EvaluationResult> out, Instances instances) throws Exception {
     if (config.isWriteInstances()) {
       File instancesFile = new File(config.getOutputDir() + INSTANCES_ARFF_FILE_NAME);
       ArffSaver arffSaver = new ArffSaver();
@@ -234,27 +250,26 @@ public class WekaLearner implements GroupReduceFunction<WikiDocumentOutput, Eval
     StringToWordVector stringToWordVector = getStringToWordVectorFilter(instances);
     Instances stringsReplacedData = Filter.useFilter(instances, stringToWordVector);
 
-    Remove removeFilter = getRemoveFilter(stringsReplacedData);
-    removeFilter.setInputFormat(stringsReplacedData);
-
     FileUtils.deleteQuietly(output);
     FileUtils.deleteQuietly(outputDetails);
     FileUtils.deleteQuietly(extractedDefiniens);
     Double[] oversample = new Double[]{0d};//, 10d, 20d, 50d, 70d, 100d, 120d, 150d};
-    List<Double[]> parameters = new ArrayList<>();
-    for (double p : percentages) {
-      for (double c : C_used) {
-        for (double y : Y_used) {
-          for (double o : oversample)
-            parameters.add(new Double[]{p, c, y, o});
+    List<EvaluationResult> evaluationResults = new ArrayList<>();
+    ForkJoinPool forkJoinPool = new ForkJoinPool(config.getParallelism());
+    try {
+      for (double p : percentages) {
+        for (double o : oversample) {
+          //the folds only depend on the sample, so all grid points share them
+          long start = System.nanoTime();
+          List<Fold> splits = createFolds(stringsReplacedData, p, o);
+          LOG.info("Prepared " + splits.size() + " folds for " + p + "% of the data in " + millisSince(start) + " ms.");
+          evaluationResults.addAll(search(C_used, Y_used, config.getRefineRounds(),
+            grid -> crossEvaluate(forkJoinPool, splits, p, o, grid)));
         }
       }
+    } finally {
+      forkJoinPool.shutdown();
     }
-    ForkJoinPool forkJoinPool = new ForkJoinPool(config.getParallelism());
-    Stream<EvaluationResult> a = parameters.parallelStream().map(
-      parameter -> crossEvaluate(stringsReplacedData, removeFilter, parameter[0], parameter[1], parameter[2], parameter[3]));
-    Callable<List<EvaluationResult>> task = () -> a.collect(toList());
-    List<EvaluationResult> evaluationResults = forkJoinPool.submit(task).get();
     for (EvaluationResult evaluationResult : evaluationResults) {
       FileUtils.write(outputDetails, "Cost; " + Utils.doubleToString(evaluationResult.cost, 10) + "; gamma; " + Utils.doubleToString(evaluationResult.gamma, 10) + "\n" + Arrays.toString(evaluationResult.text) + "\n", true);
       //remove duplicates from extraction
@@ -316,35 +331,183 @@ public class WekaLearner implements GroupReduceFunction<WikiDocumentOutput, Eval
     return removeFilter;
   }
 
-  private EvaluationResult crossEvaluate(Instances stringsReplacedData, Remove removeFilter, double percent, double cost, double gamma, double oversample) {
+  /**
+   * Evaluates the points of a grid, given as pairs of cost and gamma.
+   */
+  interface GridEvaluator {
+    List<EvaluationResult> evaluate(List<double[]> grid) throws Exception;
+  }
+
+  /**
+   * Cross evaluates the grid of cost and gamma values. If {@link MachineLearningDefinienExtractionConfig#getRefineRounds()}
+   * is set, the search continues around the best grid point with half the step of the previous round, since the
+   * performance of the svm varies smoothly with the logarithm of its parameters.
+   *
+   * @return the results of all evaluated grid points, in the order of evaluation.
+   */
+  static List<EvaluationResult> search(List<Double> costs, List<Double> gammas, int refineRounds,
+                                       GridEvaluator evaluator) throws Exception {
+    Map<String, EvaluationResult> evaluated = new LinkedHashMap<>();
+    List<double[]> grid = new ArrayList<>();
+    for (double c : costs) {
+      for (double y : gammas) {
+        grid.add(new double[]{c, y});
+      }
+    }
+    double step = Math.min(log2Step(costs), log2Step(gammas)) / 2;
+    for (int round = 0; ; round++) {
+      for (EvaluationResult result : evaluator.evaluate(grid)) {
+        evaluated.put(gridKey(result.cost, result.gamma), result);
+      }
+      if (round >= refineRounds) {
+        break;
+      }
+      EvaluationResult best = Collections.max(evaluated.values(), Comparator.comparingDouble(WekaLearner::objective));
+      LOG.info("Refinement round " + (round + 1) + " around cost " + Utils.doubleToString(best.cost, 10)
+        + ", gamma " + Utils.doubleToString(best.gamma, 10) + " with step 2^" + step + ".");
+      grid = new ArrayList<>();
+      for (int i = -1; i <= 1; i++) {
+        for (int j = -1; j <= 1; j++) {
+          double c = best.cost * Math.pow(2, i * step);
+          double y = best.gamma * Math.pow(2, j * step);
+          if (!evaluated.containsKey(gridKey(c, y))) {
+            grid.add(new double[]{c, y});
+          }
+        }
+      }
+      step /= 2;
+    }
+    return new ArrayList<>(evaluated.values());
+  }
+
+  private List<EvaluationResult> crossEvaluate(ForkJoinPool forkJoinPool, List<Fold> splits, double percent,
+                                               double oversample, List<double[]> grid) throws Exception {
+    AtomicInteger done = new AtomicInteger();
+    Stream<EvaluationResult> a = grid.parallelStream().map(parameter -> {
+      long start = System.nanoTime();
+      EvaluationResult result = crossEvaluate(splits, percent, parameter[0], parameter[1], oversample);
+      LOG.info("Grid point " + done.incrementAndGet() + "/" + grid.size()
+        + "; cost; " + Utils.doubleToString(result.cost, 10)
+        + "; gamma; " + Utils.doubleToString(result.gamma, 10)
+        + "; percentage_of_data_used; " + percent
+        + "; avg_folds_F1; " + result.getF1()
+        + "; time_ms; " + millisSince(start));
+      return result;
+    });
+    Callable<List<EvaluationResult>> task = () -> a.collect(toList());
+    return forkJoinPool.submit(task).get();
+  }
+
+  private EvaluationResult crossEvaluate(List<Fold> splits, double percent, double cost, double gamma, double oversample) {
     try {
-      System.out.println("Cost; " + Utils.doubleToString(cost, 10)
-        + "; gamma; " + Utils.doubleToString(gamma, 10));
-      EvaluationResult result = new EvaluationResult(config.isLeaveOneOutEvaluation() ? totalQids : folds, percent, cost, gamma);
+      EvaluationResult result = new EvaluationResult(splits.size(), percent, cost, gamma);
       result.prefix = "oversample; " + oversample;
-      Instances reduced;
-      if (percent != 100) {
-        //draw random sample, careful, this actually has an effect, even for setSampleSizePercent(100) and setBiasToUniformClass(0)
-        reduced = downsample(stringsReplacedData, percent);
+      for (Fold fold : splits) {
+        trainAndTest(fold, cost, gamma, result);
+      }
+      return result;
+    } catch (Exception e) {
+      LOG.error("Error during the Weka machine learning algorithm. Reason: " + e.getMessage(), e);
+      return new EvaluationResult(splits.size(), percent, cost, gamma);
+    }
+  }
+
+  /**
+   * The average F1 over the folds, failed grid points and grid points without any positive prediction rank lowest.
+   */
+  private static double objective(EvaluationResult result) {
+    double f1 = result.getF1();
+    return Double.isNaN(f1) ? -1 : f1;
+  }
+
+  /**
+   * @return the smallest distance of the values on a logarithmic scale, or 2 if there is only one value.
+   */
+  static double log2Step(List<Double> values) {
+    double step = 2;
+    List<Double> sorted = new ArrayList<>(values);
+    sorted.sort(Comparator.naturalOrder());
+    for (int i = 1; i < sorted.size(); i++) {
+      double distance = log2(sorted.get(i)) - log2(sorted.get(i - 1));
+      if (distance > 0 && distance < step) {
+        step = distance;
+      }
+    }
+    return step;
+  }
+
+  private static double log2(double value) {
+    return Math.log(value) / Math.log(2);
+  }
+
+  /**
+   * Identifies a grid point by its exponents, rounded to avoid duplicates due to floating point errors.
+   */
+  static String gridKey(double cost, double gamma) {
+    return Math.round(log2(cost) * 1024) + "/" + Math.round(log2(gamma) * 1024);
+  }
+
+  private static long millisSince(long start) {
+    return (System.nanoTime() - start) / 1000000;
+  }
+
+  /**
+   * Splits the sample into training and test sets, once for all grid points. The string attributes are removed from
+   * both sets here instead of in a {@link FilteredClassifier} for every grid point and fold.
+   *
+   * @param stringsReplacedData plain data for test set generation, strings replaced.
+   * @param percent             how much of the data is used for training.
+   * @param oversample          oversampling percentage.
+   * @return the folds of the cross evaluation.
+   * @throws Exception weka may throw.
+   */
+  private List<Fold> createFolds(Instances stringsReplacedData, double percent, double oversample) throws Exception {
+    Instances reduced;
+    if (percent != 100) {
+      //draw random sample, careful, this actually has an effect, even for setSampleSizePercent(100) and setBiasToUniformClass(0)
+      reduced = downsample(stringsReplacedData, percent);
+    } else {
+      reduced = stringsReplacedData;
+    }
+    Instances resampled = resample(oversample, reduced);
+    int[] resampledQids = getQids(resampled);
+    int[] plainQids = getQids(stringsReplacedData);
+    int n = config.isLeaveOneOutEvaluation() ? totalQids : folds;
+    List<Fold> result = new ArrayList<>(n);
+    for (int i = 0; i < n; i++) {
+      Set<Integer> testIds = new HashSet<>();
+      if (config.isLeaveOneOutEvaluation()) {
+        testIds.add(i);
       } else {
-        reduced = stringsReplacedData;
+        testIds.addAll(Arrays.asList(Arrays.copyOfRange(rand, folds * i, folds * (i + 1))));
       }
-      Instances resampled = resample(oversample, reduced);
-      int counter = 0;
-      while (10 * counter < totalQids) {
-        for (int n = 0; n < folds; n++) {
-          trainAndTest(10 * counter + n, removeFilter, cost, gamma, stringsReplacedData, resampled, result);
+      Instances train = new Instances(resampled, 1);
+      Instances test = new Instances(stringsReplacedData, 1);
+      //build test and training set independently
+      for (int j = 0; j < resampled.numInstances(); j++) {
+        if (!testIds.contains(resampledQids[j])) {
+          train.add(resampled.instance(j));
         }
-        if (!config.isLeaveOneOutEvaluation()) {
-          break;
+      }
+      for (int j = 0; j < stringsReplacedData.numInstances(); j++) {
+        if (testIds.contains(plainQids[j])) {
+          //from unresampled data for accurate accuracy predictions
+          test.add(stringsReplacedData.instance(j));
         }
-        counter++;
       }
-      return result;
-    } catch (Exception e) {
-      LOG.error("Error during the Weka machine learning algorithm. Reason: " + e.getMessage(), e);
-      return new EvaluationResult(folds, percent, cost, gamma);
+      result.add(new Fold(i, Filter.useFilter(train, getRemoveFilter(train)),
+        Filter.useFilter(test, getRemoveFilter(test)), test));
+    }
+    return result;
+  }
+
+  private static int[] getQids(Instances instances) {
+    int index = instances.attribute(Q_ID).index();
+    int[] qids = new int[instances.numInstances()];
+    for (int i = 0; i < qids.length; i++) {
+      qids[i] = Integer.parseInt(instances.instance(i).stringValue(index));
     }
+    return qids;
   }
 
   private Instances resample(double oversample, Instances reduced) throws Exception {
@@ -396,70 +559,66 @@ public class WekaLearner implements GroupReduceFunction<WikiDocumentOutput, Eval
   }
 
   /**
-   * @param n                fold.
-   * @param removeFilter     the filter that removes the string attributes title, qid, identifier and definiens.
-   * @param cost             cost for the svm.
-   * @param gamma            gamma for the svm.
-   * @param beforeResampling plain data for test set generation, strings replaced.
-   * @param resampled        resampled training data.
-   * @param result           for returning the results.
+   * @param fold   the training and test sets.
+   * @param cost   cost for the svm.
+   * @param gamma  gamma for the svm.
+   * @param result for returning the results.
    * @throws Exception weka may throw.
    */
-  private void trainAndTest(int n, Filter removeFilter, double cost, double gamma, Instances beforeResampling, Instances resampled,
-                            EvaluationResult result) throws Exception {
+  private void trainAndTest(Fold fold, double cost, double gamma, EvaluationResult result) throws Exception {
     LibSVM svm = new LibSVM();
     svm.setCost(cost);
     svm.setGamma(gamma);
-    FilteredClassifier filteredClassifier = new FilteredClassifier();
-    filteredClassifier.setClassifier(svm);
-    filteredClassifier.setFilter(removeFilter);
-    List<Integer> testIds;
-    if (config.isLeaveOneOutEvaluation()) {
-      testIds = new ArrayList<>();
-      testIds.add(n);
-    } else {
-      testIds = Arrays.asList(Arrays.copyOfRange(rand, folds * n, folds * (n + 1)));
-    }
-    Instances train = new Instances(resampled, 1);
-    Instances test = new Instances(beforeResampling, 1);
-    //build test and training set independently
-    for (int i = 0; i < resampled.numInstances(); i++) {
-      Instance a = resampled.instance(i);
-      if (!testIds.contains(Integer.parseInt(a.stringValue(a.attribute(resampled.attribute(Q_ID).index()))))) {
-        train.add(a);
-      }
-    }
-    for (int i = 0; i < beforeResampling.numInstances(); i++) {
-      Instance a = beforeResampling.instance(i);
-      if (testIds.contains(Integer.parseInt(a.stringValue(a.attribute(beforeResampling.attribute(Q_ID).index()))))) {
-        //from unresampled data for accurate accuracy predictions
-        test.add(a);
-      }
-    }
-    Classifier clsCopy = FilteredClassifier.makeCopy(filteredClassifier);
-    clsCopy.buildClassifier(train);
+    svm.buildClassifier(fold.train);
+    Instances strings = fold.testWithStrings;
     //extract matches
-    for (int i = 0; i < test.size(); i++) {
-      Instance instance = test.get(i);
-      String match = train.classAttribute().value(0);
-      String predictedClass = train.classAttribute().value((int) clsCopy.classifyInstance(instance));
+    for (int i = 0; i < fold.test.size(); i++) {
+      String match = fold.train.classAttribute().value(0);
+      String predictedClass = fold.train.classAttribute().value((int) svm.classifyInstance(fold.test.get(i)));
       if (match.equals(predictedClass)) {
+        Instance instance = strings.get(i);
         String extraction =
-          instance.stringValue(instance.attribute(train.attribute(Q_ID).index())) + ","
-            + "\"" + instance.stringValue(instance.attribute(train.attribute(TITLE).index())).replaceAll("\\s", "_") + "\","
-            + "\"" + instance.stringValue(instance.attribute(train.attribute(IDENTIFIER).index())) + "\","
-            + "\"" + instance.stringValue(instance.attribute(train.attribute(DEFINIEN).index())).toLowerCase() + "\"";
+          instance.stringValue(strings.attribute(Q_ID).index()) + ","
+            + "\"" + instance.stringValue(strings.attribute(TITLE).index()).replaceAll("\\s", "_") + "\","
+            + "\"" + instance.stringValue(strings.attribute(IDENTIFIER).index()) + "\","
+            + "\"" + instance.stringValue(strings.attribute(DEFINIEN).index()).toLowerCase() + "\"";
         result.extractions.add(extraction);
       }
     }
-    Evaluation eval = new Evaluation(resampled);
-    eval.setPriors(train);
-    eval.evaluateModel(clsCopy, test);
-    result.averagePrecision[n] = eval.precision(0);
-    result.averageRecall[n] = eval.recall(0);
-    result.accuracy[n] = eval.pctCorrect() / 100d;
+    //uses the class distribution of the training set as priors
+    Evaluation eval = new Evaluation(fold.train);
+    eval.evaluateModel(svm, fold.test);
+    result.averagePrecision[fold.n] = eval.precision(0);
+    result.averageRecall[fold.n] = eval.recall(0);
+    result.accuracy[fold.n] = eval.pctCorrect() / 100d;
     StringBuilder b = new StringBuilder();
-    b.append(", fold, ").append(n).append("\n").append(eval.toClassDetailsString()).append("\n").append(eval.toSummaryString(true));
-    result.text[n] = b.toString();
+    b.append(", fold, ").append(fold.n).append("\n").append(eval.toClassDetailsString()).append("\n").append(eval.toSummaryString(true));
+    result.text[fold.n] = b.toString();
+  }
+
+  /**
+   * Training and test set of a fold of the cross evaluation, shared read-only by all grid points.
+   */
+  private static final class Fold {
+    final int n;
+    /**
+     * Resampled training data without the string attributes.
+     */
+    final Instances train;
+    /**
+     * Test data without the string attributes.
+     */
+    final Instances test;
+    /**
+     * The same test data with the string attributes for the extractions.
+     */
+    final Instances testWithStrings;
+
+    Fold(int n, Instances train, Instances test, Instances testWithStrings) {
+      this.n = n;
+      this.train = train;
+      this.test = test;
+      this.testWithStrings = testWithStrings;
+    }
   }
 }
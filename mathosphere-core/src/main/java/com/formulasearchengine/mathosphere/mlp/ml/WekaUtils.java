@@ -2,12 +2,11 @@ package com.formulasearchengine.mathosphere.mlp.ml;
 
 import com.beust.jcommander.internal.Lists;
 import com.formulasearchengine.mathosphere.mlp.pojos.Relation;
-import com.formulasearchengine.mathosphere.mlp.pojos.Sentence;
 import com.formulasearchengine.mathosphere.mlp.pojos.WikiDocumentOutput;
 import com.formulasearchengine.mathosphere.mlp.pojos.Word;
 import com.formulasearchengine.mathosphere.mlp.text.MachineLearningPatternMatcher;
+import edu.stanford.nlp.ling.CoreLabel;
 import edu.stanford.nlp.ling.IndexedWord;
-import edu.stanford.nlp.ling.TaggedWord;
 import edu.stanford.nlp.parser.nndep.DependencyParser;
 import edu.stanford.nlp.semgraph.SemanticGraph;
 import edu.stanford.nlp.semgraph.SemanticGraphEdge;
@@ -98,6 +97,10 @@ public class WekaUtils {
   public static final double LONGEST_SENTENCE_IN_ENGISH = 300d;
 
   public static final List<String> nominal = Lists.newArrayList(MATCH, NO_MATCH);
+  /**
+   * Number of dependency trees {@link #WekaUtils()} keeps, enough for the sentences of a document.
+   */
+  private static final int DOCUMENT_PARSE_CACHE_SIZE = 1000;
   //TODO: move hack to CLI
   private static final boolean NO_STRING = false;
   private static final boolean NO_DEP = false;
@@ -105,6 +108,26 @@ public class WekaUtils {
   private static final boolean NO_PM = false;
   private static final boolean NO_BASIC = false;
 
+  private final DependencyParseCache parseCache;
+
+  /**
+   * Creates an instance with its own small cache of dependency trees.
+   */
+  public WekaUtils() {
+    this(new DependencyParseCache(DOCUMENT_PARSE_CACHE_SIZE));
+  }
+
+  /**
+   * @param parseCache cache for the dependency trees of the sentences, may be shared with other instances.
+   */
+  public WekaUtils(DependencyParseCache parseCache) {
+    this.parseCache = parseCache;
+  }
+
+  public DependencyParseCache getParseCache() {
+    return parseCache;
+  }
+
   public Instances createInstances(String title) {
     ArrayList<Attribute> atts = new ArrayList<>();
     //meta information
@@ -163,12 +186,12 @@ public class WekaUtils {
    */
   public Instances addRelationsToInstances(DependencyParser parser, List<Relation> relations, String title, String qId, Instances instances, double maxSentenceLength) {
     for (Relation relation : relations) {
-      addRelationToInstances(parser, getPrecomputedGraphStore(), title, qId, instances, maxSentenceLength, relation);
+      addRelationToInstances(parser, title, qId, instances, maxSentenceLength, relation);
     }
     return instances;
   }
 
-  public void addRelationToInstances(DependencyParser parser, Map<Sentence, GrammaticalStructure> precomputedGraphs, String title, String qId, Instances instances, double maxSentenceLength, Relation relation) {
+  public void addRelationToInstances(DependencyParser parser, String title, String qId, Instances instances, double maxSentenceLength, Relation relation) {
     double[] patternMatches = new MachineLearningPatternMatcher().match(relation.getSentence(), relation.getIdentifier(), relation.getDefinition(), relation.getIdentifierPosition(), relation.getWordPosition());
     double[] values = new double[instances.numAttributes()];
     addStringValue(values, instances, TITLE, title);
@@ -195,7 +218,7 @@ public class WekaUtils {
 
     addStringFeatures(values, instances, relation);
 
-    addDependencyTreeFeatures(parser, precomputedGraphs, values, instances, relation, maxSentenceLength);
+    addDependencyTreeFeatures(parser, values, instances, relation, maxSentenceLength);
 
     values[instances.attribute(DISTANCE_FROM_FIRST_OCCURRENCE).index()] = relation.getDistanceFromFirstIdentifierOccurence();
 
@@ -265,12 +288,12 @@ public class WekaUtils {
    * Adds {@link #SURFACE_TEXT_AND_POS_TAG_OF_DEPENDENCY_WITH_LENGTH_3_FROM_DEFINIEN}, {@link #SURFACE_TEXT_AND_POS_TAG_OF_DEPENDENCY_WITH_LENGTH_3_FROM_IDENTIFIER}, {@link #INCOMING_TO_DEFINIEN} and
    * {@link #INCOMING_TO_IDENTIFIER} to values.
    *
+   * @param parser    for sentences that are not in the {@link #getParseCache() parse cache}.
    * @param values    values object.
-   * @param graphs    map to store graphs that were computed previously. may be null.
    * @param instances instances where the values will be added.
    * @param relation  the relation from which to extract the features.
    */
-  private void addDependencyTreeFeatures(DependencyParser parser, Map<Sentence, GrammaticalStructure> graphs, double[] values, Instances instances, Relation relation, double maxSentenceLength) {
+  private void addDependencyTreeFeatures(DependencyParser parser, double[] values, Instances instances, Relation relation, double maxSentenceLength) {
     if (NO_DEP) {
       addStringValue(values, instances, SURFACE_TEXT_AND_POS_TAG_OF_DEPENDENCY_WITH_LENGTH_3_FROM_IDENTIFIER, "");
       addStringValue(values, instances, SURFACE_TEXT_AND_POS_TAG_OF_DEPENDENCY_WITH_LENGTH_3_FROM_DEFINIEN, "");
@@ -278,20 +301,7 @@ public class WekaUtils {
       values[instances.attribute(INCOMING_TO_IDENTIFIER).index()] = 0;
       values[instances.attribute(INCOMING_TO_DEFINIEN).index()] = 0;
     } else {
-      GrammaticalStructure dependencyTree;
-      if (graphs != null && graphs.containsKey(relation.getSentence())) {
-        dependencyTree = graphs.get(relation.getSentence());
-      } else {
-        List<TaggedWord> taggedSentence = new ArrayList<>();
-        for (Word word : relation.getSentence().getWords()) {
-          taggedSentence.add(new TaggedWord(word.getWord(), word.getPosTag()));
-        }
-        //create dependency graph
-        dependencyTree = parser.predict(taggedSentence);
-        //store to avoid recomputation
-        if (graphs != null)
-          graphs.put(relation.getSentence(), dependencyTree);
-      }
+      GrammaticalStructure dependencyTree = parseCache.parse(parser, relation.getSentence());
       SemanticGraph semanticGraph = new SemanticGraph(dependencyTree.typedDependencies());
       IndexedWord identifier = semanticGraph.getNodeByIndex(relation.getIdentifierPosition() + 1);
       IndexedWord definiens = semanticGraph.getNodeByIndex(relation.getWordPosition() + 1);
@@ -342,15 +352,19 @@ public class WekaUtils {
   /**
    * Replace the surface test of the word with the specific index in the sentence.
    * I.e. to hide the surface text of the definiens and identifier from the machine learner.
+   * The word is replaced by a copy, since the dependency tree it belongs to may be cached.
    *
    * @param index index of the word in the sentence.
    * @param words list of words.
    * @param text  the new surface text.
    */
   public void replaceWord(int index, List<IndexedWord> words, String text) {
-    for (IndexedWord iw : words) {
+    for (int i = 0; i < words.size(); i++) {
+      IndexedWord iw = words.get(i);
       if (iw.index() == index) {
-        iw.setWord(text);
+        IndexedWord replacement = new IndexedWord(new CoreLabel(iw.backingLabel()));
+        replacement.setWord(text);
+        words.set(i, replacement);
         break;
       }
     }
@@ -436,8 +450,4 @@ public class WekaUtils {
   public static double average(double[] doubles) {
     return Arrays.stream(doubles).sum() / doubles.length;
   }
-
-  public Map<Sentence, GrammaticalStructure> getPrecomputedGraphStore() {
-    return new HashMap<Sentence, GrammaticalStructure>();
-  }
 }
@@ -0,0 +1,244 @@
+package com.formulasearchengine.mathosphere.mlp.pojos;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+import org.apache.flink.core.memory.DataInputView;
+import org.apache.flink.core.memory.DataOutputView;
+import org.apache.flink.types.StringValue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Columnar, dictionary-encoded form of the sentences of a {@link ParsedWikiDocument}. Every distinct word and
+ * identifier of the document is stored once in a dictionary, the words of all sentences are a single array of
+ * dictionary ids with a parallel array of POS tag ordinals, and offset arrays delimit the sentences. The formulas of
+ * a sentence are indices into the formulas of the document.
+ */
+public class EncodedSentences {
+
+  private static final int MAX_TAGS = 256;
+
+  private final String[] dictionary;
+  private final String[] tagDictionary;
+  private final int[] words;
+  private final byte[] tags;
+  private final int[] sentenceOffsets;
+  private final int[] identifiers;
+  private final int[] identifierOffsets;
+  private final int[] formulas;
+  private final int[] formulaOffsets;
+
+  private EncodedSentences(String[] dictionary, String[] tagDictionary, int[] words, byte[] tags,
+                           int[] sentenceOffsets, int[] identifiers, int[] identifierOffsets, int[] formulas,
+                           int[] formulaOffsets) {
+    this.dictionary = dictionary;
+    this.tagDictionary = tagDictionary;
+    this.words = words;
+    this.tags = tags;
+    this.sentenceOffsets = sentenceOffsets;
+    this.identifiers = identifiers;
+    this.identifierOffsets = identifierOffsets;
+    this.formulas = formulas;
+    this.formulaOffsets = formulaOffsets;
+  }
+
+  /**
+   * @param sentences        the sentences to encode
+   * @param documentFormulas the formulas of the document, which contain the formulas of all sentences
+   * @return the encoded sentences
+   * @throws IllegalArgumentException if a sentence has a formula that is not a formula of the document, or the
+   *                                  sentences have more than 256 distinct POS tags
+   */
+  public static EncodedSentences encode(List<Sentence> sentences, List<MathTag> documentFormulas) {
+    final Map<String, Integer> dictionaryIds = new HashMap<>();
+    final List<String> dictionary = new ArrayList<>();
+    final Map<String, Integer> tagIds = new HashMap<>();
+    final List<String> tagDictionary = new ArrayList<>();
+    final Map<MathTag, Integer> formulaIds = new IdentityHashMap<>();
+    for (int i = 0; i < documentFormulas.size(); i++) {
+      formulaIds.putIfAbsent(documentFormulas.get(i), i);
+    }
+
+    int wordCount = 0;
+    int identifierCount = 0;
+    int formulaCount = 0;
+    for (Sentence sentence : sentences) {
+      wordCount += sentence.getWords().size();
+      identifierCount += sentence.getIdentifiers().size();
+      formulaCount += sentence.getFormulas().size();
+    }
+    final int[] words = new int[wordCount];
+    final byte[] tags = new byte[wordCount];
+    final int[] sentenceOffsets = new int[sentences.size() + 1];
+    final int[] identifiers = new int[identifierCount];
+    final int[] identifierOffsets = new int[sentences.size() + 1];
+    final int[] formulas = new int[formulaCount];
+    final int[] formulaOffsets = new int[sentences.size() + 1];
+
+    int w = 0;
+    int id = 0;
+    int f = 0;
+    for (int s = 0; s < sentences.size(); s++) {
+      final Sentence sentence = sentences.get(s);
+      for (Word word : sentence.getWords()) {
+        words[w] = lookup(dictionaryIds, dictionary, word.getWord());
+        final int tag = lookup(tagIds, tagDictionary, word.getPosTag());
+        if (tag >= MAX_TAGS) {
+          throw new IllegalArgumentException("more than " + MAX_TAGS + " distinct POS tags");
+        }
+        tags[w++] = (byte) tag;
+      }
+      for (String identifier : sentence.getIdentifiers()) {
+        identifiers[id++] = lookup(dictionaryIds, dictionary, identifier);
+      }
+      for (MathTag formula : sentence.getFormulas()) {
+        Integer index = formulaIds.get(formula);
+        if (index == null) {
+          index = documentFormulas.indexOf(formula);
+          if (index < 0) {
+            throw new IllegalArgumentException(formula + " is not a formula of the document");
+          }
+        }
+        formulas[f++] = index;
+      }
+      sentenceOffsets[s + 1] = w;
+      identifierOffsets[s + 1] = id;
+      formulaOffsets[s + 1] = f;
+    }
+    return new EncodedSentences(dictionary.toArray(new String[dictionary.size()]),
+      tagDictionary.toArray(new String[tagDictionary.size()]), words, tags, sentenceOffsets, identifiers,
+      identifierOffsets, formulas, formulaOffsets);
+  }
+
+  private static int lookup(Map<String, Integer> ids, List<String> dictionary, String value) {
+    Integer id = ids.get(value);
+    if (id == null) {
+      id = dictionary.size();
+      ids.put(value, id);
+      dictionary.add(value);
+    }
+    return id;
+  }
+
+  /**
+   * Creates the {@link Sentence} views of the encoded sentences. The views are independent of each other and of
+   * this object, so callers may modify them.
+   *
+   * @param documentFormulas the formulas of the document the sentences were encoded with
+   * @return the decoded sentences
+   */
+  public List<Sentence> decode(List<MathTag> documentFormulas) {
+    final List<Sentence> sentences = Lists.newArrayListWithCapacity(size());
+    for (int s = 0; s < size(); s++) {
+      final List<Word> sentenceWords = Lists.newArrayListWithCapacity(sentenceOffsets[s + 1] - sentenceOffsets[s]);
+      for (int w = sentenceOffsets[s]; w < sentenceOffsets[s + 1]; w++) {
+        sentenceWords.add(new Word(dictionary[words[w]], tagDictionary[tags[w] & 0xFF]));
+      }
+      final Set<String> sentenceIdentifiers = Sets.newHashSetWithExpectedSize(identifierOffsets[s + 1] - identifierOffsets[s]);
+      for (int i = identifierOffsets[s]; i < identifierOffsets[s + 1]; i++) {
+        sentenceIdentifiers.add(dictionary[identifiers[i]]);
+      }
+      final List<MathTag> sentenceFormulas = Lists.newArrayListWithCapacity(formulaOffsets[s + 1] - formulaOffsets[s]);
+      for (int i = formulaOffsets[s]; i < formulaOffsets[s + 1]; i++) {
+        sentenceFormulas.add(documentFormulas.get(formulas[i]));
+      }
+      sentences.add(new Sentence(sentenceWords, sentenceIdentifiers, sentenceFormulas));
+    }
+    return sentences;
+  }
+
+  /**
+   * @return the number of sentences
+   */
+  public int size() {
+    return sentenceOffsets.length - 1;
+  }
+
+  /**
+   * @return the number of words of all sentences
+   */
+  public int getWordCount() {
+    return words.length;
+  }
+
+  /**
+   * @return the number of distinct words and identifiers
+   */
+  public int getDictionarySize() {
+    return dictionary.length;
+  }
+
+  public void write(DataOutputView out) throws IOException {
+    writeStrings(dictionary, out);
+    writeStrings(tagDictionary, out);
+    out.writeInt(size());
+    out.writeInt(words.length);
+    for (int i = 0; i < words.length; i++) {
+      out.writeInt(words[i]);
+    }
+    out.write(tags);
+    writeInts(sentenceOffsets, 1, out);
+    writeInts(identifierOffsets, 1, out);
+    writeInts(identifiers, 0, out);
+    writeInts(formulaOffsets, 1, out);
+    writeInts(formulas, 0, out);
+  }
+
+  public static EncodedSentences read(DataInputView in) throws IOException {
+    final String[] dictionary = readStrings(in);
+    final String[] tagDictionary = readStrings(in);
+    final int size = in.readInt();
+    final int[] words = new int[in.readInt()];
+    for (int i = 0; i < words.length; i++) {
+      words[i] = in.readInt();
+    }
+    final byte[] tags = new byte[words.length];
+    in.readFully(tags);
+    final int[] sentenceOffsets = readInts(size + 1, 1, in);
+    final int[] identifierOffsets = readInts(size + 1, 1, in);
+    final int[] identifiers = readInts(identifierOffsets[size], 0, in);
+    final int[] formulaOffsets = readInts(size + 1, 1, in);
+    final int[] formulas = readInts(formulaOffsets[size], 0, in);
+    return new EncodedSentences(dictionary, tagDictionary, words, tags, sentenceOffsets, identifiers,
+      identifierOffsets, formulas, formulaOffsets);
+  }
+
+  private static void writeStrings(String[] strings, DataOutputView out) throws IOException {
+    out.writeInt(strings.length);
+    for (String s : strings) {
+      StringValue.writeString(s, out);
+    }
+  }
+
+  private static String[] readStrings(DataInputView in) throws IOException {
+    final String[] strings = new String[in.readInt()];
+    for (int i = 0; i < strings.length; i++) {
+      strings[i] = StringValue.readString(in);
+    }
+    return strings;
+  }
+
+  /**
+   * Writes the values from the given index on, offset arrays always start with 0.
+   */
+  private static void writeInts(int[] values, int from, DataOutputView out) throws IOException {
+    for (int i = from; i < values.length; i++) {
+      out.writeInt(values[i]);
+    }
+  }
+
+  private static int[] readInts(int length, int from, DataInputView in) throws IOException {
+    final int[] values = new int[length];
+    for (int i = from; i < length; i++) {
+      values[i] = in.readInt();
+    }
+    return values;
+  }
+}
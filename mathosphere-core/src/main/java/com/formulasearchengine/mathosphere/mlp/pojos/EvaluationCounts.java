@@ -0,0 +1,119 @@
+package com.formulasearchengine.mathosphere.mlp.pojos;
+
+/**
+ * True positive, false positive and false negative counts of the identifier and the definition extraction,
+ * for a single query or summed up over the gold standard.
+ */
+public class EvaluationCounts {
+
+  private int identifierTp;
+  private int identifierFp;
+  private int identifierFn;
+  private int definitionTp;
+  private int definitionFp;
+  private int definitionFn;
+
+  public EvaluationCounts() {
+  }
+
+  public EvaluationCounts(int identifierTp, int identifierFp, int identifierFn,
+                          int definitionTp, int definitionFp, int definitionFn) {
+    this.identifierTp = identifierTp;
+    this.identifierFp = identifierFp;
+    this.identifierFn = identifierFn;
+    this.definitionTp = definitionTp;
+    this.definitionFp = definitionFp;
+    this.definitionFn = definitionFn;
+  }
+
+  /**
+   * @return the sum of both counts, neither of them is changed.
+   */
+  public EvaluationCounts add(EvaluationCounts other) {
+    return new EvaluationCounts(
+      identifierTp + other.identifierTp,
+      identifierFp + other.identifierFp,
+      identifierFn + other.identifierFn,
+      definitionTp + other.definitionTp,
+      definitionFp + other.definitionFp,
+      definitionFn + other.definitionFn);
+  }
+
+  /**
+   * @return the precision of the definition extraction, 0 if no definition was extracted.
+   */
+  public double getDefinitionPrecision() {
+    return ratio(definitionTp, definitionTp + definitionFp);
+  }
+
+  /**
+   * @return the recall of the definition extraction, 0 if the gold standard has no definitions.
+   */
+  public double getDefinitionRecall() {
+    return ratio(definitionTp, definitionTp + definitionFn);
+  }
+
+  public double getDefinitionF1() {
+    final double precision = getDefinitionPrecision();
+    final double recall = getDefinitionRecall();
+    return ratio(2 * precision * recall, precision + recall);
+  }
+
+  private static double ratio(double numerator, double denominator) {
+    return denominator == 0 ? 0 : numerator / denominator;
+  }
+
+  public int getIdentifierTp() {
+    return identifierTp;
+  }
+
+  public void setIdentifierTp(int identifierTp) {
+    this.identifierTp = identifierTp;
+  }
+
+  public int getIdentifierFp() {
+    return identifierFp;
+  }
+
+  public void setIdentifierFp(int identifierFp) {
+    this.identifierFp = identifierFp;
+  }
+
+  public int getIdentifierFn() {
+    return identifierFn;
+  }
+
+  public void setIdentifierFn(int identifierFn) {
+    this.identifierFn = identifierFn;
+  }
+
+  public int getDefinitionTp() {
+    return definitionTp;
+  }
+
+  public void setDefinitionTp(int definitionTp) {
+    this.definitionTp = definitionTp;
+  }
+
+  public int getDefinitionFp() {
+    return definitionFp;
+  }
+
+  public void setDefinitionFp(int definitionFp) {
+    this.definitionFp = definitionFp;
+  }
+
+  public int getDefinitionFn() {
+    return definitionFn;
+  }
+
+  public void setDefinitionFn(int definitionFn) {
+    this.definitionFn = definitionFn;
+  }
+
+  @Override
+  public String toString() {
+    return "identifiers: tp=" + identifierTp + "; fp=" + identifierFp + "; fn=" + identifierFn
+      + ", definitions: tp=" + definitionTp + "; fp=" + definitionFp + "; fn=" + definitionFn;
+  }
+}
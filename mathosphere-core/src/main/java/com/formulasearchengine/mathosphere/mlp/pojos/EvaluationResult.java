@@ -77,7 +77,7 @@ public class EvaluationResult {
     return (double) getScoreSummary().tp / (getScoreSummary().tp + getScoreSummary().fp);
   }
 
-  protected double getF1() {
+  public double getF1() {
     return calcF1(WekaUtils.average(averagePrecision), WekaUtils.average(averageRecall));
   }
 
@@ -0,0 +1,37 @@
+package com.formulasearchengine.mathosphere.mlp.pojos;
+
+import java.util.Arrays;
+
+/**
+ * The positions of an identifier in one sentence of a {@link ParsedWikiDocument}.
+ */
+public class IdentifierOccurrence {
+
+  private final int sentenceIndex;
+  private final int[] positions;
+
+  /**
+   * @param sentenceIndex index of the sentence in the document
+   * @param positions     word positions of the identifier in ascending order
+   */
+  public IdentifierOccurrence(int sentenceIndex, int[] positions) {
+    this.sentenceIndex = sentenceIndex;
+    this.positions = positions;
+  }
+
+  public int getSentenceIndex() {
+    return sentenceIndex;
+  }
+
+  /**
+   * @return the word positions of the identifier in ascending order
+   */
+  public int[] getPositions() {
+    return positions;
+  }
+
+  @Override
+  public String toString() {
+    return sentenceIndex + ":" + Arrays.toString(positions);
+  }
+}
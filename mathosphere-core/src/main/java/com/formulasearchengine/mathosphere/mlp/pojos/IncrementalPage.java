@@ -0,0 +1,98 @@
+package com.formulasearchengine.mathosphere.mlp.pojos;
+
+/**
+ * A page of an incremental run of the mlp command: its title, the fingerprint of its text and the settings, and
+ * either the page to process or the stored result of an earlier run.
+ */
+public class IncrementalPage {
+
+  public static final String ADDED = "ADDED";
+  public static final String MODIFIED = "MODIFIED";
+  public static final String UNCHANGED = "UNCHANGED";
+  public static final String REMOVED = "REMOVED";
+
+  private static final char SEPARATOR = '\t';
+
+  private String title;
+  private String fingerprint;
+  /**
+   * The page to process, null if the stored result is reused.
+   */
+  private RawWikiDocument document;
+  /**
+   * The result as JSON, null until the page has been processed.
+   */
+  private String json;
+  private String change = ADDED;
+
+  public IncrementalPage() {
+  }
+
+  public IncrementalPage(String title, String fingerprint, RawWikiDocument document, String json) {
+    this.title = title;
+    this.fingerprint = fingerprint;
+    this.document = document;
+    this.json = json;
+  }
+
+  /**
+   * Parses a line written by {@link #toStateLine()}.
+   */
+  public static IncrementalPage fromStateLine(String line) {
+    final int first = line.indexOf(SEPARATOR);
+    final int second = line.indexOf(SEPARATOR, first + 1);
+    if (first < 0 || second < 0) {
+      throw new IllegalArgumentException("Not a state line: " + line);
+    }
+    return new IncrementalPage(line.substring(0, first), line.substring(first + 1, second), null,
+      line.substring(second + 1));
+  }
+
+  /**
+   * @return the title, the fingerprint and the result separated by tabs. Titles cannot contain tabs and the JSON
+   * escapes them, so the line can be split at the first two tabs.
+   */
+  public String toStateLine() {
+    return title + SEPARATOR + fingerprint + SEPARATOR + json;
+  }
+
+  public String getTitle() {
+    return title;
+  }
+
+  public void setTitle(String title) {
+    this.title = title;
+  }
+
+  public String getFingerprint() {
+    return fingerprint;
+  }
+
+  public void setFingerprint(String fingerprint) {
+    this.fingerprint = fingerprint;
+  }
+
+  public RawWikiDocument getDocument() {
+    return document;
+  }
+
+  public void setDocument(RawWikiDocument document) {
+    this.document = document;
+  }
+
+  public String getJson() {
+    return json;
+  }
+
+  public void setJson(String json) {
+    this.json = json;
+  }
+
+  public String getChange() {
+    return change;
+  }
+
+  public void setChange(String change) {
+    this.change = change;
+  }
+}
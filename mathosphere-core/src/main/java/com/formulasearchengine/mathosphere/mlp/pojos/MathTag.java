@@ -2,6 +2,7 @@ package com.formulasearchengine.mathosphere.mlp.pojos;
 
 import com.fasterxml.jackson.annotation.JsonGetter;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.formulasearchengine.mathosphere.mlp.cli.BaseConfig;
@@ -11,6 +12,7 @@ import com.google.common.hash.HashFunction;
 import com.google.common.hash.Hashing;
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.apache.flink.api.common.typeinfo.TypeInfo;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -21,6 +23,7 @@ import static com.formulasearchengine.mathosphere.mlp.text.MathMLUtils.extractId
 import static com.formulasearchengine.mathosphere.mlp.text.MathMLUtils.extractIdentifiersFromMathML;
 
 
+@TypeInfo(MathTagSerializer.TypeInfoFactory.class)
 public class MathTag {
     private static final Logger logger = LogManager.getLogger(MathTag.class.getName());
 
@@ -60,12 +63,30 @@ public class MathTag {
     }
 
     public Multiset<String> getIdentifiers(BaseConfig config) {
-        if (indentifiers == null || indentifiers.size() == 0) {
+        if (indentifiers == null) {
             indentifiers = extractIdentifiers(this, config.getUseTeXIdentifiers(), config.getTexvcinfoUrl());
         }
         return indentifiers;
     }
 
+    /**
+     * Sets identifiers that were resolved in advance, e.g. by a batched texvcinfo request.
+     */
+    public void setIdentifiers(Multiset<String> identifiers) {
+        this.indentifiers = identifiers;
+    }
+
+    /**
+     * @return the identifiers that were set or extracted so far, without extracting them. Written to the JSON of the
+     * tag, if any, so that the formulae.json of the tags command can seed a
+     * {@link com.formulasearchengine.mathosphere.mlp.text.TexInfoCache}.
+     */
+    @JsonGetter("identifiers")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public Multiset<String> getResolvedIdentifiers() {
+        return indentifiers;
+    }
+
     @JsonIgnore
     public String getKey() {
         return placeholder();
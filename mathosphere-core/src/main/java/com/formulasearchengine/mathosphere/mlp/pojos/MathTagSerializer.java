@@ -0,0 +1,87 @@
+package com.formulasearchengine.mathosphere.mlp.pojos;
+
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.Multiset;
+
+import com.formulasearchengine.mathosphere.mlp.text.WikiTextUtils.MathMarkUpType;
+
+import org.apache.flink.api.common.typeinfo.TypeInformation;
+import org.apache.flink.core.memory.DataInputView;
+import org.apache.flink.core.memory.DataOutputView;
+import org.apache.flink.types.StringValue;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.Map;
+
+/**
+ * Serializes a {@link MathTag} with the identifiers resolved so far.
+ */
+public class MathTagSerializer extends SerializerBase<MathTag> {
+
+  public static final MathTagSerializer INSTANCE = new MathTagSerializer();
+
+  private static final MathMarkUpType[] MARK_UP_TYPES = MathMarkUpType.values();
+
+  /**
+   * Creates the type information of {@link MathTag}, which is annotated with this factory.
+   */
+  public static class TypeInfoFactory extends org.apache.flink.api.common.typeinfo.TypeInfoFactory<MathTag> {
+    @Override
+    public TypeInformation<MathTag> createTypeInfo(Type t, Map<String, TypeInformation<?>> genericParameters) {
+      return new SerializerTypeInfo<>(MathTag.class, INSTANCE);
+    }
+  }
+
+  @Override
+  public MathTag createInstance() {
+    return new MathTag(0, "", MathMarkUpType.LATEX);
+  }
+
+  @Override
+  public void serialize(MathTag formula, DataOutputView out) throws IOException {
+    out.writeInt(formula.getPosition());
+    StringValue.writeString(formula.getContent(), out);
+    out.writeByte(formula.getMarkUpType() == null ? -1 : formula.getMarkUpType().ordinal());
+    writeMultiset(formula.getResolvedIdentifiers(), out);
+  }
+
+  @Override
+  public MathTag deserialize(DataInputView in) throws IOException {
+    final int position = in.readInt();
+    final String content = StringValue.readString(in);
+    final byte markUpType = in.readByte();
+    final MathTag formula = new MathTag(position, content, markUpType < 0 ? null : MARK_UP_TYPES[markUpType]);
+    formula.setIdentifiers(readMultiset(in));
+    return formula;
+  }
+
+  @Override
+  public boolean canEqual(Object obj) {
+    return obj instanceof MathTagSerializer;
+  }
+
+  static void writeMultiset(Multiset<String> multiset, DataOutputView out) throws IOException {
+    if (multiset == null) {
+      out.writeInt(-1);
+      return;
+    }
+    out.writeInt(multiset.entrySet().size());
+    for (Multiset.Entry<String> entry : multiset.entrySet()) {
+      StringValue.writeString(entry.getElement(), out);
+      out.writeInt(entry.getCount());
+    }
+  }
+
+  static Multiset<String> readMultiset(DataInputView in) throws IOException {
+    final int size = in.readInt();
+    if (size < 0) {
+      return null;
+    }
+    final Multiset<String> multiset = HashMultiset.create(size);
+    for (int i = 0; i < size; i++) {
+      multiset.add(StringValue.readString(in), in.readInt());
+    }
+    return multiset;
+  }
+}
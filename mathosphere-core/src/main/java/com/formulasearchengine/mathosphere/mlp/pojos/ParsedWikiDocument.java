@@ -2,18 +2,28 @@ package com.formulasearchengine.mathosphere.mlp.pojos;
 
 import com.google.common.collect.Multiset;
 
+import org.apache.flink.api.common.typeinfo.TypeInfo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+@TypeInfo(ParsedWikiDocumentSerializer.TypeInfoFactory.class)
 public class ParsedWikiDocument {
 
+  private static final int[] NO_POSITIONS = new int[0];
+
   private List<WikidataLink> links;
   private String title;
   private Multiset<String> identifiers;
   private List<MathTag> formulas;
   private List<Sentence> sentences;
+  private transient EncodedSentences encodedSentences = null;
   private Map<String, WikidataLink> linkMap = null;
+  private transient Map<String, List<IdentifierOccurrence>> identifierIndex = null;
 
   public ParsedWikiDocument() {
   }
@@ -44,9 +54,35 @@ public class ParsedWikiDocument {
   }
 
   public List<Sentence> getSentences() {
+    if (sentences == null && encodedSentences != null) {
+      sentences = encodedSentences.decode(formulas == null ? Collections.<MathTag>emptyList() : formulas);
+      encodedSentences = null;
+    }
     return sentences;
   }
 
+  /**
+   * @return the sentences in columnar form, encoded anew if they were decoded, since the {@link Sentence} views
+   * may have been modified
+   */
+  public EncodedSentences getEncodedSentences() {
+    if (encodedSentences != null) {
+      return encodedSentences;
+    }
+    return sentences == null ? null : EncodedSentences.encode(sentences,
+      formulas == null ? Collections.<MathTag>emptyList() : formulas);
+  }
+
+  /**
+   * Sets the sentences in columnar form. They are decoded to {@link Sentence} views on the first call to
+   * {@link #getSentences()}.
+   */
+  public void setEncodedSentences(EncodedSentences encodedSentences) {
+    this.encodedSentences = encodedSentences;
+    this.sentences = null;
+    this.identifierIndex = null;
+  }
+
   public Multiset<String> getIdentifiers() {
     return identifiers;
   }
@@ -60,11 +96,59 @@ public class ParsedWikiDocument {
   }
 
   public void setFormulas(List<MathTag> formulas) {
+    // the encoded sentences refer to the formulas by index
+    getSentences();
     this.formulas = formulas;
   }
 
   public void setSentences(List<Sentence> sentences) {
     this.sentences = sentences;
+    this.encodedSentences = null;
+    this.identifierIndex = null;
+  }
+
+  /**
+   * Inverted index from each identifier to the sentences that contain it and its word positions therein. Like
+   * {@link Sentence#contains(String)}, a sentence contains an identifier if it is in the identifiers of the
+   * sentence; the positions are those of all words equal to the identifier.
+   *
+   * @return the occurrences by identifier, ordered by sentence index
+   */
+  public Map<String, List<IdentifierOccurrence>> getIdentifierIndex() {
+    if (identifierIndex == null) {
+      final Map<String, List<IdentifierOccurrence>> index = new HashMap<>();
+      final List<Sentence> sentences = getSentences();
+      if (sentences != null) {
+        final Map<String, int[]> positions = new HashMap<>();
+        for (int sentenceIdx = 0; sentenceIdx < sentences.size(); sentenceIdx++) {
+          final Sentence sentence = sentences.get(sentenceIdx);
+          if (sentence.getIdentifiers().isEmpty()) {
+            continue;
+          }
+          positions.clear();
+          final List<Word> words = sentence.getWords();
+          for (int wordIdx = 0; wordIdx < words.size(); wordIdx++) {
+            final String word = words.get(wordIdx).getWord();
+            if (sentence.contains(word)) {
+              int[] wordPositions = positions.get(word);
+              if (wordPositions == null) {
+                wordPositions = new int[]{wordIdx};
+              } else {
+                wordPositions = Arrays.copyOf(wordPositions, wordPositions.length + 1);
+                wordPositions[wordPositions.length - 1] = wordIdx;
+              }
+              positions.put(word, wordPositions);
+            }
+          }
+          for (String identifier : sentence.getIdentifiers()) {
+            index.computeIfAbsent(identifier, k -> new ArrayList<>())
+              .add(new IdentifierOccurrence(sentenceIdx, positions.getOrDefault(identifier, NO_POSITIONS)));
+          }
+        }
+      }
+      identifierIndex = index;
+    }
+    return identifierIndex;
   }
 
   public List<WikidataLink> getLinks() {
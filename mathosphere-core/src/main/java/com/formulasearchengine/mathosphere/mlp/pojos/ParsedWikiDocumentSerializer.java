@@ -0,0 +1,103 @@
+package com.formulasearchengine.mathosphere.mlp.pojos;
+
+import org.apache.flink.api.common.typeinfo.TypeInformation;
+import org.apache.flink.core.memory.DataInputView;
+import org.apache.flink.core.memory.DataOutputView;
+import org.apache.flink.types.StringValue;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Serializes a {@link ParsedWikiDocument} with its sentences in the columnar form of {@link EncodedSentences}, which
+ * stores every distinct word of the document once instead of a string pair per word. Without it Flink serializes the
+ * document with Kryo.
+ */
+public class ParsedWikiDocumentSerializer extends SerializerBase<ParsedWikiDocument> {
+
+  public static final ParsedWikiDocumentSerializer INSTANCE = new ParsedWikiDocumentSerializer();
+
+  /**
+   * Creates the type information of {@link ParsedWikiDocument}, which is annotated with this factory.
+   */
+  public static class TypeInfoFactory extends org.apache.flink.api.common.typeinfo.TypeInfoFactory<ParsedWikiDocument> {
+    @Override
+    public TypeInformation<ParsedWikiDocument> createTypeInfo(Type t,
+                                                              Map<String, TypeInformation<?>> genericParameters) {
+      return new SerializerTypeInfo<>(ParsedWikiDocument.class, INSTANCE);
+    }
+  }
+
+  @Override
+  public ParsedWikiDocument createInstance() {
+    return new ParsedWikiDocument();
+  }
+
+  @Override
+  public void serialize(ParsedWikiDocument doc, DataOutputView out) throws IOException {
+    StringValue.writeString(doc.getTitle(), out);
+    MathTagSerializer.writeMultiset(doc.getIdentifiers(), out);
+    final List<MathTag> formulas = doc.getFormulas();
+    if (formulas == null) {
+      out.writeInt(-1);
+    } else {
+      out.writeInt(formulas.size());
+      for (MathTag formula : formulas) {
+        MathTagSerializer.INSTANCE.serialize(formula, out);
+      }
+    }
+    final List<WikidataLink> links = doc.getLinks();
+    if (links == null) {
+      out.writeInt(-1);
+    } else {
+      out.writeInt(links.size());
+      for (WikidataLink link : links) {
+        out.writeInt(link.getPosition());
+        StringValue.writeString(link.getContent(), out);
+        StringValue.writeString(link.getTitle(), out);
+      }
+    }
+    final EncodedSentences sentences = doc.getEncodedSentences();
+    out.writeBoolean(sentences != null);
+    if (sentences != null) {
+      sentences.write(out);
+    }
+  }
+
+  @Override
+  public ParsedWikiDocument deserialize(DataInputView in) throws IOException {
+    final ParsedWikiDocument doc = new ParsedWikiDocument();
+    doc.setTitle(StringValue.readString(in));
+    doc.setIdentifiers(MathTagSerializer.readMultiset(in));
+    final int formulaCount = in.readInt();
+    if (formulaCount >= 0) {
+      final List<MathTag> formulas = new ArrayList<>(formulaCount);
+      for (int i = 0; i < formulaCount; i++) {
+        formulas.add(MathTagSerializer.INSTANCE.deserialize(in));
+      }
+      doc.setFormulas(formulas);
+    }
+    final int linkCount = in.readInt();
+    if (linkCount >= 0) {
+      final List<WikidataLink> links = new ArrayList<>(linkCount);
+      for (int i = 0; i < linkCount; i++) {
+        final int position = in.readInt();
+        final String content = StringValue.readString(in);
+        links.add(new WikidataLink(position, content).setTitle(StringValue.readString(in)));
+      }
+      doc.setLinks(links);
+    }
+    if (in.readBoolean()) {
+      doc.setEncodedSentences(EncodedSentences.read(in));
+    }
+    return doc;
+  }
+
+  @Override
+  public boolean canEqual(Object obj) {
+    return obj instanceof ParsedWikiDocumentSerializer;
+  }
+}
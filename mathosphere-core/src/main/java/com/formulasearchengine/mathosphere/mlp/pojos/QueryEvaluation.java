@@ -0,0 +1,84 @@
+package com.formulasearchengine.mathosphere.mlp.pojos;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The evaluation of the relations extracted for one query of the gold standard.
+ */
+public class QueryEvaluation {
+
+  private String qId;
+  private String title;
+  /**
+   * The extracted relations of the identifiers of the gold standard, sorted by identifier and without duplicates.
+   */
+  private List<Relation> relations = new ArrayList<>();
+  /**
+   * The relations that were judged as not relevant, empty without relevance judgements.
+   */
+  private List<Relation> falsePositives = new ArrayList<>();
+  private EvaluationCounts counts = new EvaluationCounts();
+
+  public QueryEvaluation() {
+  }
+
+  public QueryEvaluation(String qId, String title, List<Relation> relations, EvaluationCounts counts) {
+    this.qId = qId;
+    this.title = title;
+    this.relations = relations;
+    this.counts = counts;
+  }
+
+  /**
+   * @return the overall evaluation of both queries, i.e. the summed counts and all false positives, without qId,
+   * title and relations. Neither query is changed.
+   */
+  public QueryEvaluation add(QueryEvaluation other) {
+    final QueryEvaluation sum = new QueryEvaluation();
+    sum.counts = counts.add(other.counts);
+    sum.falsePositives = new ArrayList<>(falsePositives);
+    sum.falsePositives.addAll(other.falsePositives);
+    return sum;
+  }
+
+  public String getqId() {
+    return qId;
+  }
+
+  public void setqId(String qId) {
+    this.qId = qId;
+  }
+
+  public String getTitle() {
+    return title;
+  }
+
+  public void setTitle(String title) {
+    this.title = title;
+  }
+
+  public List<Relation> getRelations() {
+    return relations;
+  }
+
+  public void setRelations(List<Relation> relations) {
+    this.relations = relations;
+  }
+
+  public List<Relation> getFalsePositives() {
+    return falsePositives;
+  }
+
+  public void setFalsePositives(List<Relation> falsePositives) {
+    this.falsePositives = falsePositives;
+  }
+
+  public EvaluationCounts getCounts() {
+    return counts;
+  }
+
+  public void setCounts(EvaluationCounts counts) {
+    this.counts = counts;
+  }
+}
@@ -4,12 +4,14 @@ package com.formulasearchengine.mathosphere.mlp.pojos;
 import com.formulasearchengine.mathosphere.mlp.text.PosTag;
 
 import edu.stanford.nlp.trees.GrammaticalStructure;
+import org.apache.flink.api.common.typeinfo.TypeInfo;
 import org.apache.flink.api.java.tuple.Tuple2;
 
 import java.util.Map;
 
 import static com.formulasearchengine.mathosphere.mlp.text.WikiTextUtils.deLinkify;
 
+@TypeInfo(RelationSerializer.TypeInfoFactory.class)
 public class Relation implements Comparable<Relation> {
 
   public double getDistanceFromFirstIdentifierOccurence() {
@@ -0,0 +1,115 @@
+package com.formulasearchengine.mathosphere.mlp.pojos;
+
+import org.apache.flink.api.common.typeinfo.TypeInformation;
+import org.apache.flink.core.memory.DataInputView;
+import org.apache.flink.core.memory.DataOutputView;
+import org.apache.flink.types.StringValue;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Serializes a {@link Relation} with its sentence, which is written as {@link EncodedSentences}.
+ */
+public class RelationSerializer extends SerializerBase<Relation> {
+
+  public static final RelationSerializer INSTANCE = new RelationSerializer();
+
+  /**
+   * Creates the type information of {@link Relation}, which is annotated with this factory.
+   */
+  public static class TypeInfoFactory extends org.apache.flink.api.common.typeinfo.TypeInfoFactory<Relation> {
+    @Override
+    public TypeInformation<Relation> createTypeInfo(Type t, Map<String, TypeInformation<?>> genericParameters) {
+      return new SerializerTypeInfo<>(Relation.class, INSTANCE);
+    }
+  }
+
+  @Override
+  public Relation createInstance() {
+    return new Relation();
+  }
+
+  @Override
+  public void serialize(Relation relation, DataOutputView out) throws IOException {
+    writeFields(relation, out);
+    final Sentence sentence = relation.getSentence();
+    out.writeBoolean(sentence != null);
+    if (sentence != null) {
+      writeSentences(Collections.singletonList(sentence), out);
+    }
+  }
+
+  @Override
+  public Relation deserialize(DataInputView in) throws IOException {
+    final Relation relation = readFields(in);
+    if (in.readBoolean()) {
+      relation.setSentence(readSentences(in).get(0));
+    }
+    return relation;
+  }
+
+  @Override
+  public boolean canEqual(Object obj) {
+    return obj instanceof RelationSerializer;
+  }
+
+  /**
+   * Writes all fields of the relation but its sentence.
+   */
+  static void writeFields(Relation relation, DataOutputView out) throws IOException {
+    StringValue.writeString(relation.getIdentifier(), out);
+    StringValue.writeString(relation.getDefinition(), out);
+    out.writeDouble(relation.getScore());
+    out.writeDouble(relation.getRelativeTermFrequency());
+    out.writeDouble(relation.getDistanceFromFirstIdentifierOccurence());
+    out.writeInt(relation.getIdentifierPosition());
+    out.writeInt(relation.getWordPosition());
+    out.writeInt(relation.getRelevance());
+  }
+
+  static Relation readFields(DataInputView in) throws IOException {
+    final Relation relation = new Relation(StringValue.readString(in), StringValue.readString(in));
+    relation.setScore(in.readDouble());
+    relation.setRelativeTermFrequency(in.readDouble());
+    relation.setDistanceFromFirstIdentifierOccurence(in.readDouble());
+    relation.setIdentifierPosition(in.readInt());
+    relation.setWordPosition(in.readInt());
+    relation.setRelevance(in.readInt());
+    return relation;
+  }
+
+  /**
+   * Writes the sentences with their formulas, each distinct formula once.
+   */
+  static void writeSentences(List<Sentence> sentences, DataOutputView out) throws IOException {
+    final Map<MathTag, Boolean> seen = new IdentityHashMap<>();
+    final List<MathTag> formulas = new ArrayList<>();
+    for (Sentence sentence : sentences) {
+      for (MathTag formula : sentence.getFormulas()) {
+        if (seen.put(formula, Boolean.TRUE) == null) {
+          formulas.add(formula);
+        }
+      }
+    }
+    out.writeInt(formulas.size());
+    for (MathTag formula : formulas) {
+      MathTagSerializer.INSTANCE.serialize(formula, out);
+    }
+    EncodedSentences.encode(sentences, formulas).write(out);
+  }
+
+  static List<Sentence> readSentences(DataInputView in) throws IOException {
+    final int formulaCount = in.readInt();
+    final List<MathTag> formulas = new ArrayList<>(formulaCount);
+    for (int i = 0; i < formulaCount; i++) {
+      formulas.add(MathTagSerializer.INSTANCE.deserialize(in));
+    }
+    return EncodedSentences.read(in).decode(formulas);
+  }
+}
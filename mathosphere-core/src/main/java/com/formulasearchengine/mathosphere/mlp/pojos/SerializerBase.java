@@ -0,0 +1,82 @@
+package com.formulasearchengine.mathosphere.mlp.pojos;
+
+import org.apache.flink.api.common.typeutils.CompatibilityResult;
+import org.apache.flink.api.common.typeutils.ParameterlessTypeSerializerConfig;
+import org.apache.flink.api.common.typeutils.TypeSerializerConfigSnapshot;
+import org.apache.flink.api.common.typeutils.base.TypeSerializerSingleton;
+import org.apache.flink.core.memory.DataInputDeserializer;
+import org.apache.flink.core.memory.DataInputView;
+import org.apache.flink.core.memory.DataOutputSerializer;
+import org.apache.flink.core.memory.DataOutputView;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Base of the hand-written serializers of mutable, variable length types. Copies are made by a serialization round
+ * trip. The snapshot of a serializer is its class and {@link #getVersion() format version}, so that state written
+ * with an older format requires migration.
+ */
+public abstract class SerializerBase<T> extends TypeSerializerSingleton<T> {
+
+  /**
+   * @return the version of the serialization format, to be increased with every change of the format
+   */
+  protected int getVersion() {
+    return 1;
+  }
+
+  private String getFormatIdentifier() {
+    return getClass().getName() + "/" + getVersion();
+  }
+
+  @Override
+  public boolean isImmutableType() {
+    return false;
+  }
+
+  @Override
+  public T copy(T from) {
+    try {
+      final DataOutputSerializer out = new DataOutputSerializer(4096);
+      serialize(from, out);
+      return deserialize(new DataInputDeserializer(out.getByteArray(), 0, out.length()));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public T copy(T from, T reuse) {
+    return copy(from);
+  }
+
+  @Override
+  public int getLength() {
+    return -1;
+  }
+
+  @Override
+  public T deserialize(T reuse, DataInputView source) throws IOException {
+    return deserialize(source);
+  }
+
+  @Override
+  public void copy(DataInputView source, DataOutputView target) throws IOException {
+    serialize(deserialize(source), target);
+  }
+
+  @Override
+  public TypeSerializerConfigSnapshot snapshotConfiguration() {
+    return new ParameterlessTypeSerializerConfig(getFormatIdentifier());
+  }
+
+  @Override
+  public CompatibilityResult<T> ensureCompatibility(TypeSerializerConfigSnapshot configSnapshot) {
+    if (configSnapshot instanceof ParameterlessTypeSerializerConfig && getFormatIdentifier().equals(
+      ((ParameterlessTypeSerializerConfig) configSnapshot).getSerializationFormatIdentifier())) {
+      return CompatibilityResult.compatible();
+    }
+    return CompatibilityResult.requiresMigration();
+  }
+}
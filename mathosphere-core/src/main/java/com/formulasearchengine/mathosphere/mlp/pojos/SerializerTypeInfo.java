@@ -0,0 +1,79 @@
+package com.formulasearchengine.mathosphere.mlp.pojos;
+
+import org.apache.flink.api.common.ExecutionConfig;
+import org.apache.flink.api.common.typeinfo.TypeInformation;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+
+/**
+ * Type information of a type with a hand-written {@link TypeSerializer}, so that Flink does not fall back to Kryo
+ * for it. The type is neither a key nor a composite type.
+ */
+public class SerializerTypeInfo<T> extends TypeInformation<T> {
+
+  private final Class<T> typeClass;
+  private final TypeSerializer<T> serializer;
+
+  public SerializerTypeInfo(Class<T> typeClass, TypeSerializer<T> serializer) {
+    this.typeClass = typeClass;
+    this.serializer = serializer;
+  }
+
+  @Override
+  public boolean isBasicType() {
+    return false;
+  }
+
+  @Override
+  public boolean isTupleType() {
+    return false;
+  }
+
+  @Override
+  public int getArity() {
+    return 1;
+  }
+
+  @Override
+  public int getTotalFields() {
+    return 1;
+  }
+
+  @Override
+  public Class<T> getTypeClass() {
+    return typeClass;
+  }
+
+  @Override
+  public boolean isKeyType() {
+    return false;
+  }
+
+  @Override
+  public TypeSerializer<T> createSerializer(ExecutionConfig config) {
+    return serializer.duplicate();
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + "<" + typeClass.getName() + ">";
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (obj instanceof SerializerTypeInfo) {
+      final SerializerTypeInfo<?> other = (SerializerTypeInfo<?>) obj;
+      return other.canEqual(this) && typeClass == other.typeClass && serializer.equals(other.serializer);
+    }
+    return false;
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * typeClass.hashCode() + serializer.hashCode();
+  }
+
+  @Override
+  public boolean canEqual(Object obj) {
+    return obj instanceof SerializerTypeInfo;
+  }
+}
@@ -2,11 +2,14 @@ package com.formulasearchengine.mathosphere.mlp.pojos;
 
 import com.google.common.collect.Multiset;
 
+import org.apache.flink.api.common.typeinfo.TypeInfo;
+
 import java.util.List;
 import java.util.Set;
 
 import static com.formulasearchengine.mathosphere.mlp.pojos.StringEntry.fromSet;
 
+@TypeInfo(WikiDocumentOutputSerializer.TypeInfoFactory.class)
 public class WikiDocumentOutput {
 
   private String title;
@@ -0,0 +1,115 @@
+package com.formulasearchengine.mathosphere.mlp.pojos;
+
+import org.apache.flink.api.common.typeinfo.TypeInformation;
+import org.apache.flink.core.memory.DataInputView;
+import org.apache.flink.core.memory.DataOutputView;
+import org.apache.flink.types.StringValue;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Serializes a {@link WikiDocumentOutput}. The relations of a document share few sentences, so each distinct
+ * sentence is written once and the relations refer to it by index.
+ */
+public class WikiDocumentOutputSerializer extends SerializerBase<WikiDocumentOutput> {
+
+  public static final WikiDocumentOutputSerializer INSTANCE = new WikiDocumentOutputSerializer();
+
+  /**
+   * Creates the type information of {@link WikiDocumentOutput}, which is annotated with this factory.
+   */
+  public static class TypeInfoFactory extends org.apache.flink.api.common.typeinfo.TypeInfoFactory<WikiDocumentOutput> {
+    @Override
+    public TypeInformation<WikiDocumentOutput> createTypeInfo(Type t,
+                                                              Map<String, TypeInformation<?>> genericParameters) {
+      return new SerializerTypeInfo<>(WikiDocumentOutput.class, INSTANCE);
+    }
+  }
+
+  @Override
+  public WikiDocumentOutput createInstance() {
+    return new WikiDocumentOutput();
+  }
+
+  @Override
+  public void serialize(WikiDocumentOutput output, DataOutputView out) throws IOException {
+    out.writeBoolean(output.isSuccess());
+    StringValue.writeString(output.getTitle(), out);
+    StringValue.writeString(output.getqId(), out);
+    out.writeDouble(output.getMaxSentenceLength());
+    final Set<StringEntry> identifiers = output.getIdentifiers();
+    if (identifiers == null) {
+      out.writeInt(-1);
+    } else {
+      out.writeInt(identifiers.size());
+      for (StringEntry entry : identifiers) {
+        StringValue.writeString(entry.getElement(), out);
+        out.writeInt(entry.getCount());
+      }
+    }
+    final List<Relation> relations = output.getRelations();
+    out.writeBoolean(relations != null);
+    if (relations == null) {
+      return;
+    }
+    final Map<Sentence, Integer> sentenceIds = new IdentityHashMap<>();
+    final List<Sentence> sentences = new ArrayList<>();
+    for (Relation relation : relations) {
+      final Sentence sentence = relation.getSentence();
+      if (sentence != null && !sentenceIds.containsKey(sentence)) {
+        sentenceIds.put(sentence, sentences.size());
+        sentences.add(sentence);
+      }
+    }
+    RelationSerializer.writeSentences(sentences, out);
+    out.writeInt(relations.size());
+    for (Relation relation : relations) {
+      RelationSerializer.writeFields(relation, out);
+      out.writeInt(relation.getSentence() == null ? -1 : sentenceIds.get(relation.getSentence()));
+    }
+  }
+
+  @Override
+  public WikiDocumentOutput deserialize(DataInputView in) throws IOException {
+    final WikiDocumentOutput output = new WikiDocumentOutput(in.readBoolean());
+    output.setTitle(StringValue.readString(in));
+    output.setqId(StringValue.readString(in));
+    output.setMaxSentenceLength(in.readDouble());
+    final int identifierCount = in.readInt();
+    if (identifierCount >= 0) {
+      final Set<StringEntry> identifiers = new HashSet<>();
+      for (int i = 0; i < identifierCount; i++) {
+        identifiers.add(new StringEntry(StringValue.readString(in), in.readInt()));
+      }
+      output.setIdentifiers(identifiers);
+    }
+    if (!in.readBoolean()) {
+      return output;
+    }
+    final List<Sentence> sentences = RelationSerializer.readSentences(in);
+    final int relationCount = in.readInt();
+    final List<Relation> relations = new ArrayList<>(relationCount);
+    for (int i = 0; i < relationCount; i++) {
+      final Relation relation = RelationSerializer.readFields(in);
+      final int sentence = in.readInt();
+      if (sentence >= 0) {
+        relation.setSentence(sentences.get(sentence));
+      }
+      relations.add(relation);
+    }
+    output.setRelations(relations);
+    return output;
+  }
+
+  @Override
+  public boolean canEqual(Object obj) {
+    return obj instanceof WikiDocumentOutputSerializer;
+  }
+}
@@ -14,7 +14,11 @@ import com.formulasearchengine.mathosphere.mlp.contracts.TextExtractorMapper;
 import com.formulasearchengine.mathosphere.mlp.pojos.MathTag;
 import com.formulasearchengine.mathosphere.mlp.pojos.WikidataLink;
 import com.formulasearchengine.mathosphere.utils.sweble.MlpConfigEnWpImpl;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Multiset;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
 import com.jcabi.log.Logger;
 import de.fau.cs.osr.ptk.common.AstVisitor;
 import org.sweble.wikitext.engine.EngineException;
@@ -64,9 +68,12 @@ import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.TransformerException;
 import javax.xml.xpath.XPathExpressionException;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.regex.Pattern;
 
 import static de.fau.cs.osr.utils.StringTools.strrep;
@@ -92,17 +99,25 @@ public class MathConverter
         extends
         AstVisitor<WtNode> {
     private final static Pattern subMatch = Pattern.compile("[{<]sub[}>](.+?)[{<]/sub[}>]");
-    private final static WikiConfig config = MlpConfigEnWpImpl.generate();
-    private final static WtEngineImpl engine = new WtEngineImpl(config);
+    private final static WikiConfig wikiConfig = MlpConfigEnWpImpl.generate();
     private static final Pattern ws = Pattern.compile("\\s+");
-    private static int i = 0;
-    private final EngProcessedPage page;
+    private static final HashFunction HASHER = Hashing.sha1();
+    /**
+     * Parsed pages shared by all converters of this JVM with the same cache size, keyed by title and revision hash.
+     */
+    private static final Map<Integer, Cache<String, EngProcessedPage>> PARSE_CACHES = new HashMap<>();
+    private final WtEngineImpl engine;
+    private final Cache<String, EngProcessedPage> cache;
+    private final StringBuilder outputBuffer = new StringBuilder();
+    private final StringBuilder lineBuffer = new StringBuilder();
+    private final LinkedList<Integer> sections = new LinkedList<>();
+    private EngProcessedPage page;
     private List<MathTag> mathTags = new ArrayList<>();
     private List<WikidataLink> links = new ArrayList<>();
     private StringBuilder sb;
     private StringBuilder line;
     private int extLinkNum;
-    private WikidataLinkMap wl = null;
+    private final WikidataLinkMap wl;
     /**
      * Becomes true if we are no long at the Beginning Of the whole Document.
      */
@@ -110,9 +125,8 @@ public class MathConverter
     private int needNewlines;
     private boolean needSpace;
     private boolean noWrap;
-    private LinkedList<Integer> sections;
     private PageTitle pageTitle;
-    private String texInfoUrl;
+    private final String texInfoUrl;
     private boolean suppressOutput = false;
 
     public boolean isSkipHiddenMath() {
@@ -125,12 +139,24 @@ public class MathConverter
 
     private boolean skipHiddenMath;
 
+    /**
+     * Creates a converter that can be reused for many pages, e.g. one per task slot. Pages are converted one after
+     * another by calling {@link #parse(String, String)} before reading the output. A converter must not be used by
+     * more than one thread at a time.
+     */
+    public MathConverter(BaseConfig config) {
+        engine = new WtEngineImpl(wikiConfig);
+        if (config.getWikiDataFile() != null) {
+            wl = new WikidataLinkMap(config.getWikiDataFile());
+        } else {
+            wl = null;
+        }
+        texInfoUrl = config.getTexvcinfoUrl();
+        cache = getParseCache(config.getParseCacheSize());
+    }
 
     public MathConverter(String wikiText, String name) throws LinkTargetException, EngineException {
-        pageTitle = PageTitle.make(config, name);
-        PageId pageId = new PageId(pageTitle, -1);
-        page = engine.postprocess(pageId, wikiText, null);
-        texInfoUrl = (new BaseConfig()).getTexvcinfoUrl();
+        this(wikiText, name, new BaseConfig());
     }
 
     public MathConverter(String wikiText) throws LinkTargetException, EngineException {
@@ -138,13 +164,45 @@ public class MathConverter
     }
 
     public MathConverter(String wikitext, String title, BaseConfig config) throws LinkTargetException, EngineException {
-        this(wikitext, title);
-        if (config.getWikiDataFile() != null) {
-            wl = new WikidataLinkMap(config.getWikiDataFile());
-        } else {
-            wl = null;
+        this(config);
+        parse(wikitext, title);
+    }
+
+    /**
+     * @return the parse cache shared by the converters with the given cache size, null if caching is disabled.
+     */
+    static synchronized Cache<String, EngProcessedPage> getParseCache(int size) {
+        if (size <= 0) {
+            return null;
         }
-        texInfoUrl = config.getTexvcinfoUrl();
+        return PARSE_CACHES.computeIfAbsent(size, s -> CacheBuilder.newBuilder().maximumSize(s).build());
+    }
+
+    /**
+     * Parses the page that will be converted next and resets the collected math tags and links.
+     * Pages with the same title and revision hash are taken from the parse cache if it is enabled.
+     *
+     * @param wikiText the wikitext of the page
+     * @param name     the title of the page
+     * @return this converter
+     */
+    public MathConverter parse(String wikiText, String name) throws LinkTargetException, EngineException {
+        pageTitle = PageTitle.make(wikiConfig, name);
+        String key = null;
+        page = null;
+        if (cache != null) {
+            key = name + '|' + HASHER.hashString(wikiText, StandardCharsets.UTF_8);
+            page = cache.getIfPresent(key);
+        }
+        if (page == null) {
+            page = engine.postprocess(new PageId(pageTitle, -1), wikiText, null);
+            if (cache != null) {
+                cache.put(key, page);
+            }
+        }
+        mathTags = new ArrayList<>();
+        links = new ArrayList<>();
+        return this;
     }
 
     @Override
@@ -161,14 +219,16 @@ public class MathConverter
     @Override
     protected WtNode before(WtNode node) {
         // This method is called by go() before visitation starts
-        sb = new StringBuilder();
-        line = new StringBuilder();
+        sb = outputBuffer;
+        sb.setLength(0);
+        line = lineBuffer;
+        line.setLength(0);
         extLinkNum = 1;
         pastBod = false;
         needNewlines = 0;
         needSpace = false;
         noWrap = false;
-        sections = new LinkedList<>();
+        sections.clear();
         return super.before(node);
     }
 
@@ -614,7 +674,6 @@ public class MathConverter
                     markUpType= WikiTextUtils.MathMarkUpType.LATEX;
                 }
                 MathTag tag = new MathTag(n.getLocation().line, n.getBody().getContent(), markUpType);
-                // System.err.println(i+++" : "+ n.getBody().getContent());
                 mathTags.add(tag);
                 if (needNewlines > 0) {
                     write(" ");
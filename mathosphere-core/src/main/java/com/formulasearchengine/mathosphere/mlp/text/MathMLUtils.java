@@ -20,10 +20,19 @@ import uk.ac.ed.ph.snuggletex.SnuggleInput;
 import uk.ac.ed.ph.snuggletex.SnuggleSession;
 
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.transform.TransformerException;
 import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathExpression;
 import javax.xml.xpath.XPathExpressionException;
 import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 import java.util.regex.Matcher;
@@ -33,6 +42,26 @@ public class MathMLUtils {
 
     private static final Logger LOGGER = LogManager.getLogger(MathMLUtils.class.getName());
     private static final SnuggleEngine SNUGGLE_ENGINE = new SnuggleEngine();
+    private static final String MATHML_NAMESPACE = "http://www.w3.org/1998/Math/MathML";
+    private static final XMLInputFactory XML_INPUT_FACTORY = createInputFactory();
+
+    /**
+     * XPath objects are not thread safe, so each thread compiles the expressions of
+     * {@link #parseWithXpath(String, boolean, boolean)} once: msub elements, the text nodes of their children and all
+     * mi text nodes outside of msub elements.
+     */
+    private static final ThreadLocal<XPathExpression[]> XPATH_EXPRESSIONS = ThreadLocal.withInitial(() -> {
+        XPath xpath = XMLHelper.namespaceAwareXpath("m", MATHML_NAMESPACE);
+        try {
+            return new XPathExpression[]{
+                    xpath.compile("//m:msub"),
+                    xpath.compile("*[normalize-space()]/text()"),
+                    xpath.compile("//m:mi[not(ancestor::m:msub)]/text()")
+            };
+        } catch (XPathExpressionException e) {
+            throw new IllegalStateException(e);
+        }
+    });
 
     /**
      * list of false positive identifiers
@@ -111,6 +140,15 @@ public class MathMLUtils {
         return builder.build();
     }
 
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
     private static List<String> listOfStrings(char from, int amount) {
         List<String> result = Lists.newArrayListWithCapacity(amount);
         for (char c = from; c < from + amount; c++) {
@@ -139,18 +177,7 @@ public class MathMLUtils {
     public static Multiset<String> extractIdentifiersFromTex(String tex, boolean useTeX, String url) {
         if (useTeX) {
             try {
-                Multiset<String> identifiers = TexInfo.getIdentifiers(tex, url);
-                //TODO: Migrate to texvcinfo
-                identifiers.removeIf(x -> x.equals("\\infty") || x.startsWith("\\operatorname"));
-                if (summarizeSubscripts) {
-                    for (String identifier : identifiers.elementSet()) {
-                        if (identifier.matches("(.*?)_\\{[a-zA-Z0-9]\\}$")) {
-                            identifiers.remove(identifier, Integer.MAX_VALUE);
-                            identifiers.add(identifier.replaceAll("(.*?)_\\{[a-zA-Z0-9]\\}$", "$1_"));
-                        }
-                    }
-                }
-                return identifiers;
+                return filterTexvcinfoIdentifiers(TexInfo.getIdentifiers(tex, url));
 
             } catch (XPathExpressionException | ParserConfigurationException | IOException | SAXException | TransformerException e) {
                 e.printStackTrace();
@@ -162,87 +189,206 @@ public class MathMLUtils {
         return extractIdentifiersFromMathML(mathML, false, false);
     }
 
+    /**
+     * Removes the identifiers reported by texvcinfo that are not used as identifiers in MLP.
+     *
+     * @param identifiers the identifiers returned by texvcinfo, modified in place
+     * @return identifiers
+     */
+    public static Multiset<String> filterTexvcinfoIdentifiers(Multiset<String> identifiers) {
+        //TODO: Migrate to texvcinfo
+        identifiers.removeIf(x -> x.equals("\\infty") || x.startsWith("\\operatorname"));
+        if (summarizeSubscripts) {
+            for (String identifier : identifiers.elementSet()) {
+                if (identifier.matches("(.*?)_\\{[a-zA-Z0-9]\\}$")) {
+                    identifiers.remove(identifier, Integer.MAX_VALUE);
+                    identifiers.add(identifier.replaceAll("(.*?)_\\{[a-zA-Z0-9]\\}$", "$1_"));
+                }
+            }
+        }
+        return identifiers;
+    }
+
     public static Multiset<String> extractIdentifiersFromMathML(String mathML, Boolean useTeXIdentifiers, boolean useBlacklist) {
         try {
-            return tryParseWithXpath(mathML, useTeXIdentifiers, useBlacklist);
+            return parseWithStax(mathML, useTeXIdentifiers, useBlacklist);
         } catch (Exception e) {
-            LOGGER.warn("exception occurred while trying to parse mathML with xpath... "
+            LOGGER.warn("exception occurred while trying to parse mathML with stax... "
                     + "backing off to the regexp parser.", e);
             return parseWithRegex(mathML);
         }
     }
 
-    private static Multiset<String> tryParseWithXpath(String mathML, boolean useTeX, boolean useBlacklist) {
+    /**
+     * Collects the identifiers in a single pass over the MathML without building a DOM. The result is the same as
+     * the one of {@link #parseWithXpath(String, boolean, boolean)}:
+     * <ul>
+     * <li>an msub whose children contain exactly two non-whitespace text nodes is the identifier id_sub,</li>
+     * <li>every non-whitespace text node of an mi that is not inside an msub is an identifier.</li>
+     * </ul>
+     * Only presentation MathML is considered, ci elements of content MathML would count the identifiers of parallel
+     * markup twice.
+     */
+    public static Multiset<String> parseWithStax(String mathML, boolean useTeX, boolean useBlacklist) throws XMLStreamException {
+        final Multiset<String> result = HashMultiset.create();
+        final XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(new StringReader(mathML));
+        try {
+            // the open elements, null for elements outside of the MathML namespace
+            final ArrayDeque<String> elements = new ArrayDeque<>();
+            // the non-whitespace text nodes of the children of the open msub elements
+            final ArrayDeque<List<String>> msubTexts = new ArrayDeque<>();
+            final StringBuilder text = new StringBuilder();
+            while (reader.hasNext()) {
+                final int event = reader.next();
+                switch (event) {
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.CDATA:
+                    case XMLStreamConstants.SPACE:
+                        text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                        break;
+                    case XMLStreamConstants.START_ELEMENT:
+                        textNode(text, elements, msubTexts, result, useTeX, useBlacklist);
+                        final String namespace = reader.getNamespaceURI();
+                        final String name = namespace == null || namespace.isEmpty() || MATHML_NAMESPACE.equals(namespace)
+                                ? reader.getLocalName() : null;
+                        elements.push(name == null ? "" : name);
+                        if ("msub".equals(name)) {
+                            msubTexts.push(new ArrayList<>(2));
+                        }
+                        break;
+                    case XMLStreamConstants.END_ELEMENT:
+                        textNode(text, elements, msubTexts, result, useTeX, useBlacklist);
+                        if ("msub".equals(elements.pop())) {
+                            addSubscripted(msubTexts.pop(), result, useTeX, useBlacklist);
+                        }
+                        break;
+                    case XMLStreamConstants.COMMENT:
+                    case XMLStreamConstants.PROCESSING_INSTRUCTION:
+                        textNode(text, elements, msubTexts, result, useTeX, useBlacklist);
+                        break;
+                    case XMLStreamConstants.ENTITY_REFERENCE:
+                        throw new XMLStreamException("undeclared entity " + reader.getLocalName(), reader.getLocation());
+                    default:
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return result;
+    }
+
+    /**
+     * Handles the text node that ends at the current event.
+     */
+    private static void textNode(StringBuilder text, ArrayDeque<String> elements, ArrayDeque<List<String>> msubTexts,
+                                 Multiset<String> result, boolean useTeX, boolean useBlacklist) {
+        if (text.length() == 0) {
+            return;
+        }
+        if (!isWhitespace(text) && !elements.isEmpty()) {
+            final String textNode = text.toString();
+            if (msubTexts.isEmpty()) {
+                if ("mi".equals(elements.peek())) {
+                    addIdentifier(textNode, result, useTeX, useBlacklist);
+                }
+            } else if (isMsubChild(elements)) {
+                msubTexts.peek().add(textNode);
+            }
+        }
+        text.setLength(0);
+    }
+
+    private static boolean isMsubChild(ArrayDeque<String> elements) {
+        final Iterator<String> it = elements.iterator();
+        it.next();
+        return it.hasNext() && "msub".equals(it.next());
+    }
+
+    private static boolean isWhitespace(CharSequence text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (!Character.isWhitespace(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void addSubscripted(List<String> texts, Multiset<String> result, boolean useTeX, boolean useBlacklist) {
+        if (texts.size() != 2) {
+            LOGGER.debug("unexpected msub input: {}", texts);
+            return;
+        }
+        String id;
+        String sub;
+        if (useTeX) {
+            id = UnicodeMap.string2TeX(texts.get(0));
+            sub = "{" + UnicodeMap.string2TeX(texts.get(1)) + "}";
+        } else {
+            id = UnicodeUtils.normalizeString(texts.get(0));
+            sub = UnicodeUtils.normalizeString(texts.get(1));
+        }
+        if (useBlacklist && BLACKLIST.contains(id)) {
+            return;
+        }
+        if (isNumeric(id)) {
+            return;
+        }
+        result.add(id + "_" + sub);
+    }
+
+    private static void addIdentifier(String rawId, Multiset<String> result, boolean useTeX, boolean useBlacklist) {
+        String id;
+        if (useTeX) {
+            id = UnicodeMap.string2TeX(rawId);
+            id = id.replaceAll("^\\{(.*)\\}$", "$1");
+        } else {
+            id = UnicodeUtils.normalizeString(rawId);
+        }
+        if (useBlacklist && BLACKLIST.contains(id)) {
+            return;
+        }
+        if (isNumeric(id)) {
+            return;
+        }
+        result.add(id);
+    }
+
+    /**
+     * Extracts the identifiers from the DOM of the MathML, the original implementation of
+     * {@link #parseWithStax(String, boolean, boolean)}.
+     */
+    public static Multiset<String> parseWithXpath(String mathML, boolean useTeX, boolean useBlacklist) {
         Document doc = XMLHelper.string2Doc(mathML, true);
 
         new XmlNamespaceTranslator()
-                .setDefaultNamespace( "http://www.w3.org/1998/Math/MathML" )
-                .addTranslation(null, "http://www.w3.org/1998/Math/MathML")
-                .addTranslation("m", "http://www.w3.org/1998/Math/MathML")
+                .setDefaultNamespace(MATHML_NAMESPACE)
+                .addTranslation(null, MATHML_NAMESPACE)
+                .addTranslation("m", MATHML_NAMESPACE)
                 .translateNamespaces( doc );
 
         Element root = doc.getDocumentElement();
-
-        NonWhitespaceNodeList list = null;
-
-        XPath xpath = XMLHelper.namespaceAwareXpath( "m", "http://www.w3.org/1998/Math/MathML" );
+        XPathExpression[] expressions = XPATH_EXPRESSIONS.get();
 
         try {
-            list = new NonWhitespaceNodeList(XMLHelper.getElementsB(root, xpath.compile("//m:msub")));
-            //List<XML> subscript = doc.get.nodes("//m:msub");
+            NonWhitespaceNodeList list = new NonWhitespaceNodeList(XMLHelper.getElementsB(root, expressions[0]));
             Multiset<String> result = HashMultiset.create();
 
             for (Node msubNode : list) {
-                NonWhitespaceNodeList nodeList = new NonWhitespaceNodeList(XMLHelper.getElementsB(msubNode, xpath.compile("*[normalize-space()]/text()")));
-
-
-                List<String> text;
+                NonWhitespaceNodeList nodeList = new NonWhitespaceNodeList(XMLHelper.getElementsB(msubNode, expressions[1]));
                 if (nodeList.getLength() != 2) {
                     String debugText = nodeList.toString().replaceAll("\\s+", " ");
                     String nmsubMathMl = msubNode.toString().replaceAll("\\s+", " ");
                     LOGGER.debug("unexpected input: {} for {}", debugText, nmsubMathMl);
                     continue;
                 }
-                String id;
-                String sub;
-                if (useTeX) {
-
-                    id = UnicodeMap.string2TeX(nodeList.item(0).getTextContent());
-                    sub = "{" + UnicodeMap.string2TeX(nodeList.item(1).getTextContent()) + "}";
-                } else {
-                    id = UnicodeUtils.normalizeString(nodeList.item(0).getTextContent());
-                    sub = UnicodeUtils.normalizeString(nodeList.item(1).getTextContent());
-                }
-                if (useBlacklist && BLACKLIST.contains(id)) {
-                    continue;
-                }
-                if (isNumeric(id)) {
-                    continue;
-                }
-                result.add(id + "_" + sub);
+                addSubscripted(Lists.newArrayList(nodeList.item(0).getTextContent(), nodeList.item(1).getTextContent()),
+                        result, useTeX, useBlacklist);
             }
 
             NonWhitespaceNodeList allIdentifiers =
-                    new NonWhitespaceNodeList(XMLHelper.getElementsB( root, xpath.compile("//m:mi[not(ancestor::m:msub)]/text()") ));
-
-            //List<String> allIdentifiers = xml.xpath("//m:mi[not(ancestor::m:msub)]/text()");
+                    new NonWhitespaceNodeList(XMLHelper.getElementsB(root, expressions[2]));
             for (Node identifierNode : allIdentifiers) {
-                String rawId = identifierNode.getTextContent();
-                String id;
-                if (useTeX) {
-                    id = UnicodeMap.string2TeX(rawId);
-                    id = id.replaceAll("^\\{(.*)\\}$", "$1");
-                } else {
-                    id = UnicodeUtils.normalizeString(rawId);
-                }
-                if (useBlacklist && BLACKLIST.contains(id)) {
-                    continue;
-                }
-                if (isNumeric(id)) {
-                    continue;
-                }
-
-                result.add(id);
+                addIdentifier(identifierNode.getTextContent(), result, useTeX, useBlacklist);
             }
 
             return result;
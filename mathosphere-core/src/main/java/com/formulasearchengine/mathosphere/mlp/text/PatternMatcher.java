@@ -5,71 +5,259 @@ import com.formulasearchengine.mathosphere.mlp.pojos.ParsedWikiDocument;
 import com.formulasearchengine.mathosphere.mlp.pojos.WikidataLink;
 import com.formulasearchengine.mathosphere.mlp.pojos.Word;
 
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
 
 import static com.formulasearchengine.mathosphere.mlp.text.WikiTextUtils.deLinkify;
 
+/**
+ * Finds identifier-definiens pairs with nine fixed definition patterns, e.g. "identifier is the definiens" or "let
+ * identifier be definiens". The patterns are compiled into one trie over word roles, such as identifier, noun or
+ * "denoted", so that all patterns are matched in a single left-to-right pass over a sentence. Like
+ * {@link Pattern#find(List)}, the matches of each pattern do not overlap.
+ */
 public class PatternMatcher {
-  private List<Pattern<Word>> patterns;
 
-  public PatternMatcher(List<Pattern<Word>> patterns) {
-    this.patterns = patterns;
+  private static final int IDENTIFIER = 0;
+  private static final int DEFINITION = 1;
+  private static final int IS_OR_ARE = 2;
+  private static final int LET = 3;
+  private static final int BE = 4;
+  private static final int BY = 5;
+  private static final int DENOTES = 6;
+  private static final int DENOTED = 7;
+  private static final int THE = 8;
+  private static final int ROLES = 9;
+
+  /**
+   * The patterns as sequences of word roles, the index is the position of {@link IdentifierMatch}.
+   */
+  private static final int[][] PATTERNS = {
+    //0
+    {DEFINITION, IDENTIFIER},
+    //1
+    {IDENTIFIER, DEFINITION},
+    //2
+    {IDENTIFIER, IS_OR_ARE, DEFINITION},
+    //3
+    {IDENTIFIER, IS_OR_ARE, THE, DEFINITION},
+    //4
+    {LET, IDENTIFIER, BE, DEFINITION},
+    //5
+    {LET, IDENTIFIER, BE, THE, DEFINITION},
+    //6
+    {DEFINITION, IS_OR_ARE, DENOTED, BY, IDENTIFIER},
+    //7
+    {IDENTIFIER, DENOTES, DEFINITION},
+    //8
+    {IDENTIFIER, DENOTES, THE, DEFINITION}
+  };
+
+  /**
+   * The POS tags matched by {@code (NN[PS]{0,2}|NP\+?|NN\+|LNK)}.
+   */
+  private static final Set<String> DEFINITION_TAGS = ImmutableSet.of("NN", "NNP", "NNS", "NNPP", "NNPS", "NNSP",
+    "NNSS", "NP", "NP+", "NN+", PosTag.LINK);
+
+  private static final Trie TRIE = new Trie(PATTERNS);
+
+  private final Set<String> identifiers;
+
+  private PatternMatcher(Set<String> identifiers) {
+    this.identifiers = identifiers;
   }
 
   public List<IdentifierMatch> match(List<Word> words, ParsedWikiDocument doc) {
+    // active trie nodes with the start, identifier and definiens positions of their partial matches
+    int[] nodes = new int[8];
+    int[] starts = new int[8];
+    int[] identifierPositions = new int[8];
+    int[] definitionPositions = new int[8];
+    int active = 0;
+    int[] nextNodes = new int[8];
+    int[] nextStarts = new int[8];
+    int[] nextIdentifierPositions = new int[8];
+    int[] nextDefinitionPositions = new int[8];
+
+    final int[] matchEnds = new int[PATTERNS.length];
+    final List<List<IdentifierMatch>> matches = new ArrayList<>(PATTERNS.length);
+    for (int i = 0; i < PATTERNS.length; i++) {
+      matches.add(null);
+    }
+
+    for (int position = 0; position < words.size(); position++) {
+      final int roles = roles(words.get(position));
+      // a partial match may start at every word
+      nodes[active] = Trie.ROOT;
+      starts[active] = position;
+      identifierPositions[active] = -1;
+      definitionPositions[active] = -1;
+      active++;
+
+      int nextActive = 0;
+      for (int t = 0; t < active; t++) {
+        final int node = nodes[t];
+        for (int role = 0; role < ROLES; role++) {
+          final int next = TRIE.next[node][role];
+          if (next < 0 || (roles & (1 << role)) == 0) {
+            continue;
+          }
+          final int identifierPosition = role == IDENTIFIER ? position : identifierPositions[t];
+          final int definitionPosition = role == DEFINITION ? position : definitionPositions[t];
+          final int pattern = TRIE.pattern[next];
+          if (pattern >= 0 && starts[t] >= matchEnds[pattern]) {
+            matchEnds[pattern] = position + 1;
+            if (matches.get(pattern) == null) {
+              matches.set(pattern, new ArrayList<>());
+            }
+            matches.get(pattern).add(new IdentifierMatch(words.get(identifierPosition).getWord(),
+              deLinkify(words.get(definitionPosition), doc), pattern));
+          }
+          if (TRIE.hasChildren[next]) {
+            if (nextActive == nextNodes.length) {
+              nextNodes = Arrays.copyOf(nextNodes, 2 * nextActive);
+              nextStarts = Arrays.copyOf(nextStarts, 2 * nextActive);
+              nextIdentifierPositions = Arrays.copyOf(nextIdentifierPositions, 2 * nextActive);
+              nextDefinitionPositions = Arrays.copyOf(nextDefinitionPositions, 2 * nextActive);
+            }
+            nextNodes[nextActive] = next;
+            nextStarts[nextActive] = starts[t];
+            nextIdentifierPositions[nextActive] = identifierPosition;
+            nextDefinitionPositions[nextActive] = definitionPosition;
+            nextActive++;
+          }
+        }
+      }
+
+      int[] swap = nodes;
+      nodes = nextNodes;
+      nextNodes = swap;
+      swap = starts;
+      starts = nextStarts;
+      nextStarts = swap;
+      swap = identifierPositions;
+      identifierPositions = nextIdentifierPositions;
+      nextIdentifierPositions = swap;
+      swap = definitionPositions;
+      definitionPositions = nextDefinitionPositions;
+      nextDefinitionPositions = swap;
+      active = nextActive;
+      if (active == nodes.length) {
+        nodes = Arrays.copyOf(nodes, 2 * active);
+        starts = Arrays.copyOf(starts, 2 * active);
+        identifierPositions = Arrays.copyOf(identifierPositions, 2 * active);
+        definitionPositions = Arrays.copyOf(definitionPositions, 2 * active);
+      }
+    }
+
+    // ordered by pattern and position, as if the patterns were matched one after another
     List<IdentifierMatch> result = Lists.newArrayList();
-    for (int i = 0; i < patterns.size(); i++) {
-      Pattern<Word> pattern = patterns.get(i);
-      List<Match<Word>> matches = pattern.find(words);
-      for (Match<Word> match : matches) {
-        String id = match.getVariable("identifier").getWord();
-        String def = deLinkify(match.getVariable("definition"), doc);
-        int position = i;
-        result.add(new IdentifierMatch(id, def, position));
+    for (List<IdentifierMatch> patternMatches : matches) {
+      if (patternMatches != null) {
+        result.addAll(patternMatches);
       }
     }
     return result;
   }
 
+  /**
+   * @return the bit set of the roles of the word
+   */
+  private int roles(Word w) {
+    final String word = w.getWord();
+    int roles = 0;
+    if (identifiers.contains(word)) {
+      roles |= 1 << IDENTIFIER;
+    }
+    final String pos = w.getPosTag();
+    if (pos != null) {
+      if (DEFINITION_TAGS.contains(pos)) {
+        roles |= 1 << DEFINITION;
+      } else if ("DT".equals(pos)) {
+        roles |= 1 << THE;
+      }
+    }
+    if (word != null) {
+      switch (word) {
+        case "is":
+        case "are":
+          roles |= 1 << IS_OR_ARE;
+          break;
+        case "let":
+          roles |= 1 << LET;
+          break;
+        case "be":
+          roles |= 1 << BE;
+          break;
+        case "by":
+          roles |= 1 << BY;
+          break;
+        case "denotes":
+        case "denote":
+          roles |= 1 << DENOTES;
+          break;
+        case "denoted":
+          roles |= 1 << DENOTED;
+          break;
+        default:
+      }
+    }
+    return roles;
+  }
+
   public static PatternMatcher generatePatterns(Set<String> identifiers) {
-    Matcher<Word> isOrAre = word("is").or(word("are"));
-    Matcher<Word> let = word("let");
-    Matcher<Word> be = word("be");
-    Matcher<Word> by = word("by");
-    Matcher<Word> denotes = word("denotes").or(word("denote"));
-    Matcher<Word> denoted = word("denoted");
-
-    Matcher<Word> the = pos("DT");
-
-    Matcher<Word> identifier = BeanMatchers.in(Word.class, "word", identifiers).captureAs("identifier");
-    Matcher<Word> definition = posRegExp("(NN[PS]{0,2}|NP\\+?|NN\\+|LNK)").captureAs("definition");
-
-    List<Pattern<Word>> patterns = Arrays.asList(
-      //0
-      Pattern.create(definition, identifier),
-      //1
-      Pattern.create(identifier, definition),
-      //2
-      Pattern.create(identifier, isOrAre, definition),
-      //3
-      Pattern.create(identifier, isOrAre, the, definition),
-      //4
-      Pattern.create(let, identifier, be, definition),
-      //5
-      Pattern.create(let, identifier, be, the, definition),
-      //6
-      Pattern.create(definition, isOrAre, denoted, by, identifier),
-      //7
-      Pattern.create(identifier, denotes, definition),
-      //8
-      Pattern.create(identifier, denotes, the, definition)
-    );
-    return new PatternMatcher(patterns);
+    return new PatternMatcher(identifiers);
+  }
 
+  /**
+   * Trie of the role sequences of the patterns. Since the patterns share their prefixes, a word is compared only
+   * once for all patterns.
+   */
+  private static final class Trie {
+    static final int ROOT = 0;
+
+    final int[][] next;
+    final int[] pattern;
+    final boolean[] hasChildren;
+
+    Trie(int[][] patterns) {
+      final List<int[]> transitions = new ArrayList<>();
+      final List<Integer> accepting = new ArrayList<>();
+      transitions.add(newNode());
+      accepting.add(-1);
+      for (int p = 0; p < patterns.length; p++) {
+        int node = ROOT;
+        for (int role : patterns[p]) {
+          if (transitions.get(node)[role] < 0) {
+            transitions.get(node)[role] = transitions.size();
+            transitions.add(newNode());
+            accepting.add(-1);
+          }
+          node = transitions.get(node)[role];
+        }
+        accepting.set(node, p);
+      }
+      next = transitions.toArray(new int[transitions.size()][]);
+      pattern = new int[next.length];
+      hasChildren = new boolean[next.length];
+      for (int node = 0; node < next.length; node++) {
+        pattern[node] = accepting.get(node);
+        for (int child : next[node]) {
+          hasChildren[node] |= child >= 0;
+        }
+      }
+    }
+
+    private static int[] newNode() {
+      final int[] node = new int[ROLES];
+      Arrays.fill(node, -1);
+      return node;
+    }
   }
 
   public static XMatcher<Word> word(String word) {
@@ -16,10 +16,8 @@
  */
 package com.formulasearchengine.mathosphere.mlp.text;
 
-import org.apache.commons.lang3.text.translate.AggregateTranslator;
-import org.apache.commons.lang3.text.translate.CharSequenceTranslator;
-import org.apache.commons.lang3.text.translate.EntityArrays;
-import org.apache.commons.lang3.text.translate.LookupTranslator;
+import com.formulasearchengine.mathosphere.utils.HtmlEntityDecoder;
+
 import org.eclipse.mylyn.wikitext.core.parser.Attributes;
 import org.eclipse.mylyn.wikitext.core.parser.builder.NoOpDocumentBuilder;
 
@@ -233,14 +231,9 @@ public class PlaintextDocumentBuilder extends NoOpDocumentBuilder {
     writer.append(text);
   }
 
-  private static final CharSequenceTranslator TRANSLATOR = new AggregateTranslator(
-      new LookupTranslator(EntityArrays.ISO8859_1_UNESCAPE()),
-      new LookupTranslator(EntityArrays.BASIC_UNESCAPE()),
-      new LookupTranslator(EntityArrays.HTML40_EXTENDED_UNESCAPE()));
-
   @Override
   public void entityReference(String entity) {
-    String translatedEntity = TRANSLATOR.translate('&' + entity + ';');
+    String translatedEntity = HtmlEntityDecoder.decode('&' + entity + ';');
     writer.append(translatedEntity);
   }
 
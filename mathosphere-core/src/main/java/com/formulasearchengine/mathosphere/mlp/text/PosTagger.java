@@ -24,10 +24,15 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
 
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.stream.Collectors;
 
 import edu.stanford.nlp.ling.CoreAnnotations.PartOfSpeechAnnotation;
@@ -36,12 +41,21 @@ import edu.stanford.nlp.ling.CoreAnnotations.TextAnnotation;
 import edu.stanford.nlp.ling.CoreAnnotations.TokensAnnotation;
 import edu.stanford.nlp.ling.CoreLabel;
 import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.pipeline.Annotator;
 import edu.stanford.nlp.pipeline.POSTaggerAnnotator;
 import edu.stanford.nlp.pipeline.StanfordCoreNLP;
 import edu.stanford.nlp.util.CoreMap;
 
-public class PosTagger {
-  private static BaseConfig config;
+/**
+ * Tokenizes, splits and POS tags the plain text of a document. The CoreNLP pipelines, in particular the loaded tagger
+ * models, are shared by all taggers of the JVM that use the same language and model, so the task slots of a
+ * TaskManager load a model only once. A pipeline is released when the last tagger using it is {@link #close() closed}.
+ * <p>
+ * With {@link BaseConfig#getPosThreads()} greater than one, the sentences of large documents are tagged in batches of
+ * {@link #BATCH_SIZE} sentences on a fork-join pool of that many threads. The pool is shared by the taggers of the
+ * pipeline that use the same number of threads.
+ */
+public class PosTagger implements Closeable {
 
   private static final Logger LOGGER = LogManager.getLogger(PosTagger.class.getName());
 
@@ -51,32 +65,138 @@ public class PosTagger {
     .put("-LRB-", "(").put("-RRB-", ")").put("-LCB-", "{").put("-RCB-", "}").put("-LSB-", "[")
     .put("-RSB-", "]").build();
 
+  /**
+   * number of sentences that are tagged by one task, documents with fewer sentences are tagged sequentially
+   */
+  static final int BATCH_SIZE = 32;
+
+  /**
+   * the shared pipelines by language and model
+   */
+  private static final Map<String, SharedPipeline> PIPELINES = new HashMap<>();
+
+  private static final class SharedPipeline {
+    final StanfordCoreNLP splitter;
+    final Annotator posAnnotator;
+    /**
+     * the pools for the sentence batches by their number of threads
+     */
+    final Map<Integer, ForkJoinPool> pools = new HashMap<>();
+    int references = 0;
+
+    SharedPipeline(StanfordCoreNLP splitter, Annotator posAnnotator) {
+      this.splitter = splitter;
+      this.posAnnotator = posAnnotator;
+    }
+  }
+
+  /**
+   * @return a tagger that uses the shared pipeline for the language and model of cfg, which is created if needed
+   */
   public static PosTagger create(BaseConfig cfg) {
-    config = cfg;
+    final String key;
+    if ("en".equals(cfg.getLanguage())) {
+      key = "en:" + cfg.getModel();
+    } else if ("ru".equals(cfg.getLanguage())) {
+      key = "ru";
+    } else {
+      throw new IllegalArgumentException("Cannot deal with language " + cfg.getLanguage());
+    }
+    synchronized (PIPELINES) {
+      SharedPipeline shared = PIPELINES.get(key);
+      if (shared == null) {
+        LOGGER.info("loading pipeline {}", key);
+        shared = new SharedPipeline(createSplitter(), createPosAnnotator(cfg));
+        PIPELINES.put(key, shared);
+      }
+      final ForkJoinPool pool = cfg.getPosThreads() > 1
+        ? shared.pools.computeIfAbsent(cfg.getPosThreads(), ForkJoinPool::new) : null;
+      shared.references++;
+      return new PosTagger(shared.splitter, shared.posAnnotator, pool, cfg, key);
+    }
+  }
+
+  private static StanfordCoreNLP createSplitter() {
     Properties props = new Properties();
     props.put("annotators", "tokenize, ssplit");
     props.put("tokenize.options", "untokenizable=firstKeep,strictTreebank3=true,"
       + "ptb3Escaping=true,escapeForwardSlashAsterisk=false");
     props.put("ssplit.newlineIsSentenceBreak", "two");
     props.put("maxLength", 50);
-    StanfordCoreNLP pipeline = new StanfordCoreNLP(props);
+    return new StanfordCoreNLP(props);
+  }
 
+  private static Annotator createPosAnnotator(BaseConfig cfg) {
     if ("en".equals(cfg.getLanguage())) {
-      POSTaggerAnnotator modelBasedPosAnnotator = new POSTaggerAnnotator(config.getModel(), false);
-      pipeline.addAnnotator(modelBasedPosAnnotator);
-    } else if ("ru".equals(cfg.getLanguage())) {
-      pipeline.addAnnotator(new RusPosAnnotator());
+      return new POSTaggerAnnotator(cfg.getModel(), false);
     } else {
-      throw new IllegalArgumentException("Cannot deal with language " + config.getLanguage());
+      return new RusPosAnnotator();
     }
+  }
 
-    return new PosTagger(pipeline);
+  /**
+   * @return the number of pipelines that are currently loaded
+   */
+  static int getPipelineCount() {
+    synchronized (PIPELINES) {
+      return PIPELINES.size();
+    }
+  }
+
+  private final StanfordCoreNLP splitter;
+  private final Annotator posAnnotator;
+  /**
+   * pool for the sentence batches, null to tag sequentially
+   */
+  private final ForkJoinPool pool;
+  private final BaseConfig config;
+  /**
+   * key of the shared pipeline, null if the pipeline is not shared or the tagger is closed
+   */
+  private String pipelineKey;
+
+  /**
+   * @param splitter     pipeline that tokenizes and splits the sentences
+   * @param posAnnotator annotator that sets the POS tags of the tokens
+   * @param pool         pool to tag large documents in parallel, null to tag sequentially
+   */
+  public PosTagger(StanfordCoreNLP splitter, Annotator posAnnotator, ForkJoinPool pool, BaseConfig config) {
+    this(splitter, posAnnotator, pool, config, null);
   }
 
-  private final StanfordCoreNLP nlpPipeline;
+  private PosTagger(StanfordCoreNLP splitter, Annotator posAnnotator, ForkJoinPool pool, BaseConfig config,
+                    String pipelineKey) {
+    this.splitter = splitter;
+    this.posAnnotator = posAnnotator;
+    this.pool = pool;
+    this.config = config;
+    this.pipelineKey = pipelineKey;
+  }
 
-  public PosTagger(StanfordCoreNLP nlpPipeline) {
-    this.nlpPipeline = nlpPipeline;
+  /**
+   * Releases the shared pipeline. It is unloaded if no other tagger uses it.
+   */
+  @Override
+  public void close() {
+    synchronized (PIPELINES) {
+      if (pipelineKey == null) {
+        return;
+      }
+      final SharedPipeline shared = PIPELINES.get(pipelineKey);
+      if (shared != null && --shared.references == 0) {
+        LOGGER.info("unloading pipeline {}", pipelineKey);
+        PIPELINES.remove(pipelineKey);
+        shared.pools.values().forEach(ForkJoinPool::shutdown);
+      }
+      pipelineKey = null;
+    }
+  }
+
+  /**
+   * @return the pool for the sentence batches, null if the sentences are tagged sequentially
+   */
+  ForkJoinPool getPool() {
+    return pool;
   }
 
   public List<Sentence> process(String cleanText, List<MathTag> formulas) {
@@ -100,7 +220,8 @@ public class PosTagger {
   public List<List<Word>> annotate(String cleanText, Map<String, MathTag> formulas,
                                    Set<String> allIdentifiers) {
     Annotation document = new Annotation(cleanText);
-    nlpPipeline.annotate(document);
+    splitter.annotate(document);
+    tag(document);
 
     List<List<Word>> result = Lists.newArrayList();
     for (CoreMap sentence : document.get(SentencesAnnotation.class)) {
@@ -128,7 +249,31 @@ public class PosTagger {
     return result;
   }
 
-  public static List<Sentence> postprocess(List<List<Word>> input, Map<String, MathTag> formulaIndex,
+  /**
+   * Sets the POS tags of the split document. Batches of sentences are tagged in parallel if a pool is configured and
+   * the document has more than one batch. The tokens of the sentences are annotated in place, so the order of the
+   * sentences is kept.
+   */
+  private void tag(Annotation document) {
+    final List<CoreMap> sentences = document.get(SentencesAnnotation.class);
+    if (pool == null || sentences.size() <= BATCH_SIZE) {
+      posAnnotator.annotate(document);
+      return;
+    }
+    final List<ForkJoinTask<?>> tasks = new ArrayList<>();
+    for (int from = 0; from < sentences.size(); from += BATCH_SIZE) {
+      final List<CoreMap> batch = sentences.subList(from, Math.min(from + BATCH_SIZE, sentences.size()));
+      final List<CoreLabel> tokens = new ArrayList<>();
+      batch.forEach(sentence -> tokens.addAll(sentence.get(TokensAnnotation.class)));
+      final Annotation annotation = new Annotation("");
+      annotation.set(SentencesAnnotation.class, batch);
+      annotation.set(TokensAnnotation.class, tokens);
+      tasks.add(pool.submit(() -> posAnnotator.annotate(annotation)));
+    }
+    tasks.forEach(ForkJoinTask::join);
+  }
+
+  public List<Sentence> postprocess(List<List<Word>> input, Map<String, MathTag> formulaIndex,
                                            Set<String> allIdentifiers) {
     List<Sentence> result = Lists.newArrayListWithCapacity(input.size());
 
@@ -140,7 +285,7 @@ public class PosTagger {
     return result;
   }
 
-  public static Sentence toSentence(List<Word> input, Map<String, MathTag> formulaIndex,
+  public Sentence toSentence(List<Word> input, Map<String, MathTag> formulaIndex,
                                     Set<String> allIdentifiers) {
     List<Word> words = Lists.newArrayListWithCapacity(input.size());
     Set<String> sentenceIdentifiers = Sets.newHashSet();
@@ -196,7 +341,7 @@ public class PosTagger {
     return new Sentence(words, sentenceIdentifiers, formulas);
   }
 
-  public static List<List<Word>> concatenateTags(List<List<Word>> sentences, Set<String> allIdentifiers) {
+  public List<List<Word>> concatenateTags(List<List<Word>> sentences, Set<String> allIdentifiers) {
     List<List<Word>> results = Lists.newArrayListWithCapacity(sentences.size());
 
     for (List<Word> sentence : sentences) {
@@ -207,7 +352,7 @@ public class PosTagger {
     return results;
   }
 
-  private static List<Word> postprocessSentence(List<Word> sentence, Set<String> allIdentifiers) {
+  private List<Word> postprocessSentence(List<Word> sentence, Set<String> allIdentifiers) {
     // links
     List<Word> result;
     if (config.getUseTeXIdentifiers()) {
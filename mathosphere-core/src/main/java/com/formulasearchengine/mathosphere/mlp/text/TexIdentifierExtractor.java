@@ -0,0 +1,460 @@
+package com.formulasearchengine.mathosphere.mlp.text;
+
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Multiset;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * In-process replacement for the identifier extraction of the texvcinfo service. The TeX input is tokenized and
+ * parsed into a small tree of groups, scripts and commands and the identifiers are collected in the notation of
+ * texvcinfo:
+ * <ul>
+ * <li>latin letters and greek letters like {@code \alpha} are identifiers, numbers, operators and functions like
+ * {@code \sin} are not,</li>
+ * <li>an identifier with a subscript, but without superscript, is one identifier. The identifiers of the subscript
+ * are joined by commas, e.g. {@code r_{ij}} yields {@code r_{i,j}} and {@code \theta_{k-1}} yields
+ * {@code \theta_{k}}. A subscript without identifiers is kept only if it is a number, e.g. {@code x_1} yields
+ * {@code x_{1}} but {@code h_{-2}} yields {@code h},</li>
+ * <li>with a superscript, base, subscript and superscript are separate, e.g. {@code \sigma_y^2} yields
+ * {@code \sigma} and {@code y},</li>
+ * <li>font and accent commands applied to a single identifier are kept, e.g. {@code \mathbf{x}} or
+ * {@code \hat{\sigma}},</li>
+ * <li>primes are kept, e.g. {@code S'},</li>
+ * <li>text boxes yield the command and their text, e.g. {@code \text{Ker}} yields {@code \text} and {@code Ker}
+ * and {@code E_\text{k}} yields {@code E_{\text,k}}.</li>
+ * </ul>
+ * Like texvcinfo, {@code \infty} and {@code \operatorname{...}} are reported as identifiers and removed later by
+ * {@link MathMLUtils#filterTexvcinfoIdentifiers(Multiset)}.
+ * <p>
+ * The extractor is used instead of the service if the texvcinfo url is {@link #LOCAL}.
+ */
+public final class TexIdentifierExtractor {
+
+  /**
+   * Value of the texvcinfo url that selects this extractor.
+   */
+  public static final String LOCAL = "local";
+
+  private static final Set<String> LETTERS = ImmutableSet.of(
+    "alpha", "beta", "gamma", "delta", "epsilon", "varepsilon", "zeta", "eta", "theta", "vartheta", "iota", "kappa",
+    "varkappa", "lambda", "mu", "nu", "xi", "omicron", "pi", "varpi", "rho", "varrho", "sigma", "varsigma", "tau",
+    "upsilon", "phi", "varphi", "chi", "psi", "omega", "Gamma", "Delta", "Theta", "Lambda", "Xi", "Pi", "Sigma",
+    "Upsilon", "Phi", "Psi", "Omega", "varGamma", "varDelta", "varTheta", "varLambda", "varXi", "varPi", "varSigma",
+    "varUpsilon", "varPhi", "varPsi", "varOmega", "ell", "hbar", "imath", "jmath", "aleph", "beth", "wp", "infty");
+  private static final Set<String> FONTS = ImmutableSet.of(
+    "mathbf", "mathrm", "mathit", "mathcal", "mathbb", "mathfrak", "mathsf", "mathtt", "mathscr", "boldsymbol", "bm",
+    "pmb", "hat", "widehat", "bar", "overline", "underline", "dot", "ddot", "dddot", "tilde", "widetilde", "vec",
+    "check", "breve", "acute", "grave", "mathring");
+  private static final Set<String> BOXES = ImmutableSet.of(
+    "text", "mbox", "textrm", "textit", "textbf", "textsf", "texttt", "hbox");
+  private static final Set<String> IGNORED_ARGUMENT = ImmutableSet.of(
+    "mathop", "label", "tag", "phantom", "hphantom", "vphantom", "color");
+  private static final Set<String> TWO_ARGUMENTS = ImmutableSet.of(
+    "frac", "dfrac", "tfrac", "cfrac", "binom", "dbinom", "tbinom", "overset", "underset", "stackrel");
+  private static final Set<String> ONE_ARGUMENT = ImmutableSet.of("sqrt", "overbrace", "underbrace", "boxed");
+  private static final Set<String> DELIMITER_PREFIXES = ImmutableSet.of(
+    "left", "right", "middle", "big", "Big", "bigg", "Bigg", "bigl", "bigr", "Bigl", "Bigr", "biggl", "biggr",
+    "Biggl", "Biggr");
+
+  private final String tex;
+  private final List<Token> tokens;
+  private int pos;
+
+  private TexIdentifierExtractor(String tex) {
+    this.tex = tex;
+    this.tokens = tokenize(tex);
+  }
+
+  /**
+   * @param tex the TeX input without math tags
+   * @return the identifiers of tex, one entry per occurrence
+   */
+  public static Multiset<String> getIdentifiers(String tex) {
+    final Multiset<String> identifiers = HashMultiset.create();
+    final TexIdentifierExtractor extractor = new TexIdentifierExtractor(tex);
+    final Node root = new Node(Kind.GROUP, null);
+    root.children = extractor.parseList();
+    while (extractor.peek() != null) {
+      // an unmatched closing brace, ignore it and go on with the rest of the formula
+      extractor.pos++;
+      root.children.addAll(extractor.parseList());
+    }
+    root.collect(identifiers);
+    return identifiers;
+  }
+
+  // =========================================================================
+  // tokenizer
+
+  private enum TokenType {
+    COMMAND, LETTER, DIGIT, CHAR
+  }
+
+  private static final class Token {
+    final TokenType type;
+    /**
+     * command name without backslash or the character
+     */
+    final String text;
+    final int start;
+    final int end;
+
+    Token(TokenType type, String text, int start, int end) {
+      this.type = type;
+      this.text = text;
+      this.start = start;
+      this.end = end;
+    }
+
+    boolean is(char c) {
+      return type == TokenType.CHAR && text.charAt(0) == c;
+    }
+  }
+
+  private static List<Token> tokenize(String tex) {
+    final List<Token> tokens = new ArrayList<>();
+    final int length = tex.length();
+    int i = 0;
+    while (i < length) {
+      final char c = tex.charAt(i);
+      final int start = i;
+      if (Character.isWhitespace(c)) {
+        i++;
+      } else if (c == '\\' && i + 1 < length) {
+        i++;
+        if (isAsciiLetter(tex.charAt(i))) {
+          while (i < length && isAsciiLetter(tex.charAt(i))) {
+            i++;
+          }
+        } else {
+          i++;
+        }
+        tokens.add(new Token(TokenType.COMMAND, tex.substring(start + 1, i), start, i));
+      } else if (isAsciiLetter(c)) {
+        tokens.add(new Token(TokenType.LETTER, String.valueOf(c), start, ++i));
+      } else if (c >= '0' && c <= '9') {
+        tokens.add(new Token(TokenType.DIGIT, String.valueOf(c), start, ++i));
+      } else {
+        tokens.add(new Token(TokenType.CHAR, String.valueOf(c), start, ++i));
+      }
+    }
+    return tokens;
+  }
+
+  private static boolean isAsciiLetter(char c) {
+    return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+  }
+
+  // =========================================================================
+  // parser
+
+  private enum Kind {
+    /**
+     * a candidate identifier, text is its rendering
+     */
+    IDENTIFIER,
+    /**
+     * braces or the whole formula
+     */
+    GROUP,
+    /**
+     * base with sub- and/or superscript
+     */
+    SCRIPT,
+    /**
+     * font or accent command with one argument
+     */
+    FONT,
+    /**
+     * command whose arguments contain identifiers, e.g. \frac
+     */
+    FUNCTION,
+    /**
+     * everything else, e.g. digits, operators and relations
+     */
+    OTHER
+  }
+
+  private static final class Node {
+    final Kind kind;
+    String text;
+    List<Node> children = new ArrayList<>();
+    Node base;
+    Node sub;
+    Node sup;
+
+    Node(Kind kind, String text) {
+      this.kind = kind;
+      this.text = text;
+    }
+
+    void collect(Collection<String> out) {
+      switch (kind) {
+        case IDENTIFIER:
+          out.add(text);
+          break;
+        case GROUP:
+        case FUNCTION:
+          for (Node child : children) {
+            child.collect(out);
+          }
+          break;
+        case SCRIPT:
+          final String identifier = single();
+          if (identifier != null) {
+            out.add(identifier);
+          } else {
+            base.collect(out);
+            if (sub != null) {
+              sub.collect(out);
+            }
+          }
+          if (sup != null) {
+            sup.collect(out);
+          }
+          break;
+        case FONT:
+          final String font = single();
+          if (font != null) {
+            out.add(font);
+          } else {
+            children.get(0).collect(out);
+          }
+          break;
+        default:
+      }
+    }
+
+    /**
+     * @return the rendering if this node is a single identifier, null otherwise
+     */
+    String single() {
+      switch (kind) {
+        case IDENTIFIER:
+          return text;
+        case GROUP:
+          return children.size() == 1 ? children.get(0).single() : null;
+        case SCRIPT:
+          if (sub == null || sup != null) {
+            return null;
+          }
+          final String b = base.single();
+          final String s = sub.subscript();
+          return b == null || s == null ? null : b + "_{" + s + "}";
+        case FONT:
+          final Node argument = children.get(0);
+          String inner = argument.single();
+          if (inner == null) {
+            inner = argument.word();
+          }
+          return inner == null ? null : "\\" + text + "{" + inner + "}";
+        default:
+          return null;
+      }
+    }
+
+    /**
+     * @return the letters of a group that consists of letters only, e.g. the argument of \mathrm{rpm}
+     */
+    String word() {
+      if (kind != Kind.GROUP || children.isEmpty()) {
+        return null;
+      }
+      final StringBuilder sb = new StringBuilder();
+      for (Node child : children) {
+        if (child.kind != Kind.IDENTIFIER || child.text.length() != 1) {
+          return null;
+        }
+        sb.append(child.text);
+      }
+      return sb.toString();
+    }
+
+    /**
+     * @return the rendering if this node is a subscript that belongs to the identifier, i.e. its identifiers
+     * separated by commas or a number, null otherwise
+     */
+    String subscript() {
+      final List<String> identifiers = new ArrayList<>();
+      collect(identifiers);
+      if (!identifiers.isEmpty()) {
+        return String.join(",", identifiers);
+      }
+      final StringBuilder number = new StringBuilder();
+      return appendDigits(number) && number.length() > 0 ? number.toString() : null;
+    }
+
+    private boolean appendDigits(StringBuilder sb) {
+      if (kind == Kind.GROUP) {
+        for (Node child : children) {
+          if (!child.appendDigits(sb)) {
+            return false;
+          }
+        }
+        return true;
+      }
+      if (kind == Kind.OTHER && text.length() == 1 && Character.isDigit(text.charAt(0))) {
+        sb.append(text);
+        return true;
+      }
+      return false;
+    }
+  }
+
+  private Token peek() {
+    return pos < tokens.size() ? tokens.get(pos) : null;
+  }
+
+  /**
+   * Parses nodes until the end of the input or the closing brace of the current group.
+   */
+  private List<Node> parseList() {
+    final List<Node> nodes = new ArrayList<>();
+    boolean roman = false;
+    Token token;
+    while ((token = peek()) != null && !token.is('}')) {
+      if (token.is('_') || token.is('^')) {
+        pos++;
+        Node previous = nodes.isEmpty() ? new Node(Kind.OTHER, "") : nodes.remove(nodes.size() - 1);
+        final Node argument = parseArgument();
+        Node script = previous;
+        if (script.kind != Kind.SCRIPT || (token.is('_') ? script.sub : script.sup) != null) {
+          script = new Node(Kind.SCRIPT, null);
+          script.base = previous;
+        }
+        if (token.is('_')) {
+          script.sub = argument;
+        } else {
+          script.sup = argument;
+        }
+        nodes.add(script);
+      } else if (token.is('\'')) {
+        pos++;
+        final Node previous = nodes.isEmpty() ? null : nodes.get(nodes.size() - 1);
+        if (previous != null && previous.kind == Kind.IDENTIFIER) {
+          previous.text += "'";
+        } else {
+          nodes.add(new Node(Kind.OTHER, "'"));
+        }
+      } else if (token.type == TokenType.COMMAND && "rm".equals(token.text)) {
+        // the declaration applies to the rest of the group
+        pos++;
+        roman = true;
+      } else if (token.type == TokenType.LETTER && roman) {
+        pos++;
+        nodes.add(new Node(Kind.OTHER, token.text));
+      } else {
+        nodes.add(parseArgument());
+      }
+    }
+    return nodes;
+  }
+
+  /**
+   * Parses a single token, a group or a command with its arguments.
+   */
+  private Node parseArgument() {
+    final Token token = peek();
+    if (token == null || token.is('}')) {
+      return new Node(Kind.OTHER, "");
+    }
+    pos++;
+    switch (token.type) {
+      case LETTER:
+        return new Node(Kind.IDENTIFIER, token.text);
+      case DIGIT:
+        return new Node(Kind.OTHER, token.text);
+      case CHAR:
+        if (token.is('{')) {
+          final Node group = new Node(Kind.GROUP, null);
+          group.children = parseList();
+          if (peek() != null) {
+            // closing brace
+            pos++;
+          }
+          return group;
+        }
+        return new Node(Kind.OTHER, token.text);
+      default:
+        return parseCommand(token.text);
+    }
+  }
+
+  private Node parseCommand(String name) {
+    if (LETTERS.contains(name)) {
+      return new Node(Kind.IDENTIFIER, "\\" + name);
+    }
+    if ("operatorname".equals(name)) {
+      return new Node(Kind.IDENTIFIER, "\\operatorname{" + rawArgument() + "}");
+    }
+    if (FONTS.contains(name)) {
+      final Node font = new Node(Kind.FONT, name);
+      font.children.add(parseArgument());
+      return font;
+    }
+    if ("begin".equals(name) || "end".equals(name)) {
+      final String environment = rawArgument();
+      if ("begin".equals(name) && ("array".equals(environment) || "tabular".equals(environment))) {
+        // column specification
+        rawArgument();
+      }
+      return new Node(Kind.OTHER, name);
+    }
+    if (BOXES.contains(name)) {
+      final Node box = new Node(Kind.GROUP, null);
+      box.children.add(new Node(Kind.IDENTIFIER, "\\" + name));
+      final String text = rawArgument();
+      if (!text.isEmpty()) {
+        box.children.add(new Node(Kind.IDENTIFIER, text));
+      }
+      return box;
+    }
+    if (IGNORED_ARGUMENT.contains(name)) {
+      rawArgument();
+      return new Node(Kind.OTHER, name);
+    }
+    if (DELIMITER_PREFIXES.contains(name)) {
+      // the delimiter
+      pos++;
+      return new Node(Kind.OTHER, name);
+    }
+    final Node function = new Node(Kind.FUNCTION, name);
+    if ("sqrt".equals(name) && peek() != null && peek().is('[')) {
+      pos++;
+      while (peek() != null && !peek().is(']')) {
+        function.children.add(parseArgument());
+      }
+      pos++;
+    }
+    final int arguments = TWO_ARGUMENTS.contains(name) ? 2 : ONE_ARGUMENT.contains(name) ? 1 : 0;
+    if (arguments == 0) {
+      return new Node(Kind.OTHER, name);
+    }
+    for (int i = 0; i < arguments; i++) {
+      function.children.add(parseArgument());
+    }
+    return function;
+  }
+
+  /**
+   * Skips the next argument and returns its source text.
+   */
+  private String rawArgument() {
+    final Token first = peek();
+    if (first == null) {
+      return "";
+    }
+    final int start = pos;
+    parseArgument();
+    final Token last = tokens.get(pos - 1);
+    if (first.is('{')) {
+      return tex.substring(first.end, last.is('}') && pos - 1 > start ? last.start : last.end).trim();
+    }
+    return tex.substring(first.start, last.end).trim();
+  }
+}
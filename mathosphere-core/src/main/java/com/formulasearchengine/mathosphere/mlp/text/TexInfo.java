@@ -40,6 +40,19 @@ public class TexInfo {
   private static HttpCacheContext context;
   private static CacheResponseStatus cacheResponseStatus;
   private static boolean USE_POST = false;
+  private static TexInfoCache cache = null;
+
+  /**
+   * Sets the persistent identifier cache that is checked before the texvcinfo service is called, null to disable it.
+   */
+  public static void setCache(TexInfoCache cache) {
+    TexInfo.cache = cache;
+  }
+
+  public static TexInfoCache getCache() {
+    return cache;
+  }
+
   private static String makeRequest(String tex, String url)  {
     HttpRequestBase post;
     if (cachingClient == null || context == null) {
@@ -67,14 +80,7 @@ public class TexInfo {
         e.printStackTrace();
       }
     } else {
-      String q = null;
-      try {
-        q = URLEncoder.encode(tex,"UTF-8").replace("+", "%20");
-      } catch (UnsupportedEncodingException e) {
-        q = tex;
-      }
-      url = url.replace("texvcinfo", "get/texvcinfo");
-      post = new HttpGet(url +"/tex/" + q);
+      post = new HttpGet(getRequestUrl(tex, url));
     }
 
     try {
@@ -82,9 +88,9 @@ public class TexInfo {
       CloseableHttpResponse response = cachingClient.execute(post, context);
       BufferedReader rd = new BufferedReader(new InputStreamReader(response.getEntity().getContent()));
       String line;
-      String result = "";
+      StringBuilder result = new StringBuilder();
       while ((line = rd.readLine()) != null) {
-        result += line;
+        result.append(line);
       }
 
         cacheResponseStatus = context.getCacheResponseStatus();
@@ -94,7 +100,7 @@ public class TexInfo {
 
       //HttpResponse response = client.execute(post);
 
-      return result;
+      return result.toString();
     } catch (IOException e) {
       e.printStackTrace();
     } finally {
@@ -103,7 +109,29 @@ public class TexInfo {
     return "";
   }
 
+  /**
+   * @return the url of the GET request for the identifiers of tex
+   */
+  static String getRequestUrl(String tex, String url) {
+    String q = null;
+    try {
+      q = URLEncoder.encode(tex, "UTF-8").replace("+", "%20");
+    } catch (UnsupportedEncodingException e) {
+      q = tex;
+    }
+    return url.replace("texvcinfo", "get/texvcinfo") + "/tex/" + q;
+  }
+
   public static Multiset<String> getIdentifiers(String tex, String url) throws XPathExpressionException, ParserConfigurationException, SAXException, IOException, TransformerException {
+    if (TexIdentifierExtractor.LOCAL.equals(url)) {
+      return TexIdentifierExtractor.getIdentifiers(tex);
+    }
+    if (cache != null) {
+      final Multiset<String> cached = cache.get(tex);
+      if (cached != null) {
+        return cached;
+      }
+    }
     final Multiset<String> strings = HashMultiset.create();
     //long t0 = System.nanoTime();
     String json = makeRequest(tex, url);
@@ -115,6 +143,9 @@ public class TexInfo {
       JSONObject jsonObject = (JSONObject) JSONSerializer.toJSON(json);
       JSONArray identifiers = jsonObject.getJSONArray("identifiers");
       strings.addAll(identifiers);
+      if (cache != null) {
+        cache.put(tex, strings);
+      }
     } catch (Exception e) {
       System.out.println(tex + " Parsing problem");
       System.out.println("Retrieved: " + json);
@@ -0,0 +1,213 @@
+package com.formulasearchengine.mathosphere.mlp.text;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.ImmutableMultiset;
+import com.google.common.collect.Multiset;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Persistent cache for the identifiers returned by the texvcinfo service. Entries are keyed by the md5 hash of the
+ * TeX input, i.e. the {@link com.formulasearchengine.mathosphere.mlp.pojos.MathTag#getContentHash() content hash}
+ * of a TeX math tag.
+ * <p>
+ * The cache is backed by a file with one JSON object per line, {@code {"inputhash":"...","identifiers":[...]}}.
+ * The file is read completely when the cache is opened and new entries are appended to it, so the next run starts
+ * with all identifiers resolved by earlier runs. All task slots of a JVM share one instance per file. The file should
+ * be on a local disk, as several processes must not append to the same file.
+ * <p>
+ * A cache can be seeded with the {@code formulae.json} of an earlier run. All items that carry an
+ * {@code identifiers} array are added, items without identifiers are skipped. The {@code tags} command writes the
+ * identifiers of the TeX formulae if it is run with {@code --tex}, using the extractor selected with
+ * {@code --texvcinfo}.
+ */
+public class TexInfoCache {
+
+  private static final Logger LOGGER = LogManager.getLogger(TexInfoCache.class.getName());
+  private static final HashFunction HASHER = Hashing.md5();
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+  private static final Map<String, TexInfoCache> INSTANCES = new HashMap<>();
+
+  private final File file;
+  private final Map<String, Multiset<String>> entries = new ConcurrentHashMap<>();
+  private Writer writer;
+
+  private TexInfoCache(File file) {
+    this.file = file;
+  }
+
+  /**
+   * Opens the cache stored in the given file. The file is created if it does not exist.
+   */
+  public static TexInfoCache open(String fileName) throws IOException {
+    return open(fileName, null);
+  }
+
+  /**
+   * Opens the cache stored in the given file and seeds it from formulaeFile when it is opened the first time in this
+   * JVM.
+   *
+   * @param fileName     the file that stores the cache, it is created if it does not exist
+   * @param formulaeFile a JSON array of formulae as accepted by {@link #seed(String)}, or null
+   */
+  public static synchronized TexInfoCache open(String fileName, String formulaeFile) throws IOException {
+    final File file = new File(fileName).getAbsoluteFile();
+    TexInfoCache cache = INSTANCES.get(file.getPath());
+    if (cache == null) {
+      cache = new TexInfoCache(file);
+      cache.load();
+      if (formulaeFile != null) {
+        cache.seed(formulaeFile);
+      }
+      INSTANCES.put(file.getPath(), cache);
+    }
+    return cache;
+  }
+
+  public static String hash(String tex) {
+    return HASHER.hashString(tex, StandardCharsets.UTF_8).toString();
+  }
+
+  private void load() throws IOException {
+    if (file.exists()) {
+      try (BufferedReader reader = new BufferedReader(
+          new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+          lineNumber++;
+          if (line.isEmpty()) {
+            continue;
+          }
+          try {
+            add(MAPPER.readTree(line));
+          } catch (IOException e) {
+            // most likely the last line of a run that was killed while writing
+            LOGGER.warn("skipping malformed line {} of {}", lineNumber, file);
+          }
+        }
+      }
+      LOGGER.info("loaded {} identifier sets from {}", entries.size(), file);
+    } else if (file.getParentFile() != null) {
+      file.getParentFile().mkdirs();
+    }
+    writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8));
+  }
+
+  /**
+   * @return the key of a formula item or null if the item has neither an inputhash nor an input
+   */
+  private static String key(JsonNode item) {
+    if (item.hasNonNull("inputhash")) {
+      return item.get("inputhash").asText();
+    } else if (item.hasNonNull("input")) {
+      return hash(item.get("input").asText());
+    }
+    return null;
+  }
+
+  /**
+   * @return the key of the added item or null if it has no key or no identifiers
+   */
+  private String add(JsonNode item) {
+    final JsonNode identifiers = item.get("identifiers");
+    final String key = key(item);
+    if (key == null || identifiers == null || !identifiers.isArray()) {
+      return null;
+    }
+    final ImmutableMultiset.Builder<String> builder = ImmutableMultiset.builder();
+    for (JsonNode identifier : identifiers) {
+      builder.add(identifier.asText());
+    }
+    entries.put(key, builder.build());
+    return key;
+  }
+
+  /**
+   * Adds all items with identifiers from a JSON array of formulae, such as the formulae.json written by the
+   * {@code tags} command, and persists the new ones.
+   *
+   * @return the number of new entries
+   */
+  public int seed(String formulaeFile) throws IOException {
+    int added = 0;
+    try (JsonParser parser = MAPPER.getFactory().createParser(new File(formulaeFile))) {
+      if (parser.nextToken() != JsonToken.START_ARRAY) {
+        throw new IOException(formulaeFile + " does not contain a JSON array");
+      }
+      while (parser.nextToken() == JsonToken.START_OBJECT) {
+        final JsonNode item = MAPPER.readTree(parser);
+        final String key = key(item);
+        if (key != null && !entries.containsKey(key) && add(item) != null) {
+          append(key, entries.get(key));
+          added++;
+        }
+      }
+    }
+    flush();
+    LOGGER.info("seeded {} identifier sets from {}", added, formulaeFile);
+    return added;
+  }
+
+  /**
+   * @return a modifiable copy of the identifiers of tex or null if tex is not cached
+   */
+  public Multiset<String> get(String tex) {
+    final Multiset<String> identifiers = entries.get(hash(tex));
+    return identifiers == null ? null : HashMultiset.create(identifiers);
+  }
+
+  public void put(String tex, Multiset<String> identifiers) {
+    final String key = hash(tex);
+    final Multiset<String> copy = ImmutableMultiset.copyOf(identifiers);
+    if (entries.putIfAbsent(key, copy) == null) {
+      try {
+        append(key, copy);
+        flush();
+      } catch (IOException e) {
+        LOGGER.warn("could not persist identifiers of {} to {}", tex, file, e);
+      }
+    }
+  }
+
+  private synchronized void append(String key, Multiset<String> identifiers) throws IOException {
+    final ObjectNode item = MAPPER.createObjectNode();
+    item.put("inputhash", key);
+    final ArrayNode array = item.putArray("identifiers");
+    for (String identifier : identifiers) {
+      array.add(identifier);
+    }
+    writer.write(MAPPER.writeValueAsString(item));
+    writer.write('\n');
+  }
+
+  private synchronized void flush() throws IOException {
+    writer.flush();
+  }
+
+  public int size() {
+    return entries.size();
+  }
+}
@@ -0,0 +1,280 @@
+package com.formulasearchengine.mathosphere.mlp.text;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.formulasearchengine.mathosphere.mlp.cli.BaseConfig;
+import com.formulasearchengine.mathosphere.mlp.pojos.MathTag;
+import com.formulasearchengine.mathosphere.mlp.text.WikiTextUtils.MathMarkUpType;
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.Multiset;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Client for the texvcinfo service that resolves all formulae of a document at once. In contrast to
+ * {@link TexInfo#getIdentifiers(String, String)}, which blocks on one request per formula,
+ * <ul>
+ * <li>the distinct TeX inputs of a document are requested concurrently, with at most {@code maxInFlight} open
+ * requests per client,</li>
+ * <li>the whole batch waits at most {@code timeout} milliseconds, unfinished requests are cancelled,</li>
+ * <li>responses are parsed from the stream without building the response string,</li>
+ * <li>after {@code failureThreshold} consecutive failures the circuit opens and no requests are sent for
+ * {@code openMillis} milliseconds. Afterwards a single request probes whether the service is back.</li>
+ * </ul>
+ * Formulae that could not be resolved get an empty identifier set, as with {@link TexInfo}. The
+ * {@link TexInfo#getCache() persistent cache} is checked before and updated after each request.
+ * <p>
+ * texvcinfo checks one formula per request, so a batch is the set of distinct formulae of a document rather than a
+ * single request. If the url is {@link TexIdentifierExtractor#LOCAL}, the identifiers are extracted in process and
+ * no requests are sent.
+ */
+public class TexInfoClient implements Closeable {
+
+  private static final Logger LOGGER = LogManager.getLogger(TexInfoClient.class.getName());
+  private static final JsonFactory JSON_FACTORY = new JsonFactory();
+  public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+  public static final long DEFAULT_OPEN_MILLIS = 60000;
+
+  private final String url;
+  private final long timeout;
+  private final int failureThreshold;
+  private final long openMillis;
+  /**
+   * null if the identifiers are extracted locally, like the http client.
+   */
+  private final ExecutorService executor;
+  private final CloseableHttpClient httpClient;
+  private final AtomicInteger consecutiveFailures = new AtomicInteger();
+  private final AtomicLong openUntil = new AtomicLong();
+  private final AtomicInteger requests = new AtomicInteger();
+
+  public TexInfoClient(BaseConfig config) {
+    this(config.getTexvcinfoUrl(), config.getTexvcinfoConcurrency(), config.getTexvcinfoTimeout(),
+      DEFAULT_FAILURE_THRESHOLD, DEFAULT_OPEN_MILLIS);
+  }
+
+  /**
+   * @param url              the texvcinfo endpoint or {@link TexIdentifierExtractor#LOCAL}
+   * @param maxInFlight      maximal number of concurrent requests
+   * @param timeout          timeout for a batch and for each connection in milliseconds
+   * @param failureThreshold number of consecutive failures that open the circuit
+   * @param openMillis       time in milliseconds the circuit stays open
+   */
+  public TexInfoClient(String url, int maxInFlight, int timeout, int failureThreshold, long openMillis) {
+    this.url = url;
+    this.timeout = timeout;
+    this.failureThreshold = failureThreshold;
+    this.openMillis = openMillis;
+    if (TexIdentifierExtractor.LOCAL.equals(url)) {
+      executor = null;
+      httpClient = null;
+      return;
+    }
+    executor = Executors.newFixedThreadPool(maxInFlight,
+      new ThreadFactoryBuilder().setNameFormat("texvcinfo-%d").setDaemon(true).build());
+    PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+    connectionManager.setMaxTotal(maxInFlight);
+    connectionManager.setDefaultMaxPerRoute(maxInFlight);
+    httpClient = HttpClients.custom()
+      .setConnectionManager(connectionManager)
+      .setDefaultRequestConfig(RequestConfig.custom()
+        .setConnectTimeout(timeout)
+        .setSocketTimeout(timeout)
+        .setConnectionRequestTimeout(timeout)
+        .build())
+      .build();
+  }
+
+  /**
+   * Sets the identifiers of all TeX formulae in tags. Identifiers of MathML formulae are extracted locally later on.
+   */
+  public void resolve(List<MathTag> tags) {
+    Set<String> texs = new LinkedHashSet<>();
+    for (MathTag tag : tags) {
+      if (tag.getMarkUpType() != MathMarkUpType.MATHML) {
+        texs.add(tag.getTagContent());
+      }
+    }
+    Map<String, Multiset<String>> identifiers = getIdentifiers(texs);
+    for (MathTag tag : tags) {
+      if (tag.getMarkUpType() != MathMarkUpType.MATHML) {
+        Multiset<String> result = identifiers.get(tag.getTagContent());
+        tag.setIdentifiers(MathMLUtils.filterTexvcinfoIdentifiers(HashMultiset.create(result)));
+      }
+    }
+  }
+
+  /**
+   * @return the identifiers for each of the given TeX strings, empty if it could not be resolved
+   */
+  public Map<String, Multiset<String>> getIdentifiers(Collection<String> texs) {
+    final Map<String, Multiset<String>> result = new HashMap<>();
+    final Map<String, Future<Multiset<String>>> pending = new HashMap<>();
+    final TexInfoCache cache = TexInfo.getCache();
+    for (String tex : texs) {
+      if (result.containsKey(tex) || pending.containsKey(tex)) {
+        continue;
+      }
+      if (TexIdentifierExtractor.LOCAL.equals(url)) {
+        result.put(tex, TexIdentifierExtractor.getIdentifiers(tex));
+        continue;
+      }
+      Multiset<String> cached = cache == null || tex.isEmpty() ? null : cache.get(tex);
+      if (cached != null) {
+        result.put(tex, cached);
+      } else if (tex.isEmpty() || !allowRequest()) {
+        result.put(tex, HashMultiset.create());
+      } else {
+        // a request that is allowed while the circuit is not closed probes the service
+        final boolean probe = openUntil.get() != 0;
+        pending.put(tex, executor.submit(() -> request(tex, probe)));
+      }
+    }
+    final long deadline = System.currentTimeMillis() + timeout;
+    for (Map.Entry<String, Future<Multiset<String>>> entry : pending.entrySet()) {
+      Multiset<String> identifiers = null;
+      try {
+        long wait = Math.max(0, deadline - System.currentTimeMillis());
+        identifiers = entry.getValue().get(wait, TimeUnit.MILLISECONDS);
+      } catch (TimeoutException e) {
+        entry.getValue().cancel(true);
+        failure();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        entry.getValue().cancel(true);
+      } catch (ExecutionException | CancellationException e) {
+        // failure was recorded by the request
+      }
+      if (identifiers == null) {
+        LOGGER.debug("no identifiers for {}", entry.getKey());
+        identifiers = HashMultiset.create();
+      } else if (cache != null) {
+        cache.put(entry.getKey(), identifiers);
+      }
+      result.put(entry.getKey(), identifiers);
+    }
+    return result;
+  }
+
+  /**
+   * @return false if the circuit is open. If the open period is over, true is returned once to probe the service.
+   */
+  private boolean allowRequest() {
+    final long until = openUntil.get();
+    if (until == 0) {
+      return true;
+    }
+    final long now = System.currentTimeMillis();
+    return now >= until && openUntil.compareAndSet(until, now + openMillis);
+  }
+
+  /**
+   * @return true if requests are currently suppressed
+   */
+  public boolean isOpen() {
+    final long until = openUntil.get();
+    return until != 0 && System.currentTimeMillis() < until;
+  }
+
+  private void failure() {
+    if (consecutiveFailures.incrementAndGet() >= failureThreshold
+      && openUntil.getAndSet(System.currentTimeMillis() + openMillis) == 0) {
+      LOGGER.warn("texvcinfo failed {} times in a row, suspending requests for {} ms", failureThreshold, openMillis);
+    }
+  }
+
+  private void success() {
+    consecutiveFailures.set(0);
+    openUntil.set(0);
+  }
+
+  private Multiset<String> request(String tex, boolean probe) throws IOException {
+    if (!probe && isOpen()) {
+      // the circuit opened while this request was queued
+      return null;
+    }
+    requests.incrementAndGet();
+    HttpGet get = new HttpGet(TexInfo.getRequestUrl(tex, url));
+    try (CloseableHttpResponse response = httpClient.execute(get)) {
+      if (response.getStatusLine().getStatusCode() != 200) {
+        throw new IOException("texvcinfo returned " + response.getStatusLine() + " for " + tex);
+      }
+      final Multiset<String> identifiers;
+      try (InputStream in = response.getEntity().getContent()) {
+        identifiers = parseIdentifiers(in);
+      }
+      success();
+      return identifiers;
+    } catch (IOException e) {
+      LOGGER.debug("texvcinfo request for {} failed", tex, e);
+      failure();
+      throw e;
+    }
+  }
+
+  /**
+   * Reads the identifiers array of a texvcinfo response.
+   */
+  static Multiset<String> parseIdentifiers(InputStream in) throws IOException {
+    final Multiset<String> identifiers = HashMultiset.create();
+    try (JsonParser parser = JSON_FACTORY.createParser(in)) {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        throw new IOException("texvcinfo response is not a JSON object");
+      }
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        final String field = parser.getCurrentName();
+        final JsonToken value = parser.nextToken();
+        if ("identifiers".equals(field) && value == JsonToken.START_ARRAY) {
+          while (parser.nextToken() != JsonToken.END_ARRAY) {
+            identifiers.add(parser.getText());
+          }
+          return identifiers;
+        }
+        parser.skipChildren();
+      }
+    }
+    throw new IOException("texvcinfo response has no identifiers");
+  }
+
+  /**
+   * @return the number of requests sent to the service
+   */
+  public int getRequestCount() {
+    return requests.get();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (executor != null) {
+      executor.shutdownNow();
+      httpClient.close();
+    }
+  }
+}
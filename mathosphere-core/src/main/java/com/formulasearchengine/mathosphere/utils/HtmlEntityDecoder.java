@@ -0,0 +1,133 @@
+package com.formulasearchengine.mathosphere.utils;
+
+import org.apache.commons.lang3.text.translate.EntityArrays;
+
+/**
+ * Single pass decoder for named HTML entities. It translates the same entities (ISO-8859-1, HTML4 and basic XML) as
+ * an {@code AggregateTranslator} of the corresponding {@code LookupTranslator}s, but
+ * <ul>
+ * <li>returns the input unchanged if it contains no {@code &} or no known entity,</li>
+ * <li>looks up entity names in an open addressing hash table directly on the input characters, so no substrings are
+ * created while scanning,</li>
+ * <li>creates at most one {@link StringBuilder} per call.</li>
+ * </ul>
+ */
+public final class HtmlEntityDecoder {
+
+  private static final String[][][] TABLES = {
+    EntityArrays.ISO8859_1_UNESCAPE(),
+    EntityArrays.BASIC_UNESCAPE(),
+    EntityArrays.HTML40_EXTENDED_UNESCAPE()
+  };
+
+  /**
+   * entity names without the leading {@code &} and the trailing {@code ;}
+   */
+  private static final String[] NAMES;
+  private static final String[] VALUES;
+  private static final int MASK;
+  private static final int MAX_NAME_LENGTH;
+
+  static {
+    int entries = 0;
+    for (String[][] table : TABLES) {
+      entries += table.length;
+    }
+    int size = Integer.highestOneBit(entries * 4);
+    NAMES = new String[size];
+    VALUES = new String[size];
+    MASK = size - 1;
+    int max = 0;
+    for (String[][] table : TABLES) {
+      for (String[] entry : table) {
+        final String name = entry[0].substring(1, entry[0].length() - 1);
+        int slot = hash(name, 0, name.length()) & MASK;
+        while (NAMES[slot] != null && !NAMES[slot].equals(name)) {
+          slot = (slot + 1) & MASK;
+        }
+        if (NAMES[slot] == null) {
+          // the first table wins, like in an AggregateTranslator
+          NAMES[slot] = name;
+          VALUES[slot] = entry[1];
+        }
+        max = Math.max(max, name.length());
+      }
+    }
+    MAX_NAME_LENGTH = max;
+  }
+
+  private HtmlEntityDecoder() {
+  }
+
+  /**
+   * Unescapes special entity char sequences like &amp;lt; to its UTF-8 representation. All ISO-8859-1, HTML4 and Basic
+   * entities will be translated.
+   *
+   * @param text the text that will be unescaped
+   * @return the unescaped version of the string text, or text itself if there is nothing to unescape
+   */
+  public static String decode(String text) {
+    int amp = text.indexOf('&');
+    if (amp < 0) {
+      return text;
+    }
+    final int length = text.length();
+    StringBuilder out = null;
+    int copied = 0;
+    while (amp >= 0) {
+      final int nameStart = amp + 1;
+      final int nameLimit = Math.min(length, nameStart + MAX_NAME_LENGTH + 1);
+      int semicolon = -1;
+      for (int i = nameStart; i < nameLimit; i++) {
+        final char c = text.charAt(i);
+        if (c == ';') {
+          semicolon = i;
+          break;
+        }
+        if (c == '&') {
+          break;
+        }
+      }
+      int next = nameStart;
+      if (semicolon > nameStart) {
+        final String value = lookup(text, nameStart, semicolon);
+        if (value != null) {
+          if (out == null) {
+            out = new StringBuilder(length);
+          }
+          out.append(text, copied, amp).append(value);
+          copied = semicolon + 1;
+          next = copied;
+        }
+      }
+      amp = text.indexOf('&', next);
+    }
+    if (out == null) {
+      return text;
+    }
+    return out.append(text, copied, length).toString();
+  }
+
+  /**
+   * @return the character of the entity name text[start, end) or null if there is no such entity
+   */
+  private static String lookup(String text, int start, int end) {
+    int slot = hash(text, start, end) & MASK;
+    String name;
+    while ((name = NAMES[slot]) != null) {
+      if (name.length() == end - start && name.regionMatches(0, text, start, end - start)) {
+        return VALUES[slot];
+      }
+      slot = (slot + 1) & MASK;
+    }
+    return null;
+  }
+
+  private static int hash(String s, int start, int end) {
+    int h = 0;
+    for (int i = start; i < end; i++) {
+      h = 31 * h + s.charAt(i);
+    }
+    return h ^ (h >>> 16);
+  }
+}
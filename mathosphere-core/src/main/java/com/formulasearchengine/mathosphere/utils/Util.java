@@ -25,22 +25,30 @@ public class Util {
         output.createNewFile();
       OutputStreamWriter w = new FileWriter(output, true);
       CSVPrinter printer = CSVFormat.DEFAULT.withRecordSeparator("\n").print(w);
-      for (Relation relation : relations) {
-        //qId, title, identifier, definition
-        String[] out = new String[]{
-          qId,
-          title,
-          relation.getIdentifier(),
-          relation.getDefinition(), "Word number: " + String.valueOf(relation.getIdentifierPosition()),
-          "\"" + "\"",
-          getHumanReadableSentence(relation)};
-        printer.printRecord(out);
-      }
+      printExtractedDefinitions(printer, qId, title, relations);
       w.flush();
       w.close();
     }
   }
 
+  /**
+   * Prints the relations as records of the format written by
+   * {@link #writeExtractedDefinitionsAsCsv(String, String, String, List)}.
+   */
+  public static void printExtractedDefinitions(CSVPrinter printer, String qId, String title, List<Relation> relations) throws IOException {
+    for (Relation relation : relations) {
+      //qId, title, identifier, definition
+      String[] out = new String[]{
+        qId,
+        title,
+        relation.getIdentifier(),
+        relation.getDefinition(), "Word number: " + String.valueOf(relation.getIdentifierPosition()),
+        "\"" + "\"",
+        getHumanReadableSentence(relation)};
+      printer.printRecord(out);
+    }
+  }
+
   public static String getHumanReadableSentence(Relation relation) {
     if (relation.getSentence() != null) {
       List<String> words = relation.getSentence().getWords()
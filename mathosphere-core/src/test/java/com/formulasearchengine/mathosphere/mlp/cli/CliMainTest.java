@@ -1,10 +1,14 @@
 package com.formulasearchengine.mathosphere.mlp.cli;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.formulasearchengine.mathosphere.mlp.FlinkMlpRelationFinder;
 import com.formulasearchengine.mathosphere.mlp.Main;
 import com.formulasearchengine.mathosphere.mlp.ml.WekaLearner;
 import com.formulasearchengine.mathosphere.mlp.pojos.IdentifierDefinition;
 import com.formulasearchengine.mathosphere.mlp.pojos.StrippedWikiDocumentOutput;
+import com.formulasearchengine.mathosphere.mlp.text.TexIdentifierExtractor;
+import com.formulasearchengine.mathosphere.mlp.text.TexInfoCache;
 import com.google.common.base.Throwables;
 import com.google.common.io.Files;
 import org.apache.commons.io.output.TeeOutputStream;
@@ -97,6 +101,38 @@ public class CliMainTest {
     runTest(args);
   }
 
+  @Test
+  public void testMlpIncremental() throws Exception {
+    final File temp = Files.createTempDir();
+    final String input = resourcePath("com/formulasearchengine/mathosphere/mlp/sample.xml");
+    runTest(new String[]{"mlp", "-in", input, "-out", temp + "/out1", "--state", temp + "/state1"});
+    final List<String> changes1 = java.nio.file.Files.readAllLines(new File(temp, "state1/changes").toPath());
+    assertTrue(changes1.stream().allMatch(line -> line.startsWith("ADDED\t")));
+    final List<String> output1 = java.nio.file.Files.readAllLines(new File(temp, "out1").toPath());
+    Assert.assertEquals(changes1.size(), output1.size());
+
+    // modify the text of the first page of the main namespace
+    final String dump = new String(java.nio.file.Files.readAllBytes(new File(input).toPath()), "UTF-8");
+    final int text = dump.indexOf('>', dump.indexOf("<text", dump.indexOf("<ns>0</ns>"))) + 1;
+    final File modified = new File(temp, "modified.xml");
+    java.nio.file.Files.write(modified.toPath(),
+      (dump.substring(0, text) + "The energy E is new. " + dump.substring(text)).getBytes("UTF-8"));
+    runTest(new String[]{"mlp", "-in", modified.getPath(), "-out", temp + "/out2", "--state", temp + "/state2",
+      "--previousState", temp + "/state1"});
+    final List<String> changes2 = java.nio.file.Files.readAllLines(new File(temp, "state2/changes").toPath());
+    Assert.assertEquals(1, changes2.size());
+    assertTrue(changes2.get(0).startsWith("MODIFIED\t"));
+    Assert.assertEquals(output1.size(), java.nio.file.Files.readAllLines(new File(temp, "out2").toPath()).size());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMlpIncrementalFromParsed() throws Exception {
+    final File temp = Files.createTempDir();
+    FlinkMlpRelationFinder.run(FlinkMlpCommandConfig.from(new String[]{
+      "-in", resourcePath("com/formulasearchengine/mathosphere/mlp/sample.xml"), "-out", temp + "/out",
+      "--state", temp + "/state", "--fromParsed", temp + "/parsed"}));
+  }
+
   @Test
   public void testTagEngPlain() throws Exception {
     final File temp;
@@ -112,6 +148,30 @@ public class CliMainTest {
     runTest(args);
   }
 
+  @Test
+  public void testTagsSeedTexvcinfoCache() throws Exception {
+    final File temp = Files.createTempDir();
+    runTest(new String[]{"tags", "-in", resourcePath("com/formulasearchengine/mathosphere/mlp/sample.xml"),
+      "-out", temp.getAbsolutePath(), "--tex", "--texvcinfo", TexIdentifierExtractor.LOCAL});
+    final File formulae = new File(temp, "formulae.json");
+    final JsonNode items = new ObjectMapper().readTree(formulae);
+    JsonNode tex = null;
+    for (JsonNode item : items) {
+      if (!"MATHML".equals(item.get("type").asText())) {
+        assertTrue(item.toString(), item.get("identifiers").isArray());
+        if (tex == null && item.get("identifiers").size() > 0) {
+          tex = item;
+        }
+      }
+    }
+    Assert.assertNotNull(tex);
+
+    final TexInfoCache cache = TexInfoCache.open(new File(temp, "texvcinfo.jsonl").getPath(), formulae.getPath());
+    assertTrue(cache.size() > 0);
+    final String input = tex.get("input").asText();
+    Assert.assertEquals(TexIdentifierExtractor.getIdentifiers(input), cache.get(input));
+  }
+
   @Test
   public void testMlpEngPlainWithWikidata() throws Exception {
     final File temp;
@@ -207,9 +267,32 @@ public class CliMainTest {
     System.setOut(new PrintStream(myOut));
     Main.main(args);
     System.setOut(stdout);
+    // written by the sinks of the evaluation
+    assertTrue(new File(temp, "extraction.csv").isFile());
+    assertTrue(temp.list((dir, name) -> name.matches("q\\d+\\.csv")).length > 0);
   }
 
 
+  @Test
+  public void testSweep() throws Exception {
+    final File temp = Files.createTempDir();
+    String[] args = {CliParams.SWEEP,
+      "-in", resourcePath("com/formulasearchengine/mathosphere/mlp/gold/eval_dataset_sample.xml"),
+      "-out", temp.getAbsolutePath(),
+      "--queries", resourcePath("com/formulasearchengine/mathosphere/mlp/gold/gold.json"),
+      "--nd", resourcePath("com/formulasearchengine/mathosphere/mlp/gold/nd.json"),
+      "--tex",
+      "--ref", resourcePath("com/formulasearchengine/mathosphere/mlp/nd"),
+      "--thresholds", "0.6,0.8",
+      "--gammas", "0.1,0.2",
+      "--sweepDefinitionMerging",
+    };
+    Main.main(args);
+    final List<String> lines = java.nio.file.Files.readAllLines(new File(temp, "sweep.csv").toPath());
+    Assert.assertEquals(8, lines.size());
+    assertTrue(lines.get(0).startsWith("alpha; 1.0; beta; 1.0; gamma; "));
+  }
+
   @Test
   public void testPatternMatcher() throws Exception {
     final File temp = Files.createTempDir();
@@ -279,6 +362,26 @@ public class CliMainTest {
     Main.main(args);
   }
 
+  @Test
+  @Ignore
+  /**
+   * Actually not a test but documentation of how the svm parameters are searched.
+   * Refines the coarse grid three times around the best parameters, which reaches the resolution of the fine grid.
+   */
+  public void testMachineLearningParameterSearch() throws Exception {
+    final File temp = Files.createTempDir();
+    String[] args = {CliParams.ML,
+      "-in", resourcePath("com/formulasearchengine/mathosphere/mlp/gold/eval_dataset.xml"),
+      "-out", temp.getAbsolutePath(),
+      "--goldFile", resourcePath("com/formulasearchengine/mathosphere/mlp/gold/gold.json"),
+      "--tex",
+      "--threads", "10",
+      "--coarseParameterSearch",
+      "--refineParameterSearch", "3"
+    };
+    Main.main(args);
+  }
+
   /**
    * Tests if the classification throws no error. Also tests if a correct definiens is extracted. Must have a good model!
    *
@@ -2,6 +2,7 @@ package com.formulasearchengine.mathosphere.mlp.contracts;
 
 import com.google.common.collect.HashMultiset;
 import com.google.common.collect.Multiset;
+import com.google.common.primitives.Ints;
 
 import com.formulasearchengine.mathosphere.mlp.cli.FlinkMlpCommandConfig;
 import com.formulasearchengine.mathosphere.mlp.pojos.*;
@@ -10,9 +11,13 @@ import org.junit.Test;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
 
@@ -33,6 +38,38 @@ public class CreateCandidatesMapperTest {
     }
   }
 
+  @Test
+  public void topK() throws Exception {
+    ParsedWikiDocument doc = read("com/formulasearchengine/mathosphere/mlp/augmentendwikitext.xml");
+    List<Relation> all = new CreateCandidatesMapper(FlinkMlpCommandConfig.test()).map(doc).getRelations();
+    FlinkMlpCommandConfig topKConfig = FlinkMlpCommandConfig.test();
+    topKConfig.setTopK(2);
+    List<Relation> best = new CreateCandidatesMapper(topKConfig).map(doc).getRelations();
+
+    Map<String, List<Relation>> expected = new LinkedHashMap<>();
+    for (Relation relation : all) {
+      expected.computeIfAbsent(relation.getIdentifier(), k -> new ArrayList<>()).add(relation);
+    }
+    Map<String, List<Relation>> actual = new LinkedHashMap<>();
+    for (Relation relation : best) {
+      actual.computeIfAbsent(relation.getIdentifier(), k -> new ArrayList<>()).add(relation);
+    }
+    assertEquals(expected.keySet(), actual.keySet());
+    for (Map.Entry<String, List<Relation>> entry : expected.entrySet()) {
+      List<Relation> relations = entry.getValue();
+      List<Relation> top = relations.subList(Math.max(0, relations.size() - 2), relations.size());
+      assertEquals(entry.getKey(), describe(top), describe(actual.get(entry.getKey())));
+    }
+  }
+
+  private static String describe(List<Relation> relations) {
+    StringBuilder sb = new StringBuilder();
+    for (Relation relation : relations) {
+      sb.append(relation).append('@').append(relation.getWordPosition()).append('\n');
+    }
+    return sb.toString();
+  }
+
   public static ParsedWikiDocument read(String testFile) throws Exception {
     return read(testFile, 0);
   }
@@ -101,6 +138,44 @@ public class CreateCandidatesMapperTest {
     assertEquals(Collections.emptyList(), identifierPositions);
   }
 
+  @Test
+  public void closestIdentifierPosition_binarySearch() {
+    int[] positions = {3, 9, 17};
+    assertEquals(-1, CreateCandidatesMapper.closestIdentifierPosition(new int[0], 4));
+    assertEquals(3, CreateCandidatesMapper.closestIdentifierPosition(positions, 0));
+    assertEquals(9, CreateCandidatesMapper.closestIdentifierPosition(positions, 9));
+    // ties go to the earlier position
+    assertEquals(3, CreateCandidatesMapper.closestIdentifierPosition(positions, 6));
+    assertEquals(9, CreateCandidatesMapper.closestIdentifierPosition(positions, 12));
+    assertEquals(17, CreateCandidatesMapper.closestIdentifierPosition(positions, 14));
+    assertEquals(17, CreateCandidatesMapper.closestIdentifierPosition(positions, 40));
+  }
+
+  @Test
+  public void identifierIndex() {
+    Sentence first = new Sentence(Arrays.asList(w("Ψ", "ID"), w("is", "VBZ"), w("Ψ", "ID"), w("E", "ID")),
+        new HashSet<>(Arrays.asList("Ψ", "E")), Collections.emptyList());
+    Sentence second = new Sentence(Arrays.asList(w("no", "DT"), w("identifiers", "NNS")),
+        Collections.emptySet(), Collections.emptyList());
+    Sentence third = new Sentence(Arrays.asList(w("E", "ID"), w("is", "VBZ"), w("energy", "NN")),
+        Collections.singleton("E"), Collections.emptyList());
+    ParsedWikiDocument doc = new ParsedWikiDocument("title", HashMultiset.create(),
+        Collections.emptyList(), Arrays.asList(first, second, third));
+    Map<String, List<IdentifierOccurrence>> index = doc.getIdentifierIndex();
+    assertEquals(2, index.size());
+    assertEquals("[0:[0, 2]]", index.get("Ψ").toString());
+    assertEquals("[0:[3], 2:[0]]", index.get("E").toString());
+    for (String identifier : index.keySet()) {
+      int i = 0;
+      for (IdentifierOccurrence occurrence : index.get(identifier)) {
+        Sentence sentence = CreateCandidatesMapper.findSentencesWithIdentifier(doc.getSentences(), identifier).get(i++);
+        assertEquals(sentence, doc.getSentences().get(occurrence.getSentenceIndex()));
+        assertEquals(CreateCandidatesMapper.identifierPositions(sentence.getWords(), identifier),
+            Ints.asList(occurrence.getPositions()));
+      }
+    }
+  }
+
   public static Word w(String word, String tag) {
     return new Word(word, tag);
   }
@@ -0,0 +1,145 @@
+package com.formulasearchengine.mathosphere.mlp.contracts;
+
+import com.fasterxml.jackson.jr.ob.JSON;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.flink.configuration.Configuration;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class JsonOutputFormatTest {
+
+  private static final List<Map<String, Object>> RECORDS = Arrays.asList(
+    Collections.singletonMap("a", "b"),
+    Collections.singletonMap("c", "ä\n"),
+    Collections.singletonMap("d", 1));
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private File write(JsonOutputFormat<Map<String, Object>> format, List<Map<String, Object>> records)
+    throws IOException {
+    format.configure(new Configuration());
+    format.open(0, 1);
+    for (Map<String, Object> record : records) {
+      format.writeRecord(record);
+    }
+    format.close();
+    return new File(folder.getRoot(), "out.json");
+  }
+
+  private JsonOutputFormat<Map<String, Object>> format() {
+    return new JsonOutputFormat<>(new File(folder.getRoot(), "out.json").getPath(), JsonOutputFormat.jacksonJr());
+  }
+
+  private static String read(File file) throws IOException {
+    return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void testLines() throws Exception {
+    final StringBuilder expected = new StringBuilder();
+    for (Map<String, Object> record : RECORDS) {
+      expected.append(JSON.std.asString(record)).append('\n');
+    }
+    assertEquals(expected.toString(), read(write(format(), RECORDS)));
+  }
+
+  @Test
+  public void testArray() throws Exception {
+    final JsonOutputFormat<Map<String, Object>> array = format().setLayout(JsonOutputFormat.Layout.ARRAY);
+    assertEquals("[\n]\n", read(write(array, Collections.emptyList())));
+    assertEquals("[\n{\"a\":\"b\"}\n]\n", read(write(array, RECORDS.subList(0, 1))));
+    assertEquals("[\n{\"a\":\"b\"},\n{\"d\":1}\n]\n", read(write(array, Arrays.asList(RECORDS.get(0), RECORDS.get(2)))));
+  }
+
+  @Test
+  public void testRaw() throws Exception {
+    final JsonOutputFormat<String> raw = new JsonOutputFormat<>(new File(folder.getRoot(), "raw.json").getPath(),
+      JsonOutputFormat.raw());
+    raw.configure(new Configuration());
+    raw.open(0, 1);
+    raw.writeRecord("{\"a\":\"ä\"}");
+    raw.writeRecord("{\"d\":1}");
+    raw.close();
+    assertEquals("{\"a\":\"ä\"}\n{\"d\":1}\n", read(new File(folder.getRoot(), "raw.json")));
+  }
+
+  /**
+   * A record whose getter fails, which Jackson reports as a mapping error.
+   */
+  public static final class Value {
+    private final String value;
+
+    Value(String value) {
+      this.value = value;
+    }
+
+    public String getValue() {
+      if (value == null) {
+        throw new IllegalStateException("no value");
+      }
+      return value;
+    }
+  }
+
+  @Test
+  public void testJacksonSkipsFailingRecords() throws Exception {
+    final File file = new File(folder.getRoot(), "jackson.json");
+    for (JsonOutputFormat.Layout layout : JsonOutputFormat.Layout.values()) {
+      final JsonOutputFormat<Value> format = new JsonOutputFormat<Value>(file.getPath(), JsonOutputFormat.jackson())
+        .setLayout(layout);
+      format.configure(new Configuration());
+      format.open(0, 1);
+      format.writeRecord(new Value(null));
+      format.writeRecord(new Value("a"));
+      format.writeRecord(new Value(null));
+      format.writeRecord(new Value("b"));
+      format.writeRecord(new Value(null));
+      format.close();
+      final String expected = layout == JsonOutputFormat.Layout.ARRAY
+        ? "[\n{\"value\":\"a\"},\n{\"value\":\"b\"}\n]\n" : "{\"value\":\"a\"}\n{\"value\":\"b\"}\n";
+      assertEquals(expected, read(file));
+    }
+  }
+
+  @Test
+  public void testGzipBlocks() throws Exception {
+    final List<Map<String, Object>> records = new ArrayList<>();
+    final StringBuilder expected = new StringBuilder();
+    for (int i = 0; i < 100; i++) {
+      records.add(Collections.singletonMap("record", i));
+      expected.append(JSON.std.asString(records.get(i))).append('\n');
+    }
+    final File file = write(format().setGzip(true).setBlockSize(100), records);
+    try (InputStream in = new GZIPInputStream(new FileInputStream(file))) {
+      assertEquals(expected.toString(), IOUtils.toString(in, StandardCharsets.UTF_8));
+    }
+    // every block is a gzip member of its own
+    final byte[] bytes = Files.readAllBytes(file.toPath());
+    int members = 0;
+    for (int i = 0; i + 2 < bytes.length; i++) {
+      if (bytes[i] == (byte) 0x1f && bytes[i + 1] == (byte) 0x8b && bytes[i + 2] == 8) {
+        members++;
+      }
+    }
+    assertTrue("members " + members, members > 1);
+  }
+}
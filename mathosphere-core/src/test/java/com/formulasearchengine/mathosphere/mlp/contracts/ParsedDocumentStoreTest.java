@@ -0,0 +1,128 @@
+package com.formulasearchengine.mathosphere.mlp.contracts;
+
+import com.formulasearchengine.mathosphere.mlp.pojos.ParsedWikiDocument;
+
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.core.fs.FileInputSplit;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class ParsedDocumentStoreTest {
+
+  private static List<ParsedWikiDocument> docs;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @BeforeClass
+  public static void parse() throws Exception {
+    docs = Arrays.asList(
+      CreateCandidatesMapperTest.read("com/formulasearchengine/mathosphere/mlp/augmentendwikitext.xml", 0),
+      CreateCandidatesMapperTest.read("com/formulasearchengine/mathosphere/mlp/augmentendwikitext.xml", 1),
+      CreateCandidatesMapperTest.read("com/formulasearchengine/mathosphere/mlp/mrrFullHist.xml", 0));
+  }
+
+  private String write(int tasks, int blockSize) throws IOException {
+    final String path = new File(folder.getRoot(), "parsed").getPath();
+    for (int task = 0; task < tasks; task++) {
+      final ParsedDocumentStore.ShardOutputFormat format = new ParsedDocumentStore.ShardOutputFormat(path, blockSize);
+      format.configure(new Configuration());
+      format.open(task, tasks);
+      for (int i = task; i < docs.size(); i += tasks) {
+        format.writeRecord(docs.get(i));
+      }
+      format.close();
+    }
+    return path;
+  }
+
+  private static List<ParsedWikiDocument> readAll(String path, int minSplits) throws IOException {
+    final ParsedDocumentStore.ShardInputFormat format = new ParsedDocumentStore.ShardInputFormat(path);
+    format.configure(new Configuration());
+    final List<ParsedWikiDocument> result = new ArrayList<>();
+    for (FileInputSplit split : format.createInputSplits(minSplits)) {
+      format.open(split);
+      while (!format.reachedEnd()) {
+        result.add(format.nextRecord(null));
+      }
+      format.close();
+    }
+    return result;
+  }
+
+  private static void assertDocument(ParsedWikiDocument expected, ParsedWikiDocument actual) {
+    assertEquals(expected.getTitle(), actual.getTitle());
+    assertEquals(expected.getIdentifiers(), actual.getIdentifiers());
+    assertEquals(expected.getFormulas().size(), actual.getFormulas().size());
+    assertEquals(expected.getSentences().toString(), actual.getSentences().toString());
+  }
+
+  @Test
+  public void testSingleBlock() throws Exception {
+    final List<ParsedWikiDocument> read = readAll(write(1, ParsedDocumentStore.BLOCK_SIZE), 1);
+    assertEquals(docs.size(), read.size());
+    for (int i = 0; i < docs.size(); i++) {
+      assertDocument(docs.get(i), read.get(i));
+    }
+  }
+
+  @Test
+  public void testSplitAtBlocks() throws Exception {
+    // one document per block, spread over two shards
+    final String path = write(2, 1);
+    for (int splits : new int[]{1, 2, 5, 20}) {
+      final List<ParsedWikiDocument> read = readAll(path, splits);
+      assertEquals("splits " + splits, docs.size(), read.size());
+      read.sort((a, b) -> Integer.compare(indexOf(a), indexOf(b)));
+      for (int i = 0; i < docs.size(); i++) {
+        assertDocument(docs.get(i), read.get(i));
+      }
+    }
+  }
+
+  private static int indexOf(ParsedWikiDocument doc) {
+    for (int i = 0; i < docs.size(); i++) {
+      if (docs.get(i).getTitle().equals(doc.getTitle())) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  @Test
+  public void testIndex() throws Exception {
+    final String path = write(2, 1);
+    assertEquals(Arrays.asList(docs.get(0).getTitle(), docs.get(2).getTitle(), docs.get(1).getTitle()),
+      ParsedDocumentStore.titles(path));
+    assertDocument(docs.get(1), ParsedDocumentStore.find(path, docs.get(1).getTitle()));
+    assertNull(ParsedDocumentStore.find(path, "no such page"));
+  }
+
+  @Test
+  public void testIncompleteShard() throws Exception {
+    final File shard = new File(write(1, 1)).listFiles()[0];
+    final byte[] bytes = Files.readAllBytes(shard.toPath());
+    Files.write(shard.toPath(), Arrays.copyOf(bytes, bytes.length - 4));
+    try {
+      ParsedDocumentStore.titles(shard.getPath());
+      fail();
+    } catch (IOException e) {
+      assertThat(e.getMessage(), containsString("without index"));
+    }
+  }
+}
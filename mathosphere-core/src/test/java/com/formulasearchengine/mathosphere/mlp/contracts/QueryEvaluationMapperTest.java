@@ -0,0 +1,245 @@
+package com.formulasearchengine.mathosphere.mlp.contracts;
+
+import com.beust.jcommander.JCommander;
+import com.formulasearchengine.mathosphere.mlp.FlinkMlpRelationFinder;
+import com.formulasearchengine.mathosphere.mlp.cli.EvalCommandConfig;
+import com.formulasearchengine.mathosphere.mlp.pojos.EvaluationCounts;
+import com.formulasearchengine.mathosphere.mlp.pojos.MathTag;
+import com.formulasearchengine.mathosphere.mlp.pojos.ParsedWikiDocument;
+import com.formulasearchengine.mathosphere.mlp.pojos.QueryEvaluation;
+import com.formulasearchengine.mathosphere.mlp.pojos.RawWikiDocument;
+import com.formulasearchengine.mathosphere.mlp.pojos.Relation;
+import com.formulasearchengine.mathosphere.mlp.pojos.WikiDocumentOutput;
+import com.formulasearchengine.mathosphere.mlp.text.TexIdentifierExtractor;
+import com.formulasearchengine.mathosphere.mlp.text.WikiTextUtils;
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.Multiset;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVRecord;
+import org.apache.flink.api.common.functions.MapFunction;
+import org.apache.flink.api.common.functions.util.ListCollector;
+import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.configuration.Configuration;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.FileReader;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares the parallel evaluation with the single reduceGroup it replaced, which is kept below as the reference.
+ */
+public class QueryEvaluationMapperTest {
+
+  private static final String GOLD = "com/formulasearchengine/mathosphere/mlp/gold/";
+  private static final int DOCUMENTS = 5;
+
+  private static List<ParsedWikiDocument> docs;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @BeforeClass
+  public static void parse() throws Exception {
+    final EvalCommandConfig config = config(resourcePath("com/formulasearchengine/mathosphere/mlp/nd"));
+    final TextAnnotatorMapper annotator = new TextAnnotatorMapper(config);
+    annotator.open(new Configuration());
+    docs = new ArrayList<>();
+    for (RawWikiDocument doc : TextAnnotatorMapperTest.readWikiTextDocuments(GOLD + "eval_dataset.xml")
+      .subList(0, DOCUMENTS)) {
+      docs.add(annotator.map(doc));
+    }
+    annotator.close();
+  }
+
+  private static EvalCommandConfig config(String relevanceFolder) {
+    final EvalCommandConfig config = new EvalCommandConfig();
+    new JCommander(config).parse(
+      "-in", resourcePath(GOLD + "eval_dataset.xml"),
+      "-out", "unused",
+      "--queries", resourcePath(GOLD + "gold.json"),
+      "--nd", resourcePath(GOLD + "nd.json"),
+      "--tex",
+      "--texvcinfo", TexIdentifierExtractor.LOCAL,
+      "-t", "0.8",
+      "--level", "2",
+      "--ref", relevanceFolder);
+    return config;
+  }
+
+  private static String resourcePath(String resourceName) {
+    try {
+      return URLDecoder.decode(
+        QueryEvaluationMapperTest.class.getClassLoader().getResource(resourceName).getFile(), "UTF-8");
+    } catch (Exception e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static EvaluationCounts evaluate(EvalCommandConfig config) throws Exception {
+    final QueryEvaluationMapper mapper = new QueryEvaluationMapper(config,
+      FlinkMlpRelationFinder.readGold(config), FlinkMlpRelationFinder.readNamespaceData(config));
+    final List<QueryEvaluation> evaluations = new ArrayList<>();
+    for (ParsedWikiDocument doc : docs) {
+      mapper.flatMap(doc, new ListCollector<>(evaluations));
+    }
+    assertTrue(!evaluations.isEmpty());
+    return evaluations.stream().reduce(QueryEvaluation::add).get().getCounts();
+  }
+
+  private static void assertCounts(EvaluationCounts expected, EvaluationCounts actual) {
+    assertEquals("identifier tp", expected.getIdentifierTp(), actual.getIdentifierTp());
+    assertEquals("identifier fp", expected.getIdentifierFp(), actual.getIdentifierFp());
+    assertEquals("identifier fn", expected.getIdentifierFn(), actual.getIdentifierFn());
+    assertEquals("definition tp", expected.getDefinitionTp(), actual.getDefinitionTp());
+    assertEquals("definition fp", expected.getDefinitionFp(), actual.getDefinitionFp());
+    assertEquals("definition fn", expected.getDefinitionFn(), actual.getDefinitionFn());
+  }
+
+  @Test
+  public void testSameCountsAsReduceGroup() throws Exception {
+    final EvalCommandConfig config = config(resourcePath("com/formulasearchengine/mathosphere/mlp/nd"));
+    final EvaluationCounts expected = reduceGroup(config);
+    assertTrue(expected.getIdentifierTp() > 0);
+    assertTrue(expected.getDefinitionTp() + expected.getDefinitionFp() > 0);
+    assertCounts(expected, evaluate(config));
+  }
+
+  @Test
+  public void testMissingRelevanceJudgements() throws Exception {
+    final EvalCommandConfig config = config(folder.getRoot().getPath());
+    final EvaluationCounts expected = reduceGroup(config);
+    final EvaluationCounts actual = evaluate(config);
+    assertCounts(expected, actual);
+    // the identifiers are still evaluated, only the relations are not
+    assertTrue(actual.getIdentifierTp() > 0);
+    assertEquals(0, actual.getDefinitionTp() + actual.getDefinitionFp() + actual.getDefinitionFn());
+  }
+
+  /**
+   * The counting of the reduceGroup that evaluated the whole gold standard before, without the output files.
+   */
+  private static EvaluationCounts reduceGroup(EvalCommandConfig config) throws Exception {
+    final Map<String, Object> gold = FlinkMlpRelationFinder.readGold(config);
+    final Map<String, Object> ndData = FlinkMlpRelationFinder.readNamespaceData(config);
+    Multiset<String> tpOverall = HashMultiset.create();
+    Multiset<String> fnOverall = HashMultiset.create();
+    Multiset<String> fpOverall = HashMultiset.create();
+    Multiset<Relation> tpRelOverall = HashMultiset.create();
+    Integer fnRelOverallCnt = 0;
+    Multiset<Relation> fpRelOverall = HashMultiset.create();
+    for (ParsedWikiDocument parsedWikiDocument : docs) {
+      String title = parsedWikiDocument.getTitle().replaceAll(" ", "_");
+      try {
+        Map goldElement = (Map) gold.get(title);
+        Map formula = (Map) goldElement.get("formula");
+        final Integer formulaId = Integer.parseInt((String) formula.get("fid"));
+        final String tex = (String) formula.get("math_inputtex");
+        final String qId = (String) formula.get("qID");
+        final MathTag seed = parsedWikiDocument.getFormulas().stream()
+          .filter(f -> f.getMarkUpType().equals(WikiTextUtils.MathMarkUpType.LATEX)).collect(Collectors.toList())
+          .get(formulaId);
+        if (!seed.getContent().equals(tex)) {
+          throw new Exception("Invalid numbering.");
+        }
+        final MapFunction<ParsedWikiDocument, WikiDocumentOutput> candidatesMapper = config.isPatternMatcher()
+          ? new PatternMatcherMapper() : new CreateCandidatesMapper(config);
+        final WikiDocumentOutput wikiDocumentOutput = candidatesMapper.map(parsedWikiDocument);
+        List<Relation> relations = wikiDocumentOutput.getRelations();
+        final Set<String> real = seed.getIdentifiers(config).elementSet();
+        final Map definitions = (Map) goldElement.get("definitions");
+        final Set expected = definitions.keySet();
+        Set<String> tp = new HashSet<>(expected);
+        Set<String> fn = new HashSet<>(expected);
+        Set<String> fp = new HashSet<>(real);
+        tp.retainAll(real);
+        fn.removeAll(real);
+        fp.removeAll(expected);
+        tpOverall.addAll(tp);
+        fnOverall.addAll(fn);
+        fpOverall.addAll(fp);
+        if (config.getNamespace()) {
+          getNamespaceData(ndData, title, relations);
+        }
+        relations.removeIf(r -> !expected.contains(r.getIdentifier()));
+        Collections.sort(relations, Relation::compareToName);
+        removeDuplicates(definitions, relations);
+        Map<Tuple2<String, String>, Integer> references = new HashMap<>();
+        if (config.getRelevanceFolder() != null) {
+          final FileReader relevance = new FileReader(config.getRelevanceFolder() + "/q" + qId + ".csv");
+          Iterable<CSVRecord> records = CSVFormat.RFC4180.parse(relevance);
+          for (CSVRecord record : records) {
+            String identifier = record.get(0);
+            if (identifier.length() > 0) {
+              String definition = record.get(1);
+              Integer relevanceRanking = Integer.valueOf(record.get(2));
+              references.put(new Tuple2<>(identifier, definition), relevanceRanking);
+            }
+          }
+          int tpcnt = 0;
+          for (Relation relation : relations) {
+            Integer score = references.get(new Tuple2<>(relation.getIdentifier(), relation.getDefinition()));
+            if (score != null && score >= config.getLevel()) {
+              tpRelOverall.add(relation);
+              tpcnt++;
+            } else {
+              fpRelOverall.add(relation);
+            }
+          }
+          fnRelOverallCnt += (expected.size() - tpcnt);
+        }
+      } catch (Exception e) {
+        // the document is skipped from here on, as before
+      }
+    }
+    return new EvaluationCounts(tpOverall.size(), fpOverall.size(), fnOverall.size(),
+      tpRelOverall.size(), fpRelOverall.size(), fnRelOverallCnt);
+  }
+
+  private static void removeDuplicates(Map definitions, List<Relation> relations) {
+    String lastDef = "";
+    String lastIdent = "";
+    final Iterator<Relation> iterator = relations.iterator();
+    while (iterator.hasNext()) {
+      final Relation relation = iterator.next();
+      final List<String> refList = FlinkMlpRelationFinder.getDefiniens(definitions, relation);
+      final String definition = relation.getDefinition().replaceAll("(\\[\\[|\\]\\])", "").replaceAll("_", " ").trim().toLowerCase();
+      if (refList.contains(definition)) {
+        relation.setRelevance(2);
+      }
+      if (lastIdent.compareTo(relation.getIdentifier())
+        + relation.getDefinition().compareToIgnoreCase(lastDef) == 0) {
+        iterator.remove();
+      }
+      lastDef = relation.getDefinition();
+      lastIdent = relation.getIdentifier();
+    }
+  }
+
+  private static void getNamespaceData(Map<String, Object> ndData, String title, List<Relation> relations) {
+    final Map nd = (Map) ndData.get(title);
+    if (nd != null) {
+      List relNS = (List) nd.get("namespace_relations");
+      if (relNS != null) {
+        for (Object o : relNS) {
+          relations.add(new Relation(o));
+        }
+      }
+    }
+  }
+}
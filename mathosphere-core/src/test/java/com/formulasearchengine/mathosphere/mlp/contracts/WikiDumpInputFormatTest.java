@@ -0,0 +1,101 @@
+package com.formulasearchengine.mathosphere.mlp.contracts;
+
+import com.formulasearchengine.mathosphere.mlp.PatternMatchingRelationFinder;
+import com.formulasearchengine.mathosphere.mlp.flink.ListCollector;
+import com.formulasearchengine.mathosphere.mlp.pojos.RawWikiDocument;
+import com.google.common.collect.Sets;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.core.fs.FileInputSplit;
+import org.apache.flink.core.fs.Path;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+public class WikiDumpInputFormatTest {
+
+  private static List<RawWikiDocument> readAll(String resource, int minSplits) throws Exception {
+    return readAll(resource, minSplits, WikiPageFilter.mainNamespace());
+  }
+
+  private static List<RawWikiDocument> readAll(String resource, int minSplits, WikiPageFilter filter) throws Exception {
+    Path path = new Path(PatternMatchingRelationFinder.class.getResource(resource).toURI());
+    WikiDumpInputFormat format = new WikiDumpInputFormat(path, filter);
+    format.configure(new Configuration());
+    List<RawWikiDocument> result = new ArrayList<>();
+    for (FileInputSplit split : format.createInputSplits(minSplits)) {
+      format.open(split);
+      while (!format.reachedEnd()) {
+        RawWikiDocument doc = format.nextRecord(new RawWikiDocument());
+        if (doc != null) {
+          result.add(doc);
+        }
+      }
+      format.close();
+    }
+    return result;
+  }
+
+  private static List<RawWikiDocument> readWithTextExtractor(String resource) throws Exception {
+    String rawInput = IOUtils.toString(PatternMatchingRelationFinder.class.getResourceAsStream(resource), "UTF-8");
+    TextExtractorMapper textExtractor = new TextExtractorMapper();
+    ListCollector<RawWikiDocument> out = new ListCollector<>();
+    for (String page : rawInput.split("</page>")) {
+      textExtractor.flatMap(page, out);
+    }
+    return out.getList();
+  }
+
+  @Test
+  public void testNamespaceFilter() throws Exception {
+    assertEquals(29, readAll("sample.xml", 3).size());
+    assertEquals(33, readAll("sample.xml", 3, new WikiPageFilter(Sets.newHashSet(0, 118), null, false)).size());
+    assertEquals(39, readAll("sample.xml", 3, new WikiPageFilter(null, null, false)).size());
+  }
+
+  @Test
+  public void testTitleFilter() throws Exception {
+    WikiPageFilter filter = new WikiPageFilter(null, Sets.newHashSet("Gas constant", "No such page"), false);
+    List<RawWikiDocument> output = readAll("augmentendwikitext.xml", 1, filter);
+    assertEquals(1, output.size());
+    assertEquals("Gas constant", output.get(0).title);
+  }
+
+  @Test
+  public void testMathFilter() throws Exception {
+    WikiPageFilter filter = new WikiPageFilter(null, null, true);
+    for (RawWikiDocument doc : readAll("sample.xml", 1, filter)) {
+      assertThat(doc.text, containsString("<math"));
+    }
+  }
+
+  @Test
+  public void testGer() throws Exception {
+    final String expected = IOUtils.toString(PatternMatchingRelationFinder.class.getResourceAsStream("text/deText.txt"), "UTF-8");
+    List<RawWikiDocument> output = readAll("dewikimath-20151213130534.xml", 1);
+    assertEquals(1, output.size());
+    assertEquals("Clapeyron-Gleichung", output.get(0).title);
+    assertEquals(expected, output.get(0).text);
+  }
+
+  @Test
+  public void testSameAsTextExtractor() throws Exception {
+    for (String resource : new String[] {"augmentendwikitext.xml", "sample.xml", "gold/eval_dataset.xml"}) {
+      List<RawWikiDocument> expected = readWithTextExtractor(resource);
+      for (int splits : new int[] {1, 3, 16}) {
+        List<RawWikiDocument> output = readAll(resource, splits);
+        assertEquals(resource, expected.size(), output.size());
+        for (int i = 0; i < expected.size(); i++) {
+          assertEquals(expected.get(i).title, output.get(i).title);
+          assertEquals(expected.get(i).text, output.get(i).text);
+        }
+      }
+    }
+  }
+}
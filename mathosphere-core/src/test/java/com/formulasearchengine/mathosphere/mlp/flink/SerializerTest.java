@@ -0,0 +1,157 @@
+package com.formulasearchengine.mathosphere.mlp.flink;
+
+import com.formulasearchengine.mathosphere.mathpd.FlinkPd;
+import com.formulasearchengine.mathosphere.mathpd.pojos.ExtractedMathPDDocument;
+import com.formulasearchengine.mathosphere.mathpd.pojos.ExtractedMathPDDocumentSerializer;
+import com.formulasearchengine.mathosphere.mlp.cli.FlinkMlpCommandConfig;
+import com.formulasearchengine.mathosphere.mlp.contracts.CreateCandidatesMapper;
+import com.formulasearchengine.mathosphere.mlp.contracts.CreateCandidatesMapperTest;
+import com.formulasearchengine.mathosphere.mlp.contracts.JsonSerializerMapper;
+import com.formulasearchengine.mathosphere.mlp.contracts.TextAnnotatorMapper;
+import com.formulasearchengine.mathosphere.mlp.pojos.MathTag;
+import com.formulasearchengine.mathosphere.mlp.pojos.ParsedWikiDocument;
+import com.formulasearchengine.mathosphere.mlp.pojos.RawWikiDocument;
+import com.formulasearchengine.mathosphere.mlp.pojos.Relation;
+import com.formulasearchengine.mathosphere.mlp.pojos.RelationSerializer;
+import com.formulasearchengine.mathosphere.mlp.pojos.SerializerTypeInfo;
+import com.formulasearchengine.mathosphere.mlp.pojos.WikiDocumentOutput;
+import com.formulasearchengine.mathosphere.mlp.pojos.WikiDocumentOutputSerializer;
+
+import org.apache.flink.api.common.ExecutionConfig;
+import org.apache.flink.api.common.functions.ReduceFunction;
+import org.apache.flink.api.common.typeutils.ParameterlessTypeSerializerConfig;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.api.common.typeutils.TypeSerializerConfigSnapshot;
+import org.apache.flink.api.java.DataSet;
+import org.apache.flink.api.java.ExecutionEnvironment;
+import org.apache.flink.api.java.io.DiscardingOutputFormat;
+import org.apache.flink.api.java.typeutils.TypeExtractor;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.core.memory.DataInputDeserializer;
+import org.apache.flink.core.memory.DataOutputSerializer;
+import org.apache.flink.optimizer.DataStatistics;
+import org.apache.flink.optimizer.Optimizer;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the MLP and MathPD jobs are compiled without generic types, i.e. without Kryo.
+ */
+public class SerializerTest {
+
+  private final FlinkMlpCommandConfig config = FlinkMlpCommandConfig.test();
+
+  private static ExecutionEnvironment withoutGenericTypes() {
+    ExecutionEnvironment env = ExecutionEnvironment.createLocalEnvironment(1);
+    env.getConfig().disableGenericTypes();
+    return env;
+  }
+
+  /**
+   * Compiling creates the serializers of all channels, which fails for generic types if they are disabled.
+   */
+  private static void compile(ExecutionEnvironment env) throws Exception {
+    new Optimizer(new DataStatistics(), new Configuration()).compile(env.createProgramPlan());
+  }
+
+  private static <T> T roundTrip(TypeSerializer<T> serializer, T value) throws Exception {
+    DataOutputSerializer out = new DataOutputSerializer(4096);
+    serializer.serialize(value, out);
+    return serializer.deserialize(new DataInputDeserializer(out.getByteArray(), 0, out.length()));
+  }
+
+  @Test
+  public void typeInformation() {
+    ExecutionConfig executionConfig = new ExecutionConfig();
+    executionConfig.disableGenericTypes();
+    for (Class<?> type : new Class<?>[]{ParsedWikiDocument.class, WikiDocumentOutput.class, Relation.class,
+      MathTag.class, ExtractedMathPDDocument.class}) {
+      assertThat(TypeExtractor.createTypeInfo(type), instanceOf(SerializerTypeInfo.class));
+      TypeExtractor.createTypeInfo(type).createSerializer(executionConfig);
+    }
+  }
+
+  @Test
+  public void relationFinderJob() throws Exception {
+    ExecutionEnvironment env = withoutGenericTypes();
+    env.fromElements(new RawWikiDocument("title", 0, "text"))
+      .map(new TextAnnotatorMapper(config))
+      .rebalance()
+      .map(new CreateCandidatesMapper(config))
+      .rebalance()
+      .map(new JsonSerializerMapper<>())
+      .output(new DiscardingOutputFormat<>());
+    compile(env);
+  }
+
+  @Test
+  public void mathPdJob() throws Exception {
+    ExecutionEnvironment env = withoutGenericTypes();
+    DataSet<ExtractedMathPDDocument> docs = env.fromElements(new ExtractedMathPDDocument("a", "x"),
+      new ExtractedMathPDDocument("b", "y"));
+    docs.groupBy(new FlinkPd.SelectTitle())
+      .reduce((ReduceFunction<ExtractedMathPDDocument>) (a, b) -> a)
+      .cross(docs)
+      .output(new DiscardingOutputFormat<>());
+    compile(env);
+  }
+
+  @Test
+  public void wikiDocumentOutput() throws Exception {
+    ParsedWikiDocument doc = CreateCandidatesMapperTest.read("com/formulasearchengine/mathosphere/mlp/augmentendwikitext.xml");
+    WikiDocumentOutput output = new CreateCandidatesMapper(config).map(doc);
+    WikiDocumentOutput copy = roundTrip(WikiDocumentOutputSerializer.INSTANCE, output);
+
+    assertEquals(output.getTitle(), copy.getTitle());
+    assertEquals(output.getIdentifiers().size(), copy.getIdentifiers().size());
+    List<Relation> relations = output.getRelations();
+    assertEquals(relations.size(), copy.getRelations().size());
+    for (int i = 0; i < relations.size(); i++) {
+      assertRelation(relations.get(i), copy.getRelations().get(i));
+    }
+    Relation relation = roundTrip(RelationSerializer.INSTANCE, relations.get(0));
+    assertRelation(relations.get(0), relation);
+  }
+
+  private static void assertRelation(Relation expected, Relation actual) {
+    assertEquals(expected.toString(), actual.toString());
+    assertEquals(expected.getIdentifierPosition(), actual.getIdentifierPosition());
+    assertEquals(expected.getWordPosition(), actual.getWordPosition());
+    assertEquals(expected.getSentence().getWords(), actual.getSentence().getWords());
+    assertEquals(expected.getSentence().getIdentifiers(), actual.getSentence().getIdentifiers());
+  }
+
+  @Test
+  public void extractedMathPdDocument() throws Exception {
+    ExtractedMathPDDocument doc = new ExtractedMathPDDocument("title", "text <math>x</math>");
+    doc.setName("name");
+    doc.setPage("1");
+    doc.getHistogramCi().put("x", 2.0);
+    doc.getHistogramCn().put("1", 1.0);
+    ExtractedMathPDDocument copy = roundTrip(ExtractedMathPDDocumentSerializer.INSTANCE, doc);
+    assertEquals(doc.toString(), copy.toString());
+    assertEquals(doc.getId(), copy.getId());
+    assertEquals(doc.getPlainText(), copy.getPlainText());
+    assertEquals(doc.getHistogramCi(), copy.getHistogramCi());
+    assertEquals(doc.getHistogramCn(), copy.getHistogramCn());
+    assertEquals(doc.getHistogramCsymbol(), copy.getHistogramCsymbol());
+    assertEquals(doc.getHistogramBvar(), copy.getHistogramBvar());
+  }
+
+  @Test
+  public void compatibility() {
+    TypeSerializerConfigSnapshot snapshot = WikiDocumentOutputSerializer.INSTANCE.snapshotConfiguration();
+    assertFalse(WikiDocumentOutputSerializer.INSTANCE.ensureCompatibility(snapshot).isRequiresMigration());
+    assertTrue(RelationSerializer.INSTANCE.ensureCompatibility(snapshot).isRequiresMigration());
+    assertTrue(WikiDocumentOutputSerializer.INSTANCE.ensureCompatibility(
+      new ParameterlessTypeSerializerConfig(WikiDocumentOutputSerializer.class.getName() + "/0"))
+      .isRequiresMigration());
+  }
+}
@@ -0,0 +1,139 @@
+package com.formulasearchengine.mathosphere.mlp.ml;
+
+import com.formulasearchengine.mathosphere.mlp.pojos.Sentence;
+import com.formulasearchengine.mathosphere.mlp.pojos.Word;
+
+import edu.stanford.nlp.parser.nndep.DependencyParser;
+import edu.stanford.nlp.trees.GrammaticalStructure;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class DependencyParseCacheTest {
+
+  private static DependencyParser parser;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @BeforeClass
+  public static void loadParser() {
+    parser = DependencyParser.loadFromModelFile("edu/stanford/nlp/models/parser/nndep/english_UD.gz");
+  }
+
+  private static Sentence sentence(String... wordsAndTags) {
+    final List<Word> words = new ArrayList<>();
+    for (int i = 0; i < wordsAndTags.length; i += 2) {
+      words.add(new Word(wordsAndTags[i], wordsAndTags[i + 1]));
+    }
+    return new Sentence(words, Collections.emptySet(), Collections.emptyList());
+  }
+
+  private static Sentence example() {
+    return sentence("Let", "VB", "x", "ID", "be", "VB", "the", "DT", "energy", "NN", ".", ".");
+  }
+
+  @Test
+  public void testParseOnce() {
+    final DependencyParseCache cache = new DependencyParseCache(10);
+    final GrammaticalStructure tree = cache.parse(parser, example());
+    // equal content of another sentence object
+    assertSame(tree, cache.parse(parser, example()));
+    assertEquals(1, cache.getStats().missCount());
+    assertEquals(1, cache.getStats().hitCount());
+    assertEquals(0.5, cache.getHitRate(), 0);
+  }
+
+  @Test
+  public void testHash() {
+    assertEquals(DependencyParseCache.hash(example()), DependencyParseCache.hash(example()));
+    assertNotEquals(DependencyParseCache.hash(sentence("x", "ID", "is", "VBZ")),
+      DependencyParseCache.hash(sentence("x", "NN", "is", "VBZ")));
+    assertNotEquals(DependencyParseCache.hash(sentence("ab", "NN")), DependencyParseCache.hash(sentence("a", "bNN")));
+  }
+
+  @Test
+  public void testMaximumSize() {
+    final DependencyParseCache cache = new DependencyParseCache(1);
+    cache.parse(parser, example());
+    cache.parse(parser, sentence("x", "ID", "is", "VBZ", "the", "DT", "mass", "NN"));
+    cache.parse(parser, example());
+    assertEquals(1, cache.size());
+    assertEquals(3, cache.getStats().missCount());
+  }
+
+  @Test
+  public void testPersist() throws Exception {
+    final File file = new File(folder.getRoot(), "cache/dependencies.bin");
+    final DependencyParseCache cache = DependencyParseCache.load(file, 10);
+    final GrammaticalStructure tree = cache.parse(parser, example());
+    cache.parse(parser, example());
+
+    final DependencyParseCache reloaded = DependencyParseCache.load(file, 10);
+    assertEquals(1, reloaded.size());
+    assertEquals(tree.typedDependencies().toString(), reloaded.parse(parser, example()).typedDependencies().toString());
+    assertEquals(1, reloaded.getHitRate(), 0);
+  }
+
+  @Test
+  public void testCompactOnLoad() throws Exception {
+    final File file = new File(folder.getRoot(), "dependencies.bin");
+    final DependencyParseCache cache = DependencyParseCache.load(file, 1);
+    cache.parse(parser, example());
+    cache.parse(parser, sentence("x", "ID", "is", "VBZ", "the", "DT", "mass", "NN"));
+    final long length = file.length();
+    // parsed and appended again after the eviction
+    cache.parse(parser, example());
+    assertEquals(3, cache.getStats().missCount());
+    assertTrue(file.length() > length);
+    cache.close();
+
+    final DependencyParseCache reloaded = DependencyParseCache.load(file, 10);
+    assertEquals(2, reloaded.size());
+    assertEquals(length, file.length());
+    reloaded.close();
+  }
+
+  @Test
+  public void testSizeZeroNotPersisted() throws Exception {
+    final File file = new File(folder.getRoot(), "disabled.bin");
+    final DependencyParseCache cache = DependencyParseCache.load(file, 0);
+    cache.parse(parser, example());
+    cache.parse(parser, example());
+    assertEquals(2, cache.getStats().missCount());
+    assertFalse(file.exists());
+  }
+
+  @Test
+  public void testOpenShared() throws Exception {
+    final String file = new File(folder.getRoot(), "shared.bin").getPath();
+    final DependencyParseCache first = DependencyParseCache.open(file, 10);
+    final DependencyParseCache second = DependencyParseCache.open(file, 10);
+    assertSame(first, second);
+    assertSame(DependencyParseCache.open(null, 10), DependencyParseCache.open(null, 10));
+
+    first.parse(parser, example());
+    first.close();
+    // still open for the second task slot
+    assertSame(second, DependencyParseCache.open(file, 10));
+    second.close();
+    second.close();
+    final DependencyParseCache reopened = DependencyParseCache.open(file, 10);
+    assertNotSame(first, reopened);
+    assertEquals(1, reopened.size());
+    reopened.close();
+  }
+}
@@ -0,0 +1,89 @@
+package com.formulasearchengine.mathosphere.mlp.ml;
+
+import org.apache.flink.configuration.Configuration;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static com.formulasearchengine.mathosphere.mlp.ml.WekaUtils.*;
+import static org.junit.Assert.assertEquals;
+
+public class FeatureStoreTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private static Instances document(String title, String... identifiers) {
+    Instances instances = new WekaUtils().createInstances(title);
+    for (int i = 0; i < identifiers.length; i++) {
+      double[] values = new double[instances.numAttributes()];
+      for (int a = 0; a < values.length; a++) {
+        values[a] = instances.attribute(a).isString() ? instances.attribute(a).addStringValue("") : a + i / 10d;
+      }
+      values[instances.attribute(TITLE).index()] = instances.attribute(TITLE).addStringValue(title);
+      values[instances.attribute(IDENTIFIER).index()] = instances.attribute(IDENTIFIER).addStringValue(identifiers[i]);
+      values[instances.attribute(DEFINIEN).index()] = instances.attribute(DEFINIEN).addStringValue("energy ä");
+      values[values.length - 1] = nominal.indexOf(i % 2 == 0 ? MATCH : NO_MATCH);
+      instances.add(new DenseInstance(1.0, values));
+    }
+    return instances;
+  }
+
+  private static void assertRows(Instances expected, Instances actual, int offset) {
+    for (int i = 0; i < expected.numInstances(); i++) {
+      assertEquals(expected.get(i).toString(), actual.get(offset + i).toString());
+    }
+  }
+
+  @Test
+  public void testEncodeDecode() throws Exception {
+    Instances a = document("A", "x", "y");
+    Instances b = document("B", "E");
+    Instances all = new WekaUtils().createInstances("AllRelations");
+    FeatureStore.decode(FeatureStore.encode(a), all);
+    FeatureStore.decode(FeatureStore.encode(b), all);
+    FeatureStore.decode(FeatureStore.encode(document("C")), all);
+    assertEquals(3, all.numInstances());
+    assertRows(a, all, 0);
+    assertRows(b, all, 2);
+  }
+
+  @Test
+  public void testShards() throws Exception {
+    String path = new File(folder.getRoot(), "features").getPath();
+    for (int task = 0; task < 2; task++) {
+      FeatureStore.ShardOutputFormat format = new FeatureStore.ShardOutputFormat(path);
+      format.configure(new Configuration());
+      format.open(task, 2);
+      format.writeRecord(FeatureStore.encode(document("T" + task, "x", "y")));
+      format.writeRecord(FeatureStore.encode(document("U" + task, "z")));
+      format.close();
+    }
+    assertEquals(2, new File(path).listFiles().length);
+    Instances all = FeatureStore.read(path);
+    assertEquals(6, all.numInstances());
+    assertRows(document("T0", "x", "y"), all, 0);
+    assertRows(document("U1", "z"), all, 5);
+  }
+
+  @Test(expected = IOException.class)
+  public void testTruncated() throws Exception {
+    String path = new File(folder.getRoot(), "features").getPath();
+    FeatureStore.ShardOutputFormat format = new FeatureStore.ShardOutputFormat(path);
+    format.configure(new Configuration());
+    format.open(0, 1);
+    format.writeRecord(FeatureStore.encode(document("T", "x", "y")));
+    format.close();
+    File shard = new File(path).listFiles()[0];
+    byte[] bytes = Files.readAllBytes(shard.toPath());
+    Files.write(shard.toPath(), Arrays.copyOf(bytes, bytes.length - 3));
+    FeatureStore.read(path);
+  }
+}
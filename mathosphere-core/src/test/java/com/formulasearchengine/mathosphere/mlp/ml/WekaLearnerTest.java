@@ -0,0 +1,121 @@
+package com.formulasearchengine.mathosphere.mlp.ml;
+
+import com.formulasearchengine.mathosphere.mlp.pojos.EvaluationResult;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class WekaLearnerTest {
+
+  private static double pow2(double exponent) {
+    return Math.pow(2, exponent);
+  }
+
+  private static String key(double costExponent, double gammaExponent) {
+    return WekaLearner.gridKey(pow2(costExponent), pow2(gammaExponent));
+  }
+
+  /**
+   * Evaluates the grid points with a score that peaks at cost 2^2.6 and gamma 2^0.4 and records the grids.
+   */
+  private static final class PeakEvaluator implements WekaLearner.GridEvaluator {
+    private final List<List<String>> grids = new ArrayList<>();
+
+    @Override
+    public List<EvaluationResult> evaluate(List<double[]> grid) {
+      final List<String> keys = new ArrayList<>();
+      final List<EvaluationResult> results = new ArrayList<>();
+      for (double[] point : grid) {
+        keys.add(WekaLearner.gridKey(point[0], point[1]));
+        final double dc = Math.log(point[0]) / Math.log(2) - 2.6;
+        final double dy = Math.log(point[1]) / Math.log(2) - 0.4;
+        final EvaluationResult result = new EvaluationResult(1, 100, point[0], point[1]);
+        // the F1 is the harmonic mean of precision and recall, so it equals the score
+        result.averagePrecision[0] = 1 / (1 + dc * dc + dy * dy);
+        result.averageRecall[0] = result.averagePrecision[0];
+        results.add(result);
+      }
+      grids.add(keys);
+      return results;
+    }
+  }
+
+  @Test
+  public void testLog2Step() {
+    assertEquals(1, WekaLearner.log2Step(Arrays.asList(4d, 1d, 2d)), 1e-9);
+    assertEquals(0.25, WekaLearner.log2Step(Arrays.asList(pow2(-6.5), pow2(-6.25), pow2(-5.75))), 1e-9);
+    assertEquals(2, WekaLearner.log2Step(Arrays.asList(WekaLearner.C_coarse)), 1e-9);
+    assertEquals(2, WekaLearner.log2Step(Collections.singletonList(3d)), 0);
+  }
+
+  @Test
+  public void testGridKey() {
+    assertEquals(key(-3.75, -5.25), WekaLearner.gridKey(pow2(-4) * pow2(0.25), pow2(-5) / pow2(0.25)));
+    assertNotEquals(key(-3.75, -5.25), key(-3.75, -5.5));
+    assertNotEquals(key(1, 2), key(2, 1));
+  }
+
+  @Test
+  public void testRefinedSearch() throws Exception {
+    final PeakEvaluator evaluator = new PeakEvaluator();
+    final List<EvaluationResult> results = WekaLearner.search(Arrays.asList(pow2(0), pow2(2)),
+      Arrays.asList(pow2(-2), pow2(0)), 2, evaluator);
+
+    assertEquals(3, evaluator.grids.size());
+    assertEquals(new HashSet<>(Arrays.asList(key(0, -2), key(0, 0), key(2, -2), key(2, 0))),
+      new HashSet<>(evaluator.grids.get(0)));
+    // the neighbours of the best point 2^2/2^0 with the step 2^1, half of the distance of the initial grid
+    final Set<String> first = new HashSet<>();
+    for (int i = -1; i <= 1; i++) {
+      for (int j = -1; j <= 1; j++) {
+        first.add(key(2 + i, j));
+      }
+    }
+    first.remove(key(2, 0));
+    assertEquals(first, new HashSet<>(evaluator.grids.get(1)));
+    // the neighbours of the new best point 2^3/2^0 with the step 2^0.5
+    final Set<String> second = new HashSet<>();
+    for (int i = -1; i <= 1; i++) {
+      for (int j = -1; j <= 1; j++) {
+        second.add(key(3 + i * 0.5, j * 0.5));
+      }
+    }
+    second.remove(key(3, 0));
+    assertEquals(second, new HashSet<>(evaluator.grids.get(2)));
+
+    // no grid point is evaluated twice, and all of them are returned
+    final List<String> all = new ArrayList<>();
+    evaluator.grids.forEach(all::addAll);
+    assertEquals(all.size(), new HashSet<>(all).size());
+    assertEquals(all.size(), results.size());
+
+    // the best points of the earlier rounds survive the refinement
+    final Set<String> returned = new HashSet<>();
+    for (EvaluationResult result : results) {
+      returned.add(WekaLearner.gridKey(result.cost, result.gamma));
+    }
+    assertTrue(returned.contains(key(2, 0)));
+    assertTrue(returned.contains(key(3, 0)));
+    final EvaluationResult best = Collections.max(results, Comparator.comparingDouble(EvaluationResult::getF1));
+    assertEquals(key(2.5, 0.5), WekaLearner.gridKey(best.cost, best.gamma));
+  }
+
+  @Test
+  public void testNoRefinement() throws Exception {
+    final PeakEvaluator evaluator = new PeakEvaluator();
+    final List<EvaluationResult> results = WekaLearner.search(Arrays.asList(WekaLearner.C_best_F1),
+      Arrays.asList(WekaLearner.Y_best_F1), 0, evaluator);
+    assertEquals(1, evaluator.grids.size());
+    assertEquals(1, results.size());
+  }
+}
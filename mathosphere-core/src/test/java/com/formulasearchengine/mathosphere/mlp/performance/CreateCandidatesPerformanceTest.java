@@ -0,0 +1,163 @@
+package com.formulasearchengine.mathosphere.mlp.performance;
+
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Multiset;
+
+import com.formulasearchengine.mathosphere.mlp.cli.FlinkMlpCommandConfig;
+import com.formulasearchengine.mathosphere.mlp.contracts.CreateCandidatesMapper;
+import com.formulasearchengine.mathosphere.mlp.contracts.CreateCandidatesMapperTest;
+import com.formulasearchengine.mathosphere.mlp.pojos.ParsedWikiDocument;
+import com.formulasearchengine.mathosphere.mlp.pojos.Relation;
+import com.formulasearchengine.mathosphere.mlp.pojos.Sentence;
+import com.formulasearchengine.mathosphere.mlp.pojos.Word;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares the candidate generation of {@link CreateCandidatesMapper} with the original implementation, which
+ * creates a relation for every candidate and matches the POS tags with a regular expression.
+ */
+public class CreateCandidatesPerformanceTest {
+
+  private static final Logger LOGGER = LogManager.getLogger(CreateCandidatesPerformanceTest.class.getName());
+
+  private static final int ROUNDS = 200;
+
+  private final FlinkMlpCommandConfig config = FlinkMlpCommandConfig.test();
+
+  private static List<ParsedWikiDocument> getDocuments() throws Exception {
+    final List<ParsedWikiDocument> docs = new ArrayList<>();
+    for (int i = 0; i < 2; i++) {
+      docs.add(CreateCandidatesMapperTest.read("com/formulasearchengine/mathosphere/mlp/augmentendwikitext.xml", i));
+    }
+    return docs;
+  }
+
+  private static String describe(List<Relation> relations) {
+    final StringBuilder sb = new StringBuilder();
+    for (Relation relation : relations) {
+      sb.append(relation).append('@').append(relation.getIdentifierPosition()).append(':')
+        .append(relation.getWordPosition()).append('\n');
+    }
+    return sb.toString();
+  }
+
+  @Test
+  public void testSameResult() throws Exception {
+    final CreateCandidatesMapper mapper = new CreateCandidatesMapper(config);
+    for (ParsedWikiDocument doc : getDocuments()) {
+      assertEquals(describe(map(doc)), describe(mapper.map(doc).getRelations()));
+    }
+  }
+
+  @Test
+  @Ignore
+  public void testPerformance() throws Exception {
+    final List<ParsedWikiDocument> docs = getDocuments();
+    final CreateCandidatesMapper mapper = new CreateCandidatesMapper(config);
+    // warm up
+    for (ParsedWikiDocument doc : docs) {
+      map(doc);
+      mapper.map(doc);
+    }
+    long t0 = System.nanoTime();
+    for (int i = 0; i < ROUNDS; i++) {
+      for (ParsedWikiDocument doc : docs) {
+        map(doc);
+      }
+    }
+    final long original = System.nanoTime() - t0;
+    t0 = System.nanoTime();
+    for (int i = 0; i < ROUNDS; i++) {
+      for (ParsedWikiDocument doc : docs) {
+        mapper.map(doc);
+      }
+    }
+    final long primitive = System.nanoTime() - t0;
+    LOGGER.info("{} documents, {} rounds", docs.size(), ROUNDS);
+    LOGGER.info("original:  {}ms", original / 1000000);
+    LOGGER.info("primitive: {}ms", primitive / 1000000);
+  }
+
+  // the original implementation without definition merging
+
+  private List<Relation> map(ParsedWikiDocument doc) {
+    final List<Relation> relations = Lists.newArrayList();
+    for (String identifier : doc.getIdentifiers().elementSet()) {
+      final List<Relation> candidates = generateCandidates(doc, identifier);
+      Collections.sort(candidates);
+      Collections.reverse(candidates);
+      for (Relation rel : candidates) {
+        if (rel.getScore() >= config.getThreshold()) {
+          relations.add(rel);
+        }
+      }
+    }
+    return relations;
+  }
+
+  private List<Relation> generateCandidates(ParsedWikiDocument doc, String identifier) {
+    final List<Sentence> sentences = CreateCandidatesMapper.findSentencesWithIdentifier(doc.getSentences(), identifier);
+    final Multiset<String> frequencies = HashMultiset.create();
+    for (Sentence sentence : sentences) {
+      for (Word word : sentence.getWords()) {
+        if (isGood(word)) {
+          frequencies.add(word.getWord().toLowerCase());
+        }
+      }
+    }
+    if (frequencies.isEmpty()) {
+      return Lists.newArrayList();
+    }
+    final int maxFrequency = CreateCandidatesMapper.calculateMax(frequencies);
+    final List<Relation> result = Lists.newArrayList();
+    for (int sentenceIdx = 0; sentenceIdx < sentences.size(); sentenceIdx++) {
+      final Sentence sentence = sentences.get(sentenceIdx);
+      final List<Word> words = sentence.getWords();
+      final List<Integer> positions = CreateCandidatesMapper.identifierPositions(words, identifier);
+      for (int wordIdx = 0; wordIdx < words.size(); wordIdx++) {
+        final Word word = words.get(wordIdx);
+        if (!isGood(word)) {
+          continue;
+        }
+        final int identifierPosition = CreateCandidatesMapper.closestIdentifierPosition(positions, wordIdx);
+        final int distance = Math.abs(identifierPosition - wordIdx);
+        final int freq = frequencies.count(word.toLowerCase());
+        final Relation relation = new Relation();
+        relation.setIdentifier(identifier);
+        relation.setIdentifierPosition(identifierPosition);
+        relation.setDefinition(word, doc);
+        relation.setWordPosition(wordIdx);
+        relation.setScore(calculateScore(distance, freq, maxFrequency, sentenceIdx));
+        relation.setSentence(sentence);
+        result.add(relation);
+      }
+    }
+    return result;
+  }
+
+  private double calculateScore(int distance, int frequency, int maxFrequency, int sentenceIdx) {
+    final double std1 = Math.sqrt(Math.pow(5d, 2d) / (2d * Math.log(2)));
+    final double dist = Math.exp(-distance * distance / (2 * std1 * std1));
+    final double std2 = Math.sqrt(Math.pow(3d, 2d) / (2d * Math.log(2)));
+    final double seq = Math.exp(-sentenceIdx * sentenceIdx / (2 * std2 * std2));
+    final double relativeFrequency = (double) frequency / (double) maxFrequency;
+    return (config.getAlpha() * dist + config.getBeta() * seq + config.getGamma() * relativeFrequency)
+      / (config.getAlpha() + config.getBeta() + config.getGamma());
+  }
+
+  private static boolean isGood(Word in) {
+    final String word = in.getWord();
+    return word.length() >= 3 && !word.contains("<") && in.getPosTag().matches("NN[PS]{0,2}|NP\\+?|NN\\+|LNK");
+  }
+}
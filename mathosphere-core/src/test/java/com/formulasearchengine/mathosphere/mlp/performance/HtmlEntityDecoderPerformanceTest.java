@@ -0,0 +1,100 @@
+package com.formulasearchengine.mathosphere.mlp.performance;
+
+import com.formulasearchengine.mathosphere.TestUtils;
+import com.formulasearchengine.mathosphere.utils.HtmlEntityDecoder;
+import org.apache.commons.lang3.text.translate.AggregateTranslator;
+import org.apache.commons.lang3.text.translate.CharSequenceTranslator;
+import org.apache.commons.lang3.text.translate.EntityArrays;
+import org.apache.commons.lang3.text.translate.LookupTranslator;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Compares the {@link HtmlEntityDecoder} with the commons-lang translator it replaces on the pages of the gold
+ * standard dump.
+ */
+public class HtmlEntityDecoderPerformanceTest {
+
+  private static final Logger LOGGER = LogManager.getLogger(HtmlEntityDecoderPerformanceTest.class.getName());
+
+  private static final Pattern TEXT_PATTERN = Pattern.compile("(?:<text.*?>)(.*?)(?:</text>)", Pattern.DOTALL);
+
+  private static final CharSequenceTranslator TRANSLATOR = new AggregateTranslator(
+    new LookupTranslator(EntityArrays.ISO8859_1_UNESCAPE()),
+    new LookupTranslator(EntityArrays.BASIC_UNESCAPE()),
+    new LookupTranslator(EntityArrays.HTML40_EXTENDED_UNESCAPE()));
+
+  private static final int ROUNDS = 20;
+
+  private static List<String> getPages() throws Exception {
+    final String dump = TestUtils.getFileContents("com/formulasearchengine/mathosphere/mlp/gold/eval_dataset.xml");
+    final List<String> pages = new ArrayList<>();
+    final Matcher matcher = TEXT_PATTERN.matcher(dump);
+    while (matcher.find()) {
+      pages.add(matcher.group(1));
+    }
+    return pages;
+  }
+
+  @Test
+  public void testSameResult() throws Exception {
+    for (String page : getPages()) {
+      // decode twice to cover entities that were escaped in the dump (e.g. &amp;nbsp;)
+      final String once = HtmlEntityDecoder.decode(page);
+      assertEquals(TRANSLATOR.translate(page), once);
+      assertEquals(TRANSLATOR.translate(once), HtmlEntityDecoder.decode(once));
+    }
+    final String[] cases = {"", "&", "&;", "a&b", "&amp", "&amp;amp;", "&nbsp;&nbsp", "&&lt;;", "&thetasym;", "&unknown;"};
+    for (String s : cases) {
+      assertEquals(s, TRANSLATOR.translate(s), HtmlEntityDecoder.decode(s));
+    }
+  }
+
+  @Test
+  public void testNoAmpersand() throws Exception {
+    final String text = "no entities in here";
+    assertSame(text, HtmlEntityDecoder.decode(text));
+  }
+
+  @Test
+  @Ignore
+  public void testPerformance() throws Exception {
+    final List<String> pages = getPages();
+    long chars = 0;
+    for (String page : pages) {
+      chars += page.length();
+    }
+    // warm up
+    for (String page : pages) {
+      TRANSLATOR.translate(page);
+      HtmlEntityDecoder.decode(page);
+    }
+    long t0 = System.nanoTime();
+    for (int i = 0; i < ROUNDS; i++) {
+      for (String page : pages) {
+        TRANSLATOR.translate(page);
+      }
+    }
+    final long translator = System.nanoTime() - t0;
+    t0 = System.nanoTime();
+    for (int i = 0; i < ROUNDS; i++) {
+      for (String page : pages) {
+        HtmlEntityDecoder.decode(page);
+      }
+    }
+    final long decoder = System.nanoTime() - t0;
+    LOGGER.info("{} pages, {} chars, {} rounds", pages.size(), chars, ROUNDS);
+    LOGGER.info("LookupTranslator:  {}ms", translator / 1000000);
+    LOGGER.info("HtmlEntityDecoder: {}ms", decoder / 1000000);
+  }
+}
@@ -0,0 +1,97 @@
+package com.formulasearchengine.mathosphere.mlp.performance;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.formulasearchengine.mathosphere.TestUtils;
+import com.formulasearchengine.mathosphere.mlp.text.MathMLUtils;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares the streaming identifier extraction of {@link MathMLUtils} with the DOM and XPath based one it replaces on
+ * the MathML test resources and the formulae of the gold standard.
+ */
+public class MathMLUtilsPerformanceTest {
+
+  private static final Logger LOGGER = LogManager.getLogger(MathMLUtilsPerformanceTest.class.getName());
+
+  private static final int ROUNDS = 20;
+
+  private static final String[] CASES = {
+    "<math><msub><mi>x</mi><mn>1</mn></msub><mo>+</mo><mi>y</mi></math>",
+    "<m:math xmlns:m=\"http://www.w3.org/1998/Math/MathML\"><m:msub><m:mi>T</m:mi><m:mi>ab</m:mi></m:msub></m:math>",
+    "<math><msub><msub><mi>x</mi><mi>i</mi></msub><mi>j</mi></msub><mi>z</mi></math>",
+    "<math><msub><mrow><mi>a</mi><mi>b</mi></mrow><mi>c</mi></msub></math>",
+    "<math><msub><mi>p<!-- comment -->q</mi><mn>2</mn></msub><mi>r<!-- comment -->s</mi></math>",
+    "<math><mi>   </mi><mi> e </mi><mi>1.5</mi><mi>sin</mi><mi>&#x3B1;</mi></math>",
+    "<math><semantics><mi>v</mi><annotation-xml><x:mi xmlns:x=\"urn:other\">w</x:mi></annotation-xml></semantics></math>"
+  };
+
+  private static List<String> getMathML() throws Exception {
+    final List<String> mathML = new ArrayList<>();
+    for (String file : new String[]{"complex_msub.xml", "math-R_specific.xml"}) {
+      mathML.add(TestUtils.getFileContents("com/formulasearchengine/mathosphere/mlp/" + file));
+    }
+    for (String c : CASES) {
+      mathML.add(c);
+    }
+    final JsonNode gold;
+    try (InputStream in = MathMLUtilsPerformanceTest.class.getResourceAsStream(
+      "/com/formulasearchengine/mathosphere/mlp/gold/gold.json")) {
+      gold = new ObjectMapper().readTree(in);
+    }
+    for (JsonNode entry : gold) {
+      mathML.add(MathMLUtils.texToMathML(entry.get("formula").get("math_inputtex").asText()));
+    }
+    return mathML;
+  }
+
+  @Test
+  public void testSameResult() throws Exception {
+    for (String mathML : getMathML()) {
+      for (boolean useTeX : new boolean[]{false, true}) {
+        for (boolean useBlacklist : new boolean[]{false, true}) {
+          assertEquals(mathML, MathMLUtils.parseWithXpath(mathML, useTeX, useBlacklist),
+            MathMLUtils.parseWithStax(mathML, useTeX, useBlacklist));
+        }
+      }
+    }
+  }
+
+  @Test
+  @Ignore
+  public void testPerformance() throws Exception {
+    final List<String> formulae = getMathML();
+    // warm up
+    for (String mathML : formulae) {
+      MathMLUtils.parseWithXpath(mathML, false, true);
+      MathMLUtils.parseWithStax(mathML, false, true);
+    }
+    long t0 = System.nanoTime();
+    for (int i = 0; i < ROUNDS; i++) {
+      for (String mathML : formulae) {
+        MathMLUtils.parseWithXpath(mathML, false, true);
+      }
+    }
+    final long xpath = System.nanoTime() - t0;
+    t0 = System.nanoTime();
+    for (int i = 0; i < ROUNDS; i++) {
+      for (String mathML : formulae) {
+        MathMLUtils.parseWithStax(mathML, false, true);
+      }
+    }
+    final long stax = System.nanoTime() - t0;
+    LOGGER.info("{} formulae, {} rounds", formulae.size(), ROUNDS);
+    LOGGER.info("DOM and XPath: {}ms", xpath / 1000000);
+    LOGGER.info("StAX:          {}ms", stax / 1000000);
+  }
+}
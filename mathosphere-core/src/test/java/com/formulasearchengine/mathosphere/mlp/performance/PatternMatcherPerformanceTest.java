@@ -0,0 +1,142 @@
+package com.formulasearchengine.mathosphere.mlp.performance;
+
+import com.alexeygrigorev.rseq.BeanMatchers;
+import com.alexeygrigorev.rseq.Match;
+import com.alexeygrigorev.rseq.Matcher;
+import com.alexeygrigorev.rseq.Pattern;
+import com.google.common.collect.Lists;
+
+import com.formulasearchengine.mathosphere.mlp.contracts.TextAnnotatorMapperTest;
+import com.formulasearchengine.mathosphere.mlp.pojos.ParsedWikiDocument;
+import com.formulasearchengine.mathosphere.mlp.pojos.RawWikiDocument;
+import com.formulasearchengine.mathosphere.mlp.pojos.Sentence;
+import com.formulasearchengine.mathosphere.mlp.pojos.Word;
+import com.formulasearchengine.mathosphere.mlp.text.PatternMatcher;
+import com.formulasearchengine.mathosphere.mlp.text.PatternMatcher.IdentifierMatch;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static com.formulasearchengine.mathosphere.mlp.text.PatternMatcher.pos;
+import static com.formulasearchengine.mathosphere.mlp.text.PatternMatcher.posRegExp;
+import static com.formulasearchengine.mathosphere.mlp.text.PatternMatcher.word;
+import static com.formulasearchengine.mathosphere.mlp.text.WikiTextUtils.deLinkify;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares the pattern trie of {@link PatternMatcher} with the original implementation, which runs nine rseq
+ * patterns with reflective bean matchers over every sentence, on documents of the gold standard.
+ */
+public class PatternMatcherPerformanceTest {
+
+  private static final Logger LOGGER = LogManager.getLogger(PatternMatcherPerformanceTest.class.getName());
+
+  private static final int DOCUMENTS = 10;
+  private static final int ROUNDS = 50;
+
+  private static List<ParsedWikiDocument> getDocuments() throws Exception {
+    final List<RawWikiDocument> raw =
+      TextAnnotatorMapperTest.readWikiTextDocuments("com/formulasearchengine/mathosphere/mlp/gold/eval_dataset.xml");
+    final List<ParsedWikiDocument> docs = new ArrayList<>();
+    for (RawWikiDocument doc : raw.subList(0, Math.min(DOCUMENTS, raw.size()))) {
+      docs.add(TextAnnotatorMapperTest.TEST_INSTANCE.map(doc));
+    }
+    return docs;
+  }
+
+  private static List<String> describe(List<IdentifierMatch> matches) {
+    final List<String> result = new ArrayList<>();
+    for (IdentifierMatch match : matches) {
+      result.add(match.getIdentifier() + "|" + match.getDefinition() + "|" + match.getPosition());
+    }
+    return result;
+  }
+
+  @Test
+  public void testSameResult() throws Exception {
+    int matches = 0;
+    for (ParsedWikiDocument doc : getDocuments()) {
+      for (Sentence sentence : doc.getSentences()) {
+        final List<IdentifierMatch> expected = match(sentence.getIdentifiers(), sentence.getWords(), doc);
+        final List<IdentifierMatch> actual =
+          PatternMatcher.generatePatterns(sentence.getIdentifiers()).match(sentence.getWords(), doc);
+        assertEquals(sentence.toString(), describe(expected), describe(actual));
+        matches += actual.size();
+      }
+    }
+    // the comparison is only meaningful if the patterns match anything
+    assertTrue(matches > 0);
+  }
+
+  @Test
+  @Ignore
+  public void testPerformance() throws Exception {
+    final List<ParsedWikiDocument> docs = getDocuments();
+    long t0 = System.nanoTime();
+    for (int i = 0; i < ROUNDS; i++) {
+      for (ParsedWikiDocument doc : docs) {
+        for (Sentence sentence : doc.getSentences()) {
+          match(sentence.getIdentifiers(), sentence.getWords(), doc);
+        }
+      }
+    }
+    final long original = System.nanoTime() - t0;
+    t0 = System.nanoTime();
+    for (int i = 0; i < ROUNDS; i++) {
+      for (ParsedWikiDocument doc : docs) {
+        for (Sentence sentence : doc.getSentences()) {
+          PatternMatcher.generatePatterns(sentence.getIdentifiers()).match(sentence.getWords(), doc);
+        }
+      }
+    }
+    final long trie = System.nanoTime() - t0;
+    LOGGER.info("{} documents, {} rounds", docs.size(), ROUNDS);
+    LOGGER.info("rseq: {}ms", original / 1000000);
+    LOGGER.info("trie: {}ms", trie / 1000000);
+  }
+
+  // the original implementation
+
+  private static List<IdentifierMatch> match(Set<String> identifiers, List<Word> words, ParsedWikiDocument doc) {
+    final List<Pattern<Word>> patterns = generatePatterns(identifiers);
+    final List<IdentifierMatch> result = Lists.newArrayList();
+    for (int i = 0; i < patterns.size(); i++) {
+      for (Match<Word> match : patterns.get(i).find(words)) {
+        final String id = match.getVariable("identifier").getWord();
+        final String def = deLinkify(match.getVariable("definition"), doc);
+        result.add(new IdentifierMatch(id, def, i));
+      }
+    }
+    return result;
+  }
+
+  private static List<Pattern<Word>> generatePatterns(Set<String> identifiers) {
+    final Matcher<Word> isOrAre = word("is").or(word("are"));
+    final Matcher<Word> let = word("let");
+    final Matcher<Word> be = word("be");
+    final Matcher<Word> by = word("by");
+    final Matcher<Word> denotes = word("denotes").or(word("denote"));
+    final Matcher<Word> denoted = word("denoted");
+    final Matcher<Word> the = pos("DT");
+    final Matcher<Word> identifier = BeanMatchers.in(Word.class, "word", identifiers).captureAs("identifier");
+    final Matcher<Word> definition = posRegExp("(NN[PS]{0,2}|NP\\+?|NN\\+|LNK)").captureAs("definition");
+    return Arrays.asList(
+      Pattern.create(definition, identifier),
+      Pattern.create(identifier, definition),
+      Pattern.create(identifier, isOrAre, definition),
+      Pattern.create(identifier, isOrAre, the, definition),
+      Pattern.create(let, identifier, be, definition),
+      Pattern.create(let, identifier, be, the, definition),
+      Pattern.create(definition, isOrAre, denoted, by, identifier),
+      Pattern.create(identifier, denotes, definition),
+      Pattern.create(identifier, denotes, the, definition));
+  }
+}
@@ -0,0 +1,94 @@
+package com.formulasearchengine.mathosphere.mlp.performance;
+
+import com.formulasearchengine.mathosphere.TestUtils;
+import com.formulasearchengine.mathosphere.mlp.cli.FlinkMlpCommandConfig;
+import com.formulasearchengine.mathosphere.mlp.pojos.MathTag;
+import com.formulasearchengine.mathosphere.mlp.text.PosTagger;
+import com.formulasearchengine.mathosphere.mlp.text.WikiTextUtils;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertNotEquals;
+
+/**
+ * Measures the tagging throughput of 1, 4 and 16 task slots that share one pipeline.
+ */
+public class PosTaggerPerformanceTest {
+
+  private static final Logger LOGGER = LogManager.getLogger(PosTaggerPerformanceTest.class.getName());
+
+  private static final String[] PAGES = {"hamiltonian_wiki.txt", "mean_wiki.txt", "schroedinger_wiki.txt"};
+  private static final int ROUNDS = 3;
+
+  private static final class Page {
+    final String cleanText;
+    final List<MathTag> mathTags;
+
+    Page(String wikiText) {
+      mathTags = WikiTextUtils.findMathTags(wikiText);
+      cleanText = WikiTextUtils.extractPlainText(WikiTextUtils.replaceAllFormulas(wikiText, mathTags));
+    }
+  }
+
+  private static List<Page> getPages() throws Exception {
+    final List<Page> pages = new ArrayList<>();
+    for (String page : PAGES) {
+      pages.add(new Page(TestUtils.getFileContents("com/formulasearchengine/mathosphere/mlp/performance/" + page)));
+    }
+    return pages;
+  }
+
+  private static long usedHeap() {
+    final Runtime runtime = Runtime.getRuntime();
+    System.gc();
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  @Test
+  @Ignore
+  public void testThroughput() throws Exception {
+    for (int slots : new int[]{1, 4, 16}) {
+      final long heap = usedHeap();
+      final List<PosTagger> taggers = new ArrayList<>();
+      for (int i = 0; i < slots; i++) {
+        taggers.add(PosTagger.create(FlinkMlpCommandConfig.test()));
+      }
+      final long heapPerSlot = (usedHeap() - heap) / slots;
+      final ExecutorService executor = Executors.newFixedThreadPool(slots);
+      final long t0 = System.nanoTime();
+      final List<Future<Integer>> results = new ArrayList<>();
+      for (PosTagger tagger : taggers) {
+        results.add(executor.submit(() -> {
+          // each slot works on its own documents, as in Flink
+          final List<Page> pages = getPages();
+          int sentences = 0;
+          for (int round = 0; round < ROUNDS; round++) {
+            for (Page page : pages) {
+              sentences += tagger.process(page.cleanText, page.mathTags).size();
+            }
+          }
+          return sentences;
+        }));
+      }
+      int sentences = 0;
+      for (Future<Integer> result : results) {
+        sentences += result.get();
+      }
+      final long millis = Math.max(1, (System.nanoTime() - t0) / 1000000);
+      executor.shutdown();
+      taggers.forEach(PosTagger::close);
+      assertNotEquals(0, sentences);
+      LOGGER.info("{} slots: {} sentences/s, {}kB heap per slot", slots, sentences * 1000 / millis,
+        heapPerSlot / 1024);
+    }
+  }
+}
@@ -0,0 +1,149 @@
+package com.formulasearchengine.mathosphere.mlp.performance;
+
+import com.formulasearchengine.mathosphere.mlp.cli.FlinkMlpCommandConfig;
+import com.formulasearchengine.mathosphere.mlp.contracts.TextAnnotatorMapperTest;
+import com.formulasearchengine.mathosphere.mlp.ml.DependencyParseCache;
+import com.formulasearchengine.mathosphere.mlp.ml.RelationClassifier;
+import com.formulasearchengine.mathosphere.mlp.ml.WekaUtils;
+import com.formulasearchengine.mathosphere.mlp.pojos.RawWikiDocument;
+import com.formulasearchengine.mathosphere.mlp.pojos.Relation;
+import com.formulasearchengine.mathosphere.mlp.pojos.WikiDocumentOutput;
+import com.formulasearchengine.mathosphere.mlp.text.SimpleFeatureExtractorMapper;
+import com.formulasearchengine.mlp.evaluation.pojo.IdentifierDefinition;
+
+import edu.stanford.nlp.parser.nndep.DependencyParser;
+import org.junit.BeforeClass;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.Ignore;
+import org.junit.Test;
+import weka.classifiers.meta.FilteredClassifier;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.SerializationHelper;
+import weka.filters.Filter;
+import weka.filters.unsupervised.attribute.StringToWordVector;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.formulasearchengine.mathosphere.mlp.ml.WekaUtils.MATCH;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares the batch classification of {@link RelationClassifier} with the original implementation, which filters
+ * every relation on its own and evaluates the svm twice per relation, on documents of the gold standard.
+ */
+public class RelationClassifierPerformanceTest {
+
+  private static final Logger LOGGER = LogManager.getLogger(RelationClassifierPerformanceTest.class.getName());
+
+  private static final int DOCUMENTS = 10;
+  private static final String MODELS = "com/formulasearchengine/mathosphere/mlp/ml/";
+
+  private static FilteredClassifier svm;
+  private static StringToWordVector stringToWordVector;
+  private static DependencyParser parser;
+
+  @BeforeClass
+  public static void load() throws Exception {
+    ClassLoader classLoader = RelationClassifierPerformanceTest.class.getClassLoader();
+    svm = (FilteredClassifier) SerializationHelper.read(
+      classLoader.getResourceAsStream(MODELS + "svm_model__c_1.0_gamma_0.022097087.model"));
+    stringToWordVector = (StringToWordVector) SerializationHelper.read(
+      classLoader.getResourceAsStream(MODELS + "string_filter__c_1.0_gamma_0.022097087.model"));
+    parser = DependencyParser.loadFromModelFile("edu/stanford/nlp/models/parser/nndep/english_UD.gz");
+  }
+
+  private static List<WikiDocumentOutput> getDocuments() throws Exception {
+    final List<RawWikiDocument> raw =
+      TextAnnotatorMapperTest.readWikiTextDocuments("com/formulasearchengine/mathosphere/mlp/gold/eval_dataset.xml");
+    final SimpleFeatureExtractorMapper features = new SimpleFeatureExtractorMapper(FlinkMlpCommandConfig.test(), null);
+    final List<WikiDocumentOutput> docs = new ArrayList<>();
+    for (RawWikiDocument doc : raw.subList(0, Math.min(DOCUMENTS, raw.size()))) {
+      docs.add(features.map(TextAnnotatorMapperTest.TEST_INSTANCE.map(doc)));
+    }
+    return docs;
+  }
+
+  private static List<String> describe(List<Relation> relations) {
+    final List<String> result = new ArrayList<>();
+    for (Relation relation : relations) {
+      result.add(relation.getIdentifier() + "|" + relation.getDefinition() + "|" + relation.getScore());
+    }
+    result.sort(String::compareTo);
+    return result;
+  }
+
+  @Test
+  public void testSameResult() throws Exception {
+    final RelationClassifier classifier = new RelationClassifier(svm, stringToWordVector, parser, new DependencyParseCache(0));
+    int positive = 0;
+    for (WikiDocumentOutput doc : getDocuments()) {
+      final List<String> expected = describe(classify(doc));
+      final List<String> actual = describe(classifier.classify(doc));
+      assertEquals(doc.getTitle(), expected, actual);
+      positive += actual.size();
+    }
+    // the comparison is only meaningful if the model classifies some relations as a match
+    assertTrue(positive > 0);
+  }
+
+  @Test
+  @Ignore
+  public void testPerformance() throws Exception {
+    final List<WikiDocumentOutput> docs = getDocuments();
+    final RelationClassifier classifier = new RelationClassifier(svm, stringToWordVector, parser, new DependencyParseCache(0));
+    int relations = 0;
+    long t0 = System.nanoTime();
+    for (WikiDocumentOutput doc : docs) {
+      classify(doc);
+      relations += doc.getRelations().size();
+    }
+    final long original = System.nanoTime() - t0;
+    t0 = System.nanoTime();
+    for (WikiDocumentOutput doc : docs) {
+      classifier.classify(doc);
+    }
+    final long batch = System.nanoTime() - t0;
+    LOGGER.info("{} documents, {} relations", docs.size(), relations);
+    LOGGER.info("per relation: {}ms", original / 1000000);
+    LOGGER.info("batch: {}ms", batch / 1000000);
+  }
+
+  // the original implementation
+
+  private static List<Relation> classify(WikiDocumentOutput doc) throws Exception {
+    Instances instances;
+    WekaUtils wekaUtils = new WekaUtils();
+    instances = wekaUtils.createInstances("AllRelations");
+    Map<IdentifierDefinition, Relation> positiveClassifications = new HashMap<>();
+    for (int i = 0; i < doc.getRelations().size(); i++) {
+      Relation relation = doc.getRelations().get(i);
+      wekaUtils.addRelationToInstances(parser, doc.getTitle(), doc.getqId(), instances, doc.getMaxSentenceLength(), relation);
+      Instances toStringReplace = new Instances(instances, 1);
+      toStringReplace.add(instances.get(i));
+      Instances stringReplaced = Filter.useFilter(toStringReplace, stringToWordVector);
+      Instance instance = stringReplaced.get(0);
+      double[] distribution = svm.distributionForInstance(instance);
+      String predictedClass = instances.classAttribute().value((int) svm.classifyInstance(instance));
+      if (predictedClass.equals(MATCH)) {
+        relation.setScore(distribution[instances.classAttribute().indexOfValue(MATCH)]);
+        IdentifierDefinition extraction = new IdentifierDefinition(
+          instance.stringValue(instance.attribute(instances.attribute(WekaUtils.IDENTIFIER).index())),
+          instance.stringValue(instance.attribute(instances.attribute(WekaUtils.DEFINIEN).index())));
+        if (!positiveClassifications.containsKey(extraction)) {
+          positiveClassifications.put(extraction, relation);
+        } else {
+          if (positiveClassifications.get(extraction).getScore() < relation.getScore()) {
+            positiveClassifications.put(extraction, relation);
+          }
+        }
+      }
+    }
+    return new ArrayList<>(positiveClassifications.values());
+  }
+}
@@ -0,0 +1,89 @@
+package com.formulasearchengine.mathosphere.mlp.pojos;
+
+import com.formulasearchengine.mathosphere.mlp.contracts.CreateCandidatesMapperTest;
+
+import org.apache.flink.api.common.ExecutionConfig;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.api.java.typeutils.runtime.kryo.KryoSerializer;
+import org.apache.flink.core.memory.DataInputDeserializer;
+import org.apache.flink.core.memory.DataOutputSerializer;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class EncodedSentencesTest {
+
+  private static ParsedWikiDocument read() throws Exception {
+    return CreateCandidatesMapperTest.read("com/formulasearchengine/mathosphere/mlp/augmentendwikitext.xml");
+  }
+
+  private static <T> byte[] serialize(TypeSerializer<T> serializer, T value) throws Exception {
+    DataOutputSerializer out = new DataOutputSerializer(4096);
+    serializer.serialize(value, out);
+    return Arrays.copyOf(out.getByteArray(), out.length());
+  }
+
+  @Test
+  public void encodeDecode() throws Exception {
+    ParsedWikiDocument doc = read();
+    EncodedSentences encoded = EncodedSentences.encode(doc.getSentences(), doc.getFormulas());
+    assertEquals(doc.getSentences().size(), encoded.size());
+    assertTrue(encoded.getDictionarySize() < encoded.getWordCount());
+
+    List<Sentence> decoded = encoded.decode(doc.getFormulas());
+    assertSentences(doc.getSentences(), doc.getFormulas(), decoded, doc.getFormulas());
+  }
+
+  @Test
+  public void roundTrip() throws Exception {
+    ParsedWikiDocument doc = read();
+    byte[] bytes = serialize(ParsedWikiDocumentSerializer.INSTANCE, doc);
+    ParsedWikiDocument copy = ParsedWikiDocumentSerializer.INSTANCE.deserialize(
+      new DataInputDeserializer(bytes, 0, bytes.length));
+
+    assertEquals(doc.getTitle(), copy.getTitle());
+    assertEquals(doc.getIdentifiers(), copy.getIdentifiers());
+    assertEquals(doc.getFormulas().size(), copy.getFormulas().size());
+    for (int i = 0; i < doc.getFormulas().size(); i++) {
+      MathTag expected = doc.getFormulas().get(i);
+      MathTag actual = copy.getFormulas().get(i);
+      assertEquals(expected.getContent(), actual.getContent());
+      assertEquals(expected.getPosition(), actual.getPosition());
+      assertEquals(expected.getMarkUpType(), actual.getMarkUpType());
+      assertEquals(expected.getResolvedIdentifiers(), actual.getResolvedIdentifiers());
+    }
+    assertEquals(doc.getLinks(), copy.getLinks());
+    assertEquals(doc.getIdentifierIndex().keySet(), copy.getIdentifierIndex().keySet());
+    assertSentences(doc.getSentences(), doc.getFormulas(), copy.getSentences(), copy.getFormulas());
+  }
+
+  @Test
+  public void smallerThanKryo() throws Exception {
+    ParsedWikiDocument doc = read();
+    int encoded = serialize(ParsedWikiDocumentSerializer.INSTANCE, doc).length;
+    int kryo = serialize(new KryoSerializer<>(ParsedWikiDocument.class, new ExecutionConfig()), doc).length;
+    // at most three quarters of the bytes kryo needs
+    assertTrue("kryo: " + kryo + " bytes, encoded: " + encoded + " bytes", encoded * 4 < kryo * 3);
+  }
+
+  private static void assertSentences(List<Sentence> expected, List<MathTag> expectedFormulas,
+                                      List<Sentence> actual, List<MathTag> actualFormulas) {
+    assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      Sentence e = expected.get(i);
+      Sentence a = actual.get(i);
+      assertEquals(e.getWords(), a.getWords());
+      assertEquals(e.getIdentifiers(), a.getIdentifiers());
+      assertEquals(e.getFormulas().size(), a.getFormulas().size());
+      for (int f = 0; f < e.getFormulas().size(); f++) {
+        int index = expectedFormulas.indexOf(e.getFormulas().get(f));
+        assertSame(actualFormulas.get(index), a.getFormulas().get(f));
+      }
+    }
+  }
+}
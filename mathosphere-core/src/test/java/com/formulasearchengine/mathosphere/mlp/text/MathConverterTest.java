@@ -1,5 +1,6 @@
 package com.formulasearchengine.mathosphere.mlp.text;
 
+import com.formulasearchengine.mathosphere.mlp.cli.BaseConfig;
 import com.formulasearchengine.mathosphere.mlp.contracts.TextExtractorMapper;
 import com.formulasearchengine.mathosphere.mlp.pojos.MathTag;
 import org.apache.commons.io.IOUtils;
@@ -11,6 +12,9 @@ import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 /**
  * Created by Moritz on 15.12.2015.
@@ -198,4 +202,31 @@ public class MathConverterTest {
         assertThat(real, containsString("\\mathit{d}"));
         assertThat(real, equalTo("_{a}, ^{b}, \\mathbf{c}, \\mathit{d}"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testReuse() throws Exception {
+        final String[] wikiTexts = {
+                IOUtils.toString(getClass().getResourceAsStream("legendre_wiki.txt"), "UTF-8"),
+                IOUtils.toString(getClass().getResourceAsStream("../titration_wiki.txt"), "UTF-8"),
+                "Word\n<math>x</math>\nend."};
+        final MathConverter mathConverter = new MathConverter(new BaseConfig().setParseCacheSize(10));
+        // the second round is served from the parse cache
+        for (int round = 0; round < 2; round++) {
+            for (String wikiText : wikiTexts) {
+                final MathConverter expected = new MathConverter(wikiText);
+                final String real = mathConverter.parse(wikiText, "noname").getOutput();
+                assertEquals(expected.getOutput(), real);
+                assertEquals(expected.getMathTags().size(), mathConverter.getMathTags().size());
+                assertEquals(expected.getLinks().size(), mathConverter.getLinks().size());
+            }
+        }
+    }
+
+    @Test
+    public void testParseCacheBySize() {
+        assertNull(MathConverter.getParseCache(0));
+        assertSame(MathConverter.getParseCache(10), MathConverter.getParseCache(10));
+        // a converter with another size does not get the cache of the first one
+        assertNotSame(MathConverter.getParseCache(10), MathConverter.getParseCache(20));
+    }
+}
@@ -17,6 +17,10 @@ import java.util.HashSet;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 public class PosTaggerTest {
 
@@ -44,6 +48,70 @@ public class PosTaggerTest {
     List<Word> sentence = result.get(0).getWords();
     assertEquals(expected, sentence.subList(0, expected.size()));
     LOGGER.debug("full result: {}", result);
+    nlpProcessor.close();
+  }
+
+  @Test
+  public void annotation_parallel() throws Exception {
+    String text = readText("escaped.txt");
+    List<MathTag> mathTags = WikiTextUtils.findMathTags(text);
+    String cleanText = WikiTextUtils.extractPlainText(WikiTextUtils.replaceAllFormulas(text, mathTags));
+    StringBuilder longText = new StringBuilder();
+    for (int i = 0; i < 20; i++) {
+      longText.append(cleanText).append("\n\n");
+    }
+
+    PosTagger sequential = PosTagger.create(FlinkMlpCommandConfig.test());
+    FlinkMlpCommandConfig cfg = FlinkMlpCommandConfig.test();
+    cfg.setPosThreads(4);
+    PosTagger parallel = PosTagger.create(cfg);
+
+    List<Sentence> expected = sequential.process(longText.toString(), mathTags);
+    List<Sentence> actual = parallel.process(longText.toString(), mathTags);
+    assertTrue(expected.size() > PosTagger.BATCH_SIZE);
+    assertEquals(expected.toString(), actual.toString());
+    sequential.close();
+    parallel.close();
+  }
+
+  @Test
+  public void sharedPipeline() throws Exception {
+    String text = readText("escaped.txt");
+    List<MathTag> mathTags = WikiTextUtils.findMathTags(text);
+    String cleanText = WikiTextUtils.extractPlainText(WikiTextUtils.replaceAllFormulas(text, mathTags));
+    int before = PosTagger.getPipelineCount();
+    PosTagger first = PosTagger.create(FlinkMlpCommandConfig.test());
+    PosTagger second = PosTagger.create(FlinkMlpCommandConfig.test());
+    assertEquals(before + 1, PosTagger.getPipelineCount());
+    assertEquals(first.process(cleanText, mathTags).toString(), second.process(cleanText, mathTags).toString());
+    first.close();
+    // closing twice must not release the pipeline of the second tagger
+    first.close();
+    assertEquals(before + 1, PosTagger.getPipelineCount());
+    second.close();
+    assertEquals(before, PosTagger.getPipelineCount());
+  }
+
+  @Test
+  public void sharedPipeline_poolPerThreadCount() {
+    FlinkMlpCommandConfig two = FlinkMlpCommandConfig.test();
+    two.setPosThreads(2);
+    FlinkMlpCommandConfig four = FlinkMlpCommandConfig.test();
+    four.setPosThreads(4);
+    PosTagger sequential = PosTagger.create(FlinkMlpCommandConfig.test());
+    PosTagger first = PosTagger.create(two);
+    PosTagger second = PosTagger.create(two);
+    PosTagger larger = PosTagger.create(four);
+    assertNull(sequential.getPool());
+    assertSame(first.getPool(), second.getPool());
+    assertEquals(2, first.getPool().getParallelism());
+    // a later tagger with more threads gets a pool of its own size
+    assertNotSame(first.getPool(), larger.getPool());
+    assertEquals(4, larger.getPool().getParallelism());
+    sequential.close();
+    first.close();
+    second.close();
+    larger.close();
   }
 
   @Test
@@ -0,0 +1,108 @@
+package com.formulasearchengine.mathosphere.mlp.text;
+
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.ImmutableMultiset;
+import com.google.common.collect.Multiset;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Conformance of the {@link TexIdentifierExtractor} with texvcinfo. identifier.json holds texvcinfo responses
+ * recorded by their input hash, the inputs are taken from the formulae of the gold standard.
+ */
+public class TexIdentifierExtractorTest {
+
+  @Test
+  public void testRecordedTexvcinfo() throws Exception {
+    final Map<String, JsonNode> recorded = new HashMap<>();
+    for (JsonNode response : readJson("/identifier.json")) {
+      recorded.put(response.get("inputhash").asText(), response.get("texvcinfo"));
+    }
+    final List<String> mismatches = new ArrayList<>();
+    int checked = 0;
+    for (JsonNode entry : readJson("/com/formulasearchengine/mathosphere/mlp/gold/gold.json")) {
+      final String tex = entry.get("formula").get("math_inputtex").asText();
+      final JsonNode response = recorded.get(TexInfoCache.hash(tex));
+      if (response == null) {
+        continue;
+      }
+      final Multiset<String> expected = HashMultiset.create();
+      for (JsonNode identifier : response) {
+        expected.add(identifier.asText());
+      }
+      final Multiset<String> identifiers = TexIdentifierExtractor.getIdentifiers(tex);
+      checked++;
+      if (!expected.equals(identifiers)) {
+        mismatches.add(tex + ": texvcinfo " + expected + ", local " + identifiers);
+      }
+    }
+    assertTrue(checked >= 30);
+    assertTrue(mismatches.toString(), mismatches.isEmpty());
+  }
+
+  private JsonNode readJson(String resource) throws Exception {
+    try (InputStream in = getClass().getResourceAsStream(resource)) {
+      return new ObjectMapper().readTree(in);
+    }
+  }
+
+  @Test
+  public void testSimple() {
+    assertEquals(ImmutableMultiset.of("E", "m", "c"), TexIdentifierExtractor.getIdentifiers("E=mc^2"));
+    assertEquals(ImmutableMultiset.of("x", "x"), TexIdentifierExtractor.getIdentifiers("x^2+2x"));
+    assertEquals(ImmutableMultiset.of("a", "b"), TexIdentifierExtractor.getIdentifiers("\\frac{a}{\\sqrt{b}}"));
+    assertTrue(TexIdentifierExtractor.getIdentifiers("\\sin(2) + 1").isEmpty());
+  }
+
+  @Test
+  public void testSubscripts() {
+    assertEquals(ImmutableMultiset.of("x_{1}"), TexIdentifierExtractor.getIdentifiers("x_1"));
+    assertEquals(ImmutableMultiset.of("x_{12}"), TexIdentifierExtractor.getIdentifiers("x_{12}"));
+    assertEquals(ImmutableMultiset.of("T_{\\alpha,\\beta}"), TexIdentifierExtractor.getIdentifiers("T_{\\alpha \\beta}"));
+    assertEquals(ImmutableMultiset.of("E_{\\text,k}"), TexIdentifierExtractor.getIdentifiers("E_\\text{k}"));
+    assertEquals(ImmutableMultiset.of("\\theta_{k}"), TexIdentifierExtractor.getIdentifiers("\\theta_{k-1}"));
+    assertEquals(ImmutableMultiset.of("h"), TexIdentifierExtractor.getIdentifiers("h_{-2}"));
+    assertEquals(ImmutableMultiset.of("a", "i", "x"), TexIdentifierExtractor.getIdentifiers("a_i^x"));
+  }
+
+  @Test
+  public void testFonts() {
+    assertEquals(ImmutableMultiset.of("\\mathbf{m}_{1}"), TexIdentifierExtractor.getIdentifiers("\\mathbf{m}_1"));
+    assertEquals(ImmutableMultiset.of("\\hat{\\sigma}"), TexIdentifierExtractor.getIdentifiers("\\hat\\sigma"));
+    assertEquals(ImmutableMultiset.of("S'"), TexIdentifierExtractor.getIdentifiers("S'"));
+    assertTrue(TexIdentifierExtractor.getIdentifiers("\\text{if } n>0").contains("n"));
+    assertEquals(ImmutableMultiset.of("\\text", "if"), TexIdentifierExtractor.getIdentifiers("\\text{if}"));
+    assertThat(TexIdentifierExtractor.getIdentifiers("\\phantom{x}").isEmpty(), is(true));
+  }
+
+  @Test
+  public void testUnmatchedBrace() {
+    assertEquals(ImmutableMultiset.of("a", "b_{c}"), TexIdentifierExtractor.getIdentifiers("{a}} + b_{c}"));
+  }
+
+  @Test
+  public void testFiltered() {
+    final Multiset<String> identifiers = TexIdentifierExtractor.getIdentifiers("\\operatorname{d}x + \\infty");
+    assertEquals(ImmutableMultiset.of("\\operatorname{d}", "x", "\\infty"), identifiers);
+    assertEquals(ImmutableMultiset.of("x"), MathMLUtils.filterTexvcinfoIdentifiers(identifiers));
+  }
+
+  @Test
+  public void testLocalUrl() throws Exception {
+    assertEquals(ImmutableMultiset.of("E", "m", "c"), TexInfo.getIdentifiers("E=mc^2", TexIdentifierExtractor.LOCAL));
+  }
+}
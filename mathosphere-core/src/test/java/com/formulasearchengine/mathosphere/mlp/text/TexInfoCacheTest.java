@@ -0,0 +1,75 @@
+package com.formulasearchengine.mathosphere.mlp.text;
+
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.ImmutableMultiset;
+import com.google.common.collect.Multiset;
+
+import com.formulasearchengine.mathosphere.mlp.pojos.MathTag;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+
+public class TexInfoCacheTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testPutPersists() throws Exception {
+    final File file = new File(folder.getRoot(), "cache/texvcinfo.jsonl");
+    final TexInfoCache cache = TexInfoCache.open(file.getPath());
+    assertNull(cache.get("E=mc^2"));
+    cache.put("E=mc^2", HashMultiset.create(Arrays.asList("E", "m", "c")));
+    assertEquals(ImmutableMultiset.of("E", "m", "c"), cache.get("E=mc^2"));
+    final List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+    assertEquals(1, lines.size());
+    final String hash = new MathTag(0, "E=mc^2", WikiTextUtils.MathMarkUpType.LATEX).getContentHash();
+    assertThat(lines.get(0), containsString(hash));
+  }
+
+  @Test
+  public void testLoad() throws Exception {
+    final File file = folder.newFile("texvcinfo.jsonl");
+    final String hash = TexInfoCache.hash("x^2+x");
+    Files.write(file.toPath(), Arrays.asList(
+        "{\"inputhash\":\"" + hash + "\",\"identifiers\":[\"x\",\"x\"]}",
+        "{\"inputhash\":\"trunc"), StandardCharsets.UTF_8);
+    final TexInfoCache cache = TexInfoCache.open(file.getPath());
+    assertEquals(1, cache.size());
+    final Multiset<String> identifiers = cache.get("x^2+x");
+    assertEquals(2, identifiers.count("x"));
+    // callers may modify the result
+    identifiers.clear();
+    assertEquals(2, cache.get("x^2+x").count("x"));
+  }
+
+  @Test
+  public void testSeed() throws Exception {
+    final File formulae = folder.newFile("formulae.json");
+    final MathTag resolved = new MathTag(0, "a+b+c", WikiTextUtils.MathMarkUpType.LATEX);
+    resolved.setIdentifiers(HashMultiset.create(Arrays.asList("a", "b", "c")));
+    Files.write(formulae.toPath(), Arrays.asList("[",
+        new MathTag(0, "a+b", WikiTextUtils.MathMarkUpType.LATEX).toJson() + ",",
+        resolved.toJson(),
+        "]"), StandardCharsets.UTF_8);
+    final File file = new File(folder.getRoot(), "seeded.jsonl");
+    final TexInfoCache cache = TexInfoCache.open(file.getPath(), formulae.getPath());
+    assertEquals(1, cache.size());
+    assertNull(cache.get("a+b"));
+    assertEquals(ImmutableMultiset.of("a", "b", "c"), cache.get("a+b+c"));
+    assertEquals(0, cache.seed(formulae.getPath()));
+    assertEquals(1, Files.readAllLines(file.toPath(), StandardCharsets.UTF_8).size());
+  }
+}
@@ -0,0 +1,184 @@
+package com.formulasearchengine.mathosphere.mlp.text;
+
+import com.google.common.collect.ImmutableMultiset;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Multiset;
+
+import com.formulasearchengine.mathosphere.mlp.pojos.MathTag;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs the {@link TexInfoClient} against a local stub of the texvcinfo service that reports every letter of the
+ * input as an identifier.
+ */
+public class TexInfoClientTest {
+
+  private HttpServer server;
+  private String url;
+  private final AtomicInteger requests = new AtomicInteger();
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final AtomicInteger maxInFlight = new AtomicInteger();
+  private volatile int status = 200;
+  private volatile long delay = 0;
+
+  @Before
+  public void startServer() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/", this::handle);
+    server.setExecutor(Executors.newCachedThreadPool());
+    server.start();
+    url = "http://localhost:" + server.getAddress().getPort() + "/texvcinfo";
+  }
+
+  @After
+  public void stopServer() {
+    server.stop(0);
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    requests.incrementAndGet();
+    maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+    try {
+      if (delay > 0) {
+        Thread.sleep(delay);
+      }
+      final String path = exchange.getRequestURI().getRawPath();
+      final String tex = URLDecoder.decode(path.substring(path.lastIndexOf('/') + 1), "UTF-8");
+      final StringBuilder json = new StringBuilder("{\"success\":true,\"checked\":\"x\",\"identifiers\":[");
+      for (char c : tex.toCharArray()) {
+        if (Character.isLetter(c)) {
+          json.append(json.charAt(json.length() - 1) == '[' ? "" : ",").append('"').append(c).append('"');
+        }
+      }
+      json.append("],\"endsWithPars\":false}");
+      final byte[] body = json.toString().getBytes(StandardCharsets.UTF_8);
+      exchange.sendResponseHeaders(status, body.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(body);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      inFlight.decrementAndGet();
+      exchange.close();
+    }
+  }
+
+  @Test
+  public void testBatch() throws Exception {
+    try (TexInfoClient client = new TexInfoClient(url, 4, 10000, 5, 60000)) {
+      final Map<String, Multiset<String>> result =
+        client.getIdentifiers(Lists.newArrayList("E=mc^2", "a+b", "E=mc^2", ""));
+      assertEquals(3, result.size());
+      assertEquals(ImmutableMultiset.of("E", "m", "c"), result.get("E=mc^2"));
+      assertEquals(ImmutableMultiset.of("a", "b"), result.get("a+b"));
+      assertTrue(result.get("").isEmpty());
+      assertEquals(2, requests.get());
+    }
+  }
+
+  @Test
+  public void testResolve() throws Exception {
+    final List<MathTag> tags = new ArrayList<>();
+    tags.add(new MathTag(0, "x+y", WikiTextUtils.MathMarkUpType.LATEX));
+    tags.add(new MathTag(1, "x+\\infty", WikiTextUtils.MathMarkUpType.LATEX));
+    try (TexInfoClient client = new TexInfoClient(url, 4, 10000, 5, 60000)) {
+      client.resolve(tags);
+    }
+    assertEquals(ImmutableMultiset.of("x", "y"), tags.get(0).getIdentifiers(null));
+    assertEquals(2, requests.get());
+  }
+
+  @Test
+  public void testLocal() throws Exception {
+    final Set<Thread> threads = Thread.getAllStackTraces().keySet();
+    try (TexInfoClient client = new TexInfoClient(TexIdentifierExtractor.LOCAL, 4, 10000, 5, 60000)) {
+      assertEquals(ImmutableMultiset.of("r_{i,j}"), client.getIdentifiers(Lists.newArrayList("r_{ij}")).get("r_{ij}"));
+      assertEquals(0, client.getRequestCount());
+      // no request threads were started
+      assertTrue(threads.containsAll(Thread.getAllStackTraces().keySet()));
+    }
+    assertEquals(0, requests.get());
+  }
+
+  @Test
+  public void testMaxInFlight() throws Exception {
+    delay = 50;
+    final List<String> texs = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      texs.add("x_" + i);
+    }
+    try (TexInfoClient client = new TexInfoClient(url, 3, 10000, 5, 60000)) {
+      assertEquals(20, client.getIdentifiers(texs).size());
+    }
+    assertEquals(20, requests.get());
+    assertTrue(maxInFlight.get() <= 3);
+  }
+
+  @Test
+  public void testCircuitBreaker() throws Exception {
+    status = 500;
+    final List<String> texs = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      texs.add("y_" + i);
+    }
+    try (TexInfoClient client = new TexInfoClient(url, 1, 10000, 3, 200)) {
+      client.getIdentifiers(texs);
+      assertTrue(client.isOpen());
+      // requests queued after the third failure are dropped
+      assertEquals(3, requests.get());
+      client.getIdentifiers(Lists.newArrayList("z"));
+      assertEquals(3, requests.get());
+      Thread.sleep(250);
+      status = 200;
+      final Map<String, Multiset<String>> result = client.getIdentifiers(Lists.newArrayList("z", "w"));
+      // one probe, the other formula waits for the next document
+      assertEquals(4, requests.get());
+      assertThat(client.isOpen(), is(false));
+      assertEquals(ImmutableMultiset.of("z"), result.get("z"));
+      assertEquals(ImmutableMultiset.of("w"), client.getIdentifiers(Lists.newArrayList("w")).get("w"));
+    }
+  }
+
+  @Test
+  public void testTimeout() throws Exception {
+    delay = 2000;
+    try (TexInfoClient client = new TexInfoClient(url, 2, 200, 5, 60000)) {
+      final long t0 = System.currentTimeMillis();
+      final Map<String, Multiset<String>> result = client.getIdentifiers(Lists.newArrayList("a", "b", "c"));
+      assertTrue(System.currentTimeMillis() - t0 < 1500);
+      assertTrue(result.get("a").isEmpty());
+    }
+  }
+
+  @Test
+  public void testParseIdentifiers() throws Exception {
+    final String json = "{\"success\":true,\"checked\":\"{\\\\frac {a}{b}}\",\"requiredPackages\":[],"
+      + "\"identifiers\":[\"a\",\"b\",\"a\"],\"endsWithDot\":false}";
+    assertEquals(ImmutableMultiset.of("a", "a", "b"),
+      TexInfoClient.parseIdentifiers(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8))));
+  }
+}
@@ -18,6 +18,11 @@ public class MlpResource {
 	private final FlinkMlpCommandConfig config = FlinkMlpCommandConfig.test();
 	private final FlinkMlpRelationFinder finder = new FlinkMlpRelationFinder();
 
+	public MlpResource() {
+		// tag the sentences of large pages in parallel
+		config.setPosThreads(Runtime.getRuntime().availableProcessors());
+	}
+
 	@POST("/AnalyzeWikiText")
 	@PermitAll
 	public WikiDocumentOutput AnalyeWikiText(WikiTextRequest input) {